@@ -0,0 +1,43 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.model.main2022;
+import com.example.backend.service.impl.DownloadServiceImpl;
+import com.example.backend.service.impl.WosMetrics;
+import com.example.backend.testdata.WosRecordGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DownloadServiceImpl.generateCSVBytes（论文详情/搜索结果CSV）的基准测试
+ * 配合 -prof gc 查看每次导出的分配量。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvExportBenchmark {
+
+    @Param({"200", "10000", "100000"})
+    public int papers;
+
+    private List<main2022> corpus;
+    private DownloadServiceImpl downloadService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        corpus = new WosRecordGenerator(42).generate(papers, 2011, 2020);
+        // generateCSVBytes不访问数据库和导出存储；其余参数与application.properties中的默认值一致
+        downloadService = new DownloadServiceImpl(null, null, null, new WosMetrics(new SimpleMeterRegistry()),
+                "none", 6, 3, "zstd", 64, 4096);
+    }
+
+    @Benchmark
+    public byte[] generateCSVBytes() {
+        return downloadService.generateCSVBytes(corpus);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.model.main2022;
+import com.example.backend.service.impl.DisciplinaryAnalysisImpl;
+import com.example.backend.service.impl.DisciplinaryPartial;
+import com.example.backend.service.impl.PaperFacetExtractor;
+import com.example.backend.service.impl.StringDictionaries;
+import com.example.backend.testdata.WosRecordGenerator;
+import com.example.backend.util.AuthorTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 学科分析各阶段的基准测试：作者解析、国家和机构提取、关键词趋势（汇总各年份结果）以及完整分析
+ *
+ * 每次调用处理整个语料，结果为处理papers篇论文的平均耗时；配合 -prof gc 查看每次调用的分配量。
+ * 字符串字典在各次调用间共享，测得的是字典已预热的稳定状态（与长期运行的服务一致）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DisciplinaryAnalysisBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int papers;
+
+    private List<main2022> corpus;
+    private Map<String, List<main2022>> byYear;
+    private DisciplinaryAnalysisImpl analysis;
+    private SortedMap<String, DisciplinaryPartial> partials;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        corpus = new WosRecordGenerator(42).generate(papers, 2011, 2020);
+        byYear = WosRecordGenerator.groupByYear(corpus);
+        // 与application.properties中的默认值一致
+        analysis = new DisciplinaryAnalysisImpl(2000, 20000, 10000, 0, "exact", 14, 200000, 30, new StringDictionaries(true, ""));
+        partials = new TreeMap<>();
+        for (Map.Entry<String, List<main2022>> entry : byYear.entrySet()) {
+            partials.put(entry.getKey(), analysis.analyzeYear(entry.getKey(), entry.getValue(), null));
+        }
+    }
+
+    @Benchmark
+    public void authorParsing(Blackhole bh) {
+        AuthorTokenizer tokenizer = new AuthorTokenizer();
+        for (main2022 paper : corpus) {
+            bh.consume(tokenizer.tokenize(paper.getAuthor_fullname(), (buf, offset, length) -> bh.consume(length)));
+        }
+    }
+
+    @Benchmark
+    public void countryExtraction(Blackhole bh) {
+        for (main2022 paper : corpus) {
+            bh.consume(PaperFacetExtractor.extractCountriesFromAddress(paper.getAddress()));
+            bh.consume(PaperFacetExtractor.extractCountriesFromAddress(paper.getReprint_address()));
+        }
+    }
+
+    @Benchmark
+    public void institutionExtraction(Blackhole bh) {
+        for (main2022 paper : corpus) {
+            bh.consume(PaperFacetExtractor.extractInstitutionsImproved(paper.getAddress()));
+        }
+    }
+
+    /**
+     * 合并各年份的部分结果并生成关键词趋势等汇总
+     */
+    @Benchmark
+    public Map<String, Object> keywordTrends() {
+        return analysis.assemble(partials);
+    }
+
+    @Benchmark
+    public Map<String, Object> fullAnalysis() {
+        return analysis.analyzeDisciplinaryData(byYear);
+    }
+}
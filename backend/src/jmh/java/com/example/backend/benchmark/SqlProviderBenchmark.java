@@ -0,0 +1,85 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.config.SearchFilter;
+import com.example.backend.provider.SqlProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SqlProvider拼接多表查询SQL的基准测试，tables为UNION ALL的年份表数（71为1950-2020全部年份）
+ *
+ * 拼接过程中的System.out输出计入耗时，但输出被丢弃，避免刷屏影响结果。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SqlProviderBenchmark {
+
+    @Param({"1", "10", "71"})
+    public int tables;
+
+    private final SqlProvider provider = new SqlProvider();
+    private List<SearchFilter> filters;
+    private List<String> tableNames;
+    private List<String> columns;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 主题 AND 作者 OR 期刊，与前端高级搜索的典型组合一致
+        filters = Arrays.asList(
+                filter(1, "AND", "1", "machine learning"),
+                filter(2, "AND", "3", "Zhang, Wei"),
+                filter(3, "OR", "4", "NATURE"));
+        tableNames = new ArrayList<>();
+        for (int i = 0; i < tables; i++) {
+            tableNames.add("Wos_" + (2020 - i));
+        }
+        columns = Arrays.asList("wos_uid", "pubyear", "article_title", "author_fullname", "journal_title_source", "identifier_doi");
+
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public String advancedSearchMultiTable() {
+        return provider.advancedSearchMultiTable(filters, tableNames, null);
+    }
+
+    @Benchmark
+    public String advancedSearchAllMultiTable() {
+        return provider.advancedSearchAllMultiTable(filters, tableNames, null);
+    }
+
+    @Benchmark
+    public String advancedSearchProjectedMultiTable() {
+        return provider.advancedSearchProjectedMultiTable(filters, tableNames, columns, null);
+    }
+
+    @Benchmark
+    public String countAdvancedSearchMultiTable() {
+        return provider.countAdvancedSearchMultiTable(filters, tableNames, null);
+    }
+
+    private static SearchFilter filter(int id, String operator, String field, String input) {
+        SearchFilter filter = new SearchFilter();
+        filter.setId(id);
+        filter.setSelects(Arrays.asList(operator, field));
+        filter.setInput(input);
+        return filter;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.backend.loadtest;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 压测的延迟注入：查询执行前按涉及的年份表休眠，模拟生产SQL Server上各年份表的扫描耗时
+ *
+ * 年份表取自参数tableName或tableNames（与QueryMetricsInterceptor一致），多表UNION ALL查询按表累加延迟。
+ * 排在拦截器链的最内层，注入的延迟计入wos.query指标和慢查询记录；游标查询在打开时注入。
+ */
+@Component
+@Profile("loadtest")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class LatencyInjectionInterceptor implements Interceptor {
+
+    private final long defaultMs;
+    private final Map<String, Long> tableMs = new HashMap<>();
+    private final int jitterPercent;
+
+    public LatencyInjectionInterceptor(@Value("${loadtest.latency.default-ms:0}") long defaultMs,
+                                       @Value("${loadtest.latency.tables:}") String tables,
+                                       @Value("${loadtest.latency.jitter-percent:0}") int jitterPercent) {
+        this.defaultMs = defaultMs;
+        this.jitterPercent = jitterPercent;
+        for (String item : tables.split(",")) {
+            String[] parts = item.trim().split(":");
+            if (parts.length == 2) {
+                tableMs.put(parts[0].trim(), Long.parseLong(parts[1].trim()));
+            }
+        }
+        System.out.println("压测延迟注入: 默认 " + defaultMs + "ms/表, 逐表设置 " + tableMs + ", 浮动 " + jitterPercent + "%");
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        long delay = delayMs(invocation.getArgs()[1]);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+        return invocation.proceed();
+    }
+
+    private long delayMs(Object parameter) {
+        long total = 0;
+        if (parameter instanceof Map) {
+            Map<?, ?> params = (Map<?, ?>) parameter;
+            if (params.containsKey("tableName") && params.get("tableName") != null) {
+                total += tableMs.getOrDefault(params.get("tableName").toString(), defaultMs);
+            } else if (params.containsKey("tableNames") && params.get("tableNames") instanceof List) {
+                for (Object table : (List<?>) params.get("tableNames")) {
+                    total += tableMs.getOrDefault(String.valueOf(table), defaultMs);
+                }
+            }
+        }
+        if (total > 0 && jitterPercent > 0) {
+            double jitter = ThreadLocalRandom.current().nextDouble(-jitterPercent, jitterPercent) / 100.0;
+            total = Math.max(0, Math.round(total * (1 + jitter)));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.backend.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一种请求的耗时记录，结束后计算吞吐量和分位数
+ * 保留每个请求的耗时（压测时长内的请求数有限），分位数按排序后的精确值计算。
+ */
+class LatencyRecorder {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50Ms", "p90Ms", "p99Ms", "p999Ms"};
+
+    private long[] nanos = new long[1024];
+    private int count;
+    private int errors;
+
+    synchronized void record(long elapsedNanos, boolean success) {
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, nanos.length * 2);
+        }
+        nanos[count++] = elapsedNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    synchronized void addAll(LatencyRecorder other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.nanos[i], true);
+        }
+        errors += other.errors;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * 汇总结果（耗时单位为毫秒），seconds为测量时长
+     */
+    synchronized Map<String, Object> summary(double seconds) {
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("errors", errors);
+        summary.put("throughput", round(count / seconds));
+        if (count == 0) {
+            return summary;
+        }
+        long total = 0;
+        for (long value : sorted) {
+            total += value;
+        }
+        summary.put("meanMs", millis(total / count));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            int index = (int) Math.ceil(PERCENTILES[i] * count) - 1;
+            summary.put(PERCENTILE_NAMES[i], millis(sorted[Math.max(0, index)]));
+        }
+        summary.put("maxMs", millis(sorted[count - 1]));
+        return summary;
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.backend.loadtest;
+
+import com.example.backend.BackEndApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地压测驱动：按请求组合并发调用REST接口，输出各接口的吞吐量和耗时分位数
+ *
+ * 未指定--url时在同一进程中以loadtest配置启动后端（H2合成年份表 + 延迟注入），服务端输出写入工作目录的server.log。
+ * 每个压测线程循环发送请求（收到完整响应后再发下一个），预热阶段的请求不计入结果。
+ * 结果打印到控制台，并连同全部参数写入 report-dir/loadtest-时间.json，用于复现和比较。
+ *
+ * 参数（--名称=值）：
+ *   --url          压测已运行的服务（如 http://localhost:8888），不在进程内启动
+ *   --duration     测量时长（秒，默认60）      --warmup       预热时长（秒，默认10）
+ *   --concurrency  并发线程数（默认8）         --think-ms     每个线程两次请求之间的间隔（默认0）
+ *   --mix          请求组合，如 search:25,detail:30（名称见LoadTestWorkload.Operation）
+ *   --seed         请求序列的随机种子（默认42）  --report-dir   结果目录（默认target/loadtest）
+ * 其他参数原样传给进程内启动的后端，如 --loadtest.latency.default-ms=5 --loadtest.data.rows-newest=20000
+ */
+public class LoadTestDriver {
+
+    private static final DateTimeFormatter RUN_ID = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // 详情查询的wos_uid取自这些年份的检索结果
+    private static final int[] SAMPLE_YEARS = {2020, 2015, 2005, 1990, 1970};
+    private static final List<String> OPTIONS = List.of("url", "duration", "warmup", "concurrency", "think-ms", "mix",
+            "seed", "report-dir");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --名称=值: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (OPTIONS.contains(name)) {
+                options.put(name, value);
+            } else {
+                springArgs.add(arg);
+            }
+        }
+
+        String runId = LocalDateTime.now().format(RUN_ID);
+        Path reportDir = Paths.get(options.getOrDefault("report-dir", "target/loadtest"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "8"));
+        long thinkMs = Long.parseLong(options.getOrDefault("think-ms", "0"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        Map<LoadTestWorkload.Operation, Integer> mix = LoadTestWorkload.parseMix(options.get("mix"));
+
+        PrintStream console = System.out;
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.get("url");
+        if (baseUrl == null) {
+            Path workDir = reportDir.resolve("run-" + runId);
+            Files.createDirectories(workDir);
+            context = startEmbedded(workDir, springArgs, console);
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            List<String> wosUids = new ArrayList<>();
+            LoadTestWorkload workload = new LoadTestWorkload(baseUrl, objectMapper, mix, wosUids);
+            for (int year : SAMPLE_YEARS) {
+                HttpResponse<byte[]> response = client.send(workload.sampleRequest(year), HttpResponse.BodyHandlers.ofByteArray());
+                wosUids.addAll(LoadTestWorkload.collectWosUids(objectMapper.readTree(response.body())));
+            }
+            if (wosUids.isEmpty() && mix.getOrDefault(LoadTestWorkload.Operation.DETAIL, 0) > 0) {
+                throw new IllegalStateException("没有取到详情查询使用的wos_uid，请检查服务是否有数据");
+            }
+
+            console.printf("压测 %s：%d 个线程，预热 %ds，测量 %ds，请求组合 %s%n", baseUrl, concurrency, warmup, duration, mix);
+            Map<LoadTestWorkload.Operation, LatencyRecorder> recorders = run(client, workload, concurrency, warmup, duration,
+                    thinkMs, seed);
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            Map<String, Object> config = new LinkedHashMap<>(options);
+            config.put("url", baseUrl);
+            config.put("mix", mix.toString());
+            config.put("serverArgs", springArgs);
+            if (context != null) {
+                config.put("server", serverConfig(context));
+            }
+            report.put("config", config);
+            report.put("results", summarize(recorders, duration, console));
+
+            Files.createDirectories(reportDir);
+            Path reportFile = reportDir.resolve("loadtest-" + runId + ".json");
+            objectMapper.writeValue(reportFile.toFile(), report);
+            console.println("结果已写入 " + reportFile);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * 在当前进程中以loadtest配置启动后端，端口随机
+     */
+    private static ConfigurableApplicationContext startEmbedded(Path workDir, List<String> springArgs,
+                                                                PrintStream console) throws IOException {
+        // 服务端每个请求都会输出日志，重定向到文件，控制台只输出压测结果
+        Path serverLog = workDir.resolve("server.log");
+        PrintStream log = new PrintStream(new FileOutputStream(serverLog.toFile()), true, "UTF-8");
+        System.setOut(log);
+        System.setErr(log);
+        console.println("启动后端（loadtest配置），日志: " + serverLog);
+
+        List<String> args = new ArrayList<>(springArgs);
+        args.add("--server.port=0");
+        args.add("--loadtest.work-dir=" + workDir);
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(BackEndApplication.class)
+                .profiles("loadtest")
+                .run(args.toArray(new String[0]));
+    }
+
+    private static Map<LoadTestWorkload.Operation, LatencyRecorder> run(HttpClient client, LoadTestWorkload workload,
+                                                                         int concurrency, int warmup, int duration,
+                                                                         long thinkMs, long seed) throws InterruptedException {
+        Map<LoadTestWorkload.Operation, LatencyRecorder> recorders = new LinkedHashMap<>();
+        for (LoadTestWorkload.Operation operation : LoadTestWorkload.Operation.values()) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup);
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(duration);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            SplittableRandom random = new SplittableRandom(seed + i);
+            workers.submit(() -> {
+                while (System.nanoTime() < measureUntil) {
+                    LoadTestWorkload.Operation operation = workload.next(random);
+                    long start = System.nanoTime();
+                    boolean success;
+                    try {
+                        // 读取完整响应（流式接口直到最后一个字节）
+                        HttpResponse<Void> response = client.send(workload.request(operation, random),
+                                HttpResponse.BodyHandlers.discarding());
+                        success = response.statusCode() < 400;
+                    } catch (Exception e) {
+                        success = false;
+                    }
+                    long end = System.nanoTime();
+                    // 只统计在测量阶段内开始和结束的请求
+                    if (start >= measureFrom && end <= measureUntil) {
+                        recorders.get(operation).record(end - start, success);
+                    }
+                    if (thinkMs > 0) {
+                        try {
+                            Thread.sleep(thinkMs);
+                        } catch (InterruptedException e) {
+                            return null;
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        workers.shutdown();
+        // 最后一个请求最多等待超时时间（5分钟）
+        workers.awaitTermination(warmup + duration + 360L, TimeUnit.SECONDS);
+        return recorders;
+    }
+
+    private static Map<String, Object> summarize(Map<LoadTestWorkload.Operation, LatencyRecorder> recorders, int duration,
+                                                 PrintStream console) {
+        Map<String, Object> results = new LinkedHashMap<>();
+        LatencyRecorder total = new LatencyRecorder();
+        console.printf("%-14s %8s %7s %9s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "req/s", "mean", "p50", "p90", "p99", "p99.9", "max");
+        for (Map.Entry<LoadTestWorkload.Operation, LatencyRecorder> entry : recorders.entrySet()) {
+            if (entry.getValue().count() == 0) {
+                continue;
+            }
+            Map<String, Object> summary = entry.getValue().summary(duration);
+            results.put(entry.getKey().name, summary);
+            print(console, entry.getKey().name, summary);
+            total.addAll(entry.getValue());
+        }
+        Map<String, Object> summary = total.summary(duration);
+        results.put("total", summary);
+        print(console, "total", summary);
+        return results;
+    }
+
+    private static void print(PrintStream console, String name, Map<String, Object> summary) {
+        if (!summary.containsKey("meanMs")) {
+            console.printf("%-14s %8s %7s %9s%n", name, summary.get("count"), summary.get("errors"), summary.get("throughput"));
+            return;
+        }
+        console.printf("%-14s %8s %7s %9s %9s %9s %9s %9s %9s %9s%n", name, summary.get("count"), summary.get("errors"),
+                summary.get("throughput"), summary.get("meanMs"), summary.get("p50Ms"), summary.get("p90Ms"),
+                summary.get("p99Ms"), summary.get("p999Ms"), summary.get("maxMs"));
+    }
+
+    /**
+     * 进程内后端的数据规模和延迟设置（写入结果文件，便于复现）
+     */
+    private static Map<String, Object> serverConfig(ConfigurableApplicationContext context) {
+        Map<String, Object> server = new LinkedHashMap<>();
+        for (String key : new String[]{"loadtest.data.rows-newest", "loadtest.data.yearly-growth", "loadtest.data.seed",
+                "loadtest.latency.default-ms", "loadtest.latency.tables", "loadtest.latency.jitter-percent",
+                "analysis.mode", "analysis.cache.enabled", "spring.datasource.hikari.maximum-pool-size"}) {
+            server.put(key, context.getEnvironment().getProperty(key));
+        }
+        server.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        server.put("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        return server;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.backend.loadtest;
+
+import com.example.backend.testdata.WosRecordGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 压测的请求组合：按权重随机选择接口，检索词取自合成数据的词表（保证有命中）
+ *
+ * 年份偏向近年（近年的表更大，也是实际查询最多的），每个压测线程使用独立的随机数（种子+线程号），
+ * 同样的参数下请求序列可复现。
+ */
+class LoadTestWorkload {
+
+    /**
+     * 请求类型及默认权重
+     */
+    enum Operation {
+        // 主题 + 出版年的高级搜索（TOP 200）
+        SEARCH("search", 25),
+        // 不指定年份的标题搜索（从2020年往前逐表查询）
+        TITLE_SEARCH("titleSearch", 5),
+        // 按年份范围的作者搜索（完整结果）
+        SEARCH_BY_YEAR("searchByYear", 15),
+        // 同上，NDJSON流式返回
+        STREAM_BY_YEAR("streamByYear", 5),
+        // 按wos_uid查询详情（从最新的表往前查找）
+        DETAIL("detail", 30),
+        // 学科分析（同步接口）
+        ANALYSIS("analysis", 10),
+        // 流式CSV导出
+        EXPORT("export", 10);
+
+        final String name;
+        final int defaultWeight;
+
+        Operation(String name, int defaultWeight) {
+            this.name = name;
+            this.defaultWeight = defaultWeight;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+        static Operation parse(String name) {
+            for (Operation operation : values()) {
+                if (operation.name.equalsIgnoreCase(name.trim())) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("未知的请求类型: " + name);
+        }
+    }
+
+    private static final List<String> KEYWORDS = WosRecordGenerator.keywordVocabulary();
+    private static final List<String> SURNAMES = WosRecordGenerator.surnameVocabulary();
+    private static final List<String> TITLE_WORDS = List.of("synthesis", "high-performance", "robust analysis", "stability");
+    private static final int NEWEST_YEAR = 2020;
+    private static final int OLDEST_YEAR = 1950;
+
+    private final String baseUrl;
+    private final ObjectMapper objectMapper;
+    private final Map<Operation, Integer> weights;
+    private final int totalWeight;
+    private final List<String> wosUids;
+
+    LoadTestWorkload(String baseUrl, ObjectMapper objectMapper, Map<Operation, Integer> weights, List<String> wosUids) {
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+        this.weights = weights;
+        this.totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        this.wosUids = wosUids;
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("请求权重之和必须大于0");
+        }
+    }
+
+    /**
+     * 解析 search:25,detail:30 格式的权重，为空时使用默认权重
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        if (mix == null || mix.isBlank()) {
+            for (Operation operation : Operation.values()) {
+                weights.put(operation, operation.defaultWeight);
+            }
+            return weights;
+        }
+        for (String item : mix.split(",")) {
+            String[] parts = item.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("请求组合格式应为 名称:权重: " + item);
+            }
+            weights.put(Operation.parse(parts[0]), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    Operation next(SplittableRandom random) {
+        int r = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            r -= entry.getValue();
+            if (r < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    HttpRequest request(Operation operation, SplittableRandom random) {
+        switch (operation) {
+            case SEARCH:
+                return post("/main2022/advancedSearch", List.of(
+                        filter(1, 5, String.valueOf(recentYear(random))),
+                        filter(2, 1, pick(KEYWORDS, random))));
+            case TITLE_SEARCH:
+                return post("/main2022/advancedSearch", List.of(filter(1, 2, pick(TITLE_WORDS, random))));
+            case SEARCH_BY_YEAR:
+            case STREAM_BY_YEAR: {
+                int end = recentYear(random);
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("filters", List.of(filter(1, 3, pick(SURNAMES, random))));
+                body.put("startYear", Math.max(OLDEST_YEAR, end - random.nextInt(10)));
+                body.put("endYear", end);
+                return post("/main2022/advancedSearchByYear"
+                        + (operation == Operation.STREAM_BY_YEAR ? "?stream=ndjson" : ""), body);
+            }
+            case DETAIL:
+                String wosUid = wosUids.get(random.nextInt(wosUids.size()));
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/main2022/detail/"
+                                + URLEncoder.encode(wosUid, StandardCharsets.UTF_8)))
+                        .timeout(Duration.ofMinutes(5))
+                        .GET()
+                        .build();
+            case ANALYSIS: {
+                int end = recentYear(random);
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("keyword", pick(KEYWORDS, random));
+                body.put("startDate", String.valueOf(Math.max(OLDEST_YEAR, end - 9)));
+                body.put("endDate", String.valueOf(end));
+                return post("/main2022/disciplinaryAnalysis", body);
+            }
+            case EXPORT:
+                return post("/download/csv/all/stream?format=csv", List.of(
+                        filter(1, 5, String.valueOf(recentYear(random))),
+                        filter(2, 1, pick(KEYWORDS, random))));
+            default:
+                throw new IllegalArgumentException(operation.name);
+        }
+    }
+
+    /**
+     * 从各个年代的检索结果中收集wos_uid，作为详情查询的对象（越早的年份查找时探查的表越多）
+     */
+    static List<String> collectWosUids(JsonNode... searchResponses) {
+        List<String> wosUids = new ArrayList<>();
+        for (JsonNode response : searchResponses) {
+            for (JsonNode paper : response.path("data")) {
+                if (paper.hasNonNull("wos_uid")) {
+                    wosUids.add(paper.get("wos_uid").asText());
+                }
+            }
+        }
+        return wosUids;
+    }
+
+    HttpRequest sampleRequest(int year) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("filters", List.of(filter(1, 4, "NATURE")));
+        body.put("startYear", year);
+        body.put("endYear", year);
+        return post("/main2022/advancedSearchByYear", body);
+    }
+
+    private HttpRequest post(String path, Object body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofMinutes(5))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 与前端高级搜索的条件格式一致：selects[0]为与前一条件的连接方式，selects[1]为字段
+    private static Map<String, Object> filter(int id, int field, String input) {
+        Map<String, Object> filter = new LinkedHashMap<>();
+        filter.put("id", id);
+        filter.put("selects", List.of("AND", field));
+        filter.put("input", input);
+        return filter;
+    }
+
+    // 年份偏向近年：约四成的请求落在最近10年
+    private static int recentYear(SplittableRandom random) {
+        double u = random.nextDouble();
+        return NEWEST_YEAR - (int) ((NEWEST_YEAR - OLDEST_YEAR + 1) * u * u);
+    }
+
+    private static String pick(List<String> values, SplittableRandom random) {
+        return values.get(random.nextInt(values.size()));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.backend.loadtest;
+
+import com.example.backend.model.main2022;
+import com.example.backend.service.impl.TableSelectorService;
+import com.example.backend.testdata.WosRecordGenerator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 压测用的合成年份表：启动时（Web服务开始接收请求之前）在H2中创建全部支持的Wos_YYYY表并写入合成数据
+ *
+ * 列与main2022的字段一一对应（wos_uid为主键，其余为NVARCHAR(MAX)），
+ * Wos_2020的行数为rows-newest，之前每年按yearly-growth递减，固定种子下每次生成的数据相同。
+ */
+@Component
+@Profile("loadtest")
+public class SyntheticWosData {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TableSelectorService tableSelectorService;
+    private final int rowsNewest;
+    private final double yearlyGrowth;
+    private final long seed;
+    private final int batchSize;
+
+    private final List<Field> columns = new ArrayList<>();
+
+    public SyntheticWosData(JdbcTemplate jdbcTemplate,
+                            TableSelectorService tableSelectorService,
+                            @Value("${loadtest.data.rows-newest:5000}") int rowsNewest,
+                            @Value("${loadtest.data.yearly-growth:1.04}") double yearlyGrowth,
+                            @Value("${loadtest.data.seed:42}") long seed,
+                            @Value("${loadtest.data.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableSelectorService = tableSelectorService;
+        this.rowsNewest = rowsNewest;
+        this.yearlyGrowth = yearlyGrowth;
+        this.seed = seed;
+        this.batchSize = batchSize;
+        for (Field field : main2022.class.getDeclaredFields()) {
+            if (field.getType() == String.class && !Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                columns.add(field);
+            }
+        }
+    }
+
+    @PostConstruct
+    public void generate() {
+        long start = System.currentTimeMillis();
+        WosRecordGenerator generator = new WosRecordGenerator(seed);
+        List<String> tables = tableSelectorService.getAllSupportedTables();
+        int newestYear = year(tables.get(tables.size() - 1));
+        long total = 0;
+
+        for (String table : tables) {
+            int year = year(table);
+            int rows = rowsForYear(year, newestYear);
+            jdbcTemplate.execute("DROP TABLE IF EXISTS [" + table + "]");
+            jdbcTemplate.execute(createTableSql(table));
+            insert(table, generator.generate(rows, year, year));
+            total += rows;
+        }
+
+        System.out.println("压测数据已生成: " + tables.size() + " 张年份表, " + total + " 行, 耗时 "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * 某一年份表的行数（最少1行）
+     */
+    private int rowsForYear(int year, int newestYear) {
+        return (int) Math.max(1, Math.round(rowsNewest / Math.pow(yearlyGrowth, newestYear - year)));
+    }
+
+    private String createTableSql(String table) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE [").append(table).append("] (");
+        for (int i = 0; i < columns.size(); i++) {
+            String name = columns.get(i).getName();
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append('[').append(name).append("] ")
+                    .append("wos_uid".equals(name) ? "NVARCHAR(64) NOT NULL PRIMARY KEY" : "NVARCHAR(MAX) NULL");
+        }
+        return sql.append(')').toString();
+    }
+
+    private void insert(String table, List<main2022> papers) {
+        StringBuilder sql = new StringBuilder("INSERT INTO [").append(table).append("] (");
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+                values.append(", ");
+            }
+            sql.append('[').append(columns.get(i).getName()).append(']');
+            values.append('?');
+        }
+        sql.append(") VALUES (").append(values).append(')');
+
+        for (int from = 0; from < papers.size(); from += batchSize) {
+            List<Object[]> batch = new ArrayList<>();
+            for (main2022 paper : papers.subList(from, Math.min(papers.size(), from + batchSize))) {
+                Object[] row = new Object[columns.size()];
+                for (int i = 0; i < columns.size(); i++) {
+                    try {
+                        row[i] = columns.get(i).get(paper);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                batch.add(row);
+            }
+            jdbcTemplate.batchUpdate(sql.toString(), batch);
+        }
+    }
+
+    private static int year(String table) {
+        return Integer.parseInt(table.substring(table.lastIndexOf('_') + 1));
+    }
+}
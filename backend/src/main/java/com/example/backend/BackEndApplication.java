@@ -6,9 +6,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(exclude = JpaRepositoriesAutoConfiguration.class)
 @MapperScan("com.example.backend.mapper")
+@EnableScheduling
 public class BackEndApplication extends SpringBootServletInitializer {
 
 	public static void main(String[] args) {
@@ -0,0 +1,23 @@
+package com.example.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 为管理接口注册访问控制（见AdminAccessInterceptor）
+ */
+@Configuration
+public class AdminAccessConfig implements WebMvcConfigurer {
+
+    private final AdminAccessInterceptor adminAccessInterceptor;
+
+    public AdminAccessConfig(AdminAccessInterceptor adminAccessInterceptor) {
+        this.adminAccessInterceptor = adminAccessInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(adminAccessInterceptor).addPathPatterns("/admin/**");
+    }
+}
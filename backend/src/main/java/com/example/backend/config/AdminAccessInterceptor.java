@@ -0,0 +1,76 @@
+package com.example.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+/**
+ * 管理接口（/admin/**）的访问控制
+ *
+ * 配置了admin.token时，请求必须带 X-Admin-Token: 令牌；未配置时只允许本机访问。
+ * 管理接口会触发全表扫描和建表，慢查询记录中还有用户的检索词，不能对外开放。
+ * 注意：经同一台机器上的反向代理转发时客户端地址都是本机，此时必须配置令牌。
+ */
+@Component
+public class AdminAccessInterceptor implements HandlerInterceptor {
+
+    public static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final byte[] token;
+    private final ObjectMapper objectMapper;
+
+    public AdminAccessInterceptor(@Value("${admin.token:}") String token, ObjectMapper objectMapper) {
+        this.token = token.trim().isEmpty() ? null : token.trim().getBytes(StandardCharsets.UTF_8);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // CORS预检请求不带自定义请求头，由CORS配置处理
+        if (CorsUtils.isPreFlightRequest(request)) {
+            return true;
+        }
+
+        String error;
+        if (token != null) {
+            String provided = request.getHeader(TOKEN_HEADER);
+            if (provided != null && MessageDigest.isEqual(token, provided.getBytes(StandardCharsets.UTF_8))) {
+                return true;
+            }
+            error = "管理接口需要有效的" + TOKEN_HEADER + "请求头";
+        } else {
+            if (isLoopback(request.getRemoteAddr())) {
+                return true;
+            }
+            error = "未配置admin.token时管理接口只允许本机访问";
+        }
+
+        System.out.println("拒绝管理接口访问 - " + request.getMethod() + " " + request.getRequestURI()
+                + ", 客户端: " + request.getRemoteAddr());
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", error));
+        return false;
+    }
+
+    private static boolean isLoopback(String address) {
+        try {
+            // 地址是IP字面量，不会进行DNS解析
+            return address != null && InetAddress.getByName(address).isLoopbackAddress();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.backend.config;
+
+/**
+ * 学科分析选项
+ * 字段为null时使用application.properties中的默认值
+ */
+public class AnalysisOptions {
+    // 去重统计方式：exact（精确）或 hll（HyperLogLog估计）
+    public static final String CARDINALITY_EXACT = "exact";
+    public static final String CARDINALITY_HLL = "hll";
+
+    // 分析方式：exact（全量）、approximate（抽样估计）或 auto（估计匹配数超过阈值时抽样）
+    public static final String MODE_EXACT = "exact";
+    public static final String MODE_APPROXIMATE = "approximate";
+    public static final String MODE_AUTO = "auto";
+
+    private String cardinality;
+    private Integer hllPrecision;
+    private String mode;
+    // 是否统计关键词共现和国家合作网络
+    private Boolean cooccurrence;
+
+    public AnalysisOptions() {
+    }
+
+    public AnalysisOptions(String cardinality, Integer hllPrecision) {
+        this.cardinality = cardinality;
+        this.hllPrecision = hllPrecision;
+    }
+
+    public AnalysisOptions(String cardinality, Integer hllPrecision, String mode) {
+        this.cardinality = cardinality;
+        this.hllPrecision = hllPrecision;
+        this.mode = mode;
+    }
+
+    // Getter 和 Setter 方法
+    public String getCardinality() {
+        return cardinality;
+    }
+
+    public void setCardinality(String cardinality) {
+        this.cardinality = cardinality;
+    }
+
+    public Integer getHllPrecision() {
+        return hllPrecision;
+    }
+
+    public void setHllPrecision(Integer hllPrecision) {
+        this.hllPrecision = hllPrecision;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public Boolean getCooccurrence() {
+        return cooccurrence;
+    }
+
+    public void setCooccurrence(Boolean cooccurrence) {
+        this.cooccurrence = cooccurrence;
+    }
+
+    public boolean isCooccurrenceEnabled() {
+        return Boolean.TRUE.equals(cooccurrence);
+    }
+}
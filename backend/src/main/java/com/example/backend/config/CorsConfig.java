@@ -16,6 +16,8 @@ public class CorsConfig implements WebMvcConfigurer {
                         .allowedOrigins("http://localhost:3000") // 允许的前端地址
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS")
                         .allowedHeaders("*")
+                        // 前端断点续传需要读取的响应头
+                        .exposedHeaders("Content-Disposition", "Content-Range", "Accept-Ranges", "ETag")
                         .allowCredentials(true);
             }
         };
@@ -4,6 +4,15 @@ public class DisciplinaryRequest {
     private String keyword;
     private String startDate;
     private String endDate;
+    // 去重统计方式（exact/hll）及HyperLogLog精度，可选
+    private String cardinality;
+    private Integer hllPrecision;
+    // 数据来源（database/facet），可选；facet使用离线构建的维度列文件
+    private String engine;
+    // 分析方式（exact/approximate/auto），可选；approximate按年份表抽样估计并给出置信区间
+    private String mode;
+    // 是否同时统计关键词共现和国家合作网络，可选，默认不统计
+    private Boolean cooccurrence;
 
     // Getter 和 Setter 方法
     public String getKeyword() {
@@ -29,4 +38,50 @@ public class DisciplinaryRequest {
     public void setEndDate(String endDate) {
         this.endDate = endDate;
     }
+
+    public String getCardinality() {
+        return cardinality;
+    }
+
+    public void setCardinality(String cardinality) {
+        this.cardinality = cardinality;
+    }
+
+    public Integer getHllPrecision() {
+        return hllPrecision;
+    }
+
+    public void setHllPrecision(Integer hllPrecision) {
+        this.hllPrecision = hllPrecision;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public Boolean getCooccurrence() {
+        return cooccurrence;
+    }
+
+    public void setCooccurrence(Boolean cooccurrence) {
+        this.cooccurrence = cooccurrence;
+    }
+
+    public AnalysisOptions toAnalysisOptions() {
+        AnalysisOptions options = new AnalysisOptions(cardinality, hllPrecision, mode);
+        options.setCooccurrence(cooccurrence);
+        return options;
+    }
 }
@@ -0,0 +1,103 @@
+package com.example.backend.config;
+
+import java.util.List;
+
+/**
+ * 导出任务的请求参数（保存在导出队列文件中，重启后恢复排队中的任务）
+ */
+public class ExportJobRequest {
+    private String taskId;
+    // 提交任务的用户（已认证时为登录用户，否则为客户端地址），用于每个用户的并发限制
+    private String userId;
+    // 优先级，越大越先执行；相同优先级按提交顺序
+    private int priority;
+    private long sequence;
+    private long createdAt;
+    private List<SearchFilter> filters;
+    private String format;
+    private String compression;
+    private String packaging;
+    // 导出列，null为全部列
+    private List<String> columns;
+
+    // Getter 和 Setter 方法
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public List<SearchFilter> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(List<SearchFilter> filters) {
+        this.filters = filters;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public String getPackaging() {
+        return packaging;
+    }
+
+    public void setPackaging(String packaging) {
+        this.packaging = packaging;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+}
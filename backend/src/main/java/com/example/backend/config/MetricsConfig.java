@@ -0,0 +1,38 @@
+package com.example.backend.config;
+
+import com.example.backend.service.impl.DisciplinaryAnalysisJobService;
+import com.example.backend.service.impl.ExportJobScheduler;
+import com.example.backend.service.impl.ExportStore;
+import com.example.backend.service.impl.ProgressHub;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 后台任务的监控指标：导出和学科分析任务的排队/运行数、SSE连接数、导出文件存储大小
+ * 查询、分析阶段和导出的耗时由WosMetrics记录，连接池指标由Spring Boot自动注册。
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder jobMetrics(ExportJobScheduler exportJobScheduler,
+                                  DisciplinaryAnalysisJobService analysisJobService,
+                                  ProgressHub progressHub, ExportStore exportStore) {
+        return registry -> {
+            Gauge.builder("wos.jobs.active", exportJobScheduler, ExportJobScheduler::runningCount)
+                    .description("运行中的任务数").tag("type", "export").register(registry);
+            Gauge.builder("wos.jobs.queued", exportJobScheduler, ExportJobScheduler::queuedCount)
+                    .description("排队中的任务数").tag("type", "export").register(registry);
+            Gauge.builder("wos.jobs.active", analysisJobService, DisciplinaryAnalysisJobService::activeCount)
+                    .description("运行中的任务数").tag("type", "analysis").register(registry);
+            Gauge.builder("wos.jobs.queued", analysisJobService, DisciplinaryAnalysisJobService::queuedCount)
+                    .description("排队中的任务数").tag("type", "analysis").register(registry);
+            Gauge.builder("wos.progress.subscribers", progressHub, ProgressHub::subscriberCount)
+                    .description("导出进度的SSE连接数").register(registry);
+            Gauge.builder("wos.export.store.bytes", exportStore, ExportStore::totalBytes)
+                    .description("导出文件存储占用的字节数").baseUnit("bytes").register(registry);
+        };
+    }
+}
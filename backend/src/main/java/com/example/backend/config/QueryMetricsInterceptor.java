@@ -0,0 +1,178 @@
+package com.example.backend.config;
+
+import com.example.backend.service.impl.SlowQueryLog;
+import com.example.backend.service.impl.WosMetrics;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MyBatis执行器拦截器：按Mapper方法和年份表记录每次查询的耗时和读取的行数，以及慢查询
+ * 表名取自参数tableName（单表）或tableNames（只有一张表时为该表，否则为multi）。
+ * 游标查询的耗时从打开到关闭（包括逐行读取，也包括调用方处理每行的时间），耗时和行数在游标关闭时记录。
+ * 超过阈值的Main2022Mapper查询同时交给SlowQueryLog记录（游标查询按同样的总耗时在关闭时判断和记录）。
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class QueryMetricsInterceptor implements Interceptor {
+
+    private final WosMetrics metrics;
+    private final SlowQueryLog slowQueryLog;
+
+    public QueryMetricsInterceptor(WosMetrics metrics, SlowQueryLog slowQueryLog) {
+        this.metrics = metrics;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        Object parameter = invocation.getArgs()[1];
+        String name = statementName(statement.getId());
+        String table = tableTag(parameter);
+
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            metrics.recordQuery(name, table, System.nanoTime() - start, false);
+            throw e;
+        }
+        if (result instanceof Cursor) {
+            // 打开游标只是执行了SQL，读取结果集的耗时到关闭时才知道
+            return new CountingCursor<>((Cursor<?>) result, statement, name, table, parameter, start);
+        }
+
+        long nanos = System.nanoTime() - start;
+        metrics.recordQuery(name, table, nanos, true);
+        if (result instanceof List) {
+            int rows = ((List<?>) result).size();
+            metrics.recordRows(name, rows);
+            if (slowQueryLog.isSlow(statement, nanos)) {
+                slowQueryLog.record(statement, parameter, nanos, rows, false);
+            }
+        }
+        return result;
+    }
+
+    // Mapper方法名（去掉接口的包名和类名）
+    private static String statementName(String id) {
+        int dot = id.lastIndexOf('.');
+        return dot >= 0 ? id.substring(dot + 1) : id;
+    }
+
+    private static String tableTag(Object parameter) {
+        if (parameter instanceof Map) {
+            Map<?, ?> params = (Map<?, ?>) parameter;
+            if (params.containsKey("tableName") && params.get("tableName") != null) {
+                return params.get("tableName").toString();
+            }
+            if (params.containsKey("tableNames") && params.get("tableNames") instanceof List) {
+                List<?> tableNames = (List<?>) params.get("tableNames");
+                return tableNames.size() == 1 ? String.valueOf(tableNames.get(0)) : "multi";
+            }
+        }
+        return "none";
+    }
+
+    /**
+     * 统计读取行数的游标，关闭时按从打开到关闭的总耗时记录一次（读取中抛出异常时记为失败）
+     */
+    private final class CountingCursor<T> implements Cursor<T> {
+        private final Cursor<T> delegate;
+        private final MappedStatement statement;
+        private final String name;
+        private final String table;
+        private final Object parameter;
+        private final long startNanos;
+        private long rows;
+        private boolean failed;
+        private boolean recorded;
+
+        CountingCursor(Cursor<T> delegate, MappedStatement statement, String name, String table, Object parameter,
+                       long startNanos) {
+            this.delegate = delegate;
+            this.statement = statement;
+            this.name = name;
+            this.table = table;
+            this.parameter = parameter;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public boolean isConsumed() {
+            return delegate.isConsumed();
+        }
+
+        @Override
+        public int getCurrentIndex() {
+            return delegate.getCurrentIndex();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<T> iterator = delegate.iterator();
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    try {
+                        return iterator.hasNext();
+                    } catch (RuntimeException e) {
+                        failed = true;
+                        throw e;
+                    }
+                }
+
+                @Override
+                public T next() {
+                    T row;
+                    try {
+                        row = iterator.next();
+                    } catch (RuntimeException e) {
+                        failed = true;
+                        throw e;
+                    }
+                    rows++;
+                    return row;
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+            if (!recorded) {
+                recorded = true;
+                long nanos = System.nanoTime() - startNanos;
+                metrics.recordQuery(name, table, nanos, !failed);
+                metrics.recordRows(name, rows);
+                if (slowQueryLog.isSlow(statement, nanos)) {
+                    slowQueryLog.record(statement, parameter, nanos, rows, true);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.backend.config;
+
+import com.example.backend.model.main2022;
+import com.example.backend.service.impl.StringDictionaries;
+import com.example.backend.util.StringDictionary;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * MyBatis结果集拦截器：映射出的main2022对象中高重复字段替换为字典中的规范实例
+ * 一次查询返回的几万行里，期刊名、出版商、语言、文献类型、学科分组等取值大量重复，
+ * 驻留后重复的String在映射完成后即可被回收。游标查询（逐行处理、不常驻内存）不处理。
+ */
+@Component
+@Intercepts({@Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class})})
+public class StringInterningInterceptor implements Interceptor {
+
+    private final List<InternedField> fields = new ArrayList<>();
+    private final boolean enabled;
+
+    public StringInterningInterceptor(StringDictionaries dictionaries) {
+        this.enabled = dictionaries.isEnabled();
+
+        field(dictionaries, "pubyear", main2022::getPubyear, main2022::setPubyear);
+        field(dictionaries, "pubmonth", main2022::getPubmonth, main2022::setPubmonth);
+        field(dictionaries, "database", main2022::getDatabase, main2022::setDatabase);
+        field(dictionaries, "has_abstract", main2022::getHas_abstract, main2022::setHas_abstract);
+        field(dictionaries, "is_OA", main2022::getIs_OA, main2022::setIs_OA);
+        field(dictionaries, "oases", main2022::getOases, main2022::setOases);
+        field(dictionaries, "article_type", main2022::getArticle_type, main2022::setArticle_type);
+        field(dictionaries, "article_doctype", main2022::getArticle_doctype, main2022::setArticle_doctype);
+        field(dictionaries, "normalized_doctype", main2022::getNormalized_doctype, main2022::setNormalized_doctype);
+        field(dictionaries, "languages", main2022::getLanguages, main2022::setLanguages);
+        field(dictionaries, "heading", main2022::getHeading, main2022::setHeading);
+        field(dictionaries, "subheadings", main2022::getSubheadings, main2022::setSubheadings);
+        field(dictionaries, "subject_traditional", main2022::getSubject_traditional, main2022::setSubject_traditional);
+        field(dictionaries, "subject_extended", main2022::getSubject_extended, main2022::setSubject_extended);
+
+        // 期刊的各种名称共用一个字典
+        field(dictionaries, "journal", main2022::getJournal_title_source, main2022::setJournal_title_source);
+        field(dictionaries, "journal", main2022::getJournal_title_abbrev, main2022::setJournal_title_abbrev);
+        field(dictionaries, "journal", main2022::getJournal_title_iso, main2022::setJournal_title_iso);
+        field(dictionaries, "journal", main2022::getJournal_title_11, main2022::setJournal_title_11);
+        field(dictionaries, "journal", main2022::getJournal_title_29, main2022::setJournal_title_29);
+        field(dictionaries, "identifier_issn", main2022::getIdentifier_issn, main2022::setIdentifier_issn);
+        field(dictionaries, "identifier_eissn", main2022::getIdentifier_eissn, main2022::setIdentifier_eissn);
+
+        field(dictionaries, "publisher", main2022::getPublisher, main2022::setPublisher);
+        field(dictionaries, "publisher", main2022::getPublisher_unified, main2022::setPublisher_unified);
+        field(dictionaries, "publisher", main2022::getPublisher_display, main2022::setPublisher_display);
+
+        field(dictionaries, "subj_group", main2022::getSubj_group_macro_id, main2022::setSubj_group_macro_id);
+        field(dictionaries, "subj_group", main2022::getSubj_group_macro_value, main2022::setSubj_group_macro_value);
+        field(dictionaries, "subj_group", main2022::getSubj_group_meso_id, main2022::setSubj_group_meso_id);
+        field(dictionaries, "subj_group", main2022::getSubj_group_meso_value, main2022::setSubj_group_meso_value);
+        field(dictionaries, "subj_group", main2022::getSubj_group_micro_id, main2022::setSubj_group_micro_id);
+        field(dictionaries, "subj_group", main2022::getSubj_group_micro_value, main2022::setSubj_group_micro_value);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (enabled && !fields.isEmpty() && result instanceof List) {
+            for (Object row : (List<?>) result) {
+                if (!(row instanceof main2022)) {
+                    // 同一结果集中的行类型相同
+                    break;
+                }
+                internFields((main2022) row);
+            }
+        }
+        return result;
+    }
+
+    private void internFields(main2022 paper) {
+        for (InternedField field : fields) {
+            String value = field.getter.apply(paper);
+            if (value != null) {
+                String canonical = field.dictionary.intern(value);
+                if (canonical != value) {
+                    field.setter.accept(paper, canonical);
+                }
+            }
+        }
+    }
+
+    private void field(StringDictionaries dictionaries, String name,
+                       Function<main2022, String> getter, BiConsumer<main2022, String> setter) {
+        StringDictionary dictionary = dictionaries.get(name);
+        if (dictionary != null) {
+            fields.add(new InternedField(dictionary, getter, setter));
+        }
+    }
+
+    private static final class InternedField {
+        private final StringDictionary dictionary;
+        private final Function<main2022, String> getter;
+        private final BiConsumer<main2022, String> setter;
+
+        InternedField(StringDictionary dictionary, Function<main2022, String> getter, BiConsumer<main2022, String> setter) {
+            this.dictionary = dictionary;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.backend.controller;
+
+import com.example.backend.service.impl.DisciplinaryPartialCache;
+import com.example.backend.service.impl.ExportJobScheduler;
+import com.example.backend.service.impl.ExportStore;
+import com.example.backend.service.impl.FacetColumnBuilder;
+import com.example.backend.service.impl.FacetEngine;
+import com.example.backend.service.impl.SideTableBuilder;
+import com.example.backend.service.impl.SlowQueryLog;
+import com.example.backend.service.impl.StringDictionaries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 管理接口：维度列文件、预规范化附表的构建与状态，学科分析缓存，导出状态和慢查询
+ * 需要X-Admin-Token请求头或从本机访问（见AdminAccessInterceptor），不对前端开放跨域访问
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final FacetColumnBuilder facetColumnBuilder;
+    private final FacetEngine facetEngine;
+    private final DisciplinaryPartialCache partialCache;
+    private final SideTableBuilder sideTableBuilder;
+    private final StringDictionaries stringDictionaries;
+    private final ExportStore exportStore;
+    private final ExportJobScheduler exportJobScheduler;
+    private final SlowQueryLog slowQueryLog;
+
+    @Autowired
+    public AdminController(FacetColumnBuilder facetColumnBuilder, FacetEngine facetEngine,
+                           DisciplinaryPartialCache partialCache, SideTableBuilder sideTableBuilder,
+                           StringDictionaries stringDictionaries, ExportStore exportStore,
+                           ExportJobScheduler exportJobScheduler, SlowQueryLog slowQueryLog) {
+        this.facetColumnBuilder = facetColumnBuilder;
+        this.facetEngine = facetEngine;
+        this.partialCache = partialCache;
+        this.sideTableBuilder = sideTableBuilder;
+        this.stringDictionaries = stringDictionaries;
+        this.exportStore = exportStore;
+        this.exportJobScheduler = exportJobScheduler;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * 构建维度列文件（后台执行），不指定tables时构建所有年份表
+     */
+    @PostMapping("/facets/build")
+    public ResponseEntity<Map<String, Object>> buildFacets(@RequestBody(required = false) List<String> tables) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<String> submitted = facetColumnBuilder.submit(tables);
+            response.put("submitted", submitted);
+            response.put("message", "已提交 " + submitted.size() + " 个表的构建任务");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 构建状态及已加载的列文件
+     */
+    @GetMapping("/facets/status")
+    public ResponseEntity<Map<String, Object>> getFacetStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("builds", facetColumnBuilder.getStatus());
+        response.put("loadedSegments", facetEngine.getLoadedSegments());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 构建预规范化附表（后台执行），不指定tables时构建所有年份表
+     */
+    @PostMapping("/side-tables/build")
+    public ResponseEntity<Map<String, Object>> buildSideTables(@RequestBody(required = false) List<String> tables) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<String> submitted = sideTableBuilder.submit(tables);
+            response.put("submitted", submitted);
+            response.put("message", "已提交 " + submitted.size() + " 个表的附表构建任务");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 附表构建状态及已构建的年份表
+     */
+    @GetMapping("/side-tables/status")
+    public ResponseEntity<Map<String, Object>> getSideTableStatus() {
+        return ResponseEntity.ok(sideTableBuilder.getStatus());
+    }
+
+    /**
+     * 学科分析部分结果缓存的统计信息
+     */
+    @GetMapping("/analysis-cache")
+    public ResponseEntity<Map<String, Object>> getAnalysisCacheStats() {
+        return ResponseEntity.ok(partialCache.getStats());
+    }
+
+    /**
+     * 清空学科分析部分结果缓存（年份表数据重新导入后调用）
+     */
+    @DeleteMapping("/analysis-cache")
+    public ResponseEntity<Map<String, Object>> clearAnalysisCache() {
+        partialCache.clear();
+        return ResponseEntity.ok(partialCache.getStats());
+    }
+
+    /**
+     * 各字段字符串字典的条目数和命中情况
+     */
+    @GetMapping("/string-dictionaries")
+    public ResponseEntity<Map<String, Object>> getStringDictionaryStats() {
+        return ResponseEntity.ok(stringDictionaries.getStats());
+    }
+
+    /**
+     * 导出文件存储的文件数和占用空间
+     */
+    @GetMapping("/export-store")
+    public ResponseEntity<Map<String, Object>> getExportStoreStats() {
+        return ResponseEntity.ok(exportStore.getStats());
+    }
+
+    /**
+     * 导出任务队列：排队和运行中的任务数、每个用户运行中的任务数
+     */
+    @GetMapping("/export-jobs")
+    public ResponseEntity<Map<String, Object>> getExportJobStats() {
+        return ResponseEntity.ok(exportJobScheduler.getStats());
+    }
+
+    /**
+     * 最近的慢查询（新的在前），可按年份表（如Wos_2019）或Mapper方法过滤
+     */
+    @GetMapping("/slow-queries")
+    public ResponseEntity<Map<String, Object>> getSlowQueries(@RequestParam(defaultValue = "50") int limit,
+                                                              @RequestParam(required = false) String table,
+                                                              @RequestParam(required = false) String statement) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("stats", slowQueryLog.getStats());
+        response.put("entries", slowQueryLog.getRecent(Math.max(1, limit), table, statement));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 按SQL结构和年份表汇总最近的慢查询（按总耗时降序），用于判断哪些条件和表需要索引
+     */
+    @GetMapping("/slow-queries/summary")
+    public ResponseEntity<Map<String, Object>> getSlowQuerySummary() {
+        return ResponseEntity.ok(slowQueryLog.getSummary());
+    }
+
+    /**
+     * 慢查询的估计执行计划（SHOWPLAN_XML，需开启slow-query.capture-plan）
+     */
+    @GetMapping("/slow-queries/{id}/plan")
+    public ResponseEntity<String> getSlowQueryPlan(@PathVariable long id) {
+        String plan = slowQueryLog.getPlan(id);
+        if (plan == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_XML).body(plan);
+    }
+}
@@ -1,20 +1,31 @@
 package com.example.backend.controller;
 
+import com.example.backend.config.ExportJobRequest;
 import com.example.backend.config.SearchFilter;
 import com.example.backend.service.DownloadService;
-import com.example.backend.service.Main2022Service;
+import com.example.backend.service.impl.ExportJob;
+import com.example.backend.service.impl.ExportJobScheduler;
+import com.example.backend.service.impl.TableSnapshotService;
+import com.example.backend.util.ExportCompression;
+import com.example.backend.util.ExportFormat;
+import com.example.backend.util.ExportPackaging;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.backend.model.main2022;
 
+import java.security.Principal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/download")
@@ -22,18 +33,15 @@ import java.util.concurrent.CompletableFuture;
 public class DownloadController {
 
     private final DownloadService downloadService;
-    private final Main2022Service main2022Service;
-
-    // 最大下载数量限制（避免tempdb问题）
-    private static final int MAX_DOWNLOAD_LIMIT = 50000;
-
-    // 使用线程安全的Map存储下载进度
-    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Object>> downloadProgress = new ConcurrentHashMap<>();
+    private final ExportJobScheduler exportJobScheduler;
+    private final TableSnapshotService tableSnapshotService;
 
     @Autowired
-    public DownloadController(DownloadService downloadService, Main2022Service main2022Service) {
+    public DownloadController(DownloadService downloadService, ExportJobScheduler exportJobScheduler,
+                              TableSnapshotService tableSnapshotService) {
         this.downloadService = downloadService;
-        this.main2022Service = main2022Service;
+        this.exportJobScheduler = exportJobScheduler;
+        this.tableSnapshotService = tableSnapshotService;
     }
 
     /**
@@ -44,218 +52,218 @@ public class DownloadController {
         return downloadService.downloadCSV(data);
     }
 
+    /**
+     * 可导出的列（/csv/all/start 和 /csv/all/stream 的columns参数，逗号分隔，未指定时导出全部列）
+     */
+    @GetMapping("/columns")
+    public ResponseEntity<Map<String, Object>> getExportColumns() {
+        return ResponseEntity.ok(Map.of("columns", downloadService.exportColumns()));
+    }
+
     /**
      * 获取下载进度的SSE连接
      */
     @GetMapping("/progress/{taskId}")
     public SseEmitter getDownloadProgress(@PathVariable String taskId) {
-        SseEmitter emitter = new SseEmitter(300000L); // 5分钟超时
-
-        try {
-            // 定期发送进度更新
-            CompletableFuture.runAsync(() -> {
-                try {
-                    while (!Thread.currentThread().isInterrupted()) {
-                        ConcurrentHashMap<String, Object> progress = downloadProgress.get(taskId);
-                        if (progress != null) {
-                            emitter.send(SseEmitter.event()
-                                    .name("progress")
-                                    .data(progress));
-
-                            // 如果完成了，结束SSE连接
-                            Boolean completed = (Boolean) progress.get("completed");
-                            if (completed != null && completed) {
-                                emitter.complete();
-                                // 延迟清理进度信息
-                                CompletableFuture.runAsync(() -> {
-                                    try {
-                                        Thread.sleep(5000); // 5秒后清理
-                                        downloadProgress.remove(taskId);
-                                    } catch (InterruptedException e) {
-                                        Thread.currentThread().interrupt();
-                                    }
-                                });
-                                break;
-                            }
-                        }
-                        Thread.sleep(1000); // 每秒更新一次
-                    }
-                } catch (Exception e) {
-                    emitter.completeWithError(e);
-                }
-            });
-
-        } catch (Exception e) {
-            emitter.completeWithError(e);
+        SseEmitter emitter = exportJobScheduler.subscribe(taskId);
+        if (emitter == null) {
+            emitter = new SseEmitter();
+            try {
+                emitter.send(SseEmitter.event().name("progress")
+                        .data(Map.of("taskId", taskId, "status", "not_found", "error", "任务不存在或已完成")));
+                emitter.complete();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
         }
-
         return emitter;
     }
 
     /**
-     * 启动下载所有符合条件的数据（异步，有数量限制）
+     * 启动下载所有符合条件的数据（提交到导出任务队列，异步流式写入临时文件，不限制数量）
+     * 每个用户的并发限制按登录用户（已认证时）或客户端地址计算，不采用客户端自报的标识，priority越大越先执行
      */
     @PostMapping("/csv/all/start")
-    public ResponseEntity<Map<String, Object>> startDownloadAll(@RequestBody List<SearchFilter> searchFilter) {
+    public ResponseEntity<Map<String, Object>> startDownloadAll(@RequestBody List<SearchFilter> searchFilter,
+                                                                @RequestParam(required = false) String format,
+                                                                @RequestParam(required = false) String compression,
+                                                                @RequestParam(required = false) String columns,
+                                                                @RequestParam(required = false) String packaging,
+                                                                @RequestParam(defaultValue = "0") int priority,
+                                                                HttpServletRequest httpRequest) {
         try {
             // 验证输入参数
             if (searchFilter == null || searchFilter.isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "搜索条件不能为空"));
             }
 
-            String taskId = "download_" + System.currentTimeMillis();
-            System.out.println("启动下载任务: " + taskId);
-
-            // 创建进度对象
-            ConcurrentHashMap<String, Object> progress = new ConcurrentHashMap<>();
-            progress.put("taskId", taskId);
-            progress.put("status", "started");
-            progress.put("processedCount", 0);
-            progress.put("totalCount", 0);
-            progress.put("completed", false);
-            progress.put("error", "");
-            progress.put("warning", "");
-
-            // 安全地添加到进度Map中
-            downloadProgress.put(taskId, progress);
-            System.out.println("进度对象已创建");
-
-            // 异步执行下载
-            CompletableFuture.runAsync(() -> {
-                try {
-                    System.out.println("开始异步下载任务: " + taskId);
-
-                    // 更新状态：正在查询数据
-                    updateProgress(taskId, "status", "querying");
-
-                    // 首先尝试获取数据计数（有超时保护）
-                    int estimatedCount = 0;
-                    try {
-                        System.out.println("尝试获取数据计数...");
-                        estimatedCount = main2022Service.countAdvancedSearch(searchFilter);
-                        System.out.println("预估数据量: " + estimatedCount);
-
-                        // 检查是否超过限制
-                        if (estimatedCount > MAX_DOWNLOAD_LIMIT) {
-                            updateProgress(taskId, "warning",
-                                    String.format("数据量过大（约%d条），将限制下载前%d条记录。建议使用更具体的搜索条件。",
-                                            estimatedCount, MAX_DOWNLOAD_LIMIT));
-                        }
-
-                        updateProgress(taskId, "totalCount", Math.min(estimatedCount, MAX_DOWNLOAD_LIMIT));
-
-                    } catch (Exception countError) {
-                        System.err.println("获取计数失败，直接查询数据: " + countError.getMessage());
-                        updateProgress(taskId, "warning", "无法预估数据量，直接开始下载");
-                        updateProgress(taskId, "totalCount", MAX_DOWNLOAD_LIMIT);
-                    }
-
-                    updateProgress(taskId, "status", "downloading");
-
-                    // 获取数据（使用限制版本的查询）
-                    List<main2022> allData = main2022Service.advancedSearchAllWithProgress(
-                            searchFilter,
-                            (processedCount, totalCount) -> {
-                                updateProgress(taskId, "processedCount", processedCount != null ? processedCount : 0);
-                                updateProgress(taskId, "status", "processing");
-                            }
-                    );
-
-                    if (allData == null || allData.isEmpty()) {
-                        updateProgress(taskId, "status", "no_data");
-                        updateProgress(taskId, "completed", true);
-                        return;
-                    }
-
-                    // 如果数据量超过限制，截取前N条
-                    if (allData.size() > MAX_DOWNLOAD_LIMIT) {
-                        allData = allData.subList(0, MAX_DOWNLOAD_LIMIT);
-                        updateProgress(taskId, "warning",
-                                String.format("数据量超过限制，已截取前%d条记录", MAX_DOWNLOAD_LIMIT));
-                    }
-
-                    System.out.println("实际获取数据: " + allData.size() + " 条");
-
-                    // 更新状态：正在生成CSV
-                    updateProgress(taskId, "status", "generating_csv");
-                    updateProgress(taskId, "totalCount", allData.size());
-                    updateProgress(taskId, "processedCount", allData.size());
-
-                    // 生成CSV文件
-                    byte[] csvData = downloadService.generateCSVBytes(allData);
-
-                    if (csvData == null || csvData.length == 0) {
-                        updateProgress(taskId, "status", "error");
-                        updateProgress(taskId, "error", "生成CSV文件失败");
-                        updateProgress(taskId, "completed", true);
-                        return;
-                    }
-
-                    System.out.println("CSV文件生成完成，大小: " + csvData.length + " 字节");
-
-                    // 存储文件数据
-                    downloadService.storeTemporaryFile(taskId, csvData);
-
-                    // 更新状态为完成
-                    updateProgress(taskId, "status", "completed");
-                    updateProgress(taskId, "completed", true);
-                    updateProgress(taskId, "downloadUrl", "/download/csv/file/" + taskId);
-                    updateProgress(taskId, "fileName", "wos_data_" + taskId + ".csv");
-
-                    System.out.println("下载任务完成: " + taskId);
-
-                } catch (Exception e) {
-                    System.err.println("下载任务错误: " + e.getMessage());
-                    e.printStackTrace();
-                    updateProgress(taskId, "status", "error");
-                    updateProgress(taskId, "error",
-                            e.getMessage() != null ? e.getMessage() : "下载过程中发生未知错误");
-                    updateProgress(taskId, "completed", true);
-                }
-            });
+            ExportJobRequest request = new ExportJobRequest();
+            try {
+                ExportFormat exportFormat = ExportFormat.parse(format);
+                request.setFormat(exportFormat.name().toLowerCase());
+                request.setCompression(resolveCompression(exportFormat, compression).name().toLowerCase());
+                request.setPackaging(ExportPackaging.parse(packaging).name().toLowerCase());
+                request.setColumns(downloadService.resolveColumns(columns));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            request.setFilters(searchFilter);
+            request.setPriority(priority);
+            request.setUserId(resolveUserId(httpRequest));
+
+            ExportJob job;
+            try {
+                job = exportJobScheduler.submit(request);
+            } catch (RejectedExecutionException e) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("error", e.getMessage()));
+            }
 
             return ResponseEntity.ok(Map.of(
-                    "taskId", taskId,
-                    "maxLimit", MAX_DOWNLOAD_LIMIT,
-                    "message", "下载任务已启动"
+                    "taskId", job.getTaskId(),
+                    "message", "下载任务已启动",
+                    "queuePosition", exportJobScheduler.queuePosition(job)
             ));
 
         } catch (Exception e) {
             System.err.println("启动下载任务失败: " + e.getMessage());
             e.printStackTrace();
             return ResponseEntity.internalServerError().body(Map.of(
-                    "error", "启动下载失败: " + e.getMessage(),
-                    "maxLimit", MAX_DOWNLOAD_LIMIT
+                    "error", "启动下载失败: " + e.getMessage()
             ));
         }
     }
 
     /**
-     * 安全地更新进度信息
+     * 直接以流式响应下载所有符合条件的数据（边查询边发送，不生成临时文件）
+     * 相同内容的导出文件已存在时直接返回该文件
      */
-    private void updateProgress(String taskId, String key, Object value) {
+    @PostMapping("/csv/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamDownloadAll(@RequestBody List<SearchFilter> searchFilter,
+                                                                   @RequestParam(required = false) String format,
+                                                                   @RequestParam(required = false) String compression,
+                                                                   @RequestParam(required = false) String columns,
+                                                                   @RequestParam(required = false) String packaging,
+                                                                   @RequestHeader HttpHeaders requestHeaders) {
+        if (searchFilter == null || searchFilter.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        ExportFormat exportFormat;
+        ExportCompression exportCompression;
+        List<String> exportColumns;
+        ExportPackaging exportPackaging;
         try {
-            ConcurrentHashMap<String, Object> progress = downloadProgress.get(taskId);
-            if (progress != null) {
-                progress.put(key, value);
-            }
-        } catch (Exception e) {
-            System.err.println("更新进度失败: " + e.getMessage());
+            exportFormat = ExportFormat.parse(format);
+            exportCompression = resolveCompression(exportFormat, compression);
+            exportColumns = downloadService.resolveColumns(columns);
+            exportPackaging = ExportPackaging.parse(packaging);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ExportJobRequest request = new ExportJobRequest();
+        request.setFilters(searchFilter);
+        request.setFormat(exportFormat.name());
+        request.setCompression(exportCompression.name());
+        request.setPackaging(exportPackaging.name());
+        request.setColumns(exportColumns);
+        String taskId = ExportJobScheduler.exportTaskId(request);
+        if (downloadService.hasExportFile(taskId)) {
+            System.out.println("流式下载复用已有导出文件: " + taskId);
+            return downloadService.createFileDownloadResponse(taskId, "wos_data_" + taskId, requestHeaders);
+        }
+
+        String fileName = "wos_data_" + System.currentTimeMillis() + exportFormat.suffix() + exportCompression.suffix()
+                + exportPackaging.suffix();
+        StreamingResponseBody body = out -> {
+            long rows = downloadService.writeExport(searchFilter, exportColumns, exportFormat, exportCompression,
+                    exportPackaging, out, null);
+            System.out.println("流式下载完成: " + fileName + ", " + rows + " 条");
+        };
+        String contentType = exportPackaging == ExportPackaging.ZIP ? "application/zip"
+                : exportCompression == ExportCompression.NONE ? exportFormat.contentType() : exportCompression.contentType();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
+                .contentType(MediaType.parseMediaType(contentType))
+                .body(body);
+    }
+
+    /**
+     * 整张年份表的快照导出：已导出过时直接可下载，否则在后台导出
+     */
+    @PostMapping("/snapshot/{year}")
+    public ResponseEntity<Map<String, Object>> startSnapshot(@PathVariable int year,
+                                                             @RequestParam(required = false) String format) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ExportFormat exportFormat = ExportFormat.parse(format);
+            String tableName = "Wos_" + year;
+            String snapshotId = tableSnapshotService.submit(tableName, exportFormat);
+            response.put("snapshotId", snapshotId);
+            response.put("status", tableSnapshotService.getStatus(tableName, exportFormat));
+            response.put("downloadUrl", "/download/snapshot/" + year + "/file?format=" + exportFormat.name().toLowerCase());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 年份表快照的导出状态
+     */
+    @GetMapping("/snapshot/{year}/status")
+    public ResponseEntity<Map<String, Object>> getSnapshotStatus(@PathVariable int year,
+                                                                 @RequestParam(required = false) String format) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ExportFormat exportFormat = ExportFormat.parse(format);
+            String status = tableSnapshotService.getStatus("Wos_" + year, exportFormat);
+            response.put("status", status != null ? status : "未导出");
+            response.put("available", tableSnapshotService.isAvailable("Wos_" + year, exportFormat));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 下载已导出的年份表快照
+     */
+    @GetMapping("/snapshot/{year}/file")
+    public ResponseEntity<StreamingResponseBody> downloadSnapshot(@PathVariable int year,
+                                                                  @RequestParam(required = false) String format,
+                                                                  @RequestHeader HttpHeaders headers) {
+        try {
+            ExportFormat exportFormat = ExportFormat.parse(format);
+            String tableName = "Wos_" + year;
+            return downloadService.createFileDownloadResponse(
+                    TableSnapshotService.snapshotId(tableName, exportFormat), "wos_" + year, headers);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
 
     /**
-     * 下载生成的文件
+     * 列式格式自带压缩，不再叠加压缩；CSV未指定时使用默认压缩方式
+     */
+    private ExportCompression resolveCompression(ExportFormat format, String compression) {
+        if (format.isColumnar()) {
+            return ExportCompression.NONE;
+        }
+        return compression != null ? ExportCompression.parse(compression) : downloadService.defaultCompression();
+    }
+
+    /**
+     * 下载生成的文件（支持Range断点续传和分段并行下载）
      */
     @GetMapping("/csv/file/{taskId}")
-    public ResponseEntity<byte[]> downloadGeneratedFile(@PathVariable String taskId) {
+    public ResponseEntity<StreamingResponseBody> downloadGeneratedFile(@PathVariable String taskId,
+                                                                       @RequestHeader HttpHeaders headers) {
         try {
-            byte[] fileData = downloadService.getTemporaryFile(taskId);
-            if (fileData != null) {
-                return downloadService.createDownloadResponse(fileData, "wos_data_" + taskId + ".csv");
-            } else {
-                return ResponseEntity.notFound().build();
-            }
+            return downloadService.createFileDownloadResponse(taskId, "wos_data_" + taskId, headers);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError().build();
@@ -267,35 +275,31 @@ public class DownloadController {
      */
     @GetMapping("/progress/{taskId}/status")
     public ResponseEntity<Map<String, Object>> getDownloadStatus(@PathVariable String taskId) {
-        try {
-            ConcurrentHashMap<String, Object> progress = downloadProgress.get(taskId);
-            if (progress != null) {
-                return ResponseEntity.ok(new HashMap<>(progress));
-            } else {
-                return ResponseEntity.ok(Map.of(
-                        "error", "任务不存在或已完成",
-                        "status", "not_found"
-                ));
-            }
-        } catch (Exception e) {
-            return ResponseEntity.ok(Map.of(
-                    "error", e.getMessage(),
-                    "status", "error"
-            ));
+        Map<String, Object> status = exportJobScheduler.getStatus(taskId);
+        if (status != null) {
+            return ResponseEntity.ok(status);
         }
+        return ResponseEntity.ok(Map.of(
+                "error", "任务不存在或已完成",
+                "status", "not_found"
+        ));
     }
 
     /**
-     * 取消下载任务
+     * 取消下载任务（排队中的任务直接移出队列）；多个用户共用的任务只取消当前用户的关联
      */
     @PostMapping("/cancel/{taskId}")
-    public ResponseEntity<Void> cancelDownload(@PathVariable String taskId) {
-        try {
-            updateProgress(taskId, "status", "cancelled");
-            updateProgress(taskId, "completed", true);
-            return ResponseEntity.ok().build();
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<Void> cancelDownload(@PathVariable String taskId, HttpServletRequest httpRequest) {
+        exportJobScheduler.cancel(taskId, resolveUserId(httpRequest));
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * 导出任务的用户：已认证时为登录用户，否则为客户端地址
+     * 请求头（如X-User-Id）可以随意伪造，按它限流等于没有限制，因此不采用
+     */
+    private static String resolveUserId(HttpServletRequest httpRequest) {
+        Principal principal = httpRequest.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : httpRequest.getRemoteAddr();
     }
-}
\ No newline at end of file
+}
@@ -3,19 +3,30 @@ package com.example.backend.controller;
 import com.example.backend.config.SearchFilter;
 import com.example.backend.config.DisciplinaryRequest;
 import com.example.backend.model.main2022;
-import com.example.backend.service.DisciplinaryAnalysis;
 import com.example.backend.service.Main2022Service;
+import com.example.backend.service.impl.DisciplinaryAnalysisJob;
+import com.example.backend.service.impl.DisciplinaryAnalysisJobService;
 import com.example.backend.service.impl.Main2022ServiceImpl;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controller for main2022（支持动态多表查询）
@@ -26,14 +37,21 @@ import java.util.Map;
 @RequestMapping("/main2022")
 @CrossOrigin
 public class Main2022Controller {
+    private static final String NDJSON_TYPE = "application/x-ndjson";
+    // 流式响应每写出多少行刷新一次输出
+    private static final int STREAM_FLUSH_ROWS = 500;
+
     private final Main2022Service main2022Service;
-    private final DisciplinaryAnalysis disciplinaryAnalysis;
+    private final DisciplinaryAnalysisJobService analysisJobService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
     public Main2022Controller(Main2022Service main2022Service,
-                              DisciplinaryAnalysis disciplinaryAnalysis) {
+                              DisciplinaryAnalysisJobService analysisJobService,
+                              ObjectMapper objectMapper) {
         this.main2022Service = main2022Service;
-        this.disciplinaryAnalysis = disciplinaryAnalysis;
+        this.analysisJobService = analysisJobService;
+        this.objectMapper = objectMapper;
     }
 
     // ==================== 新增：单条记录查询接口 ====================
@@ -195,15 +213,24 @@ public class Main2022Controller {
 
     /**
      * 按年份范围进行高级搜索
+     * stream=json时以流式JSON返回（结构与普通响应相同，data数组逐行写出，count在最后），
+     * stream=ndjson（或Accept: application/x-ndjson）时每行一条记录；流式结果直接由数据库游标读取，
+     * 按客户端读取的速度写出，不在内存中保存结果列表
+     * 返回类型为Object：Spring按声明的泛型选择返回值处理器，ResponseEntity<?>中的StreamingResponseBody
+     * 不会被识别为流式响应，因此流式结果直接返回StreamingResponseBody（按运行时类型识别），响应类型另行设置
      */
     @PostMapping(value = "/advancedSearchByYear")
-    public ResponseEntity<Map<String, Object>> advancedSearchByYear(@RequestBody Map<String, Object> requestData) {
+    public Object advancedSearchByYear(@RequestBody Map<String, Object> requestData,
+                                       @RequestParam(required = false) String stream,
+                                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                       HttpServletResponse servletResponse) {
         Map<String, Object> response = new HashMap<>();
 
         try {
             // 解析请求参数
-            @SuppressWarnings("unchecked")
-            List<SearchFilter> filters = (List<SearchFilter>) requestData.get("filters");
+            List<SearchFilter> filters = requestData.get("filters") != null
+                    ? objectMapper.convertValue(requestData.get("filters"), new TypeReference<List<SearchFilter>>() {})
+                    : null;
             Integer startYear = (Integer) requestData.get("startYear");
             Integer endYear = (Integer) requestData.get("endYear");
 
@@ -213,6 +240,13 @@ public class Main2022Controller {
                 return ResponseEntity.badRequest().body(response);
             }
 
+            boolean ndjson = "ndjson".equalsIgnoreCase(stream)
+                    || stream == null && accept != null && accept.contains(NDJSON_TYPE);
+            if (stream != null && !ndjson && !"json".equalsIgnoreCase(stream)) {
+                response.put("error", "不支持的流式格式: " + stream + "（可选 json、ndjson）");
+                return ResponseEntity.badRequest().body(response);
+            }
+
             // 如果年份为空，使用默认范围
             if (startYear == null || endYear == null) {
                 startYear = 2020;
@@ -228,6 +262,11 @@ public class Main2022Controller {
                 return ResponseEntity.badRequest().body(response);
             }
 
+            if (ndjson || stream != null) {
+                servletResponse.setContentType(ndjson ? NDJSON_TYPE : MediaType.APPLICATION_JSON_VALUE);
+                return streamByYear(filters, startYear, endYear, ndjson, serviceImpl.getSupportedYearRange());
+            }
+
             // 执行搜索
             List<main2022> results = serviceImpl.advancedSearchByYearRange(filters, startYear, endYear);
 
@@ -247,6 +286,63 @@ public class Main2022Controller {
         }
     }
 
+    /**
+     * 流式写出按年份范围的搜索结果
+     * 写入响应流是阻塞的：客户端读取慢时游标也随之暂停，内存中只有当前一行和输出缓冲区。
+     * 已开始写出后无法再修改状态码，查询失败时在JSON中写出error字段，NDJSON中写出一行{"error": ...}
+     */
+    private StreamingResponseBody streamByYear(List<SearchFilter> filters, int startYear, int endYear,
+                                               boolean ndjson, String supportedYearRange) {
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null);
+            long[] count = {0};
+            String error = null;
+            if (!ndjson) {
+                generator.writeStartObject();
+                generator.writeStringField("searchedYearRange", startYear + "-" + endYear);
+                generator.writeStringField("supportedYearRange", supportedYearRange);
+                generator.writeArrayFieldStart("data");
+            }
+            try {
+                main2022Service.streamAdvancedSearchByYearRange(filters, startYear, endYear, paper -> {
+                    generator.writeObject(paper);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                    // 第一行尽快送出，之后按批刷新
+                    if (++count[0] % STREAM_FLUSH_ROWS == 1) {
+                        generator.flush();
+                    }
+                });
+            } catch (IOException e) {
+                // 客户端断开
+                System.out.println("流式搜索中止: " + e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("流式搜索失败: " + e.getMessage());
+                error = "搜索失败: " + e.getMessage();
+            }
+            if (ndjson) {
+                if (error != null) {
+                    generator.writeObject(Map.of("error", error));
+                    generator.writeRaw('\n');
+                }
+            } else {
+                generator.writeEndArray();
+                generator.writeNumberField("count", count[0]);
+                if (error != null) {
+                    generator.writeStringField("error", error);
+                }
+                generator.writeEndObject();
+            }
+            generator.close();
+            System.out.println("流式搜索完成: " + count[0] + " 条");
+        };
+        return body;
+    }
+
     /**
      * 获取支持的年份范围信息
      */
@@ -282,97 +378,207 @@ public class Main2022Controller {
             System.out.println("学科分析请求 - 关键词: " + request.getKeyword() +
                     ", 年份范围: " + request.getStartDate() + "-" + request.getEndDate());
 
-            String keyword = request.getKeyword();
-            String startDate = request.getStartDate();
-            String endDate = request.getEndDate();
-
-            // 验证输入参数
-            if (keyword == null || keyword.trim().isEmpty()) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("error", "关键词不能为空");
+            Map<String, Object> errorResponse = validateDisciplinaryRequest(request);
+            if (errorResponse != null) {
                 return ResponseEntity.badRequest().body(errorResponse);
             }
 
-            if (startDate == null || endDate == null) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("error", "开始和结束年份不能为空");
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
+            System.out.println("开始从数据库查询学科分析数据...");
 
-            // 检查年份范围是否在支持范围内
-            try {
-                int start = Integer.parseInt(startDate);
-                int end = Integer.parseInt(endDate);
+            // 进行多维度分析（列文件/缓存/数据库的选择见DisciplinaryAnalysisJobService）
+            Map<String, Object> analysisResult = analysisJobService.analyze(request.getKeyword(),
+                    request.getStartDate(), request.getEndDate(), request.getEngine(),
+                    request.toAnalysisOptions(), null);
 
-                Main2022ServiceImpl serviceImpl = (Main2022ServiceImpl) main2022Service;
+            if (analysisResult == null) {
+                return ResponseEntity.ok(emptyAnalysisResponse());
+            }
 
-                // 检查是否超出支持范围
-                if (start < 1950 || end > 2020) {
-                    Map<String, Object> warningResponse = new HashMap<>();
-                    warningResponse.put("warning", "部分年份超出当前支持范围 " + serviceImpl.getSupportedYearRange() +
-                            "，将只查询支持范围内的数据");
-                    warningResponse.put("supportedRange", serviceImpl.getSupportedYearRange());
+            System.out.println("学科分析完成，返回结果");
+            return ResponseEntity.ok(analysisResult);
 
-                    // 调整年份范围到支持范围内
-                    start = Math.max(start, 1950);
-                    end = Math.min(end, 2020);
-                    startDate = String.valueOf(start);
-                    endDate = String.valueOf(end);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            System.err.println("学科分析过程中发生错误: " + e.getMessage());
+            e.printStackTrace();
 
-                    System.out.println("年份范围已调整为: " + startDate + "-" + endDate);
-                }
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "分析过程中发生错误: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
 
-                if (start > end) {
-                    Map<String, Object> errorResponse = new HashMap<>();
-                    errorResponse.put("error", "开始年份不能大于结束年份");
-                    return ResponseEntity.badRequest().body(errorResponse);
-                }
+    // ==================== 异步学科分析任务 ====================
 
-            } catch (NumberFormatException e) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("error", "年份格式不正确，请输入有效的年份");
+    /**
+     * 提交异步学科分析任务，返回jobId
+     * 进度和每个年份表的部分结果通过 /disciplinaryAnalysis/jobs/{jobId}/events 推送
+     */
+    @PostMapping("/disciplinaryAnalysis/jobs")
+    public ResponseEntity<Map<String, Object>> submitDisciplinaryAnalysisJob(@RequestBody DisciplinaryRequest request) {
+        try {
+            Map<String, Object> errorResponse = validateDisciplinaryRequest(request);
+            if (errorResponse != null) {
                 return ResponseEntity.badRequest().body(errorResponse);
             }
 
-            // 使用数据库查询进行学科分析
-            System.out.println("开始从数据库查询学科分析数据...");
+            DisciplinaryAnalysisJob job = analysisJobService.submit(request.getKeyword(),
+                    request.getStartDate(), request.getEndDate(), request.getEngine(), request.toAnalysisOptions());
+
+            Map<String, Object> response = job.toStatus();
+            response.put("eventsUrl", "/main2022/disciplinaryAnalysis/jobs/" + job.getJobId() + "/events");
+            response.put("message", "学科分析任务已提交");
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (RejectedExecutionException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "分析任务过多，请稍后再试");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+        }
+    }
+
+    /**
+     * 查询任务状态
+     */
+    @GetMapping("/disciplinaryAnalysis/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getDisciplinaryAnalysisJob(@PathVariable String jobId) {
+        DisciplinaryAnalysisJob job = analysisJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toStatus());
+    }
+
+    /**
+     * 获取任务结果（格式与同步接口相同），未完成时返回202和当前状态
+     */
+    @GetMapping("/disciplinaryAnalysis/jobs/{jobId}/result")
+    public ResponseEntity<Map<String, Object>> getDisciplinaryAnalysisJobResult(@PathVariable String jobId) {
+        DisciplinaryAnalysisJob job = analysisJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        DisciplinaryAnalysisJob.Status status = job.getStatus();
+        if (!status.isFinished()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toStatus());
+        }
+        if (status != DisciplinaryAnalysisJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(job.toStatus());
+        }
+
+        Map<String, Object> result = job.getResult();
+        return ResponseEntity.ok(result != null ? result : emptyAnalysisResponse());
+    }
+
+    /**
+     * 任务事件的SSE连接：progress（进度）、partial（每个年份表的部分结果）、result（最终结果）
+     */
+    @GetMapping("/disciplinaryAnalysis/jobs/{jobId}/events")
+    public ResponseEntity<SseEmitter> getDisciplinaryAnalysisJobEvents(@PathVariable String jobId) {
+        SseEmitter emitter = analysisJobService.subscribe(jobId);
+        if (emitter == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * 取消任务
+     */
+    @DeleteMapping("/disciplinaryAnalysis/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelDisciplinaryAnalysisJob(@PathVariable String jobId) {
+        DisciplinaryAnalysisJob job = analysisJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        analysisJobService.cancel(jobId);
+        return ResponseEntity.ok(job.toStatus());
+    }
+
+    /**
+     * 校验学科分析请求，超出支持范围的年份调整到支持范围内
+     * @return 参数错误时返回错误响应，否则返回null
+     */
+    private Map<String, Object> validateDisciplinaryRequest(DisciplinaryRequest request) {
+        String keyword = request.getKeyword();
+        String startDate = request.getStartDate();
+        String endDate = request.getEndDate();
+
+        // 验证输入参数
+        if (keyword == null || keyword.trim().isEmpty()) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "关键词不能为空");
+            return errorResponse;
+        }
+
+        if (startDate == null || endDate == null) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "开始和结束年份不能为空");
+            return errorResponse;
+        }
+
+        // 检查年份范围是否在支持范围内
+        try {
+            int start = Integer.parseInt(startDate);
+            int end = Integer.parseInt(endDate);
 
             Main2022ServiceImpl serviceImpl = (Main2022ServiceImpl) main2022Service;
-            Map<String, List<main2022>> data = serviceImpl.disciplinaryAnalysisSearch(keyword, startDate, endDate);
-
-            System.out.println("从数据库获取的数据: " + data.size() + " 年份的数据");
-
-            if (data.isEmpty()) {
-                Map<String, Object> emptyResponse = new HashMap<>();
-                emptyResponse.put("message", "未找到相关数据");
-                emptyResponse.put("yearlyTrend", new HashMap<>());
-                emptyResponse.put("countryDistribution", new HashMap<>());
-                emptyResponse.put("journalDistribution", new HashMap<>());
-                emptyResponse.put("authorAnalysis", new HashMap<>());
-                emptyResponse.put("keywordTrends", new HashMap<>());
-                emptyResponse.put("summary", Map.of(
-                        "totalPapers", 0,
-                        "uniqueAuthors", 0,
-                        "uniqueJournals", 0,
-                        "uniqueCountries", 0,
-                        "yearRange", new ArrayList<>()
-                ));
-                return ResponseEntity.ok(emptyResponse);
-            }
 
-            // 进行多维度分析
-            Map<String, Object> analysisResult = disciplinaryAnalysis.analyzeDisciplinaryData(data);
+            // 检查是否超出支持范围
+            if (start < 1950 || end > 2020) {
+                System.out.println("部分年份超出当前支持范围 " + serviceImpl.getSupportedYearRange() +
+                        "，将只查询支持范围内的数据");
 
-            System.out.println("学科分析完成，返回结果");
-            return ResponseEntity.ok(analysisResult);
+                // 调整年份范围到支持范围内
+                start = Math.max(start, 1950);
+                end = Math.min(end, 2020);
+                request.setStartDate(String.valueOf(start));
+                request.setEndDate(String.valueOf(end));
 
-        } catch (Exception e) {
-            System.err.println("学科分析过程中发生错误: " + e.getMessage());
-            e.printStackTrace();
+                System.out.println("年份范围已调整为: " + request.getStartDate() + "-" + request.getEndDate());
+            }
+
+            if (start > end) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "开始年份不能大于结束年份");
+                return errorResponse;
+            }
 
+        } catch (NumberFormatException e) {
             Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "分析过程中发生错误: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            errorResponse.put("error", "年份格式不正确，请输入有效的年份");
+            return errorResponse;
         }
+
+        return null;
+    }
+
+    /**
+     * 未找到数据时的学科分析响应
+     */
+    private Map<String, Object> emptyAnalysisResponse() {
+        Map<String, Object> emptyResponse = new HashMap<>();
+        emptyResponse.put("message", "未找到相关数据");
+        emptyResponse.put("yearlyTrend", new HashMap<>());
+        emptyResponse.put("countryDistribution", new HashMap<>());
+        emptyResponse.put("journalDistribution", new HashMap<>());
+        emptyResponse.put("authorAnalysis", new HashMap<>());
+        emptyResponse.put("keywordTrends", new HashMap<>());
+        emptyResponse.put("summary", Map.of(
+                "totalPapers", 0,
+                "uniqueAuthors", 0,
+                "uniqueJournals", 0,
+                "uniqueCountries", 0,
+                "yearRange", new ArrayList<>()
+        ));
+        return emptyResponse;
     }
-}
\ No newline at end of file
+}
@@ -4,8 +4,11 @@ import com.example.backend.config.SearchFilter;
 import com.example.backend.model.main2022;
 import com.example.backend.provider.SqlProvider;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Mapper
 public interface Main2022Mapper {
@@ -47,6 +50,30 @@ public interface Main2022Mapper {
     List<main2022> findByWosUidsInTable(@Param("tableName") String tableName,
                                         @Param("wosUids") List<String> wosUids);
 
+    /**
+     * 年份表是否存在（INFORMATION_SCHEMA，SQL Server和压测用的H2都支持）
+     */
+    @Select("SELECT CASE WHEN COUNT(*) > 0 THEN 1 ELSE 0 END FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = #{tableName}")
+    boolean tableExists(@Param("tableName") String tableName);
+
+    /**
+     * 游标方式扫描整张年份表（离线构建维度列文件使用，需要在事务中读取）
+     */
+    @Select("SELECT * FROM [${tableName}]")
+    @Options(fetchSize = 5000)
+    Cursor<main2022> scanTable(@Param("tableName") String tableName);
+
+    /**
+     * 游标方式读取动态多表高级搜索的全部结果（流式导出使用，需要在事务中读取）
+     * columns为要查询的列（投影下推，未查询的字段为null），为null时查询全部列
+     */
+    @SelectProvider(type = SqlProvider.class, method = "advancedSearchProjectedMultiTable")
+    @Options(fetchSize = 2000)
+    Cursor<main2022> advancedSearchCursorMultiTable(@Param("filters") List<SearchFilter> filters,
+                                                    @Param("tableNames") List<String> tableNames,
+                                                    @Param("columns") List<String> columns,
+                                                    @Param("authorSideTables") Set<String> authorSideTables);
+
     // ==================== 新增：学科分析专用查询方法 ====================
 
     /**
@@ -56,6 +83,24 @@ public interface Main2022Mapper {
     List<main2022> disciplinaryAnalysisSearchMultiTable(@Param("filters") List<SearchFilter> filters,
                                                         @Param("tableNames") List<String> tableNames);
 
+    /**
+     * 学科分析抽样统计（sampled_rows、sampled_matches、total_rows）
+     */
+    @SelectProvider(type = SqlProvider.class, method = "disciplinarySampleStats")
+    Map<String, Object> disciplinarySampleStats(@Param("filters") List<SearchFilter> filters,
+                                                @Param("tableName") String tableName,
+                                                @Param("samplePercent") double samplePercent,
+                                                @Param("seed") int seed);
+
+    /**
+     * 学科分析抽样查询（TABLESAMPLE按页抽样）
+     */
+    @SelectProvider(type = SqlProvider.class, method = "disciplinaryAnalysisSampleTable")
+    List<main2022> disciplinaryAnalysisSampleTable(@Param("filters") List<SearchFilter> filters,
+                                                   @Param("tableName") String tableName,
+                                                   @Param("samplePercent") double samplePercent,
+                                                   @Param("seed") int seed);
+
     // ==================== 保持原有的所有方法不变 ====================
 
     /**
@@ -63,21 +108,24 @@ public interface Main2022Mapper {
      */
     @SelectProvider(type = SqlProvider.class, method = "advancedSearchMultiTable")
     List<main2022> advancedSearchMultiTable(@Param("filters") List<SearchFilter> filters,
-                                            @Param("tableNames") List<String> tableNames);
+                                            @Param("tableNames") List<String> tableNames,
+                                            @Param("authorSideTables") Set<String> authorSideTables);
 
     /**
      * 动态多表高级搜索（获取所有数据，不限制数量）
      */
     @SelectProvider(type = SqlProvider.class, method = "advancedSearchAllMultiTable")
     List<main2022> advancedSearchAllMultiTable(@Param("filters") List<SearchFilter> filters,
-                                               @Param("tableNames") List<String> tableNames);
+                                               @Param("tableNames") List<String> tableNames,
+                                               @Param("authorSideTables") Set<String> authorSideTables);
 
     /**
      * 动态多表计算符合条件的总数量
      */
     @SelectProvider(type = SqlProvider.class, method = "countAdvancedSearchMultiTable")
     int countAdvancedSearchMultiTable(@Param("filters") List<SearchFilter> filters,
-                                      @Param("tableNames") List<String> tableNames);
+                                      @Param("tableNames") List<String> tableNames,
+                                      @Param("authorSideTables") Set<String> authorSideTables);
 
     /**
      * 动态多表采样查询（避免tempdb问题）
@@ -86,7 +134,8 @@ public interface Main2022Mapper {
     List<main2022> advancedSearchSampleMultiTable(@Param("filters") List<SearchFilter> filters,
                                                   @Param("tableNames") List<String> tableNames,
                                                   @Param("samplePercent") double samplePercent,
-                                                  @Param("limit") int limit);
+                                                  @Param("limit") int limit,
+                                                  @Param("authorSideTables") Set<String> authorSideTables);
 
     // ==================== 保留原有方法（向后兼容） ====================
 
@@ -0,0 +1,119 @@
+package com.example.backend.mapper;
+
+import com.example.backend.config.SearchFilter;
+import com.example.backend.model.main2022;
+import com.example.backend.provider.SqlProvider;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预规范化附表（作者、机构/国家、关键词）的建表、写入和统计查询
+ * 每个年份表Wos_YYYY对应三张附表：Wos_YYYY_paper_author、Wos_YYYY_paper_affiliation、Wos_YYYY_paper_keyword
+ */
+@Mapper
+public interface SideTableMapper {
+
+    // ==================== 构建状态 ====================
+
+    @Update("IF OBJECT_ID(N'wos_side_table_status', N'U') IS NULL " +
+            "CREATE TABLE wos_side_table_status (" +
+            "table_name NVARCHAR(64) NOT NULL PRIMARY KEY, " +
+            "built_at DATETIME2 NOT NULL, " +
+            "paper_count INT NOT NULL, " +
+            "author_rows INT NOT NULL, " +
+            "affiliation_rows INT NOT NULL, " +
+            "keyword_rows INT NOT NULL)")
+    void createStatusTable();
+
+    @Select("SELECT CASE WHEN OBJECT_ID(N'wos_side_table_status', N'U') IS NULL THEN 0 ELSE 1 END")
+    boolean statusTableExists();
+
+    /**
+     * 已构建完成的年份表
+     */
+    @Select("SELECT table_name FROM wos_side_table_status")
+    List<String> findBuiltTables();
+
+    @Delete("DELETE FROM wos_side_table_status WHERE table_name = #{tableName}")
+    void deleteStatus(@Param("tableName") String tableName);
+
+    @Insert("INSERT INTO wos_side_table_status (table_name, built_at, paper_count, author_rows, affiliation_rows, keyword_rows) " +
+            "VALUES (#{tableName}, SYSDATETIME(), #{paperCount}, #{authorRows}, #{affiliationRows}, #{keywordRows})")
+    void insertStatus(@Param("tableName") String tableName,
+                      @Param("paperCount") int paperCount,
+                      @Param("authorRows") int authorRows,
+                      @Param("affiliationRows") int affiliationRows,
+                      @Param("keywordRows") int keywordRows);
+
+    // ==================== 建表 ====================
+
+    @Update("DROP TABLE IF EXISTS [${tableName}_paper_author]; " +
+            "DROP TABLE IF EXISTS [${tableName}_paper_affiliation]; " +
+            "DROP TABLE IF EXISTS [${tableName}_paper_keyword]")
+    void dropSideTables(@Param("tableName") String tableName);
+
+    /**
+     * 机构和国家放在同一张表中，每行只有其中一列有值
+     */
+    @Update("CREATE TABLE [${tableName}_paper_author] (" +
+            "wos_uid NVARCHAR(64) NOT NULL, author_name NVARCHAR(450) NOT NULL); " +
+            "CREATE TABLE [${tableName}_paper_affiliation] (" +
+            "wos_uid NVARCHAR(64) NOT NULL, institution NVARCHAR(450) NULL, country NVARCHAR(100) NULL); " +
+            "CREATE TABLE [${tableName}_paper_keyword] (" +
+            "wos_uid NVARCHAR(64) NOT NULL, position INT NOT NULL, keyword_term NVARCHAR(450) NOT NULL)")
+    void createSideTables(@Param("tableName") String tableName);
+
+    /**
+     * 数据写入完成后再建索引（比边写边维护索引快）
+     */
+    @Update("CREATE CLUSTERED INDEX cx_wos_uid ON [${tableName}_paper_author] (wos_uid); " +
+            "CREATE INDEX ix_author_name ON [${tableName}_paper_author] (author_name); " +
+            "CREATE CLUSTERED INDEX cx_wos_uid ON [${tableName}_paper_affiliation] (wos_uid); " +
+            "CREATE INDEX ix_institution ON [${tableName}_paper_affiliation] (institution) WHERE institution IS NOT NULL; " +
+            "CREATE INDEX ix_country ON [${tableName}_paper_affiliation] (country) WHERE country IS NOT NULL; " +
+            "CREATE CLUSTERED INDEX cx_wos_uid ON [${tableName}_paper_keyword] (wos_uid, position); " +
+            "CREATE INDEX ix_keyword_term ON [${tableName}_paper_keyword] (keyword_term)")
+    void createSideTableIndexes(@Param("tableName") String tableName);
+
+    // ==================== 写入（在BATCH执行器中调用） ====================
+
+    @Insert("INSERT INTO [${tableName}_paper_author] (wos_uid, author_name) VALUES (#{wosUid}, #{author})")
+    void insertAuthor(@Param("tableName") String tableName,
+                      @Param("wosUid") String wosUid,
+                      @Param("author") String author);
+
+    @Insert("INSERT INTO [${tableName}_paper_affiliation] (wos_uid, institution, country) " +
+            "VALUES (#{wosUid}, #{institution}, #{country})")
+    void insertAffiliation(@Param("tableName") String tableName,
+                           @Param("wosUid") String wosUid,
+                           @Param("institution") String institution,
+                           @Param("country") String country);
+
+    @Insert("INSERT INTO [${tableName}_paper_keyword] (wos_uid, position, keyword_term) VALUES (#{wosUid}, #{position}, #{keyword})")
+    void insertKeyword(@Param("tableName") String tableName,
+                       @Param("wosUid") String wosUid,
+                       @Param("position") int position,
+                       @Param("keyword") String keyword);
+
+    // ==================== 读取 ====================
+
+    /**
+     * 按主键分页扫描构建附表需要的列（每页是一个短查询，不长时间占用读连接）
+     */
+    @Select("SELECT TOP (#{limit}) wos_uid, author_fullname, address, reprint_address, keyword, keyword_plus, subject_extended " +
+            "FROM [${tableName}] WHERE wos_uid > #{afterUid} ORDER BY wos_uid")
+    List<main2022> scanPage(@Param("tableName") String tableName,
+                            @Param("afterUid") String afterUid,
+                            @Param("limit") int limit);
+
+    /**
+     * 学科分析条件下某一维度按出版年分组的计数，返回pubyear、value、cnt列
+     * facet为paper时只返回pubyear和cnt（论文数）
+     */
+    @SelectProvider(type = SqlProvider.class, method = "sideTableFacetCounts")
+    List<Map<String, Object>> facetCounts(@Param("filters") List<SearchFilter> filters,
+                                          @Param("tableName") String tableName,
+                                          @Param("facet") String facet);
+}
@@ -1,9 +1,13 @@
 package com.example.backend.provider;
 
 import com.example.backend.config.SearchFilter;
+import com.example.backend.util.AuthorTokenizer;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.jdbc.SQL;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 public class SqlProvider {
 
@@ -89,13 +93,106 @@ public class SqlProvider {
         return condition.toString();
     }
 
+    /**
+     * 学科分析抽样统计：按页抽样后的总行数、其中满足条件的行数，以及表的总行数（来自元数据）
+     * 与disciplinaryAnalysisSampleTable使用相同的比例和种子时抽到的是同一批数据页
+     */
+    public String disciplinarySampleStats(@Param("filters") List<SearchFilter> filters,
+                                          @Param("tableName") String tableName,
+                                          @Param("samplePercent") double samplePercent,
+                                          @Param("seed") int seed) {
+        String condition = filters != null && !filters.isEmpty() ? buildDisciplinaryAnalysisSql(filters) : "1=1";
+        return "SELECT COUNT(*) AS sampled_rows, "
+                + "SUM(CASE WHEN " + condition + " THEN 1 ELSE 0 END) AS sampled_matches, "
+                + "(SELECT SUM(rows) FROM sys.partitions WHERE object_id = OBJECT_ID(N'" + tableName + "') AND index_id IN (0, 1)) AS total_rows "
+                + "FROM [" + tableName + "]" + buildTableSample(samplePercent, seed);
+    }
+
+    /**
+     * 学科分析抽样查询：按页抽样后满足条件的记录
+     */
+    public String disciplinaryAnalysisSampleTable(@Param("filters") List<SearchFilter> filters,
+                                                  @Param("tableName") String tableName,
+                                                  @Param("samplePercent") double samplePercent,
+                                                  @Param("seed") int seed) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT * FROM [").append(tableName).append("]").append(buildTableSample(samplePercent, seed));
+        if (filters != null && !filters.isEmpty()) {
+            sql.append(" WHERE ").append(buildDisciplinaryAnalysisSql(filters));
+        }
+        return sql.toString();
+    }
+
+    private String buildTableSample(double samplePercent, int seed) {
+        if (samplePercent <= 0 || samplePercent >= 100) {
+            return "";
+        }
+        // 固定小数位，避免很小的比例被格式化成科学计数法
+        return " TABLESAMPLE (" + String.format(Locale.ROOT, "%.4f", samplePercent)
+                + " PERCENT) REPEATABLE (" + seed + ")";
+    }
+
+    /**
+     * 学科分析条件下按附表分组计数（附表由SideTableBuilder构建）
+     * 取值按二进制排序规则分组，与内存分析一样区分大小写
+     */
+    public String sideTableFacetCounts(@Param("filters") List<SearchFilter> filters,
+                                       @Param("tableName") String tableName,
+                                       @Param("facet") String facet) {
+        StringBuilder matched = new StringBuilder();
+        matched.append("SELECT wos_uid, pubyear, journal_title_source FROM [").append(tableName).append("]")
+                .append(" WHERE pubyear IS NOT NULL AND LTRIM(RTRIM(pubyear)) <> ''");
+        if (filters != null && !filters.isEmpty()) {
+            matched.append(" AND (").append(buildDisciplinaryAnalysisSql(filters)).append(")");
+        }
+
+        String sideTable;
+        String column;
+        switch (facet) {
+            case "paper":
+                return "SELECT p.pubyear AS pubyear, COUNT(*) AS cnt FROM (" + matched + ") p GROUP BY p.pubyear";
+            case "journal": {
+                // 选择列必须与GROUP BY的表达式完全相同（含COLLATE），否则SQL Server报错8120
+                String journal = "p.journal_title_source COLLATE Latin1_General_100_BIN2";
+                return "SELECT p.pubyear AS pubyear, " + journal + " AS value, COUNT(*) AS cnt FROM (" + matched + ") p"
+                        + " WHERE p.journal_title_source IS NOT NULL"
+                        + " GROUP BY p.pubyear, " + journal;
+            }
+            case "author":
+                sideTable = "paper_author";
+                column = "author_name";
+                break;
+            case "institution":
+                sideTable = "paper_affiliation";
+                column = "institution";
+                break;
+            case "country":
+                sideTable = "paper_affiliation";
+                column = "country";
+                break;
+            case "keyword":
+                sideTable = "paper_keyword";
+                column = "keyword_term";
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的维度: " + facet);
+        }
+
+        String value = "s." + column + " COLLATE Latin1_General_100_BIN2";
+        return "SELECT p.pubyear AS pubyear, " + value + " AS value, COUNT(*) AS cnt FROM (" + matched + ") p"
+                + " JOIN [" + tableName + "_" + sideTable + "] s ON s.wos_uid = p.wos_uid"
+                + " WHERE s." + column + " IS NOT NULL"
+                + " GROUP BY p.pubyear, " + value;
+    }
+
     // ==================== 保持原有的所有方法不变 ====================
 
     /**
      * 动态多表高级搜索（限制200条）
      */
     public String advancedSearchMultiTable(@Param("filters") List<SearchFilter> filters,
-                                           @Param("tableNames") List<String> tableNames) {
+                                           @Param("tableNames") List<String> tableNames,
+                                           @Param("authorSideTables") Set<String> authorSideTables) {
         if (tableNames == null || tableNames.isEmpty()) {
             return "SELECT TOP 200 * FROM [Wos_2020] WHERE 1=0";
         }
@@ -111,7 +208,7 @@ public class SqlProvider {
             sql.append("SELECT * FROM [").append(tableNames.get(i)).append("]");
 
             if (filters != null && !filters.isEmpty()) {
-                sql.append(" WHERE ").append(buildDynamicSql(filters));
+                sql.append(" WHERE ").append(buildDynamicSql(filters, tableNames.get(i), authorSideTables));
             }
         }
 
@@ -124,9 +221,27 @@ public class SqlProvider {
      * 动态多表高级搜索（获取所有数据）
      */
     public String advancedSearchAllMultiTable(@Param("filters") List<SearchFilter> filters,
-                                              @Param("tableNames") List<String> tableNames) {
+                                              @Param("tableNames") List<String> tableNames,
+                                              @Param("authorSideTables") Set<String> authorSideTables) {
+        return buildAllMultiTable(filters, tableNames, null, authorSideTables);
+    }
+
+    /**
+     * 动态多表高级搜索（获取所有数据，只查询指定的列，columns为空时查询全部列）
+     * 列名由调用方按导出列白名单校验，这里只接受合法标识符并加方括号引用
+     */
+    public String advancedSearchProjectedMultiTable(@Param("filters") List<SearchFilter> filters,
+                                                    @Param("tableNames") List<String> tableNames,
+                                                    @Param("columns") List<String> columns,
+                                                    @Param("authorSideTables") Set<String> authorSideTables) {
+        return buildAllMultiTable(filters, tableNames, columns, authorSideTables);
+    }
+
+    private String buildAllMultiTable(List<SearchFilter> filters, List<String> tableNames, List<String> columns,
+                                      Set<String> authorSideTables) {
+        String projection = buildProjection(columns);
         if (tableNames == null || tableNames.isEmpty()) {
-            return "SELECT * FROM [Wos_2020] WHERE 1=0";
+            return "SELECT " + projection + " FROM [Wos_2020] WHERE 1=0";
         }
 
         StringBuilder sql = new StringBuilder();
@@ -137,10 +252,10 @@ public class SqlProvider {
                 sql.append(" UNION ALL ");
             }
 
-            sql.append("SELECT * FROM [").append(tableNames.get(i)).append("]");
+            sql.append("SELECT ").append(projection).append(" FROM [").append(tableNames.get(i)).append("]");
 
             if (filters != null && !filters.isEmpty()) {
-                sql.append(" WHERE ").append(buildDynamicSql(filters));
+                sql.append(" WHERE ").append(buildDynamicSql(filters, tableNames.get(i), authorSideTables));
             }
         }
 
@@ -149,11 +264,29 @@ public class SqlProvider {
         return sql.toString();
     }
 
+    private static String buildProjection(List<String> columns) {
+        if (columns == null || columns.isEmpty()) {
+            return "*";
+        }
+        StringBuilder projection = new StringBuilder();
+        for (String column : columns) {
+            if (column == null || !column.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+                throw new IllegalArgumentException("非法的列名: " + column);
+            }
+            if (projection.length() > 0) {
+                projection.append(", ");
+            }
+            projection.append('[').append(column).append(']');
+        }
+        return projection.toString();
+    }
+
     /**
      * 动态多表计算总数量
      */
     public String countAdvancedSearchMultiTable(@Param("filters") List<SearchFilter> filters,
-                                                @Param("tableNames") List<String> tableNames) {
+                                                @Param("tableNames") List<String> tableNames,
+                                                @Param("authorSideTables") Set<String> authorSideTables) {
         if (tableNames == null || tableNames.isEmpty()) {
             return "SELECT 0 AS total_count";
         }
@@ -169,7 +302,7 @@ public class SqlProvider {
             sql.append("SELECT COUNT(*) AS table_count FROM [").append(tableNames.get(i)).append("]");
 
             if (filters != null && !filters.isEmpty()) {
-                sql.append(" WHERE ").append(buildDynamicSql(filters));
+                sql.append(" WHERE ").append(buildDynamicSql(filters, tableNames.get(i), authorSideTables));
             }
         }
 
@@ -184,7 +317,8 @@ public class SqlProvider {
     public String advancedSearchSampleMultiTable(@Param("filters") List<SearchFilter> filters,
                                                  @Param("tableNames") List<String> tableNames,
                                                  @Param("samplePercent") double samplePercent,
-                                                 @Param("limit") int limit) {
+                                                 @Param("limit") int limit,
+                                                 @Param("authorSideTables") Set<String> authorSideTables) {
         if (tableNames == null || tableNames.isEmpty()) {
             return "SELECT TOP " + limit + " * FROM [Wos_2020] WHERE 1=0";
         }
@@ -205,7 +339,7 @@ public class SqlProvider {
             }
 
             if (filters != null && !filters.isEmpty()) {
-                sql.append(" WHERE ").append(buildDynamicSql(filters));
+                sql.append(" WHERE ").append(buildDynamicSql(filters, tableNames.get(i), authorSideTables));
             }
         }
 
@@ -270,6 +404,14 @@ public class SqlProvider {
     }
 
     private String buildDynamicSql(List<SearchFilter> filters) {
+        return buildDynamicSql(filters, null, null);
+    }
+
+    /**
+     * @param tableName 当前查询的年份表，用于判断能否使用附表；单表查询时为null
+     * @param authorSideTables 可以把作者条件改写为附表索引查询的年份表（由调用方传入，为null时不改写）
+     */
+    private String buildDynamicSql(List<SearchFilter> filters, String tableName, Set<String> authorSideTables) {
         StringBuilder sql = new StringBuilder();
         boolean isFirst = true;
 
@@ -279,14 +421,14 @@ public class SqlProvider {
             }
             isFirst = false;
 
-            String columnCondition = buildColumnCondition(filter);
+            String columnCondition = buildColumnCondition(filter, tableName, authorSideTables);
             sql.append(columnCondition);
         }
 
         return sql.toString();
     }
 
-    private String buildColumnCondition(SearchFilter filter) {
+    private String buildColumnCondition(SearchFilter filter, String tableName, Set<String> authorSideTables) {
         String keyword = filter.getInput();
         keyword = escapeSqlServerKeyword(keyword);
 
@@ -301,7 +443,12 @@ public class SqlProvider {
         } else if ("2".equals(filter.getSelects().get(1).toString())) {
             condition.append("article_title LIKE '%").append(keyword).append("%'");
         } else if ("3".equals(filter.getSelects().get(1).toString())) {
-            condition.append("author_fullname LIKE '%").append(keyword).append("%'");
+            String sideTableCondition = buildAuthorSideTableCondition(filter.getInput(), tableName, authorSideTables);
+            if (sideTableCondition != null) {
+                condition.append(sideTableCondition);
+            } else {
+                condition.append("author_fullname LIKE '%").append(keyword).append("%'");
+            }
         } else if ("4".equals(filter.getSelects().get(1).toString())) {
             condition.append("journal_title_source LIKE '%").append(keyword).append("%'");
         } else if ("5".equals(filter.getSelects().get(1).toString())) {
@@ -313,6 +460,26 @@ public class SqlProvider {
         return condition.toString();
     }
 
+    /**
+     * 作者条件改写为附表上的索引前缀查询
+     * 输入按附表相同的规则规范化后只得到一个作者名时才改写（如"Zhang, San" → "Zhang San%"），
+     * 只匹配以该名字开头的作者，不再匹配作者字段中任意位置的子串；不满足条件时返回null，使用原来的LIKE
+     */
+    private String buildAuthorSideTableCondition(String input, String tableName, Set<String> authorSideTables) {
+        if (tableName == null || authorSideTables == null || !authorSideTables.contains(tableName)) {
+            return null;
+        }
+
+        List<String> names = new ArrayList<>();
+        new AuthorTokenizer().tokenize(input, (buf, offset, length) -> names.add(new String(buf, offset, length)));
+        if (names.size() != 1) {
+            return null;
+        }
+
+        return "wos_uid IN (SELECT wos_uid FROM [" + tableName + "_paper_author] WHERE author_name LIKE '"
+                + escapeSqlServerKeyword(names.get(0)) + "%')";
+    }
+
     /**
      * 转义 SQL Server 中的特殊字符
      */
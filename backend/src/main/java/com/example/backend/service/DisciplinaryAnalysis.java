@@ -1,9 +1,12 @@
 package com.example.backend.service;
 
+import com.example.backend.config.AnalysisOptions;
 import com.example.backend.model.main2022;
+import com.example.backend.service.impl.DisciplinaryPartial;
 
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 
 public interface DisciplinaryAnalysis {
     /**
@@ -12,4 +15,30 @@ public interface DisciplinaryAnalysis {
      * @return 包含多维度分析结果的Map
      */
     Map<String, Object> analyzeDisciplinaryData(Map<String, List<main2022>> disciplinaryData);
-}
\ No newline at end of file
+
+    /**
+     * 按指定选项分析学科数据
+     * @param options 分析选项（去重统计方式等），为null时使用默认配置
+     */
+    Map<String, Object> analyzeDisciplinaryData(Map<String, List<main2022>> disciplinaryData, AnalysisOptions options);
+
+    /**
+     * 单次遍历一个年份的论文，生成可合并的部分结果
+     * @param year 年份
+     * @param papers 该年份的论文
+     * @param options 分析选项，为null时使用默认配置
+     */
+    DisciplinaryPartial analyzeYear(String year, List<main2022> papers, AnalysisOptions options);
+
+    /**
+     * 创建一个空的部分结果（Top-K容量和去重统计方式与analyzeYear一致）
+     * @param options 分析选项，为null时使用默认配置
+     */
+    DisciplinaryPartial createPartial(String year, AnalysisOptions options);
+
+    /**
+     * 将按年份的部分结果合并为最终分析结果（格式与analyzeDisciplinaryData相同）
+     * @param partials 按年份排序的部分结果
+     */
+    Map<String, Object> assemble(SortedMap<String, DisciplinaryPartial> partials);
+}
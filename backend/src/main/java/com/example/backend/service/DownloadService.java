@@ -1,9 +1,19 @@
 package com.example.backend.service;
 
+import com.example.backend.config.SearchFilter;
 import com.example.backend.model.main2022;
+import com.example.backend.util.ExportCompression;
+import com.example.backend.util.ExportFormat;
+import com.example.backend.util.ExportPackaging;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 public interface DownloadService {
     /**
@@ -16,23 +26,72 @@ public interface DownloadService {
      */
     byte[] generateCSVBytes(List<main2022> data);
 
+    /**
+     * 全部可导出的列名（按默认导出顺序）
+     */
+    List<String> exportColumns();
+
+    /**
+     * 解析逗号分隔的导出列选择，返回校验后的列名列表；null或空字符串表示全部列，返回null
+     * 列名不在可导出列中时抛出IllegalArgumentException
+     */
+    List<String> resolveColumns(String columns);
+
+    /**
+     * 流式导出符合条件的所有数据（游标逐行读取并编码，不限制行数），返回数据行数
+     * columns为resolveColumns的结果，只查询和导出这些列，null为全部列；
+     * CSV按compression边写边压缩，列式格式自带压缩、忽略compression；
+     * 涉及多张年份表时按表分片并行导出：packaging为FILE时按年份顺序拼接（仅CSV，列式格式顺序导出），
+     * 为ZIP时每张表一个完整文件打包为zip；
+     * progress按固定行数间隔回调已写入的行数（可能在分片线程中调用），可以为null。out不会被关闭
+     */
+    long writeExport(List<SearchFilter> filters, List<String> columns, ExportFormat format, ExportCompression compression,
+                     ExportPackaging packaging, OutputStream out, LongConsumer progress) throws IOException;
+
+    /**
+     * 流式导出整张年份表（快照导出），参数含义同writeExport
+     */
+    long writeTableSnapshot(String tableName, ExportFormat format, ExportCompression compression,
+                            OutputStream out, LongConsumer progress) throws IOException;
+
+    /**
+     * 请求未指定压缩方式时使用的默认值（download.compression.default）
+     */
+    ExportCompression defaultCompression();
+
     /**
      * 创建下载响应
      */
     ResponseEntity<byte[]> createDownloadResponse(byte[] data, String fileName);
 
     /**
-     * 存储临时文件
+     * 创建导出文件的下载响应（流式读取文件内容，Content-Type与格式、压缩方式对应），文件不存在时返回404
+     * fileName为不含扩展名的文件名；requestHeaders中的Range/If-Range/If-None-Match用于断点续传和分段下载
+     */
+    ResponseEntity<StreamingResponseBody> createFileDownloadResponse(String taskId, String fileName,
+                                                                     HttpHeaders requestHeaders);
+
+    /**
+     * 为任务创建导出临时文件，写完后调用commitTemporaryFile，失败时调用cleanupTemporaryFile
+     */
+    Path createTemporaryFile(String taskId, ExportFormat format, ExportCompression compression,
+                             ExportPackaging packaging) throws IOException;
+
+    /**
+     * 导出文件写入完成，之后可以下载
      */
-    void storeTemporaryFile(String taskId, byte[] data);
+    void commitTemporaryFile(String taskId, ExportFormat format, ExportCompression compression,
+                             ExportPackaging packaging) throws IOException;
 
     /**
-     * 获取临时文件
+     * 任务的导出文件是否已存在且可以复用（提交时间未超过复用期限）
      */
-    byte[] getTemporaryFile(String taskId);
+    boolean hasExportFile(String taskId);
 
     /**
-     * 清理临时文件
+     * 放弃写入，删除createTemporaryFile创建的临时文件
+     * 只处理这一种格式/压缩/打包方式的临时文件，已提交的同名导出文件（已有的下载链接）不受影响
      */
-    void cleanupTemporaryFile(String taskId);
-}
\ No newline at end of file
+    void cleanupTemporaryFile(String taskId, ExportFormat format, ExportCompression compression,
+                              ExportPackaging packaging);
+}
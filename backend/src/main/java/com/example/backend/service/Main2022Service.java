@@ -2,6 +2,8 @@ package com.example.backend.service;
 
 import com.example.backend.config.SearchFilter;
 import com.example.backend.model.main2022;
+
+import java.io.IOException;
 import java.util.List;
 import java.util.function.BiConsumer;
 
@@ -25,4 +27,40 @@ public interface Main2022Service {
      * 计算符合条件的总数量
      */
     int countAdvancedSearch(List<SearchFilter> filters);
+
+    /**
+     * 高级搜索（游标逐行读取所有数据，不在内存中累积），返回处理的行数
+     * columns为要读取的字段（只查询这些列，其余字段为null），为null时读取全部字段；
+     * consumer抛出的IOException（如客户端断开）会中止读取并原样抛出
+     */
+    long streamAdvancedSearch(List<SearchFilter> filters, List<String> columns, PaperConsumer consumer) throws IOException;
+
+    /**
+     * streamAdvancedSearch会依次读取的年份表（按读取顺序，从新到旧），并行导出按这些表分片
+     */
+    List<String> exportTables(List<SearchFilter> filters);
+
+    /**
+     * 只在一张年份表中流式读取高级搜索结果（并行导出的一个分片），参数含义同streamAdvancedSearch
+     * 各表的结果按exportTables的顺序连接起来与streamAdvancedSearch一致
+     */
+    long streamAdvancedSearchTable(List<SearchFilter> filters, String tableName, List<String> columns,
+                                   PaperConsumer consumer) throws IOException;
+
+    /**
+     * 按年份范围流式读取高级搜索结果（结果与advancedSearchByYearRange一致），返回处理的行数
+     * 数据库游标逐行读取，consumer处理完一行才读取下一行
+     */
+    long streamAdvancedSearchByYearRange(List<SearchFilter> filters, int startYear, int endYear,
+                                         PaperConsumer consumer) throws IOException;
+
+    /**
+     * 游标逐行读取整张年份表（快照导出使用），返回处理的行数
+     */
+    long streamTable(String tableName, PaperConsumer consumer) throws IOException;
+
+    @FunctionalInterface
+    interface PaperConsumer {
+        void accept(main2022 paper) throws IOException;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,394 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.config.AnalysisOptions;
+import com.example.backend.model.main2022;
+import com.example.backend.service.DisciplinaryAnalysis;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 抽样近似的学科分析
+ *
+ * 以年份表为层分层抽样：先用小比例TABLESAMPLE估计每个表的匹配数，再按估计值为每个表选择抽样比例，
+ * 使每层大约抽到analysis.approximate.target-sample篇匹配论文（匹配少的表直接全量分析，已缓存的表直接使用缓存）。
+ * 各层的计数按 总行数/抽到行数 放大后合并，并给出年度论文数和各分布占比的95%置信区间。
+ *
+ * 置信区间按简单随机抽样近似计算；TABLESAMPLE按数据页抽样，同一页内的论文相关时实际误差会更大。
+ * 去重计数（作者数、期刊数、国家数）无法按比例放大，返回的是样本中的值，即总体的下界。
+ */
+@Service
+public class ApproximateDisciplinaryAnalysis {
+
+    // 95%置信水平对应的正态分位数
+    private static final double Z_95 = 1.96;
+    // 抽样比例超过该值时直接全量分析（按页抽样节省有限）
+    private static final double EXACT_ABOVE_PERCENT = 50.0;
+
+    private static final String SOURCE_CACHE = "cache";
+    private static final String SOURCE_EXACT = "exact";
+    private static final String SOURCE_SAMPLE = "sample";
+
+    private final Main2022ServiceImpl main2022Service;
+    private final DisciplinaryAnalysis disciplinaryAnalysis;
+    private final CachedDisciplinaryAnalysis cachedDisciplinaryAnalysis;
+    private final DisciplinaryPartialCache partialCache;
+    private final TableSelectorService tableSelectorService;
+
+    private final String defaultMode;
+    private final long threshold;
+    private final double pilotPercent;
+    private final long targetSample;
+    private final double minPercent;
+
+    public ApproximateDisciplinaryAnalysis(Main2022ServiceImpl main2022Service,
+                                           DisciplinaryAnalysis disciplinaryAnalysis,
+                                           CachedDisciplinaryAnalysis cachedDisciplinaryAnalysis,
+                                           DisciplinaryPartialCache partialCache,
+                                           TableSelectorService tableSelectorService,
+                                           @Value("${analysis.mode:auto}") String defaultMode,
+                                           @Value("${analysis.approximate.threshold:300000}") long threshold,
+                                           @Value("${analysis.approximate.pilot-percent:1}") double pilotPercent,
+                                           @Value("${analysis.approximate.target-sample:20000}") long targetSample,
+                                           @Value("${analysis.approximate.min-percent:0.5}") double minPercent) {
+        this.main2022Service = main2022Service;
+        this.disciplinaryAnalysis = disciplinaryAnalysis;
+        this.cachedDisciplinaryAnalysis = cachedDisciplinaryAnalysis;
+        this.partialCache = partialCache;
+        this.tableSelectorService = tableSelectorService;
+        this.defaultMode = defaultMode;
+        this.threshold = threshold;
+        this.pilotPercent = pilotPercent;
+        this.targetSample = targetSample;
+        this.minPercent = minPercent;
+    }
+
+    /**
+     * 解析分析方式，未指定时使用默认配置；不支持的取值抛出IllegalArgumentException
+     */
+    public String resolveMode(AnalysisOptions options) {
+        String mode = options != null && options.getMode() != null
+                ? options.getMode().trim().toLowerCase()
+                : defaultMode;
+        if (!AnalysisOptions.MODE_EXACT.equals(mode) && !AnalysisOptions.MODE_APPROXIMATE.equals(mode)
+                && !AnalysisOptions.MODE_AUTO.equals(mode)) {
+            throw new IllegalArgumentException("不支持的分析方式: " + mode + "（可选exact、approximate或auto）");
+        }
+        return mode;
+    }
+
+    /**
+     * 制定抽样计划：估计每个未缓存年份表的匹配数并确定抽样比例
+     * @return 抽样计划；exact模式，或auto模式下估计的匹配数未超过阈值时返回null（由调用方全量分析）
+     */
+    public SamplingPlan plan(String keyword, String startYear, String endYear, AnalysisOptions options) {
+        String mode = resolveMode(options);
+        if (AnalysisOptions.MODE_EXACT.equals(mode)) {
+            return null;
+        }
+
+        String signature = disciplinaryAnalysis.createPartial(null, options).getSignature();
+        List<String> tableNames = tableSelectorService.determineTablesForDisciplinaryAnalysis(keyword, startYear, endYear);
+        int seed = ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+
+        long startTime = System.currentTimeMillis();
+        List<TablePlan> tables = new ArrayList<>();
+        long estimatedMatches = 0;
+        for (String tableName : tableNames) {
+            checkInterrupted();
+            TablePlan table = new TablePlan(tableName);
+            table.cached = partialCache.get(keyword, tableName, signature);
+            if (table.cached != null) {
+                table.source = SOURCE_CACHE;
+                table.samplePercent = 100;
+            } else {
+                table.estimatedMatches = estimateMatches(keyword, tableName, seed);
+                table.samplePercent = choosePercent(table.estimatedMatches);
+                table.source = table.samplePercent >= 100 ? SOURCE_EXACT : SOURCE_SAMPLE;
+                estimatedMatches += table.estimatedMatches;
+            }
+            tables.add(table);
+        }
+
+        System.out.println(String.format("学科分析抽样估计 - 关键词: %s, 未缓存表估计匹配数: %d, 阈值: %d, 耗时: %dms",
+                keyword, estimatedMatches, threshold, System.currentTimeMillis() - startTime));
+        if (AnalysisOptions.MODE_AUTO.equals(mode) && estimatedMatches <= threshold) {
+            return null;
+        }
+        return new SamplingPlan(keyword, signature, mode, seed, estimatedMatches, tables);
+    }
+
+    /**
+     * 按抽样计划执行分析，每完成一个年份表回调一次listener（部分结果为放大后的估计值）
+     * @return 分析结果（含sampling和confidenceIntervals），没有数据时返回null
+     */
+    public Map<String, Object> analyze(SamplingPlan plan, AnalysisOptions options,
+                                       CachedDisciplinaryAnalysis.TableListener listener) {
+        long startTime = System.currentTimeMillis();
+        SortedMap<String, DisciplinaryPartial> partials = new TreeMap<>();
+        // 每个出版年：放大后论文数的方差、实际观察到的论文数
+        Map<String, Double> varianceByYear = new HashMap<>();
+        Map<String, Long> observedByYear = new HashMap<>();
+
+        int tablesDone = 0;
+        for (TablePlan table : plan.tables) {
+            checkInterrupted();
+
+            SortedMap<String, DisciplinaryPartial> tablePartials;
+            if (SOURCE_CACHE.equals(table.source)) {
+                tablePartials = table.cached;
+            } else if (SOURCE_EXACT.equals(table.source)) {
+                tablePartials = cachedDisciplinaryAnalysis.analyzeTable(plan.keyword, table.tableName, options);
+                partialCache.put(plan.keyword, table.tableName, plan.signature, tablePartials);
+            } else {
+                tablePartials = sampleTable(plan, table, options, varianceByYear, observedByYear);
+            }
+            if (!SOURCE_SAMPLE.equals(table.source)) {
+                for (DisciplinaryPartial partial : tablePartials.values()) {
+                    observedByYear.merge(partial.getYear(), partial.getPaperCount(), Long::sum);
+                }
+            }
+
+            tablesDone++;
+            if (listener != null) {
+                listener.onTable(table.tableName, tablePartials, tablesDone, plan.tables.size(), SOURCE_CACHE.equals(table.source));
+            }
+            CachedDisciplinaryAnalysis.mergeInto(partials, tablePartials);
+        }
+
+        System.out.println(String.format("学科分析抽样完成 - 表数: %d, 耗时: %dms",
+                plan.tables.size(), System.currentTimeMillis() - startTime));
+        if (partials.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Object> result = disciplinaryAnalysis.assemble(partials);
+        result.put("approximate", true);
+        result.put("sampling", samplingInfo(plan));
+        long sampledPapers = 0;
+        for (TablePlan table : plan.tables) {
+            if (SOURCE_SAMPLE.equals(table.source)) {
+                sampledPapers += table.sampledPapers;
+            }
+        }
+        result.put("confidenceIntervals", confidenceIntervals(result, varianceByYear, observedByYear, sampledPapers));
+        return result;
+    }
+
+    // ==================== 内部实现 ====================
+
+    /**
+     * 用小比例抽样估计表中满足条件的记录数；抽样没有抽到数据时返回0
+     */
+    private long estimateMatches(String keyword, String tableName, int seed) {
+        Map<String, Object> stats = main2022Service.disciplinarySampleStats(keyword, tableName, pilotPercent, seed);
+        long sampledRows = longValue(stats, "sampled_rows");
+        long sampledMatches = longValue(stats, "sampled_matches");
+        long totalRows = longValue(stats, "total_rows");
+        if (sampledRows == 0) {
+            return 0;
+        }
+        return Math.round((double) sampledMatches * totalRows / sampledRows);
+    }
+
+    /**
+     * 使该表大约抽到targetSample篇匹配论文的抽样比例，返回100表示全量分析
+     */
+    private double choosePercent(long estimatedMatches) {
+        if (estimatedMatches <= targetSample) {
+            return 100;
+        }
+        double percent = Math.max(minPercent, 100.0 * targetSample / estimatedMatches);
+        return percent >= EXACT_ABOVE_PERCENT ? 100 : percent;
+    }
+
+    private SortedMap<String, DisciplinaryPartial> sampleTable(SamplingPlan plan, TablePlan table, AnalysisOptions options,
+                                                               Map<String, Double> varianceByYear,
+                                                               Map<String, Long> observedByYear) {
+        // 相同的比例和种子抽到相同的数据页：先取抽到的总行数，再取其中满足条件的记录
+        Map<String, Object> stats = main2022Service.disciplinarySampleStats(plan.keyword, table.tableName,
+                table.samplePercent, plan.seed);
+        table.sampledRows = longValue(stats, "sampled_rows");
+        long totalRows = longValue(stats, "total_rows");
+        if (table.sampledRows == 0 || totalRows == 0) {
+            // 表太小，按页抽样没有抽到数据：改为全量分析
+            table.source = SOURCE_EXACT;
+            table.samplePercent = 100;
+            return cachedDisciplinaryAnalysis.analyzeTable(plan.keyword, table.tableName, options);
+        }
+
+        Map<String, List<main2022>> data = main2022Service.disciplinaryAnalysisSampleTable(plan.keyword, table.tableName,
+                table.samplePercent, plan.seed);
+        double weight = Math.max(1.0, (double) totalRows / table.sampledRows);
+        table.weight = weight;
+
+        SortedMap<String, DisciplinaryPartial> partials = new TreeMap<>();
+        for (Map.Entry<String, List<main2022>> entry : data.entrySet()) {
+            String year = entry.getKey();
+            long observed = entry.getValue().size();
+            table.sampledPapers += observed;
+
+            // 放大估计 N = w·m 的方差：w²·m·(1 - 1/w)
+            varianceByYear.merge(year, weight * weight * observed * (1 - 1 / weight), Double::sum);
+            observedByYear.merge(year, observed, Long::sum);
+
+            DisciplinaryPartial partial = disciplinaryAnalysis.analyzeYear(year, entry.getValue(), options);
+            partials.put(year, partial.scaled(weight));
+        }
+        return partials;
+    }
+
+    private Map<String, Object> samplingInfo(SamplingPlan plan) {
+        Map<String, Object> sampling = new HashMap<>();
+        sampling.put("mode", plan.mode);
+        sampling.put("estimatedMatches", plan.estimatedMatches);
+        sampling.put("confidenceLevel", 0.95);
+        sampling.put("uniqueCountsFromSample", true);
+
+        List<Map<String, Object>> tables = new ArrayList<>();
+        for (TablePlan table : plan.tables) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("table", table.tableName);
+            item.put("source", table.source);
+            item.put("samplePercent", table.samplePercent);
+            item.put("estimatedMatches", table.estimatedMatches);
+            if (SOURCE_SAMPLE.equals(table.source)) {
+                item.put("sampledRows", table.sampledRows);
+                item.put("sampledPapers", table.sampledPapers);
+                item.put("weight", table.weight);
+            }
+            tables.add(item);
+        }
+        sampling.put("tables", tables);
+        return sampling;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> confidenceIntervals(Map<String, Object> result, Map<String, Double> varianceByYear,
+                                                    Map<String, Long> observedByYear, long sampledPapers) {
+        Map<String, Object> intervals = new HashMap<>();
+
+        // 年度论文数：估计值 ± z·标准误，下界不低于实际观察到的论文数
+        Map<String, Integer> yearlyTrend = (Map<String, Integer>) result.get("yearlyTrend");
+        Map<String, Object> yearly = new TreeMap<>();
+        double totalVariance = 0;
+        long totalObserved = 0;
+        for (Map.Entry<String, Integer> entry : yearlyTrend.entrySet()) {
+            double variance = varianceByYear.getOrDefault(entry.getKey(), 0.0);
+            long observed = observedByYear.getOrDefault(entry.getKey(), 0L);
+            totalVariance += variance;
+            totalObserved += observed;
+            yearly.put(entry.getKey(), countInterval(entry.getValue(), variance, observed));
+        }
+        intervals.put("yearlyTrend", yearly);
+
+        Map<String, Object> summary = (Map<String, Object>) result.get("summary");
+        int totalPapers = (Integer) summary.get("totalPapers");
+        intervals.put("totalPapers", countInterval(totalPapers, totalVariance, totalObserved));
+
+        // 各分布的占比（占论文总数的比例）的Wilson区间，样本量只计抽样表中抽到的论文：
+        // 缓存和全量分析的表没有抽样误差，计入样本量会使区间过窄；只按抽到的论文数计算则略偏保守。
+        // 没有抽样表时占比是精确值，区间退化为一点
+        Map<String, Object> authorAnalysis = (Map<String, Object>) result.get("authorAnalysis");
+        intervals.put("countryDistribution",
+                shareIntervals((Map<String, Integer>) result.get("countryDistribution"), totalPapers, sampledPapers));
+        intervals.put("journalDistribution",
+                shareIntervals((Map<String, Integer>) result.get("journalDistribution"), totalPapers, sampledPapers));
+        intervals.put("topAuthors",
+                shareIntervals((Map<String, Integer>) authorAnalysis.get("topAuthors"), totalPapers, sampledPapers));
+        intervals.put("topInstitutions",
+                shareIntervals((Map<String, Integer>) authorAnalysis.get("topInstitutions"), totalPapers, sampledPapers));
+        return intervals;
+    }
+
+    private static Map<String, Object> countInterval(long estimate, double variance, long observed) {
+        double margin = Z_95 * Math.sqrt(variance);
+        Map<String, Object> interval = new HashMap<>();
+        interval.put("estimate", estimate);
+        interval.put("lower", Math.max(observed, Math.round(estimate - margin)));
+        interval.put("upper", Math.round(estimate + margin));
+        return interval;
+    }
+
+    private static Map<String, Object> shareIntervals(Map<String, Integer> counts, long totalPapers, long sampledPapers) {
+        Map<String, Object> intervals = new LinkedHashMap<>();
+        if (counts == null || totalPapers <= 0) {
+            return intervals;
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            double share = Math.min(1.0, (double) entry.getValue() / totalPapers);
+            Map<String, Object> interval = new HashMap<>();
+            interval.put("share", share);
+            if (sampledPapers <= 0) {
+                interval.put("lower", share);
+                interval.put("upper", share);
+                intervals.put(entry.getKey(), interval);
+                continue;
+            }
+
+            // Wilson得分区间，占比很小时也不会出现负的下界
+            double n = sampledPapers;
+            double z2 = Z_95 * Z_95;
+            double center = (share + z2 / (2 * n)) / (1 + z2 / n);
+            double margin = Z_95 * Math.sqrt(share * (1 - share) / n + z2 / (4 * n * n)) / (1 + z2 / n);
+            interval.put("lower", Math.max(0, center - margin));
+            interval.put("upper", Math.min(1, center + margin));
+            intervals.put(entry.getKey(), interval);
+        }
+        return intervals;
+    }
+
+    private static long longValue(Map<String, Object> row, String column) {
+        Object value = row != null ? row.get(column) : null;
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("学科分析已取消");
+        }
+    }
+
+    /**
+     * 抽样计划：每个年份表的数据来源（缓存/全量/抽样）和抽样比例
+     */
+    public static final class SamplingPlan {
+        private final String keyword;
+        private final String signature;
+        private final String mode;
+        private final int seed;
+        private final long estimatedMatches;
+        private final List<TablePlan> tables;
+
+        SamplingPlan(String keyword, String signature, String mode, int seed, long estimatedMatches, List<TablePlan> tables) {
+            this.keyword = keyword;
+            this.signature = signature;
+            this.mode = mode;
+            this.seed = seed;
+            this.estimatedMatches = estimatedMatches;
+            this.tables = tables;
+        }
+
+        public long getEstimatedMatches() {
+            return estimatedMatches;
+        }
+    }
+
+    private static final class TablePlan {
+        private final String tableName;
+        private String source;
+        private double samplePercent;
+        private long estimatedMatches;
+        private SortedMap<String, DisciplinaryPartial> cached;
+        private long sampledRows;
+        private long sampledPapers;
+        private double weight = 1;
+
+        TablePlan(String tableName) {
+            this.tableName = tableName;
+        }
+    }
+}
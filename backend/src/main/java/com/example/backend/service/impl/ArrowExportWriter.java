@@ -0,0 +1,182 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.model.main2022;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arrow IPC流格式导出：每batchSize行组成一个record batch写出
+ * 数值字段为Int32列，低基数字符串列按批字典编码（每批一个字典，内容变化时写出替换字典），
+ * 其余字符串为Utf8列；batch数据用zstd压缩。内存占用约为一个batch的大小，与总行数无关。
+ */
+final class ArrowExportWriter implements ExportRowWriter {
+
+    private static final ArrowType.Int INDEX_TYPE = new ArrowType.Int(32, true);
+
+    private final List<ExportColumn> columns;
+    private final int batchSize;
+    private final BufferAllocator allocator;
+    private final VectorSchemaRoot root;
+    private final ArrowStreamWriter writer;
+
+    // 字典编码列：列序号 → 本批的字典（取值 → 编号）和字典向量
+    private final Map<Integer, Map<String, Integer>> dictionaryIndexes = new HashMap<>();
+    private final Map<Integer, VarCharVector> dictionaryVectors = new HashMap<>();
+
+    private int rows;
+
+    ArrowExportWriter(OutputStream out, List<ExportColumn> columns, int batchSize) throws IOException {
+        this.columns = columns;
+        this.batchSize = batchSize;
+        this.allocator = new RootAllocator();
+
+        DictionaryProvider.MapDictionaryProvider provider = new DictionaryProvider.MapDictionaryProvider();
+        List<Field> fields = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            ExportColumn column = columns.get(i);
+            if (column.type() == ExportColumn.Type.INT) {
+                fields.add(new Field(column.name(), FieldType.nullable(new ArrowType.Int(32, true)), null));
+            } else if (column.dictionary()) {
+                DictionaryEncoding encoding = new DictionaryEncoding(i, false, INDEX_TYPE);
+                fields.add(new Field(column.name(), new FieldType(true, INDEX_TYPE, encoding), null));
+                VarCharVector dictionary = new VarCharVector(column.name() + "_dictionary", allocator);
+                provider.put(new Dictionary(dictionary, encoding));
+                dictionaryVectors.put(i, dictionary);
+                dictionaryIndexes.put(i, new HashMap<>());
+            } else {
+                fields.add(new Field(column.name(), FieldType.nullable(new ArrowType.Utf8()), null));
+            }
+        }
+
+        this.root = VectorSchemaRoot.create(new Schema(fields), allocator);
+        this.writer = new ArrowStreamWriter(root, provider, Channels.newChannel(new NonClosingOutputStream(out)),
+                IpcOption.DEFAULT, CommonsCompressionFactory.INSTANCE, CompressionUtil.CodecType.ZSTD);
+        writer.start();
+        startBatch();
+    }
+
+    @Override
+    public void write(main2022 paper) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            ExportColumn column = columns.get(i);
+            FieldVector vector = root.getVector(i);
+            if (column.type() == ExportColumn.Type.INT) {
+                Integer value = column.intValue(paper);
+                if (value != null) {
+                    ((IntVector) vector).setSafe(rows, value);
+                } else {
+                    ((IntVector) vector).setNull(rows);
+                }
+                continue;
+            }
+
+            String value = column.value(paper);
+            if (value == null) {
+                if (column.dictionary()) {
+                    ((IntVector) vector).setNull(rows);
+                } else {
+                    ((VarCharVector) vector).setNull(rows);
+                }
+            } else if (column.dictionary()) {
+                ((IntVector) vector).setSafe(rows, dictionaryIndex(i, value));
+            } else {
+                ((VarCharVector) vector).setSafe(rows, value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        if (++rows == batchSize) {
+            writeBatch();
+            startBatch();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows > 0) {
+                writeBatch();
+            }
+            writer.end();
+        } finally {
+            writer.close();
+            root.close();
+            for (VarCharVector dictionary : dictionaryVectors.values()) {
+                dictionary.close();
+            }
+            allocator.close();
+        }
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void startBatch() {
+        root.allocateNew();
+        for (Map.Entry<Integer, VarCharVector> e : dictionaryVectors.entrySet()) {
+            e.getValue().allocateNew();
+            dictionaryIndexes.get(e.getKey()).clear();
+        }
+        rows = 0;
+    }
+
+    private void writeBatch() throws IOException {
+        for (Map.Entry<Integer, VarCharVector> e : dictionaryVectors.entrySet()) {
+            e.getValue().setValueCount(dictionaryIndexes.get(e.getKey()).size());
+        }
+        root.setRowCount(rows);
+        writer.writeBatch();
+    }
+
+    private int dictionaryIndex(int column, String value) {
+        Map<String, Integer> index = dictionaryIndexes.get(column);
+        Integer id = index.get(value);
+        if (id == null) {
+            id = index.size();
+            index.put(value, id);
+            dictionaryVectors.get(column).setSafe(id, value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    /**
+     * 关闭时只刷新不关闭底层输出流
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
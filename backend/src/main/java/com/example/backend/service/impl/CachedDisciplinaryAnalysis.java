@@ -0,0 +1,142 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.config.AnalysisOptions;
+import com.example.backend.model.main2022;
+import com.example.backend.service.DisciplinaryAnalysis;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 按年份表增量计算的学科分析
+ * 每个年份表单独查询并分析，结果（按出版年的部分结果）写入DisciplinaryPartialCache；
+ * 年份范围重叠的请求直接合并已缓存的表，只查询缺失的表。
+ * 假设Wos_YYYY表的数据导入后不再变化。
+ * 已构建预规范化附表的年份表改为在附表上分组统计（analysis.side-tables.enabled）。
+ */
+@Service
+public class CachedDisciplinaryAnalysis {
+
+    private final Main2022ServiceImpl main2022Service;
+    private final DisciplinaryAnalysis disciplinaryAnalysis;
+    private final DisciplinaryPartialCache partialCache;
+    private final TableSelectorService tableSelectorService;
+    private final SideTableBuilder sideTableBuilder;
+    private final SideTableAnalysis sideTableAnalysis;
+    private final boolean sideTablesEnabled;
+
+    public CachedDisciplinaryAnalysis(Main2022ServiceImpl main2022Service,
+                                      DisciplinaryAnalysis disciplinaryAnalysis,
+                                      DisciplinaryPartialCache partialCache,
+                                      TableSelectorService tableSelectorService,
+                                      SideTableBuilder sideTableBuilder,
+                                      SideTableAnalysis sideTableAnalysis,
+                                      @Value("${analysis.side-tables.enabled:true}") boolean sideTablesEnabled) {
+        this.main2022Service = main2022Service;
+        this.disciplinaryAnalysis = disciplinaryAnalysis;
+        this.partialCache = partialCache;
+        this.tableSelectorService = tableSelectorService;
+        this.sideTableBuilder = sideTableBuilder;
+        this.sideTableAnalysis = sideTableAnalysis;
+        this.sideTablesEnabled = sideTablesEnabled;
+    }
+
+    /**
+     * 每个年份表完成后的回调（在分析线程中同步调用）
+     */
+    @FunctionalInterface
+    public interface TableListener {
+        /**
+         * @param tablePartials 该表按出版年的部分结果，只在回调期间保证不被修改
+         * @param cached 是否来自缓存
+         */
+        void onTable(String tableName, SortedMap<String, DisciplinaryPartial> tablePartials,
+                     int tablesDone, int tablesTotal, boolean cached);
+    }
+
+    /**
+     * 返回按出版年排序的部分结果（可直接交给DisciplinaryAnalysis.assemble）
+     * 分析选项无效时抛出IllegalArgumentException
+     */
+    public SortedMap<String, DisciplinaryPartial> analyze(String keyword, String startYear, String endYear,
+                                                          AnalysisOptions options) {
+        return analyze(keyword, startYear, endYear, options, null);
+    }
+
+    /**
+     * 同analyze，每完成一个年份表回调一次listener；线程被中断时抛出CancellationException
+     */
+    public SortedMap<String, DisciplinaryPartial> analyze(String keyword, String startYear, String endYear,
+                                                          AnalysisOptions options, TableListener listener) {
+        // 统计参数签名（同时校验分析选项）
+        String signature = disciplinaryAnalysis.createPartial(null, options).getSignature();
+        List<String> tableNames = tableSelectorService.determineTablesForDisciplinaryAnalysis(keyword, startYear, endYear);
+
+        long startTime = System.currentTimeMillis();
+        SortedMap<String, DisciplinaryPartial> result = new TreeMap<>();
+        int cachedTables = 0;
+        int tablesDone = 0;
+        for (String tableName : tableNames) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("学科分析已取消");
+            }
+
+            SortedMap<String, DisciplinaryPartial> tablePartials = partialCache.get(keyword, tableName, signature);
+            boolean cached = tablePartials != null;
+            if (cached) {
+                cachedTables++;
+            } else {
+                tablePartials = analyzeTable(keyword, tableName, options);
+                partialCache.put(keyword, tableName, signature, tablePartials);
+            }
+
+            tablesDone++;
+            if (listener != null) {
+                listener.onTable(tableName, tablePartials, tablesDone, tableNames.size(), cached);
+            }
+            mergeInto(result, tablePartials);
+        }
+
+        System.out.println(String.format("学科分析部分结果 - 表数: %d, 缓存命中: %d, 新查询: %d, 耗时: %dms",
+                tableNames.size(), cachedTables, tableNames.size() - cachedTables,
+                System.currentTimeMillis() - startTime));
+        return result;
+    }
+
+    /**
+     * 查询并分析一个年份表（不读写缓存）
+     */
+    SortedMap<String, DisciplinaryPartial> analyzeTable(String keyword, String tableName, AnalysisOptions options) {
+        // 副表只有按维度分组的计数，无法得到同一篇论文内的取值组合，共现统计时走原始行
+        if (sideTablesEnabled && sideTableBuilder.isBuilt(tableName)
+                && (options == null || !options.isCooccurrenceEnabled())) {
+            return sideTableAnalysis.analyzeTable(keyword, tableName, options);
+        }
+
+        Map<String, List<main2022>> data = main2022Service.disciplinaryAnalysisSearchTable(keyword, tableName);
+        SortedMap<String, DisciplinaryPartial> partials = new TreeMap<>();
+        for (Map.Entry<String, List<main2022>> entry : data.entrySet()) {
+            partials.put(entry.getKey(), disciplinaryAnalysis.analyzeYear(entry.getKey(), entry.getValue(), options));
+        }
+        return partials;
+    }
+
+    /**
+     * 不同年份表中出版年相同的部分结果合并到一起
+     */
+    static void mergeInto(SortedMap<String, DisciplinaryPartial> target, SortedMap<String, DisciplinaryPartial> partials) {
+        for (Map.Entry<String, DisciplinaryPartial> entry : partials.entrySet()) {
+            DisciplinaryPartial existing = target.get(entry.getKey());
+            if (existing == null) {
+                target.put(entry.getKey(), entry.getValue());
+            } else {
+                existing.merge(entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.backend.service.impl;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.Future;
+
+/**
+ * 异步学科分析任务的状态
+ * 记录进度、每个年份表完成时的部分结果事件（供后连接的SSE客户端补发）以及最终结果。
+ * 事件在对象锁内发布到ProgressHub（只是入队，保证顺序与状态变更一致），由其调度线程推送给SSE客户端，
+ * 慢客户端不会阻塞分析线程和状态查询。
+ */
+public class DisciplinaryAnalysisJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String jobId;
+    private final String keyword;
+    private final String startYear;
+    private final String endYear;
+    private final String engine;
+    private final long createdAt = System.currentTimeMillis();
+
+    private Status status = Status.QUEUED;
+    private int tablesDone;
+    private int tablesTotal;
+    private Map<String, Object> result;
+    private String error;
+    private long finishedAt;
+    private Future<?> future;
+
+    // 已发布的部分结果事件（新连接的客户端需要补发）
+    private final List<Map<String, Object>> partialEvents = new ArrayList<>();
+    private final ProgressHub progressHub;
+
+    public DisciplinaryAnalysisJob(String jobId, String keyword, String startYear, String endYear, String engine,
+                                   ProgressHub progressHub) {
+        this.progressHub = progressHub;
+        this.jobId = jobId;
+        this.keyword = keyword;
+        this.startYear = startYear;
+        this.endYear = endYear;
+        this.engine = engine;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public String getStartYear() {
+        return startYear;
+    }
+
+    public String getEndYear() {
+        return endYear;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    /**
+     * 分析结果，未完成或没有数据时为null
+     */
+    public synchronized Map<String, Object> getResult() {
+        return result;
+    }
+
+    public synchronized long getFinishedAt() {
+        return finishedAt;
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * 当前状态（不含结果）
+     */
+    public synchronized Map<String, Object> toStatus() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("jobId", jobId);
+        map.put("keyword", keyword);
+        map.put("startDate", startYear);
+        map.put("endDate", endYear);
+        map.put("engine", engine);
+        map.put("status", status.name().toLowerCase());
+        map.put("tablesDone", tablesDone);
+        map.put("tablesTotal", tablesTotal);
+        map.put("completed", status.isFinished());
+        map.put("error", error != null ? error : "");
+        map.put("createdAt", createdAt);
+        if (finishedAt > 0) {
+            map.put("elapsedMs", finishedAt - createdAt);
+        }
+        return map;
+    }
+
+    // ==================== 状态变更（由任务服务调用） ====================
+
+    synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        broadcast("progress", toStatus());
+        return true;
+    }
+
+    synchronized void tableCompleted(String tableName, boolean cached, int done, int total, Map<String, Object> tableResult) {
+        tablesDone = done;
+        tablesTotal = total;
+        if (tableResult != null) {
+            Map<String, Object> event = new HashMap<>();
+            event.put("jobId", jobId);
+            event.put("table", tableName);
+            event.put("cached", cached);
+            event.put("tablesDone", done);
+            event.put("tablesTotal", total);
+            event.put("result", tableResult);
+            partialEvents.add(event);
+            broadcast("partial", event);
+        }
+        broadcast("progress", toStatus());
+    }
+
+    synchronized void complete(Map<String, Object> analysisResult) {
+        if (status.isFinished()) {
+            return;
+        }
+        result = analysisResult;
+        finish(Status.COMPLETED, null);
+    }
+
+    synchronized void fail(String message) {
+        if (status.isFinished()) {
+            return;
+        }
+        finish(Status.FAILED, message);
+    }
+
+    /**
+     * 取消任务（排队中的直接移出队列，运行中的中断分析线程）
+     */
+    synchronized boolean cancel() {
+        if (status.isFinished()) {
+            return false;
+        }
+        if (future != null) {
+            future.cancel(true);
+        }
+        finish(Status.CANCELLED, "任务已取消");
+        return true;
+    }
+
+    // ==================== SSE ====================
+
+    /**
+     * 注册SSE客户端：先补发当前状态和已有的部分结果，已结束的任务直接发送结果并关闭
+     */
+    synchronized void subscribe(SseEmitter emitter) {
+        List<Map.Entry<String, Object>> replay = new ArrayList<>();
+        replay.add(Map.entry("progress", toStatus()));
+        for (Map<String, Object> event : partialEvents) {
+            replay.add(Map.entry("partial", event));
+        }
+        if (status.isFinished()) {
+            replay.add(Map.entry("result", resultEvent()));
+        }
+        progressHub.subscribe(jobId, emitter, replay, status.isFinished());
+    }
+
+    private void finish(Status finalStatus, String message) {
+        status = finalStatus;
+        error = message;
+        finishedAt = System.currentTimeMillis();
+        broadcast("result", resultEvent());
+        progressHub.close(jobId);
+    }
+
+    private Map<String, Object> resultEvent() {
+        Map<String, Object> event = toStatus();
+        if (result != null) {
+            event.put("result", result);
+        }
+        return event;
+    }
+
+    private void broadcast(String name, Object data) {
+        progressHub.publishEvent(jobId, name, data);
+    }
+}
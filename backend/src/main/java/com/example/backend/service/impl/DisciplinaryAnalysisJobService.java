@@ -0,0 +1,225 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.config.AnalysisOptions;
+import com.example.backend.service.DisciplinaryAnalysis;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 学科分析的执行入口（同步接口和异步任务共用）
+ *
+ * 异步任务在专用的有界线程池中执行（不占用servlet线程和公共ForkJoinPool），
+ * 线程数即同时用于学科分析的数据库连接数上限；队列满时拒绝新任务。
+ * 每个年份表完成后通过SSE（ProgressHub）推送进度和该表的部分结果，结束的任务保留一段时间后清理。
+ */
+@Service
+public class DisciplinaryAnalysisJobService {
+
+    public static final String ENGINE_DATABASE = "database";
+    public static final String ENGINE_FACET = "facet";
+
+    private final DisciplinaryAnalysis disciplinaryAnalysis;
+    private final CachedDisciplinaryAnalysis cachedDisciplinaryAnalysis;
+    private final FacetEngine facetEngine;
+    private final ApproximateDisciplinaryAnalysis approximateAnalysis;
+    private final WosMetrics metrics;
+    private final ProgressHub progressHub;
+    private final String defaultEngine;
+    private final long retentionMillis;
+    private final long sseTimeoutMillis;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, DisciplinaryAnalysisJob> jobs = new ConcurrentHashMap<>();
+
+    public DisciplinaryAnalysisJobService(DisciplinaryAnalysis disciplinaryAnalysis,
+                                          CachedDisciplinaryAnalysis cachedDisciplinaryAnalysis,
+                                          FacetEngine facetEngine,
+                                          ApproximateDisciplinaryAnalysis approximateAnalysis,
+                                          WosMetrics metrics,
+                                          ProgressHub progressHub,
+                                          @Value("${analysis.engine:database}") String defaultEngine,
+                                          @Value("${analysis.jobs.threads:2}") int threads,
+                                          @Value("${analysis.jobs.queue-capacity:20}") int queueCapacity,
+                                          @Value("${analysis.jobs.retention-minutes:30}") long retentionMinutes,
+                                          @Value("${analysis.jobs.sse-timeout-ms:600000}") long sseTimeoutMillis) {
+        this.disciplinaryAnalysis = disciplinaryAnalysis;
+        this.cachedDisciplinaryAnalysis = cachedDisciplinaryAnalysis;
+        this.facetEngine = facetEngine;
+        this.approximateAnalysis = approximateAnalysis;
+        this.metrics = metrics;
+        this.progressHub = progressHub;
+        this.defaultEngine = defaultEngine;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.sseTimeoutMillis = sseTimeoutMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "analysis-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 执行学科分析
+     * @param engine 数据来源（database/facet），为null时使用默认配置；facet不可用时回退到数据库
+     * @param options 统计选项及分析方式（exact/approximate/auto），抽样只用于数据库查询
+     * @param listener 每个年份表完成后的回调，可为null
+     * @return 分析结果，没有数据时返回null
+     */
+    public Map<String, Object> analyze(String keyword, String startYear, String endYear, String engine,
+                                       AnalysisOptions options, CachedDisciplinaryAnalysis.TableListener listener) {
+        String resolvedEngine = resolveEngine(engine);
+
+        // 各阶段耗时记录到wos.analysis.stage指标
+        if (ENGINE_FACET.equals(resolvedEngine)) {
+            SortedMap<String, DisciplinaryPartial> partials = metrics.timeAnalysisStage("facet",
+                    () -> facetEngine.analyze(keyword, startYear, endYear, options));
+            if (partials != null) {
+                if (partials.isEmpty()) {
+                    return null;
+                }
+                Map<String, Object> result = metrics.timeAnalysisStage("assemble",
+                        () -> disciplinaryAnalysis.assemble(partials));
+                result.put("engine", ENGINE_FACET);
+                return result;
+            }
+        }
+
+        // 近似分析：按年份表抽样估计（auto模式下估计的匹配数未超过阈值时仍然全量分析）
+        ApproximateDisciplinaryAnalysis.SamplingPlan plan = metrics.timeAnalysisStage("plan",
+                () -> approximateAnalysis.plan(keyword, startYear, endYear, options));
+        if (plan != null) {
+            return metrics.timeAnalysisStage("sample", () -> approximateAnalysis.analyze(plan, options, listener));
+        }
+
+        // 按年份表查询并分析，已缓存的表直接复用部分结果
+        SortedMap<String, DisciplinaryPartial> partials = metrics.timeAnalysisStage("partials",
+                () -> cachedDisciplinaryAnalysis.analyze(keyword, startYear, endYear, options, listener));
+        System.out.println("从数据库获取的数据: " + partials.size() + " 年份的数据");
+        if (partials.isEmpty()) {
+            return null;
+        }
+        return metrics.timeAnalysisStage("assemble", () -> disciplinaryAnalysis.assemble(partials));
+    }
+
+    /**
+     * 提交异步任务
+     * 参数无效时抛出IllegalArgumentException，队列已满时抛出RejectedExecutionException
+     */
+    public DisciplinaryAnalysisJob submit(String keyword, String startYear, String endYear, String engine,
+                                          AnalysisOptions options) {
+        // 提交前校验，错误直接返回给调用方
+        String resolvedEngine = resolveEngine(engine);
+        disciplinaryAnalysis.createPartial(null, options);
+        approximateAnalysis.resolveMode(options);
+
+        String jobId = "analysis_" + UUID.randomUUID();
+        DisciplinaryAnalysisJob job = new DisciplinaryAnalysisJob(jobId, keyword, startYear, endYear, resolvedEngine,
+                progressHub);
+        jobs.put(jobId, job);
+
+        try {
+            Future<?> future = executor.submit(() -> run(job, options));
+            job.setFuture(future);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            throw e;
+        }
+
+        System.out.println("学科分析任务已提交: " + jobId + "（排队 " + executor.getQueue().size() + "）");
+        return job;
+    }
+
+    /**
+     * 正在执行的任务数
+     */
+    public int activeCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * 排队等待执行的任务数
+     */
+    public int queuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public DisciplinaryAnalysisJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 订阅任务事件（progress/partial/result），任务不存在时返回null
+     */
+    public SseEmitter subscribe(String jobId) {
+        DisciplinaryAnalysisJob job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeoutMillis);
+        job.subscribe(emitter);
+        return emitter;
+    }
+
+    public boolean cancel(String jobId) {
+        DisciplinaryAnalysisJob job = jobs.get(jobId);
+        return job != null && job.cancel();
+    }
+
+    /**
+     * 清理已结束且超过保留时间的任务
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void cleanupFinishedJobs() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && now - job.getFinishedAt() > retentionMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void run(DisciplinaryAnalysisJob job, AnalysisOptions options) {
+        if (!job.start()) {
+            return;
+        }
+
+        try {
+            System.out.println("开始执行学科分析任务: " + job.getJobId());
+            Map<String, Object> result = analyze(job.getKeyword(), job.getStartYear(), job.getEndYear(),
+                    job.getEngine(), options,
+                    (tableName, tablePartials, done, total, cached) -> job.tableCompleted(tableName, cached, done, total,
+                            tablePartials.isEmpty() ? null : disciplinaryAnalysis.assemble(tablePartials)));
+            job.complete(result);
+            System.out.println("学科分析任务完成: " + job.getJobId());
+        } catch (CancellationException e) {
+            System.out.println("学科分析任务已取消: " + job.getJobId());
+        } catch (Exception e) {
+            System.err.println("学科分析任务失败: " + job.getJobId() + " - " + e.getMessage());
+            e.printStackTrace();
+            job.fail(e.getMessage() != null ? e.getMessage() : "分析过程中发生未知错误");
+        }
+    }
+
+    private String resolveEngine(String engine) {
+        String resolved = engine != null ? engine.trim().toLowerCase() : defaultEngine;
+        if (!ENGINE_DATABASE.equals(resolved) && !ENGINE_FACET.equals(resolved)) {
+            throw new IllegalArgumentException("不支持的数据来源: " + resolved + "（可选database或facet）");
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.util.CardinalityCounter;
+import com.example.backend.util.CooccurrenceCounter;
+import com.example.backend.util.HyperLogLog;
+import com.example.backend.util.TopKSketch;
+
+import java.util.function.Supplier;
+
+/**
+ * 学科分析的部分聚合结果（通常对应一个年份）
+ * 所有Top-N维度都使用容量固定的TopKSketch，去重统计使用CardinalityCounter（精确或HyperLogLog），
+ * 可以按年份或按线程分别统计后合并。
+ * 启用共现统计时额外维护关键词共现和国家合作（国家两两共现）网络。
+ */
+public class DisciplinaryPartial {
+
+    private final String year;
+    private long paperCount;
+
+    private final TopKSketch countries;
+    private final TopKSketch authors;
+    private final TopKSketch institutions;
+    private final TopKSketch journals;
+    private final TopKSketch keywords;
+
+    private final CardinalityCounter uniqueAuthors;
+    private final CardinalityCounter uniqueJournals;
+    private final CardinalityCounter uniqueCountries;
+    private final Supplier<CardinalityCounter> cardinalityFactory;
+
+    // 关键词共现、国家合作网络（未启用时为null）
+    private CooccurrenceCounter keywordCooccurrence;
+    private CooccurrenceCounter countryCooccurrence;
+
+    public DisciplinaryPartial(String year, int topKCapacity, Supplier<CardinalityCounter> cardinalityFactory) {
+        this(year, topKCapacity, topKCapacity, topKCapacity, cardinalityFactory);
+    }
+
+    /**
+     * 作者和机构的取值远多于国家/期刊/关键词（长尾分布），单独指定容量
+     */
+    public DisciplinaryPartial(String year, int topKCapacity, int authorCapacity, int institutionCapacity,
+                               Supplier<CardinalityCounter> cardinalityFactory) {
+        this.year = year;
+        this.countries = new TopKSketch(topKCapacity);
+        this.authors = new TopKSketch(authorCapacity);
+        this.institutions = new TopKSketch(institutionCapacity);
+        this.journals = new TopKSketch(topKCapacity);
+        this.keywords = new TopKSketch(topKCapacity);
+        this.uniqueAuthors = cardinalityFactory.get();
+        this.uniqueJournals = cardinalityFactory.get();
+        this.uniqueCountries = cardinalityFactory.get();
+        this.cardinalityFactory = cardinalityFactory;
+    }
+
+    /**
+     * 由已有的统计状态恢复（反序列化使用），数组顺序与getSketches()/getCardinalityCounters()一致
+     */
+    DisciplinaryPartial(String year, long paperCount, TopKSketch[] sketches, CardinalityCounter[] counters,
+                        Supplier<CardinalityCounter> cardinalityFactory) {
+        this.year = year;
+        this.paperCount = paperCount;
+        this.countries = sketches[0];
+        this.authors = sketches[1];
+        this.institutions = sketches[2];
+        this.journals = sketches[3];
+        this.keywords = sketches[4];
+        this.uniqueAuthors = counters[0];
+        this.uniqueJournals = counters[1];
+        this.uniqueCountries = counters[2];
+        this.cardinalityFactory = cardinalityFactory;
+    }
+
+    /**
+     * 论文数和各维度计数乘以weight后的新部分结果（近似分析把样本放大到总体）
+     * 去重计数器无法按比例放大，保留样本中的值（总体的下界）
+     */
+    DisciplinaryPartial scaled(double weight) {
+        TopKSketch[] sketches = getSketches();
+        TopKSketch[] scaledSketches = new TopKSketch[sketches.length];
+        for (int i = 0; i < sketches.length; i++) {
+            scaledSketches[i] = sketches[i].scaled(weight);
+        }
+        DisciplinaryPartial scaled = new DisciplinaryPartial(year, Math.round(paperCount * weight), scaledSketches,
+                getCardinalityCounters(), cardinalityFactory);
+        if (keywordCooccurrence != null) {
+            scaled.setCooccurrence(keywordCooccurrence.scaled(weight), countryCooccurrence.scaled(weight));
+        }
+        return scaled;
+    }
+
+    /**
+     * 启用共现统计
+     */
+    public void enableCooccurrence(int maxEdges, int maxItemsPerPaper) {
+        keywordCooccurrence = new CooccurrenceCounter(maxEdges, maxItemsPerPaper);
+        countryCooccurrence = new CooccurrenceCounter(maxEdges, maxItemsPerPaper);
+    }
+
+    /**
+     * 设置共现统计（反序列化使用）
+     */
+    void setCooccurrence(CooccurrenceCounter keywords, CooccurrenceCounter countries) {
+        this.keywordCooccurrence = keywords;
+        this.countryCooccurrence = countries;
+    }
+
+    /**
+     * 关键词共现统计，未启用时为null
+     */
+    public CooccurrenceCounter getKeywordCooccurrence() {
+        return keywordCooccurrence;
+    }
+
+    /**
+     * 国家合作（同一篇论文中出现的国家两两共现）统计，未启用时为null
+     */
+    public CooccurrenceCounter getCountryCooccurrence() {
+        return countryCooccurrence;
+    }
+
+    /**
+     * 合并另一个部分结果（年份信息以当前对象为准）
+     */
+    public void merge(DisciplinaryPartial other) {
+        paperCount += other.paperCount;
+        if (keywordCooccurrence != null && other.keywordCooccurrence != null) {
+            keywordCooccurrence.merge(other.keywordCooccurrence);
+            countryCooccurrence.merge(other.countryCooccurrence);
+        }
+        countries.merge(other.countries);
+        authors.merge(other.authors);
+        institutions.merge(other.institutions);
+        journals.merge(other.journals);
+        keywords.merge(other.keywords);
+        uniqueAuthors.merge(other.uniqueAuthors);
+        uniqueJournals.merge(other.uniqueJournals);
+        uniqueCountries.merge(other.uniqueCountries);
+    }
+
+    public void addPaper() {
+        paperCount++;
+    }
+
+    public void addPapers(long count) {
+        paperCount += count;
+    }
+
+    public void addCountry(String country) {
+        countries.add(country);
+        uniqueCountries.add(country);
+    }
+
+    public void addAuthor(String author) {
+        authors.add(author);
+        uniqueAuthors.add(author);
+    }
+
+    public void addInstitution(String institution) {
+        institutions.add(institution);
+    }
+
+    public void addJournal(String journal) {
+        journals.add(journal);
+        uniqueJournals.add(journal);
+    }
+
+    public void addKeyword(String keyword) {
+        keywords.add(keyword);
+    }
+
+    // ==================== 按预先统计好的计数累加（列式引擎使用） ====================
+
+    /**
+     * 累加某一维度取值的出现次数，不更新去重计数器（去重计数通过getUniqueXxx单独维护）
+     */
+    void addCountryCount(String country, long count) {
+        countries.add(country, count);
+    }
+
+    void addAuthorCount(String author, long count) {
+        authors.add(author, count);
+    }
+
+    void addInstitutionCount(String institution, long count) {
+        institutions.add(institution, count);
+    }
+
+    void addJournalCount(String journal, long count) {
+        journals.add(journal, count);
+    }
+
+    void addKeywordCount(String keyword, long count) {
+        keywords.add(keyword, count);
+    }
+
+    CardinalityCounter uniqueAuthors() {
+        return uniqueAuthors;
+    }
+
+    CardinalityCounter uniqueJournals() {
+        return uniqueJournals;
+    }
+
+    CardinalityCounter uniqueCountries() {
+        return uniqueCountries;
+    }
+
+    /**
+     * 所有Top-K sketch：国家、作者、机构、期刊、关键词
+     */
+    TopKSketch[] getSketches() {
+        return new TopKSketch[]{countries, authors, institutions, journals, keywords};
+    }
+
+    /**
+     * 所有去重计数器：作者、期刊、国家
+     */
+    CardinalityCounter[] getCardinalityCounters() {
+        return new CardinalityCounter[]{uniqueAuthors, uniqueJournals, uniqueCountries};
+    }
+
+    /**
+     * 统计参数签名（各维度Top-K容量、去重方式及精度、共现统计参数），签名相同的部分结果才能合并或复用
+     */
+    public String getSignature() {
+        String cardinality = uniqueAuthors instanceof HyperLogLog
+                ? "hll" + ((HyperLogLog) uniqueAuthors).precision()
+                : "exact";
+        String cooccurrence = keywordCooccurrence != null
+                ? "-co" + keywordCooccurrence.maxEdges() + "x" + keywordCooccurrence.maxItemsPerPaper()
+                : "";
+        // 各维度容量相同时沿用原签名，已有缓存仍可复用
+        String capacity = authors.capacity() == countries.capacity() && institutions.capacity() == countries.capacity()
+                ? "k" + countries.capacity()
+                : "k" + countries.capacity() + "a" + authors.capacity() + "i" + institutions.capacity();
+        return capacity + "-" + cardinality + cooccurrence;
+    }
+
+    public String getYear() {
+        return year;
+    }
+
+    public long getPaperCount() {
+        return paperCount;
+    }
+
+    public TopKSketch getCountries() {
+        return countries;
+    }
+
+    public TopKSketch getAuthors() {
+        return authors;
+    }
+
+    public TopKSketch getInstitutions() {
+        return institutions;
+    }
+
+    public TopKSketch getJournals() {
+        return journals;
+    }
+
+    public TopKSketch getKeywords() {
+        return keywords;
+    }
+
+    public long getUniqueAuthorCount() {
+        return uniqueAuthors.cardinality();
+    }
+
+    public long getUniqueJournalCount() {
+        return uniqueJournals.cardinality();
+    }
+
+    public long getUniqueCountryCount() {
+        return uniqueCountries.cardinality();
+    }
+
+    /**
+     * 创建与当前结果同类型的去重计数器（用于合并）
+     */
+    public Supplier<CardinalityCounter> getCardinalityFactory() {
+        return cardinalityFactory;
+    }
+
+    /**
+     * 去重统计的相对标准误差（精确模式为0）
+     */
+    public double getCardinalityStandardError() {
+        return uniqueAuthors.standardError();
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.backend.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 学科分析部分结果的持久化缓存
+ *
+ * 以 (关键词, 年份表, 统计参数签名) 为键，保存该表查询结果按出版年分组后的部分结果。
+ * 历史年份表的数据不再变化，同一关键词查询过的表无需重新查询和分析；
+ * 仍在更新的表可以通过 analysis.cache.exclude-tables 排除。
+ *
+ * 每个条目一个文件（文件名为键的SHA-256），总大小超过上限时按最近访问时间淘汰，
+ * 访问时间记录在文件修改时间中，重启后仍然有效。
+ */
+@Service
+public class DisciplinaryPartialCache {
+
+    private static final String SUFFIX = ".part";
+
+    private final boolean enabled;
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final Set<String> excludedTables;
+
+    // 文件名 → 条目信息（大小、最近访问时间）
+    private final Map<String, Entry> index = new HashMap<>();
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DisciplinaryPartialCache(@Value("${analysis.cache.enabled:true}") boolean enabled,
+                                    @Value("${analysis.cache.dir:analysis-cache}") String cacheDir,
+                                    @Value("${analysis.cache.max-size-mb:512}") long maxSizeMb,
+                                    @Value("${analysis.cache.exclude-tables:}") String excludedTables) {
+        this.enabled = enabled;
+        this.cacheDir = Paths.get(cacheDir);
+        this.maxBytes = maxSizeMb * 1024 * 1024;
+        this.excludedTables = new HashSet<>();
+        for (String table : excludedTables.split(",")) {
+            if (!table.trim().isEmpty()) {
+                this.excludedTables.add(table.trim());
+            }
+        }
+    }
+
+    /**
+     * 启动时加载已有的缓存文件，清理未写完的临时文件
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheDir);
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                files.forEach(file -> {
+                    String name = file.getFileName().toString();
+                    try {
+                        if (name.endsWith(".tmp")) {
+                            Files.deleteIfExists(file);
+                        } else if (name.endsWith(SUFFIX)) {
+                            long size = Files.size(file);
+                            synchronized (this) {
+                                index.put(name, new Entry(size, Files.getLastModifiedTime(file).toMillis()));
+                                totalBytes += size;
+                            }
+                        }
+                    } catch (IOException e) {
+                        System.err.println("加载缓存文件失败: " + file + " - " + e.getMessage());
+                    }
+                });
+            }
+            evictIfNeeded();
+            System.out.println("学科分析缓存已加载: " + index.size() + " 个条目, " + totalBytes / 1024 + " KB");
+        } catch (IOException e) {
+            System.err.println("初始化学科分析缓存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 该表的结果是否可以缓存
+     */
+    public boolean isCacheable(String tableName) {
+        return enabled && !excludedTables.contains(tableName);
+    }
+
+    /**
+     * 读取缓存，未命中返回null
+     */
+    public SortedMap<String, DisciplinaryPartial> get(String keyword, String tableName, String signature) {
+        if (!isCacheable(tableName)) {
+            return null;
+        }
+
+        String key = key(keyword, tableName, signature);
+        String name = fileName(key);
+        synchronized (this) {
+            if (!index.containsKey(name)) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        Path file = cacheDir.resolve(name);
+        try {
+            SortedMap<String, DisciplinaryPartial> partials = DisciplinaryPartialCodec.decode(key, Files.readAllBytes(file));
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                Entry entry = index.get(name);
+                if (entry != null) {
+                    entry.lastAccess = now;
+                }
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+            hits.incrementAndGet();
+            return partials;
+        } catch (IOException | RuntimeException e) {
+            // 文件损坏或被删除：丢弃该条目，按未命中处理
+            System.err.println("读取学科分析缓存失败，已丢弃: " + file + " - " + e.getMessage());
+            remove(name);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存（写临时文件后原子替换），失败只记录日志
+     */
+    public void put(String keyword, String tableName, String signature, SortedMap<String, DisciplinaryPartial> partials) {
+        if (!isCacheable(tableName)) {
+            return;
+        }
+
+        String key = key(keyword, tableName, signature);
+        String name = fileName(key);
+        Path file = cacheDir.resolve(name);
+        try {
+            byte[] data = DisciplinaryPartialCodec.encode(key, partials);
+            if (data.length > maxBytes) {
+                return;
+            }
+            Files.createDirectories(cacheDir);
+            Path tmp = cacheDir.resolve(name + "." + Thread.currentThread().getId() + ".tmp");
+            Files.write(tmp, data);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (this) {
+                Entry old = index.put(name, new Entry(data.length, System.currentTimeMillis()));
+                totalBytes += data.length - (old != null ? old.size : 0);
+            }
+            evictIfNeeded();
+        } catch (IOException e) {
+            System.err.println("写入学科分析缓存失败: " + file + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * 清空缓存（数据重新导入后使用）
+     */
+    public void clear() {
+        List<String> names;
+        synchronized (this) {
+            names = new ArrayList<>(index.keySet());
+        }
+        for (String name : names) {
+            remove(name);
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", index.size());
+        stats.put("totalBytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void evictIfNeeded() {
+        List<String> victims = new ArrayList<>();
+        synchronized (this) {
+            if (totalBytes <= maxBytes) {
+                return;
+            }
+            List<Map.Entry<String, Entry>> entries = new ArrayList<>(index.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            long remaining = totalBytes;
+            for (Map.Entry<String, Entry> e : entries) {
+                if (remaining <= maxBytes) {
+                    break;
+                }
+                victims.add(e.getKey());
+                remaining -= e.getValue().size;
+            }
+        }
+        for (String name : victims) {
+            remove(name);
+        }
+        System.out.println("学科分析缓存超过上限，已淘汰 " + victims.size() + " 个条目");
+    }
+
+    private void remove(String name) {
+        synchronized (this) {
+            Entry entry = index.remove(name);
+            if (entry != null) {
+                totalBytes -= entry.size;
+            }
+        }
+        try {
+            Files.deleteIfExists(cacheDir.resolve(name));
+        } catch (IOException e) {
+            System.err.println("删除缓存文件失败: " + name + " - " + e.getMessage());
+        }
+    }
+
+    private static String key(String keyword, String tableName, String signature) {
+        return keyword + "\u0000" + tableName + "\u0000" + signature;
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2 + SUFFIX.length());
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final long size;
+        private long lastAccess;
+
+        Entry(long size, long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
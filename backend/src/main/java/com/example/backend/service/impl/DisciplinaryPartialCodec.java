@@ -0,0 +1,229 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.util.CardinalityCounter;
+import com.example.backend.util.CooccurrenceCounter;
+import com.example.backend.util.ExactCardinality;
+import com.example.backend.util.HyperLogLog;
+import com.example.backend.util.TopKSketch;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * DisciplinaryPartial的二进制序列化（部分结果缓存使用）
+ *
+ * 格式：magic、version、缓存键，之后是按出版年排序的若干个部分结果，
+ * 每个部分结果包含论文数、5个Top-K sketch的全部计数器和3个去重计数器的状态，
+ * 反序列化后可以继续与其他部分结果合并。
+ * 版本2在去重计数器之后追加共现统计（标志位 + 关键词、国家两个共现统计的节点和边），
+ * 版本1的缓存仍可读取（视为未启用共现统计）。
+ */
+final class DisciplinaryPartialCodec {
+
+    private static final int MAGIC = 0x44504331; // "DPC1"
+    private static final int VERSION = 2;
+
+    private static final byte COUNTER_EXACT = 0;
+    private static final byte COUNTER_HLL = 1;
+
+    private DisciplinaryPartialCodec() {
+    }
+
+    static byte[] encode(String key, SortedMap<String, DisciplinaryPartial> partials) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, key);
+            out.writeInt(partials.size());
+            for (DisciplinaryPartial partial : partials.values()) {
+                writePartial(out, partial);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 反序列化；格式不符或缓存键不一致（哈希冲突）时抛出IOException
+     */
+    static SortedMap<String, DisciplinaryPartial> decode(String expectedKey, byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("不是可识别的部分结果缓存");
+            }
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("不支持的部分结果缓存版本: " + version);
+            }
+            String key = readString(in);
+            if (!key.equals(expectedKey)) {
+                throw new IOException("缓存键不一致");
+            }
+            int count = in.readInt();
+            SortedMap<String, DisciplinaryPartial> partials = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                DisciplinaryPartial partial = readPartial(in, version);
+                partials.put(partial.getYear(), partial);
+            }
+            return partials;
+        }
+    }
+
+    private static void writePartial(DataOutputStream out, DisciplinaryPartial partial) throws IOException {
+        writeString(out, partial.getYear());
+        out.writeLong(partial.getPaperCount());
+
+        for (TopKSketch sketch : partial.getSketches()) {
+            out.writeInt(sketch.capacity());
+            out.writeLong(sketch.totalWeight());
+            List<TopKSketch.Counter> counters = sketch.counters();
+            out.writeInt(counters.size());
+            for (TopKSketch.Counter counter : counters) {
+                writeString(out, counter.getKey());
+                out.writeLong(counter.getCount());
+                out.writeLong(counter.getError());
+            }
+        }
+
+        for (CardinalityCounter counter : partial.getCardinalityCounters()) {
+            if (counter instanceof HyperLogLog) {
+                HyperLogLog hll = (HyperLogLog) counter;
+                out.writeByte(COUNTER_HLL);
+                out.writeByte(hll.precision());
+                out.write(hll.registers());
+            } else if (counter instanceof ExactCardinality) {
+                out.writeByte(COUNTER_EXACT);
+                out.writeInt(((ExactCardinality) counter).values().size());
+                for (String value : ((ExactCardinality) counter).values()) {
+                    writeString(out, value);
+                }
+            } else {
+                throw new IOException("不支持序列化的去重计数器: " + counter.getClass().getName());
+            }
+        }
+
+        if (partial.getKeywordCooccurrence() != null) {
+            out.writeBoolean(true);
+            writeCooccurrence(out, partial.getKeywordCooccurrence());
+            writeCooccurrence(out, partial.getCountryCooccurrence());
+        } else {
+            out.writeBoolean(false);
+        }
+    }
+
+    private static void writeCooccurrence(DataOutputStream out, CooccurrenceCounter counter) throws IOException {
+        out.writeInt(counter.maxEdges());
+        out.writeInt(counter.maxItemsPerPaper());
+        out.writeLong(counter.prunedEdges());
+        out.writeLong(counter.maxUndercount());
+        out.writeInt(counter.nodeCount());
+        for (int id = 0; id < counter.nodeCount(); id++) {
+            writeString(out, counter.node(id));
+            out.writeInt(counter.nodeFrequency(id));
+        }
+        out.writeInt(counter.edgeCount());
+        IOException[] failure = new IOException[1];
+        counter.forEachEdge((a, b, count) -> {
+            if (failure[0] != null) {
+                return;
+            }
+            try {
+                out.writeInt(a);
+                out.writeInt(b);
+                out.writeInt(count);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    private static CooccurrenceCounter readCooccurrence(DataInputStream in) throws IOException {
+        CooccurrenceCounter counter = new CooccurrenceCounter(in.readInt(), in.readInt());
+        counter.restorePruning(in.readLong(), in.readLong());
+        int nodes = in.readInt();
+        for (int id = 0; id < nodes; id++) {
+            counter.restoreNode(readString(in), in.readInt());
+        }
+        int edges = in.readInt();
+        for (int i = 0; i < edges; i++) {
+            int a = in.readInt();
+            int b = in.readInt();
+            int count = in.readInt();
+            if (a < 0 || b < 0 || a >= nodes || b >= nodes) {
+                throw new IOException("共现边的节点编号无效: " + a + "," + b);
+            }
+            counter.restoreEdge(a, b, count);
+        }
+        return counter;
+    }
+
+    private static DisciplinaryPartial readPartial(DataInputStream in, int version) throws IOException {
+        String year = readString(in);
+        long paperCount = in.readLong();
+
+        TopKSketch[] sketches = new TopKSketch[5];
+        for (int i = 0; i < sketches.length; i++) {
+            int capacity = in.readInt();
+            long totalWeight = in.readLong();
+            int size = in.readInt();
+            List<TopKSketch.Counter> counters = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                counters.add(new TopKSketch.Counter(readString(in), in.readLong(), in.readLong()));
+            }
+            sketches[i] = TopKSketch.restore(capacity, totalWeight, counters);
+        }
+
+        CardinalityCounter[] counters = new CardinalityCounter[3];
+        Supplier<CardinalityCounter> factory = ExactCardinality::new;
+        for (int i = 0; i < counters.length; i++) {
+            byte type = in.readByte();
+            if (type == COUNTER_HLL) {
+                int precision = in.readByte();
+                byte[] registers = new byte[1 << precision];
+                in.readFully(registers);
+                counters[i] = HyperLogLog.restore(precision, registers);
+                factory = () -> new HyperLogLog(precision);
+            } else if (type == COUNTER_EXACT) {
+                int size = in.readInt();
+                ExactCardinality exact = new ExactCardinality();
+                for (int j = 0; j < size; j++) {
+                    exact.add(readString(in));
+                }
+                counters[i] = exact;
+            } else {
+                throw new IOException("未知的去重计数器类型: " + type);
+            }
+        }
+
+        DisciplinaryPartial partial = new DisciplinaryPartial(year, paperCount, sketches, counters, factory);
+        if (version >= 2 && in.readBoolean()) {
+            CooccurrenceCounter keywords = readCooccurrence(in);
+            partial.setCooccurrence(keywords, readCooccurrence(in));
+        }
+        return partial;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("字符串长度无效: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,26 +1,70 @@
 package com.example.backend.service.impl;
 
+import com.example.backend.config.SearchFilter;
 import com.example.backend.model.main2022;
 import com.example.backend.service.DownloadService;
+import com.example.backend.service.Main2022Service;
+import com.example.backend.util.CsvWriter;
+import com.example.backend.util.ExportCompression;
+import com.example.backend.util.ExportFormat;
+import com.example.backend.util.ExportPackaging;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.LongConsumer;
 
 @Service
 public class DownloadServiceImpl implements DownloadService {
 
-    // 临时存储文件数据的Map（生产环境建议使用Redis或文件系统）
-    private final Map<String, byte[]> temporaryFiles = new ConcurrentHashMap<>();
+    // 流式导出时回调进度的行数间隔
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private final Main2022Service main2022Service;
+    private final ExportStore exportStore;
+    private final ParallelExportPlanner parallelExportPlanner;
+    private final ExportCompression defaultCompression;
+    private final int gzipLevel;
+    private final int zstdLevel;
+    private final CompressionCodecName parquetCodec;
+    private final long parquetRowGroupBytes;
+    private final int arrowBatchRows;
+    private final WosMetrics metrics;
+
+    public DownloadServiceImpl(Main2022Service main2022Service, ExportStore exportStore,
+                               ParallelExportPlanner parallelExportPlanner, WosMetrics metrics,
+                               @Value("${download.compression.default:none}") String defaultCompression,
+                               @Value("${download.compression.gzip-level:6}") int gzipLevel,
+                               @Value("${download.compression.zstd-level:3}") int zstdLevel,
+                               @Value("${download.parquet.compression:zstd}") String parquetCodec,
+                               @Value("${download.parquet.row-group-mb:64}") long parquetRowGroupMb,
+                               @Value("${download.arrow.batch-rows:4096}") int arrowBatchRows) {
+        this.main2022Service = main2022Service;
+        this.exportStore = exportStore;
+        this.parallelExportPlanner = parallelExportPlanner;
+        this.defaultCompression = ExportCompression.parse(defaultCompression);
+        this.gzipLevel = gzipLevel;
+        this.zstdLevel = zstdLevel;
+        this.parquetCodec = CompressionCodecName.valueOf(parquetCodec.trim().toUpperCase());
+        this.parquetRowGroupBytes = parquetRowGroupMb * 1024 * 1024;
+        this.arrowBatchRows = arrowBatchRows;
+        this.metrics = metrics;
+    }
 
     @Override
     public ResponseEntity<byte[]> downloadCSV(List<main2022> data) {
@@ -30,161 +74,358 @@ public class DownloadServiceImpl implements DownloadService {
 
     @Override
     public byte[] generateCSVBytes(List<main2022> data) {
-        // 更新CSV头部，移除seq_temp字段
-        String[] header = {"wos_uid","database","sortdate","pubyear","has_abstract","coverdate","pubmonth","vol","issue",
-                "special_issue","supplement","early_access_date","early_access_month","early_access_year","article_type","page_count",
-                "page_begin","page_end","journal_title_source","journal_title_abbrev","journal_title_iso","journal_title_11","journal_title_29",
-                "article_title","article_doctype","heading","subheadings","subject_traditional","subject_extended","fund_text","keyword",
-                "keyword_plus","abstract_text","ids","bib_id","bib_pagecount","reviewed_work","languages","rw_authors","rw_year","rw_language",
-                "book_note","bk_binding","bk_publisher","bk_prepay","bk_ordering","identifier_accession_no","identifier_issn","identifier_eissn",
-                "identifier_isbn","identifier_eisbn","identifier_doi","identifier_pmid","normalized_doctype","is_OA","oases","subj_group_macro_id",
-                "subj_group_macro_value","subj_group_meso_id","subj_group_meso_value","subj_group_micro_id","subj_group_micro_value",
-                "author_fullname","author_displayname","author_wosname","grant_info","address","reprint_address","email","contributor",
-                "publisher","publisher_unified","publisher_display"};
-
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try {
-            // 写入表头
-            outputStream.write(String.join(",", header).getBytes(StandardCharsets.UTF_8));
-            outputStream.write("\n".getBytes(StandardCharsets.UTF_8));
-
-            // 写入每一行数据
-            for (main2022 main2022 : data) {
-                String[] row = {
-                        // 移除seq_temp，使用wos_uid作为第一列
-                        main2022.getWos_uid(),
-                        main2022.getDatabase(),
-                        main2022.getSortdate(),
-                        main2022.getPubyear(),
-                        main2022.getHas_abstract(),
-                        main2022.getCoverdate(),
-                        main2022.getPubmonth(),
-                        main2022.getVol(),
-                        main2022.getIssue(),
-                        main2022.getSpecial_issue(),
-                        main2022.getSupplement(),
-                        main2022.getEarly_access_date(),
-                        main2022.getEarly_access_month(),
-                        main2022.getEarly_access_year(),
-                        main2022.getArticle_type(),
-                        main2022.getPage_count(),
-                        main2022.getPage_begin(),
-                        main2022.getPage_end(),
-                        main2022.getJournal_title_source(),
-                        main2022.getJournal_title_abbrev(),
-                        main2022.getJournal_title_iso(),
-                        main2022.getJournal_title_11(),
-                        main2022.getJournal_title_29(),
-                        main2022.getArticle_title(),
-                        main2022.getArticle_doctype(),
-                        main2022.getHeading(),
-                        main2022.getSubheadings(),
-                        main2022.getSubject_traditional(),
-                        main2022.getSubject_extended(),
-                        main2022.getFund_text(),
-                        main2022.getKeyword(),
-                        main2022.getKeyword_plus(),
-                        main2022.getAbstract_text(),
-                        main2022.getIds(),
-                        main2022.getBib_id(),
-                        main2022.getBib_pagecount(),
-                        main2022.getReviewed_work(),
-                        main2022.getLanguages(),
-                        main2022.getRw_authors(),
-                        main2022.getRw_year(),
-                        main2022.getRw_language(),
-                        main2022.getBook_note(),
-                        main2022.getBk_binding(),
-                        main2022.getBk_publisher(),
-                        main2022.getBk_prepay(),
-                        main2022.getBk_ordering(),
-                        main2022.getIdentifier_accession_no(),
-                        main2022.getIdentifier_issn(),
-                        main2022.getIdentifier_eissn(),
-                        main2022.getIdentifier_isbn(),
-                        main2022.getIdentifier_eisbn(),
-                        main2022.getIdentifier_doi(),
-                        main2022.getIdentifier_pmid(),
-                        main2022.getNormalized_doctype(),
-                        main2022.getIs_OA(),
-                        main2022.getOases(),
-                        main2022.getSubj_group_macro_id(),
-                        main2022.getSubj_group_macro_value(),
-                        main2022.getSubj_group_meso_id(),
-                        main2022.getSubj_group_meso_value(),
-                        main2022.getSubj_group_micro_id(),
-                        main2022.getSubj_group_micro_value(),
-                        main2022.getAuthor_fullname(),
-                        main2022.getAuthor_displayname(),
-                        main2022.getAuthor_wosname(),
-                        main2022.getGrant_info(),
-                        main2022.getAddress(),
-                        main2022.getReprint_address(),
-                        main2022.getEmail(),
-                        main2022.getContributor(),
-                        main2022.getPublisher(),
-                        main2022.getPublisher_unified(),
-                        main2022.getPublisher_display()
-                };
-
-                // 使用引号包裹包含逗号或换行符的字段
-                String csvRow = Arrays.stream(row)
-                        .map(field -> {
-                            if (field != null && (field.contains(",") || field.contains("\"") || field.contains("\n"))) {
-                                field = field.replace("\"", "\"\"");  // 转义双引号
-                                return "\"" + field + "\"";  // 包裹字段
-                            }
-                            return field;
-                        })
-                        .collect(Collectors.joining(","));  // 拼接为CSV行
-
-                outputStream.write(csvRow.getBytes(StandardCharsets.UTF_8));
-                outputStream.write("\n".getBytes(StandardCharsets.UTF_8));
+        try (ExportRowWriter writer = csvWriter(new CsvWriter(outputStream), ExportColumn.ALL, true)) {
+            for (main2022 paper : data) {
+                writer.write(paper);
             }
-
-            return outputStream.toByteArray();
-        } catch (Exception e) {
+        } catch (IOException e) {
             e.printStackTrace();
             return new byte[0];
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public List<String> exportColumns() {
+        return ExportColumn.names();
+    }
+
+    @Override
+    public List<String> resolveColumns(String columns) {
+        if (columns == null || columns.trim().isEmpty()) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : columns.split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+        if (names.isEmpty()) {
+            return null;
+        }
+        // 校验并去重，顺序与请求一致
+        List<String> resolved = new ArrayList<>();
+        for (ExportColumn column : ExportColumn.select(names)) {
+            resolved.add(column.name());
+        }
+        return resolved;
+    }
+
+    @Override
+    public long writeExport(List<SearchFilter> filters, List<String> columns, ExportFormat format,
+                            ExportCompression compression, ExportPackaging packaging,
+                            OutputStream out, LongConsumer progress) throws IOException {
+        return measured("search", format, out,
+                counted -> writeSearchExport(filters, columns, format, compression, packaging, counted, progress));
+    }
+
+    private long writeSearchExport(List<SearchFilter> filters, List<String> columns, ExportFormat format,
+                                   ExportCompression compression, ExportPackaging packaging,
+                                   OutputStream out, LongConsumer progress) throws IOException {
+        // 先校验列名，再把同一组列下推到SQL投影
+        List<ExportColumn> exportColumns = ExportColumn.select(columns);
+        List<String> tableNames = main2022Service.exportTables(filters);
+
+        if (packaging == ExportPackaging.ZIP) {
+            // 每个年份表一个完整文件（含表头）
+            return parallelExportPlanner.zip(tableNames, format.suffix() + compression.suffix(),
+                    (tableName, chunk, shardProgress) -> write(format, compression, exportColumns, true, chunk,
+                            shardProgress, consumer -> main2022Service.streamAdvancedSearchTable(
+                                    filters, tableName, columns, consumer)),
+                    out, progress);
+        }
+
+        // 只有CSV可以直接拼接（gzip成员、zstd帧连接后仍是合法的压缩流）；列式格式单文件导出只能顺序写
+        if (format == ExportFormat.CSV && tableNames.size() > 1 && parallelExportPlanner.connections() > 1) {
+            // 表头单独写成一段（压缩时是一个独立的gzip成员/zstd帧）
+            openWriter(format, compression, exportColumns, true, out).close();
+            return parallelExportPlanner.concat(tableNames,
+                    (tableName, chunk, shardProgress) -> write(format, compression, exportColumns, false, chunk,
+                            shardProgress, consumer -> main2022Service.streamAdvancedSearchTable(
+                                    filters, tableName, columns, consumer)),
+                    out, progress);
+        }
+
+        return write(format, compression, exportColumns, true, out, progress,
+                consumer -> main2022Service.streamAdvancedSearch(filters, columns, consumer));
+    }
+
+    @Override
+    public long writeTableSnapshot(String tableName, ExportFormat format, ExportCompression compression,
+                                   OutputStream out, LongConsumer progress) throws IOException {
+        return measured("snapshot", format, out, counted -> write(format, compression, ExportColumn.ALL, true, counted,
+                progress, consumer -> main2022Service.streamTable(tableName, consumer)));
+    }
+
+    /**
+     * 统计导出的耗时、行数和写出的字节数（压缩后）
+     */
+    private long measured(String kind, ExportFormat format, OutputStream out, ExportBody body) throws IOException {
+        CountingOutputStream counted = new CountingOutputStream(out);
+        long start = System.nanoTime();
+        long rows = 0;
+        boolean success = false;
+        try {
+            rows = body.write(counted);
+            success = true;
+            return rows;
         } finally {
-            try {
-                outputStream.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+            metrics.recordExport(kind, format, success, rows, counted.count, System.nanoTime() - start);
+        }
+    }
+
+    private long write(ExportFormat format, ExportCompression compression, List<ExportColumn> columns,
+                       boolean header, OutputStream out, LongConsumer progress, RowSource source) throws IOException {
+        long[] written = new long[1];
+        long rows;
+        // 关闭写入器会写完文件结尾（压缩数据结尾、Parquet footer等），out本身只刷新不关闭
+        try (ExportRowWriter writer = openWriter(format, compression, columns, header, out)) {
+            rows = source.stream(paper -> {
+                writer.write(paper);
+                if (progress != null && ++written[0] % PROGRESS_INTERVAL == 0) {
+                    progress.accept(written[0]);
+                }
+            });
+        }
+        if (progress != null) {
+            progress.accept(rows);
+        }
+        return rows;
+    }
+
+    private ExportRowWriter openWriter(ExportFormat format, ExportCompression compression,
+                                       List<ExportColumn> columns, boolean header,
+                                       OutputStream out) throws IOException {
+        switch (format) {
+            case PARQUET:
+                return new ParquetExportWriter(out, columns, parquetCodec, parquetRowGroupBytes);
+            case ARROW:
+                return new ArrowExportWriter(out, columns, arrowBatchRows);
+            default:
+                int level = compression == ExportCompression.GZIP ? gzipLevel : zstdLevel;
+                return csvWriter(new CsvWriter(compression.wrap(out, level)), columns, header);
+        }
+    }
+
+    /**
+     * CSV行写入器：先写表头（header为false时不写，用于拼接的分块），之后每行按预先取出的列数组依次取值编码
+     */
+    private static ExportRowWriter csvWriter(CsvWriter csv, List<ExportColumn> columns,
+                                             boolean header) throws IOException {
+        ExportColumn[] accessors = columns.toArray(new ExportColumn[0]);
+        if (header) {
+            for (ExportColumn column : accessors) {
+                csv.field(column.name());
+            }
+            csv.endRow();
+        }
+        return new ExportRowWriter() {
+            @Override
+            public void write(main2022 paper) throws IOException {
+                for (ExportColumn column : accessors) {
+                    csv.field(column.value(paper));
+                }
+                csv.endRow();
+            }
+
+            @Override
+            public void close() throws IOException {
+                csv.close();
             }
+        };
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        long stream(Main2022Service.PaperConsumer consumer) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ExportBody {
+        long write(OutputStream out) throws IOException;
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
         }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    @Override
+    public ExportCompression defaultCompression() {
+        return defaultCompression;
     }
 
     @Override
     public ResponseEntity<byte[]> createDownloadResponse(byte[] data, String fileName) {
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
-                .contentType(org.springframework.http.MediaType.TEXT_PLAIN)
+                .contentType(MediaType.TEXT_PLAIN)
                 .body(data);
     }
 
     @Override
-    public void storeTemporaryFile(String taskId, byte[] data) {
-        temporaryFiles.put(taskId, data);
-
-        // 设置定时清理（24小时后清理）
-        new Thread(() -> {
-            try {
-                Thread.sleep(24 * 60 * 60 * 1000); // 24小时
-                cleanupTemporaryFile(taskId);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    public ResponseEntity<StreamingResponseBody> createFileDownloadResponse(String taskId, String fileName,
+                                                                            HttpHeaders requestHeaders) {
+        // 按任务查找已存储的导出文件（格式、压缩和打包方式在启动导出时确定）
+        for (ExportFormat format : ExportFormat.values()) {
+            for (ExportCompression compression : ExportCompression.values()) {
+                for (ExportPackaging packaging : ExportPackaging.values()) {
+                    String name = exportFileName(taskId, format, compression, packaging);
+                    ExportStore.OpenFile file;
+                    try {
+                        file = exportStore.open(name);
+                    } catch (IOException e) {
+                        System.err.println("打开导出文件失败: " + name + " - " + e.getMessage());
+                        return ResponseEntity.internalServerError().build();
+                    }
+                    if (file == null) {
+                        continue;
+                    }
+                    String contentType = packaging == ExportPackaging.ZIP ? "application/zip"
+                            : compression == ExportCompression.NONE ? format.contentType() : compression.contentType();
+                    return fileResponse(file, fileName + format.suffix() + compression.suffix()
+                            + packaging.suffix(), contentType, requestHeaders);
+                }
             }
-        }).start();
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 导出文件的响应：支持单个字节范围的Range请求（206）和If-Range/If-None-Match校验
+     * 多个范围或无法解析的Range按规范忽略，返回完整文件
+     * 响应头（大小、ETag）和内容都来自已打开的file；没有响应体时立即关闭，否则写完响应体后关闭
+     */
+    private ResponseEntity<StreamingResponseBody> fileResponse(ExportStore.OpenFile file, String downloadName,
+                                                               String contentType, HttpHeaders requestHeaders) {
+        long size = file.size();
+        String etag = file.etag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + downloadName);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setETag(etag);
+
+        if (requestHeaders != null) {
+            List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+            if (ifNoneMatch.contains(etag) || ifNoneMatch.contains("*")) {
+                closeQuietly(file);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+            }
+
+            String range = requestHeaders.getFirst(HttpHeaders.RANGE);
+            String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+            // If-Range只按强ETag比较，不匹配（或是日期）时返回完整的新文件
+            if (range != null && (ifRange == null || ifRange.trim().equals(etag))) {
+                List<HttpRange> ranges;
+                try {
+                    ranges = HttpRange.parseRanges(range);
+                } catch (IllegalArgumentException e) {
+                    ranges = Collections.emptyList();
+                }
+                if (ranges.size() == 1) {
+                    long start = ranges.get(0).getRangeStart(size);
+                    long end = ranges.get(0).getRangeEnd(size);
+                    if (size == 0 || start >= size || start > end) {
+                        headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                        closeQuietly(file);
+                        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+                    }
+                    long length = end - start + 1;
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+                    return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                            .headers(headers)
+                            .contentType(MediaType.parseMediaType(contentType))
+                            .contentLength(length)
+                            .body(out -> {
+                                try (file) {
+                                    file.transferTo(Channels.newChannel(out), start, length);
+                                }
+                            });
+                }
+            }
+        }
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.parseMediaType(contentType))
+                .contentLength(size)
+                .body(out -> {
+                    try (file) {
+                        file.transferTo(Channels.newChannel(out), 0, size);
+                    }
+                });
+    }
+
+    private static void closeQuietly(ExportStore.OpenFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.err.println("关闭导出文件失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Path createTemporaryFile(String taskId, ExportFormat format, ExportCompression compression,
+                                    ExportPackaging packaging) throws IOException {
+        return exportStore.begin(exportFileName(taskId, format, compression, packaging));
     }
 
     @Override
-    public byte[] getTemporaryFile(String taskId) {
-        return temporaryFiles.get(taskId);
+    public void commitTemporaryFile(String taskId, ExportFormat format, ExportCompression compression,
+                                    ExportPackaging packaging) throws IOException {
+        exportStore.commit(exportFileName(taskId, format, compression, packaging));
     }
 
     @Override
-    public void cleanupTemporaryFile(String taskId) {
-        temporaryFiles.remove(taskId);
+    public boolean hasExportFile(String taskId) {
+        for (String name : exportFileNames(taskId)) {
+            if (exportStore.isReusable(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void cleanupTemporaryFile(String taskId, ExportFormat format, ExportCompression compression,
+                                     ExportPackaging packaging) {
+        exportStore.abort(exportFileName(taskId, format, compression, packaging));
+    }
+
+    private static String exportFileName(String taskId, ExportFormat format, ExportCompression compression,
+                                         ExportPackaging packaging) {
+        return taskId + format.suffix() + compression.suffix() + packaging.suffix();
+    }
+
+    /**
+     * 任务所有可能的导出文件名
+     */
+    private static List<String> exportFileNames(String taskId) {
+        List<String> names = new ArrayList<>();
+        for (ExportFormat format : ExportFormat.values()) {
+            for (ExportCompression compression : ExportCompression.values()) {
+                for (ExportPackaging packaging : ExportPackaging.values()) {
+                    names.add(exportFileName(taskId, format, compression, packaging));
+                }
+            }
+        }
+        return names;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,197 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.model.main2022;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 导出列定义：列名、取值方法、列类型和是否使用字典编码，CSV和列式导出（Parquet/Arrow）共用
+ * 出版年、页数等数值字段在列式格式中导出为整数列（无法解析时为null），CSV中保持原始字符串；
+ * 期刊名、出版商、学科分类等取值重复多的字段使用字典编码，标题、摘要、作者等高基数字段不使用。
+ * 列名同时是数据库字段名，也是导出列选择和SQL投影的白名单。
+ */
+final class ExportColumn {
+
+    enum Type {
+        STRING, INT
+    }
+
+    static final List<ExportColumn> ALL = List.of(
+            text("wos_uid", main2022::getWos_uid),
+            dict("database", main2022::getDatabase),
+            text("sortdate", main2022::getSortdate),
+            integer("pubyear", main2022::getPubyear),
+            dict("has_abstract", main2022::getHas_abstract),
+            text("coverdate", main2022::getCoverdate),
+            dict("pubmonth", main2022::getPubmonth),
+            text("vol", main2022::getVol),
+            text("issue", main2022::getIssue),
+            dict("special_issue", main2022::getSpecial_issue),
+            dict("supplement", main2022::getSupplement),
+            text("early_access_date", main2022::getEarly_access_date),
+            dict("early_access_month", main2022::getEarly_access_month),
+            integer("early_access_year", main2022::getEarly_access_year),
+            dict("article_type", main2022::getArticle_type),
+            integer("page_count", main2022::getPage_count),
+            text("page_begin", main2022::getPage_begin),
+            text("page_end", main2022::getPage_end),
+            dict("journal_title_source", main2022::getJournal_title_source),
+            dict("journal_title_abbrev", main2022::getJournal_title_abbrev),
+            dict("journal_title_iso", main2022::getJournal_title_iso),
+            dict("journal_title_11", main2022::getJournal_title_11),
+            dict("journal_title_29", main2022::getJournal_title_29),
+            text("article_title", main2022::getArticle_title),
+            dict("article_doctype", main2022::getArticle_doctype),
+            dict("heading", main2022::getHeading),
+            dict("subheadings", main2022::getSubheadings),
+            dict("subject_traditional", main2022::getSubject_traditional),
+            dict("subject_extended", main2022::getSubject_extended),
+            text("fund_text", main2022::getFund_text),
+            text("keyword", main2022::getKeyword),
+            text("keyword_plus", main2022::getKeyword_plus),
+            text("abstract_text", main2022::getAbstract_text),
+            text("ids", main2022::getIds),
+            text("bib_id", main2022::getBib_id),
+            integer("bib_pagecount", main2022::getBib_pagecount),
+            text("reviewed_work", main2022::getReviewed_work),
+            dict("languages", main2022::getLanguages),
+            text("rw_authors", main2022::getRw_authors),
+            integer("rw_year", main2022::getRw_year),
+            dict("rw_language", main2022::getRw_language),
+            text("book_note", main2022::getBook_note),
+            dict("bk_binding", main2022::getBk_binding),
+            dict("bk_publisher", main2022::getBk_publisher),
+            text("bk_prepay", main2022::getBk_prepay),
+            text("bk_ordering", main2022::getBk_ordering),
+            text("identifier_accession_no", main2022::getIdentifier_accession_no),
+            dict("identifier_issn", main2022::getIdentifier_issn),
+            dict("identifier_eissn", main2022::getIdentifier_eissn),
+            text("identifier_isbn", main2022::getIdentifier_isbn),
+            text("identifier_eisbn", main2022::getIdentifier_eisbn),
+            text("identifier_doi", main2022::getIdentifier_doi),
+            text("identifier_pmid", main2022::getIdentifier_pmid),
+            dict("normalized_doctype", main2022::getNormalized_doctype),
+            dict("is_OA", main2022::getIs_OA),
+            dict("oases", main2022::getOases),
+            dict("subj_group_macro_id", main2022::getSubj_group_macro_id),
+            dict("subj_group_macro_value", main2022::getSubj_group_macro_value),
+            dict("subj_group_meso_id", main2022::getSubj_group_meso_id),
+            dict("subj_group_meso_value", main2022::getSubj_group_meso_value),
+            dict("subj_group_micro_id", main2022::getSubj_group_micro_id),
+            dict("subj_group_micro_value", main2022::getSubj_group_micro_value),
+            text("author_fullname", main2022::getAuthor_fullname),
+            text("author_displayname", main2022::getAuthor_displayname),
+            text("author_wosname", main2022::getAuthor_wosname),
+            text("grant_info", main2022::getGrant_info),
+            text("address", main2022::getAddress),
+            text("reprint_address", main2022::getReprint_address),
+            text("email", main2022::getEmail),
+            text("contributor", main2022::getContributor),
+            dict("publisher", main2022::getPublisher),
+            dict("publisher_unified", main2022::getPublisher_unified),
+            dict("publisher_display", main2022::getPublisher_display)
+    );
+
+    private static final Map<String, ExportColumn> BY_NAME = new LinkedHashMap<>();
+
+    static {
+        for (ExportColumn column : ALL) {
+            BY_NAME.put(column.name, column);
+        }
+    }
+
+    private final String name;
+    private final Function<main2022, String> getter;
+    private final Type type;
+    private final boolean dictionary;
+
+    private ExportColumn(String name, Function<main2022, String> getter, Type type, boolean dictionary) {
+        this.name = name;
+        this.getter = getter;
+        this.type = type;
+        this.dictionary = dictionary;
+    }
+
+    String name() {
+        return name;
+    }
+
+    Type type() {
+        return type;
+    }
+
+    boolean dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * 字段的原始字符串值
+     */
+    String value(main2022 paper) {
+        return getter.apply(paper);
+    }
+
+    /**
+     * 整数列的值，空值或无法解析时返回null
+     */
+    Integer intValue(main2022 paper) {
+        String value = getter.apply(paper);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        if (value.isEmpty() || value.length() > 10) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 按列名选择导出列（保持调用方给出的顺序，重复的列名只保留一次），null或空列表为全部列
+     * 列名不在白名单中时抛出IllegalArgumentException
+     */
+    static List<ExportColumn> select(List<String> names) {
+        if (names == null || names.isEmpty()) {
+            return ALL;
+        }
+        Set<String> unique = new LinkedHashSet<>(names);
+        List<ExportColumn> selected = new ArrayList<>(unique.size());
+        for (String name : unique) {
+            ExportColumn column = BY_NAME.get(name);
+            if (column == null) {
+                throw new IllegalArgumentException("不支持的导出列: " + name);
+            }
+            selected.add(column);
+        }
+        return selected;
+    }
+
+    /**
+     * 全部可导出的列名
+     */
+    static List<String> names() {
+        return new ArrayList<>(BY_NAME.keySet());
+    }
+
+    private static ExportColumn text(String name, Function<main2022, String> getter) {
+        return new ExportColumn(name, getter, Type.STRING, false);
+    }
+
+    private static ExportColumn dict(String name, Function<main2022, String> getter) {
+        return new ExportColumn(name, getter, Type.STRING, true);
+    }
+
+    private static ExportColumn integer(String name, Function<main2022, String> getter) {
+        return new ExportColumn(name, getter, Type.INT, false);
+    }
+}
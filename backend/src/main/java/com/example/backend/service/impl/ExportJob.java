@@ -0,0 +1,243 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.config.ExportJobRequest;
+import com.example.backend.util.ExportCompression;
+import com.example.backend.util.ExportFormat;
+import com.example.backend.util.ExportPackaging;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 全量导出任务的状态
+ * 状态值（status字段）与前端约定的字符串保持一致；状态变更在对象锁内进行。
+ * 相同的导出请求共用一个任务，users记录关联到该任务的用户，全部用户取消后任务才真正取消。
+ */
+public class ExportJob {
+
+    public enum Status {
+        QUEUED("queued"),
+        QUERYING("querying"),
+        PROCESSING("processing"),
+        COMPLETED("completed"),
+        NO_DATA("no_data"),
+        FAILED("error"),
+        CANCELLED("cancelled");
+
+        private final String code;
+
+        Status(String code) {
+            this.code = code;
+        }
+
+        public String code() {
+            return code;
+        }
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == NO_DATA || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final ExportJobRequest request;
+    private final ExportFormat format;
+    private final ExportCompression compression;
+    private final ExportPackaging packaging;
+
+    private Status status = Status.QUEUED;
+    private long processedCount;
+    private long totalCount;
+    private String warning;
+    private String error;
+    private String downloadUrl;
+    private String fileName;
+    private long startedAt;
+    private long finishedAt;
+    // 导出文件在之前的运行中已生成，直接复用
+    private boolean reused;
+    private final Set<String> users = new LinkedHashSet<>();
+
+    /**
+     * 格式、压缩和打包方式无效时抛出IllegalArgumentException
+     */
+    public ExportJob(ExportJobRequest request) {
+        this.request = request;
+        this.format = ExportFormat.parse(request.getFormat());
+        this.compression = ExportCompression.parse(request.getCompression());
+        this.packaging = ExportPackaging.parse(request.getPackaging());
+        this.users.add(request.getUserId());
+    }
+
+    /**
+     * 导出文件已存在（如重启前生成的文件）时直接作为已完成的任务
+     */
+    static ExportJob reuseStoredFile(ExportJobRequest request, String downloadUrl, String fileName) {
+        ExportJob job = new ExportJob(request);
+        job.reused = true;
+        job.downloadUrl = downloadUrl;
+        job.fileName = fileName;
+        job.finish(Status.COMPLETED, null);
+        return job;
+    }
+
+    public String getTaskId() {
+        return request.getTaskId();
+    }
+
+    public String getUserId() {
+        return request.getUserId();
+    }
+
+    public ExportJobRequest getRequest() {
+        return request;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public ExportCompression getCompression() {
+        return compression;
+    }
+
+    public ExportPackaging getPackaging() {
+        return packaging;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public synchronized boolean isCancelled() {
+        return status == Status.CANCELLED;
+    }
+
+    /**
+     * 当前状态，queuePosition为排队位置（从1开始，不在排队时为0）
+     */
+    public synchronized Map<String, Object> toStatus(int queuePosition) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("taskId", request.getTaskId());
+        map.put("status", status.code());
+        map.put("processedCount", processedCount);
+        map.put("totalCount", totalCount);
+        map.put("completed", status.isFinished());
+        map.put("error", error != null ? error : "");
+        map.put("warning", warning != null ? warning : "");
+        map.put("format", format.name().toLowerCase());
+        map.put("compression", compression.name().toLowerCase());
+        map.put("packaging", packaging.name().toLowerCase());
+        if (request.getColumns() != null) {
+            map.put("columns", request.getColumns());
+        }
+        map.put("priority", request.getPriority());
+        map.put("queuePosition", queuePosition);
+        map.put("users", users.size());
+        map.put("reused", reused);
+        map.put("createdAt", request.getCreatedAt());
+        if (startedAt > 0) {
+            map.put("startedAt", startedAt);
+        }
+        if (finishedAt > 0) {
+            map.put("elapsedMs", finishedAt - request.getCreatedAt());
+        }
+        if (downloadUrl != null) {
+            map.put("downloadUrl", downloadUrl);
+            map.put("fileName", fileName);
+        }
+        return map;
+    }
+
+    // ==================== 状态变更（由任务调度器调用） ====================
+
+    /**
+     * 关联相同导出请求的用户
+     */
+    synchronized void attach(String userId) {
+        users.add(userId);
+    }
+
+    /**
+     * 用户取消关联，返回是否应取消任务：已没有关联的用户，
+     * 或只有一个用户时（与之前单用户任务的取消行为一致，不要求用户标识相同）
+     */
+    synchronized boolean detach(String userId) {
+        if (!users.remove(userId)) {
+            return users.size() <= 1;
+        }
+        return users.isEmpty();
+    }
+
+    synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.QUERYING;
+        startedAt = System.currentTimeMillis();
+        return true;
+    }
+
+    synchronized void processing() {
+        if (status == Status.QUERYING) {
+            status = Status.PROCESSING;
+        }
+    }
+
+    synchronized void setTotalCount(long totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    synchronized void setProcessedCount(long processedCount) {
+        this.processedCount = processedCount;
+    }
+
+    synchronized void setWarning(String warning) {
+        this.warning = warning;
+    }
+
+    synchronized void complete(long rows, String downloadUrl, String fileName) {
+        if (status.isFinished()) {
+            return;
+        }
+        this.totalCount = rows;
+        this.processedCount = rows;
+        this.downloadUrl = downloadUrl;
+        this.fileName = fileName;
+        finish(Status.COMPLETED, null);
+    }
+
+    synchronized void noData() {
+        if (!status.isFinished()) {
+            finish(Status.NO_DATA, null);
+        }
+    }
+
+    synchronized void fail(String message) {
+        if (!status.isFinished()) {
+            finish(Status.FAILED, message);
+        }
+    }
+
+    /**
+     * 取消任务：排队中的不再执行，运行中的在下一次进度回调时中止
+     */
+    synchronized boolean cancel() {
+        if (status.isFinished()) {
+            return false;
+        }
+        finish(Status.CANCELLED, null);
+        return true;
+    }
+
+    private void finish(Status finalStatus, String message) {
+        status = finalStatus;
+        error = message;
+        finishedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,495 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.config.ExportJobRequest;
+import com.example.backend.config.SearchFilter;
+import com.example.backend.service.DownloadService;
+import com.example.backend.service.Main2022Service;
+import com.example.backend.util.ExportCompression;
+import com.example.backend.util.ExportFormat;
+import com.example.backend.util.ExportPackaging;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全量导出任务调度
+ *
+ * 任务在固定数量的专用工作线程中执行（不占用公共ForkJoinPool），按优先级、再按提交顺序出队；
+ * 同一用户同时运行的任务数和排队的任务数都有上限，超出的任务留在队列中等待其他用户的任务先执行。
+ * 排队中和运行中的任务保存在队列文件中，重启后重新排队执行（运行到一半的临时文件由导出文件存储清理）。
+ * 结束的任务保留一段时间供查询状态和下载，之后由定时任务清理。
+ * 状态变化（包括排队位置变化）发布到ProgressHub，由其推送给SSE客户端。
+ * 任务ID由导出内容（搜索条件、格式和导出列）的哈希决定，相同内容的导出共用一个任务和导出文件。
+ */
+@Service
+public class ExportJobScheduler {
+
+    private static final Comparator<ExportJob> QUEUE_ORDER = Comparator
+            .comparingInt((ExportJob job) -> -job.getRequest().getPriority())
+            .thenComparingLong(job -> job.getRequest().getSequence());
+
+    private final DownloadService downloadService;
+    private final Main2022Service main2022Service;
+    private final ProgressHub progressHub;
+    private final ObjectMapper objectMapper;
+    private final int workers;
+    private final int perUserRunning;
+    private final int perUserQueued;
+    private final int queueCapacity;
+    private final long retentionMillis;
+    private final long sseTimeoutMillis;
+    private final Path queueFile;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    // 排队中的任务（按QUEUE_ORDER排序）和每个用户运行中的任务数，由对象锁保护
+    private final List<ExportJob> queue = new ArrayList<>();
+    private final Set<ExportJob> running = new HashSet<>();
+    private final Map<String, Integer> runningPerUser = new HashMap<>();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean shuttingDown;
+
+    public ExportJobScheduler(DownloadService downloadService, Main2022Service main2022Service,
+                              ProgressHub progressHub, ObjectMapper objectMapper,
+                              @Value("${download.jobs.workers:2}") int workers,
+                              @Value("${download.jobs.per-user-running:1}") int perUserRunning,
+                              @Value("${download.jobs.per-user-queued:5}") int perUserQueued,
+                              @Value("${download.jobs.queue-capacity:100}") int queueCapacity,
+                              @Value("${download.jobs.retention-minutes:60}") long retentionMinutes,
+                              @Value("${download.jobs.sse-timeout-ms:300000}") long sseTimeoutMillis,
+                              @Value("${download.jobs.queue-file:download-jobs.json}") String queueFile) {
+        this.downloadService = downloadService;
+        this.main2022Service = main2022Service;
+        this.progressHub = progressHub;
+        this.objectMapper = objectMapper;
+        this.workers = Math.max(1, workers);
+        this.perUserRunning = Math.max(1, perUserRunning);
+        this.perUserQueued = Math.max(1, perUserQueued);
+        this.queueCapacity = queueCapacity;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.sseTimeoutMillis = sseTimeoutMillis;
+        this.queueFile = Paths.get(queueFile);
+    }
+
+    /**
+     * 恢复队列文件中未完成的任务并启动工作线程
+     */
+    @PostConstruct
+    public void start() {
+        restore();
+        for (int i = 1; i <= workers; i++) {
+            Thread thread = new Thread(this::workerLoop, "export-job-" + i);
+            thread.setDaemon(true);
+            workerThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * 提交导出任务，返回排队中的任务
+     * 任务ID由导出内容决定：与排队中、运行中或已完成（文件仍在存储中）的任务内容相同时，
+     * 直接关联到该任务并复用其导出文件，不重新查询，也不计入用户的任务数上限。
+     * 请求参数无效时抛出IllegalArgumentException，队列已满或超过用户的任务数上限时抛出RejectedExecutionException
+     */
+    public ExportJob submit(ExportJobRequest request) {
+        request.setCreatedAt(System.currentTimeMillis());
+        request.setTaskId(exportTaskId(request));
+        ExportJob job = new ExportJob(request);
+        String taskId = job.getTaskId();
+
+        synchronized (this) {
+            ExportJob existing = jobs.get(taskId);
+            if (existing != null && (!existing.getStatus().isFinished()
+                    || existing.getStatus() == ExportJob.Status.COMPLETED && downloadService.hasExportFile(taskId))) {
+                existing.attach(job.getUserId());
+                publish(existing);
+                System.out.println("导出任务已关联: " + taskId + "（用户 " + job.getUserId() + "）");
+                return existing;
+            }
+            if (downloadService.hasExportFile(taskId)) {
+                // 之前生成的文件仍在存储中（如任务记录已清理或服务重启）
+                ExportJob reused = ExportJob.reuseStoredFile(request, "/download/csv/file/" + taskId, fileName(job));
+                jobs.put(taskId, reused);
+                System.out.println("导出文件已存在，直接复用: " + taskId);
+                return reused;
+            }
+
+            if (queue.size() >= queueCapacity) {
+                throw new RejectedExecutionException("导出队列已满，请稍后重试");
+            }
+            long pending = countPending(job.getUserId());
+            if (pending >= perUserQueued) {
+                throw new RejectedExecutionException("每个用户最多同时有 " + perUserQueued + " 个导出任务，请等待已有任务完成");
+            }
+            request.setSequence(sequence.incrementAndGet());
+            // 之前失败、取消或文件已被清理的同内容任务由新任务替换
+            jobs.put(taskId, job);
+            enqueue(job);
+            persist();
+            publishQueue();
+            notifyAll();
+        }
+
+        System.out.println("导出任务已提交: " + taskId + "（用户 " + job.getUserId() + "，排队位置 "
+                + queuePosition(job) + "）");
+        return job;
+    }
+
+    /**
+     * 按导出内容计算任务ID：规范化的搜索条件、格式、压缩、打包方式和导出列的SHA-256
+     * 条件的界面编号和第一个条件的连接词不影响查询，不参与计算；条件顺序和关键词原样保留（会影响查询结果）
+     */
+    public static String exportTaskId(ExportJobRequest request) {
+        StringBuilder canonical = new StringBuilder();
+        List<SearchFilter> filters = request.getFilters() != null ? request.getFilters() : List.of();
+        for (int i = 0; i < filters.size(); i++) {
+            SearchFilter filter = filters.get(i);
+            List<Object> selects = filter.getSelects() != null ? filter.getSelects() : List.of();
+            for (int j = i == 0 ? 1 : 0; j < selects.size(); j++) {
+                appendField(canonical, selects.get(j) != null ? selects.get(j).toString().trim().toUpperCase() : "");
+            }
+            appendField(canonical, filter.getInput() != null ? filter.getInput() : "");
+            canonical.append(';');
+        }
+        appendField(canonical, ExportFormat.parse(request.getFormat()).name());
+        appendField(canonical, ExportCompression.parse(request.getCompression()).name());
+        appendField(canonical, ExportPackaging.parse(request.getPackaging()).name());
+        appendField(canonical, request.getColumns() != null ? String.join(",", request.getColumns()) : "*");
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return "export_" + HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 带长度前缀，避免不同字段拼接后相同
+    private static void appendField(StringBuilder canonical, String value) {
+        canonical.append(value.length()).append(':').append(value);
+    }
+
+    public ExportJob getJob(String taskId) {
+        return jobs.get(taskId);
+    }
+
+    /**
+     * 任务状态（含排队位置），任务不存在时返回null
+     */
+    public Map<String, Object> getStatus(String taskId) {
+        ExportJob job = jobs.get(taskId);
+        return job != null ? job.toStatus(queuePosition(job)) : null;
+    }
+
+    /**
+     * 排队位置（从1开始），不在排队时为0
+     */
+    public synchronized int queuePosition(ExportJob job) {
+        int index = queue.indexOf(job);
+        return index >= 0 ? index + 1 : 0;
+    }
+
+    /**
+     * 取消用户对任务的关联：多个用户共用的任务只有在最后一个用户取消时才真正取消
+     */
+    public boolean cancel(String taskId, String userId) {
+        ExportJob job = jobs.get(taskId);
+        if (job == null || job.getStatus().isFinished()) {
+            return false;
+        }
+        if (!job.detach(userId)) {
+            publish(job);
+            System.out.println("用户取消关联导出任务: " + taskId + "（用户 " + userId + "）");
+            return true;
+        }
+        if (!job.cancel()) {
+            return false;
+        }
+        synchronized (this) {
+            if (queue.remove(job)) {
+                persist();
+                publishQueue();
+            }
+        }
+        publish(job);
+        System.out.println("导出任务已取消: " + taskId);
+        return true;
+    }
+
+    /**
+     * 订阅任务进度：状态变化时推送，任务结束后关闭连接；任务不存在时返回null
+     */
+    public SseEmitter subscribe(String taskId) {
+        ExportJob job = jobs.get(taskId);
+        if (job == null) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeoutMillis);
+        progressHub.subscribe(taskId, emitter, job.toStatus(queuePosition(job)), job.getStatus().isFinished());
+        return emitter;
+    }
+
+    public synchronized int queuedCount() {
+        return queue.size();
+    }
+
+    public synchronized int runningCount() {
+        return running.size();
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("workers", workers);
+        stats.put("queued", queue.size());
+        stats.put("running", running.size());
+        stats.put("jobs", jobs.size());
+        stats.put("runningPerUser", new HashMap<>(runningPerUser));
+        stats.put("perUserRunning", perUserRunning);
+        stats.put("perUserQueued", perUserQueued);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("progress", progressHub.getStats());
+        return stats;
+    }
+
+    /**
+     * 清理已结束且超过保留时间的任务
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void cleanupFinishedJobs() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && now - job.getFinishedAt() > retentionMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 先停止写队列文件，运行中被中断的任务保留在文件中，重启后重新执行
+        shuttingDown = true;
+        for (Thread thread : workerThreads) {
+            thread.interrupt();
+        }
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void workerLoop() {
+        while (!shuttingDown) {
+            ExportJob job;
+            try {
+                job = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                run(job);
+            } finally {
+                release(job);
+            }
+        }
+    }
+
+    /**
+     * 取出第一个所属用户未达到运行上限的任务
+     */
+    private synchronized ExportJob take() throws InterruptedException {
+        while (true) {
+            Iterator<ExportJob> it = queue.iterator();
+            while (it.hasNext()) {
+                ExportJob job = it.next();
+                if (runningPerUser.getOrDefault(job.getUserId(), 0) < perUserRunning) {
+                    it.remove();
+                    running.add(job);
+                    runningPerUser.merge(job.getUserId(), 1, Integer::sum);
+                    publishQueue();
+                    return job;
+                }
+            }
+            wait();
+        }
+    }
+
+    private synchronized void release(ExportJob job) {
+        running.remove(job);
+        runningPerUser.computeIfPresent(job.getUserId(), (user, count) -> count > 1 ? count - 1 : null);
+        persist();
+        notifyAll();
+    }
+
+    private void run(ExportJob job) {
+        String taskId = job.getTaskId();
+        ExportJobRequest request = job.getRequest();
+        if (!job.start()) {
+            return;
+        }
+        publish(job);
+
+        Path file = null;
+        try {
+            System.out.println("开始执行导出任务: " + taskId);
+
+            // 先获取数据计数用于显示进度（失败不影响导出）
+            try {
+                int estimatedCount = main2022Service.countAdvancedSearch(request.getFilters());
+                System.out.println("预估数据量: " + estimatedCount);
+                job.setTotalCount(estimatedCount);
+            } catch (Exception countError) {
+                System.err.println("获取计数失败，直接导出数据: " + countError.getMessage());
+                job.setWarning("无法预估数据量，直接开始下载");
+            }
+
+            job.processing();
+            publish(job);
+
+            // 游标逐行读取并写入临时文件，内存占用与数据量无关
+            file = downloadService.createTemporaryFile(taskId, job.getFormat(), job.getCompression(), job.getPackaging());
+            long rows;
+            try (OutputStream out = Files.newOutputStream(file)) {
+                rows = downloadService.writeExport(request.getFilters(), request.getColumns(), job.getFormat(),
+                        job.getCompression(), job.getPackaging(), out, processedCount -> {
+                            if (job.isCancelled() || shuttingDown) {
+                                throw new CancellationException("下载已取消");
+                            }
+                            job.setProcessedCount(processedCount);
+                            publish(job);
+                        });
+            }
+
+            if (rows == 0) {
+                cleanupTemporaryFile(job);
+                job.noData();
+                publish(job);
+                return;
+            }
+
+            System.out.println("导出文件生成完成: " + rows + " 条, " + Files.size(file) + " 字节");
+            downloadService.commitTemporaryFile(taskId, job.getFormat(), job.getCompression(), job.getPackaging());
+            job.complete(rows, "/download/csv/file/" + taskId, fileName(job));
+            publish(job);
+            System.out.println("导出任务完成: " + taskId);
+
+        } catch (CancellationException e) {
+            System.out.println("导出任务已中止: " + taskId);
+            if (file != null) {
+                cleanupTemporaryFile(job);
+            }
+        } catch (Exception e) {
+            if (file != null) {
+                cleanupTemporaryFile(job);
+            }
+            if (shuttingDown) {
+                return;
+            }
+            System.err.println("导出任务错误: " + e.getMessage());
+            e.printStackTrace();
+            job.fail(e.getMessage() != null ? e.getMessage() : "下载过程中发生未知错误");
+            publish(job);
+        }
+    }
+
+    /**
+     * 只删除本次写入的临时文件：任务ID由导出内容决定，之前提交的同内容文件可能仍在被下载
+     */
+    private void cleanupTemporaryFile(ExportJob job) {
+        downloadService.cleanupTemporaryFile(job.getTaskId(), job.getFormat(), job.getCompression(), job.getPackaging());
+    }
+
+    private static String fileName(ExportJob job) {
+        return "wos_data_" + job.getTaskId() + job.getFormat().suffix() + job.getCompression().suffix()
+                + job.getPackaging().suffix();
+    }
+
+    private void publish(ExportJob job) {
+        progressHub.publish(job.getTaskId(), job.toStatus(queuePosition(job)), job.getStatus().isFinished());
+    }
+
+    /**
+     * 队列变化后所有排队任务的位置都可能改变，调用方持有对象锁
+     */
+    private void publishQueue() {
+        for (ExportJob job : queue) {
+            publish(job);
+        }
+    }
+
+    private void enqueue(ExportJob job) {
+        int index = Collections.binarySearch(queue, job, QUEUE_ORDER);
+        queue.add(index >= 0 ? index : -index - 1, job);
+    }
+
+    private long countPending(String userId) {
+        long pending = runningPerUser.getOrDefault(userId, 0);
+        for (ExportJob job : queue) {
+            if (Objects.equals(job.getUserId(), userId)) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * 把排队中和运行中的任务写入队列文件（先写临时文件再原子替换），调用方持有对象锁
+     */
+    private void persist() {
+        if (shuttingDown) {
+            return;
+        }
+        List<ExportJobRequest> pending = new ArrayList<>();
+        for (ExportJob job : running) {
+            pending.add(job.getRequest());
+        }
+        for (ExportJob job : queue) {
+            pending.add(job.getRequest());
+        }
+        try {
+            Path tmp = queueFile.resolveSibling(queueFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), pending);
+            Files.move(tmp, queueFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("保存导出队列失败: " + e.getMessage());
+        }
+    }
+
+    private void restore() {
+        if (!Files.exists(queueFile)) {
+            return;
+        }
+        try {
+            List<ExportJobRequest> pending = objectMapper.readValue(queueFile.toFile(),
+                    new TypeReference<List<ExportJobRequest>>() {});
+            synchronized (this) {
+                for (ExportJobRequest request : pending) {
+                    try {
+                        ExportJob job = new ExportJob(request);
+                        jobs.put(job.getTaskId(), job);
+                        enqueue(job);
+                        sequence.accumulateAndGet(request.getSequence(), Math::max);
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("跳过无效的导出任务: " + request.getTaskId() + " - " + e.getMessage());
+                    }
+                }
+                persist();
+            }
+            System.out.println("已恢复未完成的导出任务 " + queue.size() + " 个");
+        } catch (IOException e) {
+            System.err.println("读取导出队列失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.model.main2022;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 导出格式的逐行写入器：close()写完文件结尾（如Parquet的footer），但不关闭底层输出流
+ */
+interface ExportRowWriter extends Closeable {
+
+    void write(main2022 paper) throws IOException;
+}
@@ -0,0 +1,456 @@
+package com.example.backend.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 导出文件的磁盘存储
+ *
+ * 导出先写入 名称.tmp，完成后原子改名为正式文件并登记；总大小超过上限时按最近访问时间淘汰，
+ * 超过保留时间未被访问的文件由定时任务统一清理（不再为每个文件单独开线程等待）。
+ * 访问时间记录在文件的访问时间中，修改时间保持为提交时间，重启后从目录恢复索引，未写完的临时文件直接删除。
+ * 相同内容的导出只在提交后reuse-max-age-hours内复用（isReusable），之后重新查询，避免一直提供数据更新前的旧文件；
+ * 按提交时间而不是访问时间判断，频繁下载不会延长复用期限。
+ * 正在下载的文件不会被淘汰或清理。写入中的临时文件可以通过reserving登记已写出的字节数（并行导出的分块），
+ * 登记的字节与正式文件一起计入总大小上限，提交或放弃时释放。文件提交后内容不再变化，实体标签（ETag）由大小和提交时间
+ * （文件修改时间，纳秒精度）生成，提交同名文件时保证修改时间递增，因此重新导出后一定改变，供断点续传校验。
+ * 下载通过open取得打开的文件，大小、实体标签和内容都来自同一个文件，期间提交的新文件不影响正在进行的下载。
+ */
+@Service
+public class ExportStore {
+
+    private static final String TMP_SUFFIX = ".tmp";
+    // 临时文件每写出这么多字节登记一次
+    private static final long RESERVE_STEP = 1024 * 1024;
+    private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9_.-]*");
+
+    private final Path dir;
+    private final long maxBytes;
+    private final long retentionMillis;
+    private final long reuseMaxAgeMillis;
+
+    // 文件名 → 条目信息（大小、最近访问时间、正在读取的次数）
+    private final Map<String, Entry> index = new HashMap<>();
+    // 正在写入的文件名 → 已登记的临时文件字节数
+    private final Map<String, Long> writing = new HashMap<>();
+    private long totalBytes;
+    private long reservedBytes;
+
+    public ExportStore(@Value("${download.store.dir:download-files}") String dir,
+                       @Value("${download.store.max-size-mb:10240}") long maxSizeMb,
+                       @Value("${download.store.retention-hours:24}") long retentionHours,
+                       @Value("${download.store.reuse-max-age-hours:24}") long reuseMaxAgeHours) {
+        this.dir = Paths.get(dir);
+        this.maxBytes = maxSizeMb * 1024 * 1024;
+        this.retentionMillis = retentionHours * 60 * 60 * 1000;
+        this.reuseMaxAgeMillis = reuseMaxAgeHours * 60 * 60 * 1000;
+    }
+
+    /**
+     * 启动时恢复已有的导出文件，删除未写完的临时文件
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                files.forEach(file -> {
+                    String name = file.getFileName().toString();
+                    try {
+                        if (name.endsWith(TMP_SUFFIX)) {
+                            Files.deleteIfExists(file);
+                        } else if (Files.isRegularFile(file) && VALID_NAME.matcher(name).matches()) {
+                            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                            long lastAccess = Math.max(attrs.lastModifiedTime().toMillis(),
+                                    attrs.lastAccessTime().toMillis());
+                            synchronized (this) {
+                                index.put(name, new Entry(attrs, lastAccess));
+                                totalBytes += attrs.size();
+                            }
+                        }
+                    } catch (IOException e) {
+                        System.err.println("加载导出文件失败: " + file + " - " + e.getMessage());
+                    }
+                });
+            }
+            sweep();
+            System.out.println("导出文件存储已加载: " + index.size() + " 个文件, " + totalBytes / 1024 + " KB");
+        } catch (IOException e) {
+            System.err.println("初始化导出文件存储失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 开始写入：返回临时文件路径，写完后调用commit，失败时调用abort
+     */
+    public Path begin(String name) throws IOException {
+        checkName(name);
+        Files.createDirectories(dir);
+        synchronized (this) {
+            if (writing.putIfAbsent(name, 0L) != null) {
+                throw new IOException("导出文件正在写入: " + name);
+            }
+        }
+        return dir.resolve(name + TMP_SUFFIX);
+    }
+
+    /**
+     * 写入完成：原子改名为正式文件并登记，之后按需淘汰其他文件
+     */
+    public void commit(String name) throws IOException {
+        checkName(name);
+        Path tmp = dir.resolve(name + TMP_SUFFIX);
+        try {
+            // 改名和登记在同一把锁内完成，open看到的条目与打开的文件一致
+            synchronized (this) {
+                Entry old = index.get(name);
+                if (old != null) {
+                    // 修改时间精度较粗的文件系统上，同名文件的提交时间也要递增（实体标签随之改变）
+                    long modified = Files.getLastModifiedTime(tmp).to(TimeUnit.NANOSECONDS);
+                    if (modified <= old.modifiedNanos) {
+                        Files.setLastModifiedTime(tmp, FileTime.from(old.modifiedNanos + 1000, TimeUnit.NANOSECONDS));
+                    }
+                }
+                Files.move(tmp, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                BasicFileAttributes attrs = Files.readAttributes(dir.resolve(name), BasicFileAttributes.class);
+                index.put(name, new Entry(attrs, System.currentTimeMillis()));
+                totalBytes += attrs.size() - (old != null ? old.size : 0);
+            }
+        } finally {
+            release(name);
+        }
+        evictIfNeeded(name);
+    }
+
+    /**
+     * 放弃写入，删除临时文件
+     */
+    public void abort(String name) {
+        checkName(name);
+        release(name);
+        try {
+            Files.deleteIfExists(dir.resolve(name + TMP_SUFFIX));
+        } catch (IOException e) {
+            System.err.println("删除导出临时文件失败: " + name + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * 包装临时文件的输出流，写出的字节按RESERVE_STEP分批登记到name下（关闭时登记剩余部分）
+     * 登记后超过总大小上限时先按最近访问时间淘汰正式文件；正在写入的临时文件合计仍超过上限时抛出IOException
+     */
+    public OutputStream reserving(String name, OutputStream out) {
+        checkName(name);
+        return new ReservingOutputStream(name, out);
+    }
+
+    public synchronized boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    /**
+     * 文件存在且提交时间未超过复用期限（reuse-max-age-hours不大于0时不限制）
+     */
+    public synchronized boolean isReusable(String name) {
+        Entry entry = index.get(name);
+        return entry != null
+                && (reuseMaxAgeMillis <= 0 || entry.committedAt >= System.currentTimeMillis() - reuseMaxAgeMillis);
+    }
+
+    /**
+     * 文件的实体标签（带引号的强校验值），不存在时返回null
+     */
+    public synchronized String etag(String name) {
+        Entry entry = index.get(name);
+        return entry != null ? entry.etag : null;
+    }
+
+    /**
+     * 打开已提交的文件用于下载，文件不存在时返回null
+     * 返回的文件关闭前不会被淘汰或清理；之后提交的同名文件不影响已打开的文件（改名替换不改变已打开的inode）
+     */
+    public OpenFile open(String name) throws IOException {
+        checkName(name);
+        OpenFile file;
+        synchronized (this) {
+            Entry entry = index.get(name);
+            if (entry == null) {
+                return null;
+            }
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(dir.resolve(name), StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+            entry.readers++;
+            entry.lastAccess = System.currentTimeMillis();
+            file = new OpenFile(entry, channel);
+        }
+        try {
+            Files.getFileAttributeView(dir.resolve(name), BasicFileAttributeView.class)
+                    .setTimes(null, FileTime.fromMillis(file.entry.lastAccess), null);
+        } catch (IOException e) {
+            System.err.println("记录导出文件访问时间失败: " + name + " - " + e.getMessage());
+        }
+        return file;
+    }
+
+    /**
+     * 删除文件（正在下载的文件由清理任务稍后删除）
+     */
+    public void delete(String name) {
+        checkName(name);
+        synchronized (this) {
+            Entry entry = index.get(name);
+            if (entry == null) {
+                return;
+            }
+            if (entry.readers > 0) {
+                entry.lastAccess = 0;
+                return;
+            }
+            index.remove(name);
+            totalBytes -= entry.size;
+        }
+        deleteFile(name);
+    }
+
+    /**
+     * 定时清理超过保留时间未访问的文件
+     */
+    @Scheduled(fixedDelayString = "${download.store.sweep-interval-ms:600000}")
+    public void sweep() {
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+        List<String> expired = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Entry>> it = index.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> e = it.next();
+                if (e.getValue().lastAccess < expiredBefore && e.getValue().readers == 0) {
+                    expired.add(e.getKey());
+                    totalBytes -= e.getValue().size;
+                    it.remove();
+                }
+            }
+        }
+        for (String name : expired) {
+            deleteFile(name);
+        }
+        if (!expired.isEmpty()) {
+            System.out.println("已清理过期导出文件 " + expired.size() + " 个");
+        }
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("files", index.size());
+        stats.put("writing", writing.size());
+        stats.put("totalBytes", totalBytes);
+        stats.put("reservedBytes", reservedBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("retentionMillis", retentionMillis);
+        stats.put("reuseMaxAgeMillis", reuseMaxAgeMillis);
+        return stats;
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void reserve(String name, long bytes) throws IOException {
+        synchronized (this) {
+            Long reserved = writing.get(name);
+            if (reserved == null) {
+                // 已被放弃（整个导出中止），写入方会随后停止
+                return;
+            }
+            writing.put(name, reserved + bytes);
+            reservedBytes += bytes;
+        }
+        evictIfNeeded(null);
+        synchronized (this) {
+            if (reservedBytes > maxBytes) {
+                throw new IOException("导出临时文件超过存储上限: " + reservedBytes / 1024 / 1024 + " MB");
+            }
+        }
+    }
+
+    private synchronized void release(String name) {
+        Long reserved = writing.remove(name);
+        if (reserved != null) {
+            reservedBytes -= reserved;
+        }
+    }
+
+    /**
+     * 正式文件和已登记的临时文件合计超过总大小上限时按最近访问时间淘汰正式文件
+     * （keep指定的刚写入的文件和正在下载的文件除外）
+     */
+    private void evictIfNeeded(String keep) {
+        List<String> victims = new ArrayList<>();
+        synchronized (this) {
+            if (totalBytes + reservedBytes <= maxBytes) {
+                return;
+            }
+            List<Map.Entry<String, Entry>> entries = new ArrayList<>(index.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Map.Entry<String, Entry> e : entries) {
+                if (totalBytes + reservedBytes <= maxBytes) {
+                    break;
+                }
+                if (e.getKey().equals(keep) || e.getValue().readers > 0) {
+                    continue;
+                }
+                victims.add(e.getKey());
+                totalBytes -= e.getValue().size;
+                index.remove(e.getKey());
+            }
+        }
+        for (String name : victims) {
+            deleteFile(name);
+        }
+        if (!victims.isEmpty()) {
+            System.out.println("导出文件超过存储上限，已淘汰 " + victims.size() + " 个文件");
+        }
+    }
+
+    private void deleteFile(String name) {
+        try {
+            Files.deleteIfExists(dir.resolve(name));
+        } catch (IOException e) {
+            System.err.println("删除导出文件失败: " + name + " - " + e.getMessage());
+        }
+    }
+
+    private static void checkName(String name) {
+        if (name == null || !VALID_NAME.matcher(name).matches() || name.endsWith(TMP_SUFFIX)) {
+            throw new IllegalArgumentException("无效的导出文件名: " + name);
+        }
+    }
+
+    private final class ReservingOutputStream extends FilterOutputStream {
+        private final String name;
+        private long pending;
+
+        ReservingOutputStream(String name, OutputStream out) {
+            super(out);
+            this.name = name;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            added(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            added(len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (pending > 0) {
+                    reserve(name, pending);
+                    pending = 0;
+                }
+            } finally {
+                out.close();
+            }
+        }
+
+        private void added(long bytes) throws IOException {
+            pending += bytes;
+            if (pending >= RESERVE_STEP) {
+                reserve(name, pending);
+                pending = 0;
+            }
+        }
+    }
+
+    /**
+     * 打开的导出文件：大小和实体标签在打开时确定，与读出的内容对应同一个文件
+     */
+    public final class OpenFile implements Closeable {
+        private final Entry entry;
+        private final FileChannel channel;
+        private final long size;
+        private boolean closed;
+
+        private OpenFile(Entry entry, FileChannel channel) throws IOException {
+            this.entry = entry;
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public String etag() {
+            return entry.etag;
+        }
+
+        /**
+         * 用FileChannel.transferTo把从position开始的count个字节写入target（超出文件末尾的部分忽略）
+         * 目标为套接字或文件通道时由内核直接拷贝
+         */
+        public void transferTo(WritableByteChannel target, long position, long count) throws IOException {
+            long end = count >= size - position ? size : position + count;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (ExportStore.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                entry.readers--;
+            }
+            channel.close();
+        }
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final long committedAt;
+        private final long modifiedNanos;
+        private final String etag;
+        private long lastAccess;
+        private int readers;
+
+        Entry(BasicFileAttributes attrs, long lastAccess) {
+            this.size = attrs.size();
+            this.committedAt = attrs.lastModifiedTime().toMillis();
+            this.modifiedNanos = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            this.lastAccess = lastAccess;
+            this.etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(modifiedNanos) + "\"";
+        }
+    }
+}
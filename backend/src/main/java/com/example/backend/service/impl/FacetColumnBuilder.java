@@ -0,0 +1,130 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.mapper.Main2022Mapper;
+import com.example.backend.model.main2022;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 维度列文件的离线构建
+ * 逐表游标扫描Wos_YYYY（不把整表加载到内存），写出FacetSegment文件后原子替换旧文件。
+ * 构建任务在单独的单线程执行器中依次执行，避免同时占用多个数据库连接。
+ */
+@Service
+public class FacetColumnBuilder {
+
+    // 每扫描多少行更新一次进度
+    private static final int PROGRESS_INTERVAL = 50000;
+
+    private final Main2022Mapper main2022Mapper;
+    private final TransactionTemplate transactionTemplate;
+    private final FacetEngine facetEngine;
+    private final TableSelectorService tableSelectorService;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "facet-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 每个表的构建状态
+    private final Map<String, String> tableStatus = new ConcurrentHashMap<>();
+
+    public FacetColumnBuilder(Main2022Mapper main2022Mapper,
+                              PlatformTransactionManager transactionManager,
+                              FacetEngine facetEngine,
+                              TableSelectorService tableSelectorService) {
+        this.main2022Mapper = main2022Mapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // 游标需要在同一个连接/事务中读取
+        this.transactionTemplate.setReadOnly(true);
+        this.facetEngine = facetEngine;
+        this.tableSelectorService = tableSelectorService;
+    }
+
+    /**
+     * 提交构建任务，tables为空时构建所有支持的年份表
+     * @return 实际提交的表名
+     */
+    public List<String> submit(List<String> tables) {
+        List<String> supported = tableSelectorService.getAllSupportedTables();
+        List<String> targets = tables == null || tables.isEmpty() ? supported : tables;
+        for (String table : targets) {
+            if (!supported.contains(table)) {
+                throw new IllegalArgumentException("不支持的表: " + table);
+            }
+        }
+
+        List<String> submitted = new ArrayList<>();
+        for (String table : targets) {
+            String current = tableStatus.get(table);
+            if (current != null && (current.startsWith("排队中") || current.startsWith("构建中"))) {
+                continue;
+            }
+            tableStatus.put(table, "排队中");
+            executor.submit(() -> build(table));
+            submitted.add(table);
+        }
+        return submitted;
+    }
+
+    public Map<String, String> getStatus() {
+        return new TreeMap<>(tableStatus);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void build(String table) {
+        long startTime = System.currentTimeMillis();
+        tableStatus.put(table, "构建中");
+        System.out.println("开始构建维度列文件: " + table);
+
+        try {
+            FacetSegmentWriter writer = new FacetSegmentWriter();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<main2022> cursor = main2022Mapper.scanTable(table)) {
+                    for (main2022 paper : cursor) {
+                        writer.add(paper);
+                        if (writer.docCount() % PROGRESS_INTERVAL == 0) {
+                            tableStatus.put(table, "构建中: 已扫描 " + writer.docCount() + " 行");
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            // 先写临时文件，再原子替换，正在使用旧文件的分析不受影响
+            Path file = facetEngine.segmentFile(table);
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            writer.write(tmp);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            facetEngine.reload(table);
+
+            long elapsed = System.currentTimeMillis() - startTime;
+            tableStatus.put(table, "完成: " + writer.docCount() + " 行, 耗时 " + elapsed + "ms");
+            System.out.println("维度列文件构建完成: " + table + ", " + writer.docCount() + " 行, 耗时 " + elapsed + "ms");
+        } catch (Exception e) {
+            tableStatus.put(table, "失败: " + e.getMessage());
+            System.err.println("维度列文件构建失败: " + table + " - " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
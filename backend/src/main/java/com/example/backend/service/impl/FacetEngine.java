@@ -0,0 +1,352 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.config.AnalysisOptions;
+import com.example.backend.service.DisciplinaryAnalysis;
+import com.example.backend.util.CardinalityCounter;
+import com.example.backend.util.CooccurrenceCounter;
+import com.example.backend.util.HyperLogLog;
+import com.example.backend.util.IntArrayList;
+import com.example.backend.util.TopicTermTokenizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 基于维度列文件（FacetSegment）的学科分析引擎，不访问数据库
+ *
+ * 1. 查询关键词按TopicTermTokenizer切分为词项，在每个年份表的倒排表中求交得到文档位图
+ * 2. 按出版年分组后，用int数组统计每个维度字典id的出现次数
+ * 3. 每个维度的全部非零项按计数写入DisciplinaryPartial的Top-K sketch（计数最高的若干项先写入），
+ *    sketch的总权重和误差界与逐篇统计相同；去重计数直接使用字典中的全部非零项（HyperLogLog使用预先计算的哈希）
+ *
+ * 注意：匹配语义是"所有词项都出现在keyword/article_title/subject_extended中"，
+ * 与数据库查询的 LIKE '%关键词%' 子串匹配并不完全相同（不匹配词的一部分，也不要求词项相邻）。
+ */
+@Service
+public class FacetEngine {
+
+    private static final String SEGMENT_SUFFIX = ".facet";
+
+    private final Path facetDir;
+    private final DisciplinaryAnalysis disciplinaryAnalysis;
+    private final TableSelectorService tableSelectorService;
+
+    // 已映射的列文件（按表名）
+    private final Map<String, FacetSegment> segments = new ConcurrentHashMap<>();
+
+    public FacetEngine(@Value("${facet.dir:facets}") String facetDir,
+                       DisciplinaryAnalysis disciplinaryAnalysis,
+                       TableSelectorService tableSelectorService) {
+        this.facetDir = Paths.get(facetDir);
+        this.disciplinaryAnalysis = disciplinaryAnalysis;
+        this.tableSelectorService = tableSelectorService;
+    }
+
+    /**
+     * 使用列文件进行学科分析，返回按年份的部分结果
+     * 返回null表示无法使用列文件（有表缺少列文件，或关键词中没有可检索的词项），调用方应回退到数据库查询
+     */
+    public SortedMap<String, DisciplinaryPartial> analyze(String keyword, String startYear, String endYear,
+                                                          AnalysisOptions options) {
+        List<String> queryTerms = tokenize(keyword);
+        if (queryTerms.isEmpty()) {
+            return null;
+        }
+
+        List<String> tableNames = tableSelectorService.determineTablesForDisciplinaryAnalysis(keyword, startYear, endYear);
+        List<FacetSegment> selected = new ArrayList<>(tableNames.size());
+        for (String tableName : tableNames) {
+            FacetSegment segment = segment(tableName);
+            if (segment == null) {
+                System.out.println("表 " + tableName + " 没有维度列文件，回退到数据库查询");
+                return null;
+            }
+            selected.add(segment);
+        }
+
+        long startTime = System.currentTimeMillis();
+        SortedMap<String, DisciplinaryPartial> partials = new TreeMap<>();
+        FacetCounts counts = new FacetCounts();
+        long matched = 0;
+        for (FacetSegment segment : selected) {
+            matched += analyzeSegment(segment, queryTerms, options, partials, counts);
+        }
+
+        System.out.println(String.format("列式引擎分析完成 - 词项: %s, 表数: %d, 匹配: %d 篇, 耗时: %dms",
+                queryTerms, selected.size(), matched, System.currentTimeMillis() - startTime));
+        return partials;
+    }
+
+    /**
+     * 表是否已有可用的列文件
+     */
+    public boolean isAvailable(String tableName) {
+        return segment(tableName) != null;
+    }
+
+    /**
+     * 列文件路径
+     */
+    public Path segmentFile(String tableName) {
+        return facetDir.resolve(tableName + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * 列文件被重建后调用，下次访问时重新映射
+     */
+    public void reload(String tableName) {
+        segments.remove(tableName);
+    }
+
+    /**
+     * 已映射的列文件及其文档数
+     */
+    public Map<String, Integer> getLoadedSegments() {
+        Map<String, Integer> loaded = new TreeMap<>();
+        segments.forEach((table, segment) -> loaded.put(table, segment.docCount()));
+        return loaded;
+    }
+
+    // ==================== 内部实现 ====================
+
+    private FacetSegment segment(String tableName) {
+        FacetSegment segment = segments.get(tableName);
+        if (segment != null) {
+            return segment;
+        }
+
+        Path file = segmentFile(tableName);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            segment = FacetSegment.open(file);
+        } catch (IOException e) {
+            System.err.println("打开维度列文件失败: " + file + " - " + e.getMessage());
+            return null;
+        }
+        FacetSegment existing = segments.putIfAbsent(tableName, segment);
+        return existing != null ? existing : segment;
+    }
+
+    private static List<String> tokenize(String keyword) {
+        Set<String> terms = new LinkedHashSet<>();
+        new TopicTermTokenizer().tokenize(keyword, (buf, offset, length) -> terms.add(new String(buf, offset, length)));
+        return new ArrayList<>(terms);
+    }
+
+    private long analyzeSegment(FacetSegment segment, List<String> queryTerms, AnalysisOptions options,
+                                SortedMap<String, DisciplinaryPartial> partials, FacetCounts counts) {
+        long[] bits = segment.matchAll(queryTerms);
+
+        // 按出版年分组（一个年份表中通常只有一个出版年）
+        FacetSegment.FacetColumn years = segment.column(FacetSegment.Facet.PUBYEAR);
+        IntArrayList[] docsByYear = new IntArrayList[years.dictionarySize()];
+        long matched = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                int doc = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                int start = years.start(doc);
+                if (start == years.end(doc)) {
+                    continue;
+                }
+                int yearId = years.id(start);
+                if (docsByYear[yearId] == null) {
+                    docsByYear[yearId] = new IntArrayList();
+                }
+                docsByYear[yearId].add(doc);
+                matched++;
+            }
+        }
+
+        for (int yearId = 0; yearId < docsByYear.length; yearId++) {
+            IntArrayList docs = docsByYear[yearId];
+            if (docs == null) {
+                continue;
+            }
+            DisciplinaryPartial partial = partials.computeIfAbsent(years.value(yearId),
+                    year -> disciplinaryAnalysis.createPartial(year, options));
+            partial.addPapers(docs.size());
+
+            counts.count(segment.column(FacetSegment.Facet.COUNTRY), docs,
+                    partial.getCountries().capacity(), partial::addCountryCount, partial.uniqueCountries());
+            counts.count(segment.column(FacetSegment.Facet.AUTHOR), docs,
+                    partial.getAuthors().capacity(), partial::addAuthorCount, partial.uniqueAuthors());
+            counts.count(segment.column(FacetSegment.Facet.INSTITUTION), docs,
+                    partial.getInstitutions().capacity(), partial::addInstitutionCount, null);
+            counts.count(segment.column(FacetSegment.Facet.JOURNAL), docs,
+                    partial.getJournals().capacity(), partial::addJournalCount, partial.uniqueJournals());
+            counts.count(segment.column(FacetSegment.Facet.KEYWORD), docs,
+                    partial.getKeywords().capacity(), partial::addKeywordCount, null);
+
+            if (partial.getKeywordCooccurrence() != null) {
+                countCooccurrence(segment.column(FacetSegment.Facet.KEYWORD), docs, partial.getKeywordCooccurrence());
+                countCooccurrence(segment.column(FacetSegment.Facet.COUNTRY), docs, partial.getCountryCooccurrence());
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 共现统计：列字典id按需翻译为共现统计的节点编号，每个字符串每个段只查找一次（节点剪枝后重新查找）
+     */
+    private static void countCooccurrence(FacetSegment.FacetColumn column, IntArrayList docs,
+                                          CooccurrenceCounter counter) {
+        int[] nodeIds = new int[column.dictionarySize()];
+        Arrays.fill(nodeIds, -1);
+
+        int generation = counter.nodeGeneration();
+        int[] docBuffer = docs.buffer();
+        for (int i = 0; i < docs.size(); i++) {
+            int doc = docBuffer[i];
+            int end = column.end(doc);
+            for (int p = column.start(doc); p < end; p++) {
+                int id = column.id(p);
+                if (nodeIds[id] < 0) {
+                    nodeIds[id] = counter.nodeId(column.value(id));
+                }
+                counter.addId(nodeIds[id]);
+            }
+            counter.endPaper();
+            // 共现统计剪掉节点后编号重新分配，已翻译的编号作废
+            if (counter.nodeGeneration() != generation) {
+                generation = counter.nodeGeneration();
+                Arrays.fill(nodeIds, -1);
+            }
+        }
+    }
+
+    /**
+     * 字典id计数器：int数组计数 + 记录被触及的id，统计完只清零触及的位置
+     * 非线程安全，每次分析使用独立实例
+     */
+    private static final class FacetCounts {
+        private int[] counts = new int[1024];
+        private final IntArrayList touched = new IntArrayList(1024);
+        private int[] heap = new int[64];
+
+        void count(FacetSegment.FacetColumn column, IntArrayList docs, int limit,
+                   ObjLongConsumer<String> target, CardinalityCounter unique) {
+            if (counts.length < column.dictionarySize()) {
+                counts = new int[Math.max(column.dictionarySize(), counts.length * 2)];
+            }
+
+            int[] docBuffer = docs.buffer();
+            for (int i = 0; i < docs.size(); i++) {
+                int doc = docBuffer[i];
+                int end = column.end(doc);
+                for (int p = column.start(doc); p < end; p++) {
+                    int id = column.id(p);
+                    if (counts[id]++ == 0) {
+                        touched.add(id);
+                    }
+                }
+            }
+
+            int[] ids = touched.buffer();
+            int n = touched.size();
+
+            // 去重计数：所有出现过的取值
+            if (unique != null) {
+                if (unique instanceof HyperLogLog) {
+                    HyperLogLog hll = (HyperLogLog) unique;
+                    for (int i = 0; i < n; i++) {
+                        hll.addHash(column.hash(ids[i]));
+                    }
+                } else {
+                    for (int i = 0; i < n; i++) {
+                        unique.add(column.value(ids[i]));
+                    }
+                }
+            }
+
+            // 先写入计数最高的limit项（先占据sketch的计数器，其余取值只替换计数最小的项），再写入其余取值。
+            // 所有取值都计入sketch，多个年份合并后每项的误差仍不超过 总数/容量
+            int selected = selectTop(ids, n, limit);
+            for (int i = 0; i < selected; i++) {
+                int id = heap[i];
+                target.accept(column.value(id), counts[id]);
+                counts[id] = 0;
+            }
+            if (selected < n) {
+                for (int i = 0; i < n; i++) {
+                    int id = ids[i];
+                    if (counts[id] > 0) {
+                        target.accept(column.value(id), counts[id]);
+                    }
+                }
+            }
+
+            for (int i = 0; i < n; i++) {
+                counts[ids[i]] = 0;
+            }
+            touched.clear();
+        }
+
+        /**
+         * 用大小为limit的最小堆选出计数最高的id，结果放在heap[0, 返回值)中
+         */
+        private int selectTop(int[] ids, int n, int limit) {
+            int k = Math.min(n, limit);
+            if (heap.length < k) {
+                heap = new int[k];
+            }
+            if (k == n) {
+                System.arraycopy(ids, 0, heap, 0, n);
+                return n;
+            }
+
+            int size = 0;
+            for (int i = 0; i < n; i++) {
+                int id = ids[i];
+                if (size < k) {
+                    heap[size] = id;
+                    siftUp(size++);
+                } else if (counts[id] > counts[heap[0]]) {
+                    heap[0] = id;
+                    siftDown(0, size);
+                }
+            }
+            return size;
+        }
+
+        private void siftUp(int i) {
+            int id = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (counts[heap[parent]] <= counts[id]) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = id;
+        }
+
+        private void siftDown(int i, int size) {
+            int id = heap[i];
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                    child++;
+                }
+                if (counts[id] <= counts[heap[child]]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = id;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.backend.service.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单个年份表（Wos_YYYY）的维度列文件，只读内存映射
+ *
+ * 文件由FacetSegmentWriter离线生成，包含：
+ * - 文档序号 ↔ wos_uid 映射（以及按uid排序的序号索引，用于反查）
+ * - 每个维度（出版年/国家/作者/机构/期刊/关键词）的字典和每篇文档的字典id列表（CSR格式）
+ * - 主题词项倒排表：文档频率高的词项存为位图，其余存为有序的文档序号数组
+ *
+ * 所有数据在映射的缓冲区中按绝对位置读取，实例可以被多个线程同时使用。
+ */
+public final class FacetSegment {
+
+    /**
+     * 维度列（顺序即文件中的存放顺序，不能调整）
+     */
+    public enum Facet {
+        PUBYEAR, COUNTRY, AUTHOR, INSTITUTION, JOURNAL, KEYWORD
+    }
+
+    static final int MAGIC = 0x57464354; // "WFCT"
+    static final int VERSION = 1;
+
+    // 段编号
+    static final int SEC_UID_OFFSETS = 0;
+    static final int SEC_UID_BYTES = 1;
+    static final int SEC_UID_SORTED = 2;
+    static final int SEC_FACET_BASE = 3;
+    // 每个维度的段：字典偏移、字典内容、字典哈希、文档偏移、文档id
+    static final int FACET_SECTIONS = 5;
+    static final int SEC_TERM_BASE = SEC_FACET_BASE + FACET_SECTIONS * Facet.values().length;
+    // 词项段：词项偏移、词项内容、文档频率、倒排偏移、倒排内容
+    static final int SECTION_COUNT = SEC_TERM_BASE + 5;
+    // 文件头：magic、version、docCount、sectionCount，之后每段(offset, length)
+    static final int HEADER_BYTES = 16 + SECTION_COUNT * 16;
+
+    private final Path file;
+    private final int docCount;
+    private final StringColumn uids;
+    private final IntBuffer uidSorted;
+    private final FacetColumn[] columns;
+    private final StringColumn terms;
+    private final IntBuffer termDf;
+    private final LongBuffer termPostOffsets;
+    private final ByteBuffer postings;
+
+    private FacetSegment(Path file, int docCount, MappedByteBuffer[] sections) {
+        this.file = file;
+        this.docCount = docCount;
+        this.uids = new StringColumn(sections[SEC_UID_OFFSETS].asIntBuffer(), sections[SEC_UID_BYTES]);
+        this.uidSorted = sections[SEC_UID_SORTED].asIntBuffer();
+
+        Facet[] facets = Facet.values();
+        this.columns = new FacetColumn[facets.length];
+        for (Facet facet : facets) {
+            int base = SEC_FACET_BASE + facet.ordinal() * FACET_SECTIONS;
+            columns[facet.ordinal()] = new FacetColumn(
+                    new StringColumn(sections[base].asIntBuffer(), sections[base + 1]),
+                    sections[base + 2].asLongBuffer(),
+                    sections[base + 3].asIntBuffer(),
+                    sections[base + 4].asIntBuffer());
+        }
+
+        this.terms = new StringColumn(sections[SEC_TERM_BASE].asIntBuffer(), sections[SEC_TERM_BASE + 1]);
+        this.termDf = sections[SEC_TERM_BASE + 2].asIntBuffer();
+        this.termPostOffsets = sections[SEC_TERM_BASE + 3].asLongBuffer();
+        this.postings = sections[SEC_TERM_BASE + 4];
+    }
+
+    /**
+     * 映射一个维度列文件，格式或版本不符时抛出IOException
+     */
+    public static FacetSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("维度列文件头不完整: " + file);
+                }
+            }
+            header.flip();
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("不是维度列文件: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("维度列文件版本不兼容: " + version + "（需要" + VERSION + "）: " + file);
+            }
+            int docCount = header.getInt();
+            int sectionCount = header.getInt();
+            if (sectionCount != SECTION_COUNT) {
+                throw new IOException("维度列文件段数量不符: " + sectionCount + ": " + file);
+            }
+
+            // 映射在通道关闭后仍然有效
+            MappedByteBuffer[] sections = new MappedByteBuffer[SECTION_COUNT];
+            for (int i = 0; i < SECTION_COUNT; i++) {
+                long offset = header.getLong();
+                long length = header.getLong();
+                if (length > Integer.MAX_VALUE || offset + length > channel.size()) {
+                    throw new IOException("维度列文件第" + i + "段越界: " + file);
+                }
+                sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            }
+            return new FacetSegment(file, docCount, sections);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int docCount() {
+        return docCount;
+    }
+
+    public String uid(int doc) {
+        return uids.get(doc);
+    }
+
+    /**
+     * 根据wos_uid反查文档序号，不存在时返回-1
+     */
+    public int ordinalOf(String uid) {
+        byte[] key = uid.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = docCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int doc = uidSorted.get(mid);
+            int cmp = uids.compare(doc, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return doc;
+            }
+        }
+        return -1;
+    }
+
+    public FacetColumn column(Facet facet) {
+        return columns[facet.ordinal()];
+    }
+
+    /**
+     * 同时包含所有词项的文档位图（第i位对应文档序号i）
+     * 任一词项不存在时返回全0位图；terms为空时返回null
+     */
+    public long[] matchAll(List<String> queryTerms) {
+        if (queryTerms.isEmpty()) {
+            return null;
+        }
+
+        // 按文档频率从低到高求交，尽早得到小结果
+        int[] termIds = new int[queryTerms.size()];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = findTerm(queryTerms.get(i));
+            if (termIds[i] < 0) {
+                return new long[words(docCount)];
+            }
+        }
+        Integer[] order = new Integer[termIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = termIds[i];
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(termDf.get(a), termDf.get(b)));
+
+        long[] result = new long[words(docCount)];
+        long[] scratch = order.length > 1 ? new long[result.length] : null;
+        loadPostings(order[0], result);
+        for (int i = 1; i < order.length; i++) {
+            Arrays.fill(scratch, 0L);
+            loadPostings(order[i], scratch);
+            boolean any = false;
+            for (int w = 0; w < result.length; w++) {
+                result[w] &= scratch[w];
+                any |= result[w] != 0;
+            }
+            if (!any) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 词项的文档频率，不存在时返回0
+     */
+    public int documentFrequency(String term) {
+        int id = findTerm(term);
+        return id < 0 ? 0 : termDf.get(id);
+    }
+
+    private int findTerm(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = terms.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = terms.compare(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private void loadPostings(int termId, long[] bits) {
+        int df = termDf.get(termId);
+        int offset = (int) termPostOffsets.get(termId);
+        if (isBitmap(df, docCount)) {
+            for (int w = 0; w < bits.length; w++) {
+                bits[w] |= postings.getLong(offset + w * 8);
+            }
+        } else {
+            for (int i = 0; i < df; i++) {
+                int doc = postings.getInt(offset + i * 4);
+                bits[doc >>> 6] |= 1L << doc;
+            }
+        }
+    }
+
+    /**
+     * 文档频率不低于文档数的1/32时使用位图存储（位图不大于有序数组）
+     */
+    static boolean isBitmap(int df, int docCount) {
+        return (long) df * 32 >= docCount && docCount > 0;
+    }
+
+    static int words(int docCount) {
+        return (docCount + 63) >>> 6;
+    }
+
+    // ==================== 列视图 ====================
+
+    /**
+     * UTF-8字符串数组：偏移表(size+1个int) + 内容
+     */
+    static final class StringColumn {
+        private final IntBuffer offsets;
+        private final ByteBuffer bytes;
+
+        StringColumn(IntBuffer offsets, ByteBuffer bytes) {
+            this.offsets = offsets;
+            this.bytes = bytes;
+        }
+
+        int size() {
+            return offsets.limit() - 1;
+        }
+
+        String get(int index) {
+            int start = offsets.get(index);
+            byte[] value = new byte[offsets.get(index + 1) - start];
+            bytes.get(start, value);
+            return new String(value, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 按无符号字节序比较第index个字符串与key
+         */
+        int compare(int index, byte[] key) {
+            int start = offsets.get(index);
+            int len = offsets.get(index + 1) - start;
+            int n = Math.min(len, key.length);
+            for (int i = 0; i < n; i++) {
+                int cmp = Integer.compare(bytes.get(start + i) & 0xff, key[i] & 0xff);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(len, key.length);
+        }
+    }
+
+    /**
+     * 一个维度的字典及每篇文档的字典id列表
+     */
+    public static final class FacetColumn {
+        private final StringColumn dictionary;
+        private final LongBuffer hashes;
+        private final IntBuffer docOffsets;
+        private final IntBuffer ids;
+
+        FacetColumn(StringColumn dictionary, LongBuffer hashes, IntBuffer docOffsets, IntBuffer ids) {
+            this.dictionary = dictionary;
+            this.hashes = hashes;
+            this.docOffsets = docOffsets;
+            this.ids = ids;
+        }
+
+        public int dictionarySize() {
+            return dictionary.size();
+        }
+
+        public String value(int id) {
+            return dictionary.get(id);
+        }
+
+        /**
+         * 取值的64位哈希，与HyperLogLog.hash64(value(id))相同
+         */
+        public long hash(int id) {
+            return hashes.get(id);
+        }
+
+        /**
+         * 文档的字典id位于[start(doc), end(doc))
+         */
+        public int start(int doc) {
+            return docOffsets.get(doc);
+        }
+
+        public int end(int doc) {
+            return docOffsets.get(doc + 1);
+        }
+
+        public int id(int position) {
+            return ids.get(position);
+        }
+    }
+}
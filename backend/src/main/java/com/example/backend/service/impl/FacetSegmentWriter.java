@@ -0,0 +1,364 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.model.main2022;
+import com.example.backend.util.HyperLogLog;
+import com.example.backend.util.IntArrayList;
+import com.example.backend.util.TopicTermTokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * 维度列文件的构建器：逐篇接收论文，最后一次性写出FacetSegment格式的文件
+ *
+ * 维度提取使用PaperFacetExtractor，与在线学科分析的规则完全相同；
+ * 主题词项来自keyword、article_title、subject_extended三个字段（即Topic检索的字段）。
+ * 整个年份表的字典和倒排表都在内存中累积，非线程安全。
+ */
+final class FacetSegmentWriter {
+
+    private final List<String> uids = new ArrayList<>();
+    private final FacetAccumulator[] facets = new FacetAccumulator[FacetSegment.Facet.values().length];
+    private final Map<String, IntArrayList> postings = new HashMap<>();
+
+    private final PaperFacetExtractor extractor = new PaperFacetExtractor();
+    private final TopicTermTokenizer termTokenizer = new TopicTermTokenizer();
+    private final PaperFacetExtractor.Sink sink;
+
+    FacetSegmentWriter() {
+        for (int i = 0; i < facets.length; i++) {
+            facets[i] = new FacetAccumulator();
+        }
+        sink = new PaperFacetExtractor.Sink() {
+            @Override
+            public void country(String country) {
+                facet(FacetSegment.Facet.COUNTRY).add(country);
+            }
+
+            @Override
+            public void author(char[] buf, int offset, int length) {
+                facet(FacetSegment.Facet.AUTHOR).add(new String(buf, offset, length));
+            }
+
+            @Override
+            public void institution(String institution) {
+                facet(FacetSegment.Facet.INSTITUTION).add(institution);
+            }
+
+            @Override
+            public void journal(String journal) {
+                facet(FacetSegment.Facet.JOURNAL).add(journal);
+            }
+
+            @Override
+            public void keyword(char[] buf, int offset, int length) {
+                facet(FacetSegment.Facet.KEYWORD).add(new String(buf, offset, length));
+            }
+        };
+    }
+
+    /**
+     * 追加一篇论文，文档序号按追加顺序分配
+     */
+    void add(main2022 paper) {
+        int doc = uids.size();
+        uids.add(paper.getWos_uid() != null ? paper.getWos_uid() : "");
+
+        // 与学科分析查询一致：出版年为空的论文不参与按年份统计
+        String pubyear = paper.getPubyear();
+        if (pubyear != null && !pubyear.trim().isEmpty()) {
+            facet(FacetSegment.Facet.PUBYEAR).add(pubyear);
+        }
+        extractor.extract(paper, sink);
+
+        // 主题词项，同一篇文档中重复的词项只记录一次
+        addTerms(paper.getKeyword(), doc);
+        addTerms(paper.getArticle_title(), doc);
+        addTerms(paper.getSubject_extended(), doc);
+
+        for (FacetAccumulator facet : facets) {
+            facet.endDocument();
+        }
+    }
+
+    int docCount() {
+        return uids.size();
+    }
+
+    private FacetAccumulator facet(FacetSegment.Facet facet) {
+        return facets[facet.ordinal()];
+    }
+
+    private void addTerms(String text, int doc) {
+        termTokenizer.tokenize(text, (buf, offset, length) -> {
+            IntArrayList list = postings.computeIfAbsent(new String(buf, offset, length), k -> new IntArrayList(4));
+            if (list.last(-1) != doc) {
+                list.add(doc);
+            }
+        });
+    }
+
+    // ==================== 写出 ====================
+
+    /**
+     * 按FacetSegment格式写出到file（调用方负责写入临时文件后再原子替换）
+     */
+    void write(Path file) throws IOException {
+        int docCount = uids.size();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SectionOutput out = new SectionOutput(channel);
+            long[] sections = new long[FacetSegment.SECTION_COUNT * 2];
+
+            // 文档序号 ↔ wos_uid
+            byte[][] uidBytes = encodeAll(uids);
+            writeStrings(out, sections, FacetSegment.SEC_UID_OFFSETS, uidBytes);
+            Integer[] sorted = sortedOrder(uidBytes);
+            out.begin();
+            for (Integer doc : sorted) {
+                out.putInt(doc);
+            }
+            out.end(sections, FacetSegment.SEC_UID_SORTED);
+
+            // 各维度字典及CSR
+            for (FacetSegment.Facet facet : FacetSegment.Facet.values()) {
+                FacetAccumulator acc = facets[facet.ordinal()];
+                int base = FacetSegment.SEC_FACET_BASE + facet.ordinal() * FacetSegment.FACET_SECTIONS;
+                writeStrings(out, sections, base, encodeAll(acc.values));
+
+                out.begin();
+                for (String value : acc.values) {
+                    out.putLong(HyperLogLog.hash64(value));
+                }
+                out.end(sections, base + 2);
+
+                writeInts(out, sections, base + 3, acc.docOffsets);
+                writeInts(out, sections, base + 4, acc.docIds);
+            }
+
+            // 主题词项：字典按UTF-8字节序排序，便于在映射文件中二分查找
+            List<Map.Entry<String, IntArrayList>> entries = new ArrayList<>(postings.entrySet());
+            byte[][] termBytes = new byte[entries.size()][];
+            for (int i = 0; i < termBytes.length; i++) {
+                termBytes[i] = entries.get(i).getKey().getBytes(StandardCharsets.UTF_8);
+            }
+            Integer[] termOrder = sortedOrder(termBytes);
+            byte[][] sortedTerms = new byte[termOrder.length][];
+            for (int i = 0; i < termOrder.length; i++) {
+                sortedTerms[i] = termBytes[termOrder[i]];
+            }
+            writeStrings(out, sections, FacetSegment.SEC_TERM_BASE, sortedTerms);
+
+            out.begin();
+            for (Integer index : termOrder) {
+                out.putInt(entries.get(index).getValue().size());
+            }
+            out.end(sections, FacetSegment.SEC_TERM_BASE + 2);
+
+            // 倒排内容，同时记录每个词项的偏移
+            long[] postOffsets = new long[termOrder.length];
+            int words = FacetSegment.words(docCount);
+            out.begin();
+            long postingsStart = out.position();
+            long[] bitmap = new long[words];
+            for (int i = 0; i < termOrder.length; i++) {
+                IntArrayList docs = entries.get(termOrder[i]).getValue();
+                postOffsets[i] = out.position() - postingsStart;
+                if (FacetSegment.isBitmap(docs.size(), docCount)) {
+                    Arrays.fill(bitmap, 0L);
+                    int[] buffer = docs.buffer();
+                    for (int j = 0; j < docs.size(); j++) {
+                        bitmap[buffer[j] >>> 6] |= 1L << buffer[j];
+                    }
+                    for (long word : bitmap) {
+                        out.putLong(word);
+                    }
+                } else {
+                    int[] buffer = docs.buffer();
+                    for (int j = 0; j < docs.size(); j++) {
+                        out.putInt(buffer[j]);
+                    }
+                    // 保持后续位图按8字节对齐
+                    out.align();
+                }
+            }
+            out.end(sections, FacetSegment.SEC_TERM_BASE + 4);
+
+            out.begin();
+            for (long offset : postOffsets) {
+                out.putLong(offset);
+            }
+            out.end(sections, FacetSegment.SEC_TERM_BASE + 3);
+
+            out.flush();
+
+            // 回写文件头
+            ByteBuffer header = ByteBuffer.allocate(FacetSegment.HEADER_BYTES);
+            header.putInt(FacetSegment.MAGIC);
+            header.putInt(FacetSegment.VERSION);
+            header.putInt(docCount);
+            header.putInt(FacetSegment.SECTION_COUNT);
+            for (long value : sections) {
+                header.putLong(value);
+            }
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+            channel.force(true);
+        }
+    }
+
+    private static void writeStrings(SectionOutput out, long[] sections, int offsetSection, byte[][] values) throws IOException {
+        out.begin();
+        long total = 0;
+        out.putInt(0);
+        for (byte[] value : values) {
+            total += value.length;
+            if (total > Integer.MAX_VALUE) {
+                throw new IOException("字典内容超过2GB，无法写入单个段");
+            }
+            out.putInt((int) total);
+        }
+        out.end(sections, offsetSection);
+
+        out.begin();
+        for (byte[] value : values) {
+            out.put(value);
+        }
+        out.end(sections, offsetSection + 1);
+    }
+
+    private static void writeInts(SectionOutput out, long[] sections, int section, IntArrayList values) throws IOException {
+        out.begin();
+        int[] buffer = values.buffer();
+        for (int i = 0; i < values.size(); i++) {
+            out.putInt(buffer[i]);
+        }
+        out.end(sections, section);
+    }
+
+    private static byte[][] encodeAll(List<String> values) {
+        byte[][] encoded = new byte[values.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static Integer[] sortedOrder(byte[][] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(values[a], values[b]));
+        return order;
+    }
+
+    /**
+     * 单个维度的累积状态：字典（按首次出现顺序分配id）+ CSR文档列表
+     */
+    private static final class FacetAccumulator {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final IntArrayList docOffsets = new IntArrayList();
+        private final IntArrayList docIds = new IntArrayList();
+
+        FacetAccumulator() {
+            docOffsets.add(0);
+        }
+
+        void add(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            docIds.add(id);
+        }
+
+        void endDocument() {
+            docOffsets.add(docIds.size());
+        }
+    }
+
+    /**
+     * 带缓冲的顺序写出，记录每段的偏移和长度，段起始位置按8字节对齐
+     */
+    private static final class SectionOutput {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private long written = FacetSegment.HEADER_BYTES;
+        private long sectionStart;
+
+        SectionOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return written + buffer.position();
+        }
+
+        void begin() throws IOException {
+            align();
+            sectionStart = position();
+        }
+
+        void end(long[] sections, int section) throws IOException {
+            long length = position() - sectionStart;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("维度列文件第" + section + "段超过2GB");
+            }
+            sections[section * 2] = sectionStart;
+            sections[section * 2 + 1] = length;
+        }
+
+        void align() throws IOException {
+            while ((position() & 7) != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void put(byte[] value) throws IOException {
+            int offset = 0;
+            while (offset < value.length) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), value.length - offset);
+                buffer.put(value, offset, n);
+                offset += n;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer, written);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
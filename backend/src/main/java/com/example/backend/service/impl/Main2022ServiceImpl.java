@@ -4,18 +4,27 @@ import com.example.backend.config.SearchFilter;
 import com.example.backend.mapper.Main2022Mapper;
 import com.example.backend.model.main2022;
 import com.example.backend.service.Main2022Service;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 @Service
 public class Main2022ServiceImpl implements Main2022Service {
 
     private final Main2022Mapper main2022Mapper;
     private final TableSelectorService tableSelectorService;
+    private final TransactionTemplate transactionTemplate;
+    private final WosMetrics metrics;
+    private final SideTableBuilder sideTableBuilder;
 
     // 默认年份设置
     private static final int DEFAULT_YEAR = 2020;
@@ -23,9 +32,16 @@ public class Main2022ServiceImpl implements Main2022Service {
     private static final int MAX_YEAR = 2020;
 
     @Autowired
-    public Main2022ServiceImpl(Main2022Mapper main2022Mapper, TableSelectorService tableSelectorService) {
+    public Main2022ServiceImpl(Main2022Mapper main2022Mapper, TableSelectorService tableSelectorService,
+                               PlatformTransactionManager transactionManager, WosMetrics metrics,
+                               SideTableBuilder sideTableBuilder) {
         this.main2022Mapper = main2022Mapper;
+        this.sideTableBuilder = sideTableBuilder;
         this.tableSelectorService = tableSelectorService;
+        this.metrics = metrics;
+        // 游标需要在同一个连接/事务中读取
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
     }
 
     // ==================== 新增：单条记录精确查询方法 ====================
@@ -58,6 +74,7 @@ public class Main2022ServiceImpl implements Main2022Service {
                             "找到文献 - 表: %s, 查询时间: %dms, 搜索了%d个表, 总耗时: %dms",
                             tableName, queryTime, tablesSearched, totalTime
                     ));
+                    metrics.recordLookup("wos_uid", tablesSearched, true);
                     return result;
                 }
             } catch (Exception e) {
@@ -67,6 +84,7 @@ public class Main2022ServiceImpl implements Main2022Service {
         }
 
         System.out.println("未找到文献，搜索了" + tablesSearched + "个表");
+        metrics.recordLookup("wos_uid", tablesSearched, false);
         return null;
     }
 
@@ -97,6 +115,7 @@ public class Main2022ServiceImpl implements Main2022Service {
                             "通过标题找到文献 - 表: %s, 搜索了%d个表, 总耗时: %dms",
                             tableName, tablesSearched, totalTime
                     ));
+                    metrics.recordLookup(exactMatch ? "title_exact" : "title_like", tablesSearched, true);
                     return result;
                 }
             } catch (Exception e) {
@@ -105,6 +124,7 @@ public class Main2022ServiceImpl implements Main2022Service {
         }
 
         System.out.println("未通过标题找到文献，搜索了" + tablesSearched + "个表");
+        metrics.recordLookup(exactMatch ? "title_exact" : "title_like", tablesSearched, false);
         return null;
     }
 
@@ -118,9 +138,11 @@ public class Main2022ServiceImpl implements Main2022Service {
 
         List<main2022> results = new ArrayList<>();
         List<String> remainingIds = new ArrayList<>(wosUids);
+        int tablesSearched = 0;
 
         for (int year = MAX_YEAR; year >= MIN_YEAR && !remainingIds.isEmpty(); year--) {
             String tableName = "Wos_" + year;
+            tablesSearched++;
 
             try {
                 List<main2022> found = main2022Mapper.findByWosUidsInTable(tableName, remainingIds);
@@ -144,6 +166,7 @@ public class Main2022ServiceImpl implements Main2022Service {
         }
 
         System.out.println("批量查询完成，找到 " + results.size() + "/" + wosUids.size() + " 条记录");
+        metrics.recordLookup("wos_uids", tablesSearched, remainingIds.isEmpty());
         return results;
     }
 
@@ -168,7 +191,8 @@ public class Main2022ServiceImpl implements Main2022Service {
             }
 
             System.out.println("高级搜索 - 查询表: " + tableNames);
-            return main2022Mapper.advancedSearchMultiTable(processedFilters, tableNames);
+            return main2022Mapper.advancedSearchMultiTable(processedFilters, tableNames,
+                    sideTableBuilder.authorSideTables());
         } catch (Exception e) {
             System.err.println("多表高级搜索失败: " + e.getMessage());
             return new ArrayList<>();
@@ -215,7 +239,8 @@ public class Main2022ServiceImpl implements Main2022Service {
                 // 使用单表查询
                 List<main2022> results = main2022Mapper.advancedSearchMultiTable(
                         filters,
-                        List.of(tableName)
+                        List.of(tableName),
+                        sideTableBuilder.authorSideTables()
                 );
 
                 if (!results.isEmpty()) {
@@ -252,7 +277,8 @@ public class Main2022ServiceImpl implements Main2022Service {
                 tableNames = List.of("Wos_" + DEFAULT_YEAR);
             }
 
-            return main2022Mapper.advancedSearchAllMultiTable(processedFilters, tableNames);
+            return main2022Mapper.advancedSearchAllMultiTable(processedFilters, tableNames,
+                    sideTableBuilder.authorSideTables());
         } catch (Exception e) {
             System.err.println("多表全量搜索失败: " + e.getMessage());
             return new ArrayList<>();
@@ -273,7 +299,8 @@ public class Main2022ServiceImpl implements Main2022Service {
             try {
                 List<main2022> results = main2022Mapper.advancedSearchAllMultiTable(
                         filters,
-                        List.of(tableName)
+                        List.of(tableName),
+                        sideTableBuilder.authorSideTables()
                 );
 
                 if (!results.isEmpty()) {
@@ -336,13 +363,7 @@ public class Main2022ServiceImpl implements Main2022Service {
             System.out.println("学科分析查询完成，获得 " + allData.size() + " 条记录");
 
             // 按年份分组
-            Map<String, List<main2022>> groupedData = allData.stream()
-                    .filter(paper -> paper.getPubyear() != null && !paper.getPubyear().trim().isEmpty())
-                    .collect(Collectors.groupingBy(
-                            paper -> paper.getPubyear(),
-                            TreeMap::new,
-                            Collectors.toList()
-                    ));
+            Map<String, List<main2022>> groupedData = groupByPubyear(allData);
 
             System.out.println("按年份分组结果: " + groupedData.keySet());
             groupedData.forEach((year, papers) ->
@@ -357,6 +378,52 @@ public class Main2022ServiceImpl implements Main2022Service {
         }
     }
 
+    /**
+     * 学科分析单表查询：只查询一个年份表，结果按出版年分组（用于按表缓存部分结果）
+     * 查询失败时抛出异常，避免把失败结果当作空结果缓存
+     */
+    public Map<String, List<main2022>> disciplinaryAnalysisSearchTable(String keyword, String tableName) {
+        List<main2022> tableData = main2022Mapper.disciplinaryAnalysisSearchMultiTable(
+                buildDisciplinaryAnalysisFilters(keyword), List.of(tableName));
+        if (tableData == null || tableData.isEmpty()) {
+            return new TreeMap<>();
+        }
+        return groupByPubyear(tableData);
+    }
+
+    /**
+     * 学科分析抽样统计：sampled_rows（抽到的行数）、sampled_matches（其中满足条件的行数）、total_rows（表总行数）
+     */
+    public Map<String, Object> disciplinarySampleStats(String keyword, String tableName, double samplePercent, int seed) {
+        return main2022Mapper.disciplinarySampleStats(buildDisciplinaryAnalysisFilters(keyword), tableName, samplePercent, seed);
+    }
+
+    /**
+     * 学科分析抽样查询，按出版年分组；与disciplinarySampleStats使用相同的比例和种子时抽样范围一致
+     */
+    public Map<String, List<main2022>> disciplinaryAnalysisSampleTable(String keyword, String tableName,
+                                                                        double samplePercent, int seed) {
+        List<main2022> tableData = main2022Mapper.disciplinaryAnalysisSampleTable(
+                buildDisciplinaryAnalysisFilters(keyword), tableName, samplePercent, seed);
+        if (tableData == null || tableData.isEmpty()) {
+            return new TreeMap<>();
+        }
+        return groupByPubyear(tableData);
+    }
+
+    /**
+     * 按出版年分组（忽略出版年为空的记录）
+     */
+    private Map<String, List<main2022>> groupByPubyear(List<main2022> papers) {
+        return papers.stream()
+                .filter(paper -> paper.getPubyear() != null && !paper.getPubyear().trim().isEmpty())
+                .collect(Collectors.groupingBy(
+                        paper -> paper.getPubyear(),
+                        TreeMap::new,
+                        Collectors.toList()
+                ));
+    }
+
     /**
      * 构建学科分析的搜索条件
      */
@@ -391,7 +458,8 @@ public class Main2022ServiceImpl implements Main2022Service {
                 tableNames = List.of("Wos_" + DEFAULT_YEAR);
             }
 
-            return main2022Mapper.countAdvancedSearchMultiTable(processedFilters, tableNames);
+            return main2022Mapper.countAdvancedSearchMultiTable(processedFilters, tableNames,
+                    sideTableBuilder.authorSideTables());
         } catch (Exception e) {
             System.err.println("计算数量失败: " + e.getMessage());
             return 0;
@@ -410,7 +478,8 @@ public class Main2022ServiceImpl implements Main2022Service {
             try {
                 int count = main2022Mapper.countAdvancedSearchMultiTable(
                         filters,
-                        List.of(tableName)
+                        List.of(tableName),
+                        sideTableBuilder.authorSideTables()
                 );
                 totalCount += count;
 
@@ -452,7 +521,8 @@ public class Main2022ServiceImpl implements Main2022Service {
                 progressCallback.accept(0, 1);
             }
 
-            List<main2022> allData = main2022Mapper.advancedSearchAllMultiTable(processedFilters, tableNames);
+            List<main2022> allData = main2022Mapper.advancedSearchAllMultiTable(processedFilters, tableNames,
+                    sideTableBuilder.authorSideTables());
 
             if (allData == null) {
                 allData = new ArrayList<>();
@@ -473,6 +543,106 @@ public class Main2022ServiceImpl implements Main2022Service {
         }
     }
 
+    @Override
+    public long streamAdvancedSearch(List<SearchFilter> filters, List<String> columns,
+                                     PaperConsumer consumer) throws IOException {
+        List<String> tableNames = exportTables(filters);
+        if (tableNames.isEmpty()) {
+            return 0;
+        }
+
+        // 与advancedSearchAllWithProgress一致：多表搜索逐表读取，否则一次UNION ALL查询
+        if (shouldUseMultiTableSearch(filters)) {
+            long total = 0;
+            for (String tableName : tableNames) {
+                total += streamAdvancedSearchTable(filters, tableName, columns, consumer);
+            }
+            return total;
+        }
+        return streamTables(addDefaultYearIfNeeded(filters), tableNames, columns, consumer);
+    }
+
+    @Override
+    public List<String> exportTables(List<SearchFilter> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (shouldUseMultiTableSearch(filters)) {
+            List<String> tableNames = new ArrayList<>();
+            for (int year = MAX_YEAR; year >= MIN_YEAR; year--) {
+                tableNames.add("Wos_" + year);
+            }
+            return tableNames;
+        }
+        List<String> tableNames = new ArrayList<>(
+                tableSelectorService.determineTablesFromFilters(addDefaultYearIfNeeded(filters)));
+        if (tableNames.isEmpty()) {
+            return List.of("Wos_" + DEFAULT_YEAR);
+        }
+        // 年份来自HashSet，顺序不确定；与多表搜索一样按从新到旧排序，
+        // 顺序导出与分片并行导出（concat拼接、zip条目）的表顺序一致，同一请求的导出文件每次相同
+        tableNames.sort(Comparator.reverseOrder());
+        return tableNames;
+    }
+
+    @Override
+    public long streamAdvancedSearchTable(List<SearchFilter> filters, String tableName, List<String> columns,
+                                          PaperConsumer consumer) throws IOException {
+        if (!shouldUseMultiTableSearch(filters)) {
+            return streamTables(addDefaultYearIfNeeded(filters), List.of(tableName), columns, consumer);
+        }
+        // 多表搜索遍历所有年份，缺少的年份表在读取前跳过；读取中的其他错误直接抛出，
+        // 否则导出文件会悄悄缺少一部分数据（已写出的行也无法撤回）
+        if (!main2022Mapper.tableExists(tableName)) {
+            System.out.println("年份表 " + tableName + " 不存在，跳过");
+            return 0;
+        }
+        return streamTables(filters, List.of(tableName), columns, consumer);
+    }
+
+    @Override
+    public long streamAdvancedSearchByYearRange(List<SearchFilter> filters, int startYear, int endYear,
+                                                PaperConsumer consumer) throws IOException {
+        List<String> tableNames = tableSelectorService.determineTablesByYearRange(startYear, endYear);
+        if (tableNames.isEmpty()) {
+            System.out.println("指定年份范围内没有可查询的表");
+            return 0;
+        }
+        System.out.println("按年份范围流式查询 - 年份: " + startYear + "-" + endYear + ", 查询表: " + tableNames);
+        return streamTables(filters, tableNames, null, consumer);
+    }
+
+    @Override
+    public long streamTable(String tableName, PaperConsumer consumer) throws IOException {
+        return streamCursor(() -> main2022Mapper.scanTable(tableName), consumer);
+    }
+
+    private long streamTables(List<SearchFilter> filters, List<String> tableNames, List<String> columns,
+                              PaperConsumer consumer) throws IOException {
+        return streamCursor(() -> main2022Mapper.advancedSearchCursorMultiTable(filters, tableNames, columns,
+                sideTableBuilder.authorSideTables()), consumer);
+    }
+
+    private long streamCursor(Supplier<Cursor<main2022>> query, PaperConsumer consumer) throws IOException {
+        try {
+            Long count = transactionTemplate.execute(status -> {
+                long rows = 0;
+                try (Cursor<main2022> cursor = query.get()) {
+                    for (main2022 paper : cursor) {
+                        consumer.accept(paper);
+                        rows++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return rows;
+            });
+            return count != null ? count : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
     /**
      * 在所有表中搜索（带进度回调）
      */
@@ -493,7 +663,8 @@ public class Main2022ServiceImpl implements Main2022Service {
             try {
                 List<main2022> results = main2022Mapper.advancedSearchAllMultiTable(
                         filters,
-                        List.of(tableName)
+                        List.of(tableName),
+                        sideTableBuilder.authorSideTables()
                 );
 
                 if (!results.isEmpty()) {
@@ -566,7 +737,7 @@ public class Main2022ServiceImpl implements Main2022Service {
             }
 
             System.out.println("按年份范围查询 - 年份: " + startYear + "-" + endYear + ", 查询表: " + tableNames);
-            return main2022Mapper.advancedSearchAllMultiTable(filters, tableNames);
+            return main2022Mapper.advancedSearchAllMultiTable(filters, tableNames, sideTableBuilder.authorSideTables());
 
         } catch (Exception e) {
             System.err.println("按年份范围查询失败: " + e.getMessage());
@@ -0,0 +1,376 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.model.main2022;
+import com.example.backend.util.AuthorTokenizer;
+import com.example.backend.util.KeywordTokenizer;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 论文维度提取器：从一篇论文中提取国家、作者、机构、期刊和关键词
+ * 学科分析、维度列文件构建等都使用同一套规范化规则。
+ * 内部复用分词器缓冲区，非线程安全，每个线程（或每次遍历）使用独立实例。
+ */
+public class PaperFacetExtractor {
+
+    /**
+     * 提取结果回调
+     * 作者和关键词以字符区间给出，内容只在回调期间有效
+     */
+    public interface Sink {
+        void country(String country);
+
+        void author(char[] buf, int offset, int length);
+
+        void institution(String institution);
+
+        void journal(String journal);
+
+        void keyword(char[] buf, int offset, int length);
+    }
+
+    // 常见国家名称映射
+    private static final Map<String, String> COUNTRY_MAPPINGS = buildCountryMappings();
+
+    // 机构关键词（备用提取方法使用）
+    private static final List<Pattern> INSTITUTION_KEYWORD_PATTERNS = Arrays.stream(new String[]{
+                    "University", "Univ", "Institute", "Inst", "Laboratory", "Lab",
+                    "College", "Coll", "Hospital", "Hosp", "School", "Academy",
+                    "Center", "Centre", "Department", "Faculty", "Research"
+            })
+            .map(keyword -> Pattern.compile(
+                    "([^,;\\[\\]]{0,50}" + Pattern.quote(keyword) + "[^,;\\[\\]]{0,30})",
+                    Pattern.CASE_INSENSITIVE))
+            .collect(Collectors.toList());
+
+    private final AuthorTokenizer authorTokenizer = new AuthorTokenizer();
+    private final KeywordTokenizer keywordTokenizer = new KeywordTokenizer();
+    private final Set<String> countries = new HashSet<>();
+
+    /**
+     * 提取一篇论文的所有维度
+     */
+    public void extract(main2022 paper, Sink sink) {
+        // 1. 国家：address和reprint_address中出现的国家，每篇论文每个国家只计一次
+        countries.clear();
+        countries.addAll(extractCountriesFromAddress(paper.getAddress()));
+        countries.addAll(extractCountriesFromAddress(paper.getReprint_address()));
+        for (String country : countries) {
+            sink.country(country);
+        }
+
+        // 2. 作者：字符级分词，同一篇论文中的重复作者只计一次
+        authorTokenizer.tokenize(paper.getAuthor_fullname(), sink::author);
+
+        // 3. 机构：优先从address提取，没有找到时再尝试reprint_address
+        Set<String> institutions = extractInstitutionsImproved(paper.getAddress());
+        if (institutions.isEmpty()) {
+            institutions = extractInstitutionsImproved(paper.getReprint_address());
+        }
+        for (String institution : institutions) {
+            // 过滤掉明显不是机构的条目（比如以方括号开头的作者标记）
+            if (!institution.isEmpty() && !institution.startsWith("[") && containsInstitutionKeyword(institution)) {
+                sink.institution(institution);
+            }
+        }
+
+        // 4. 期刊
+        String journal = paper.getJournal_title_source();
+        if (!KeywordTokenizer.isBlank(journal)) {
+            sink.journal(journal.trim());
+        }
+
+        // 5. 关键词：依次尝试keyword、keyword_plus、subject_extended字段
+        keywordTokenizer.tokenize(selectKeywordField(paper), sink::keyword);
+    }
+
+    /**
+     * 选择关键词字段：keyword为空时使用keyword_plus，再为空时使用subject_extended
+     */
+    public static String selectKeywordField(main2022 paper) {
+        String keywordStr = paper.getKeyword();
+        if (KeywordTokenizer.isBlank(keywordStr)) {
+            keywordStr = paper.getKeyword_plus();
+        }
+        if (KeywordTokenizer.isBlank(keywordStr)) {
+            keywordStr = paper.getSubject_extended();
+        }
+        return keywordStr;
+    }
+
+    /**
+     * 从地址中提取国家信息（支持多个国家）
+     */
+    public static Set<String> extractCountriesFromAddress(String address) {
+        Set<String> countries = new HashSet<>();
+        if (address == null || address.trim().isEmpty()) {
+            return countries;
+        }
+
+        // 分割地址，可能包含多个机构
+        String[] parts = address.split(";");
+        for (String part : parts) {
+            // 通常国家在最后，用逗号分隔
+            String[] subParts = part.split(",");
+            if (subParts.length > 0) {
+                String lastPart = subParts[subParts.length - 1].trim().toUpperCase();
+
+                // 清理并标准化国家名称
+                String country = matchCountry(lastPart, COUNTRY_MAPPINGS);
+                if (country != null && !country.isEmpty()) {
+                    countries.add(country);
+                }
+            }
+        }
+
+        return countries;
+    }
+
+    /**
+     * 匹配并标准化国家名称
+     */
+    private static String matchCountry(String text, Map<String, String> countryMappings) {
+        if (text == null || text.isEmpty()) return null;
+
+        // 移除方括号内容
+        text = text.replaceAll("\\[.*?\\]", "").trim();
+        // 移除邮政编码
+        text = text.replaceAll("\\d{5,}", "").trim();
+        // 移除多余的符号
+        text = text.replaceAll("[\\[\\]()]", "").trim();
+
+        // 直接匹配
+        if (countryMappings.containsKey(text)) {
+            return countryMappings.get(text);
+        }
+
+        // 部分匹配
+        for (Map.Entry<String, String> entry : countryMappings.entrySet()) {
+            if (text.contains(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+
+        // 如果没有匹配到但看起来像国家名称，返回清理后的版本
+        String cleaned = cleanCountryName(text);
+        if (cleaned != null && cleaned.length() > 2 && !cleaned.matches(".*\\d.*")) {
+            // 首字母大写
+            return Arrays.stream(cleaned.toLowerCase().split("\\s+"))
+                    .map(word -> word.substring(0, 1).toUpperCase() + word.substring(1))
+                    .collect(Collectors.joining(" "));
+        }
+
+        return null;
+    }
+
+    /**
+     * 获取国家映射表
+     */
+    private static Map<String, String> buildCountryMappings() {
+        Map<String, String> countryMappings = new HashMap<>();
+        countryMappings.put("USA", "United States");
+        countryMappings.put("US", "United States");
+        countryMappings.put("UNITED STATES", "United States");
+        countryMappings.put("UK", "United Kingdom");
+        countryMappings.put("ENGLAND", "United Kingdom");
+        countryMappings.put("BRITAIN", "United Kingdom");
+        countryMappings.put("SCOTLAND", "United Kingdom");
+        countryMappings.put("WALES", "United Kingdom");
+        countryMappings.put("CHINA", "China");
+        countryMappings.put("PEOPLES R CHINA", "China");
+        countryMappings.put("P R CHINA", "China");
+        countryMappings.put("PRC", "China");
+        countryMappings.put("GERMANY", "Germany");
+        countryMappings.put("JAPAN", "Japan");
+        countryMappings.put("FRANCE", "France");
+        countryMappings.put("CANADA", "Canada");
+        countryMappings.put("AUSTRALIA", "Australia");
+        countryMappings.put("ITALY", "Italy");
+        countryMappings.put("SPAIN", "Spain");
+        countryMappings.put("NETHERLANDS", "Netherlands");
+        countryMappings.put("SWITZERLAND", "Switzerland");
+        countryMappings.put("SWEDEN", "Sweden");
+        countryMappings.put("NORWAY", "Norway");
+        countryMappings.put("DENMARK", "Denmark");
+        countryMappings.put("FINLAND", "Finland");
+        countryMappings.put("BELGIUM", "Belgium");
+        countryMappings.put("AUSTRIA", "Austria");
+        countryMappings.put("SOUTH KOREA", "South Korea");
+        countryMappings.put("KOREA", "South Korea");
+        countryMappings.put("REPUBLIC OF KOREA", "South Korea");
+        countryMappings.put("INDIA", "India");
+        countryMappings.put("BRAZIL", "Brazil");
+        countryMappings.put("RUSSIA", "Russia");
+        countryMappings.put("RUSSIAN FEDERATION", "Russia");
+        countryMappings.put("ISRAEL", "Israel");
+        countryMappings.put("SINGAPORE", "Singapore");
+        countryMappings.put("SAUDI ARABIA", "Saudi Arabia");
+        countryMappings.put("UAE", "United Arab Emirates");
+        countryMappings.put("UNITED ARAB EMIRATES", "United Arab Emirates");
+        countryMappings.put("MEXICO", "Mexico");
+        countryMappings.put("ARGENTINA", "Argentina");
+        countryMappings.put("CHILE", "Chile");
+        countryMappings.put("POLAND", "Poland");
+        countryMappings.put("CZECH REPUBLIC", "Czech Republic");
+        countryMappings.put("HUNGARY", "Hungary");
+        countryMappings.put("PORTUGAL", "Portugal");
+        countryMappings.put("GREECE", "Greece");
+        countryMappings.put("TURKEY", "Turkey");
+        countryMappings.put("EGYPT", "Egypt");
+        countryMappings.put("SOUTH AFRICA", "South Africa");
+        countryMappings.put("NEW ZEALAND", "New Zealand");
+        countryMappings.put("IRELAND", "Ireland");
+        countryMappings.put("MALAYSIA", "Malaysia");
+        countryMappings.put("THAILAND", "Thailand");
+        countryMappings.put("INDONESIA", "Indonesia");
+        countryMappings.put("PHILIPPINES", "Philippines");
+        countryMappings.put("VIETNAM", "Vietnam");
+        countryMappings.put("PAKISTAN", "Pakistan");
+        countryMappings.put("IRAN", "Iran");
+        countryMappings.put("IRAQ", "Iraq");
+        countryMappings.put("JORDAN", "Jordan");
+        countryMappings.put("LEBANON", "Lebanon");
+        countryMappings.put("QATAR", "Qatar");
+        countryMappings.put("KUWAIT", "Kuwait");
+        countryMappings.put("OMAN", "Oman");
+        countryMappings.put("BAHRAIN", "Bahrain");
+        return countryMappings;
+    }
+
+    /**
+     * 清理国家名称
+     */
+    private static String cleanCountryName(String countryName) {
+        if (countryName == null) return null;
+
+        // 移除邮政编码和其他数字
+        countryName = countryName.replaceAll("\\d+", "").trim();
+        // 移除特殊字符
+        countryName = countryName.replaceAll("[^a-zA-Z\\s]", "").trim();
+
+        return countryName.length() > 2 ? countryName : null;
+    }
+
+    /**
+     * 改进的机构提取方法
+     */
+    public static Set<String> extractInstitutionsImproved(String address) {
+        Set<String> institutions = new HashSet<>();
+
+        if (address == null || address.trim().isEmpty()) {
+            return institutions;
+        }
+
+        // 处理格式：[Author Names] Institution, City, Country
+        // 分割不同的地址条目
+        String[] entries = address.split(";");
+
+        for (String entry : entries) {
+            // 移除方括号中的作者名称
+            String cleaned = entry.replaceAll("\\[.*?\\]", "").trim();
+
+            // 提取机构名称（通常是第一个逗号之前的部分）
+            if (cleaned.contains(",")) {
+                String[] parts = cleaned.split(",");
+                if (parts.length > 0) {
+                    String institution = cleanInstitutionName(parts[0].trim());
+                    if (institution.length() > 5) { // 过滤太短的结果
+                        institutions.add(institution);
+                    }
+                }
+            } else if (cleaned.length() > 5) {
+                // 没有逗号的情况，可能整个就是机构名称
+                String institution = cleanInstitutionName(cleaned);
+                if (institution.length() > 5) {
+                    institutions.add(institution);
+                }
+            }
+        }
+
+        // 备用方法：使用关键词匹配
+        if (institutions.isEmpty()) {
+            institutions = extractInstitutionsByKeywords(address);
+        }
+
+        return institutions;
+    }
+
+    /**
+     * 清理机构名称
+     */
+    public static String cleanInstitutionName(String institution) {
+        if (institution == null) return "";
+
+        // 移除多余的符号和空格
+        institution = institution.replaceAll("\\s+", " ");
+        institution = institution.replaceAll("^[\\s,;]+", "");
+        institution = institution.replaceAll("[\\s,;]+$", "");
+
+        // 移除数字编号（如部门编号）
+        institution = institution.replaceAll("\\b\\d{1,3}\\b", "").trim();
+
+        // 标准化缩写
+        institution = institution.replace("Univ.", "University");
+        institution = institution.replace("Inst.", "Institute");
+        institution = institution.replace("Lab.", "Laboratory");
+        institution = institution.replace("Dept.", "Department");
+        institution = institution.replace("Coll.", "College");
+        institution = institution.replace("Hosp.", "Hospital");
+        institution = institution.replace("Sch.", "School");
+        institution = institution.replace("Ctr.", "Center");
+
+        return institution.trim();
+    }
+
+    /**
+     * 检查文本是否包含机构关键词
+     */
+    public static boolean containsInstitutionKeyword(String text) {
+        if (text == null || text.isEmpty()) {
+            return false;
+        }
+
+        String lowerText = text.toLowerCase();
+        String[] keywords = {
+                "university", "univ", "institute", "inst", "college", "coll",
+                "hospital", "hosp", "school", "academy", "center", "centre",
+                "laboratory", "lab", "department", "dept", "faculty",
+                "research", "foundation", "corporation", "corp", "company",
+                "ministry", "bureau", "agency", "commission", "council",
+                "polytechnic", "politecnico", "universitat", "universiteit",
+                "universite", "universita", "universidad", "universidade"
+        };
+
+        for (String keyword : keywords) {
+            if (lowerText.contains(keyword)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 基于关键词提取机构（备用方法）
+     */
+    private static Set<String> extractInstitutionsByKeywords(String address) {
+        Set<String> institutions = new HashSet<>();
+
+        // 使用正则表达式查找包含关键词的机构名称（正则已预编译）
+        for (Pattern pattern : INSTITUTION_KEYWORD_PATTERNS) {
+            Matcher matcher = pattern.matcher(address);
+
+            while (matcher.find()) {
+                String institution = cleanInstitutionName(matcher.group(1).trim());
+                if (institution.length() > 5 && !institution.matches(".*\\d{5,}.*")) {
+                    institutions.add(institution);
+                }
+            }
+        }
+
+        return institutions;
+    }
+}
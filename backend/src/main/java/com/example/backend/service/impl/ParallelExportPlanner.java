@@ -0,0 +1,251 @@
+package com.example.backend.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 按年份表分片并行导出
+ * 每张年份表是一个分片，在共享的分片线程池中并行查询和编码，各自写入导出文件存储中的分块临时文件；
+ * 分块写出的字节登记在导出文件存储中，与正式文件一起计入download.store.max-size-mb，组装后删除时释放。
+ * 线程池大小即导出可同时占用的数据库连接数（download.parallel.connections），所有导出任务共用。
+ * 组装时按年份表顺序等待分片完成并依次写出，前面的分片完成后即可开始写出，不必等全部完成。
+ */
+@Service
+public class ParallelExportPlanner {
+
+    private static final int CHUNK_BUFFER_SIZE = 64 * 1024;
+
+    private final ExportStore exportStore;
+    private final int connections;
+    private final ExecutorService executor;
+
+    private final AtomicLong chunkSequence = new AtomicLong();
+
+    public ParallelExportPlanner(ExportStore exportStore,
+                                 @Value("${download.parallel.connections:4}") int connections) {
+        this.exportStore = exportStore;
+        this.connections = Math.max(1, connections);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.connections, r -> {
+            Thread thread = new Thread(r, "export-shard-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 导出可同时使用的连接数，为1时不需要分片
+     */
+    public int connections() {
+        return connections;
+    }
+
+    /**
+     * 写出一个分片：把tableName的数据完整写入out（不关闭out），返回行数
+     * progress回调本分片已写入的行数
+     */
+    @FunctionalInterface
+    public interface ShardWriter {
+        long write(String tableName, OutputStream out, LongConsumer progress) throws IOException;
+    }
+
+    /**
+     * 并行导出各分片，按tableNames顺序把分块内容直接连接写入out（调用方负责写表头），返回总行数
+     * progress回调所有分片合计已写入的行数（可能在分片线程中调用），抛出的异常会中止整个导出
+     */
+    public long concat(List<String> tableNames, ShardWriter writer, OutputStream out,
+                       LongConsumer progress) throws IOException {
+        return assemble(tableNames, writer, progress, (tableName, chunk) -> Files.copy(chunk.path, out));
+    }
+
+    /**
+     * 并行导出各分片，每个有数据的分片作为一个zip条目（条目名为表名+entrySuffix）写入out，返回总行数
+     * 条目内容已是压缩或列式格式，使用STORED不再重复压缩；out只刷新不关闭
+     */
+    public long zip(List<String> tableNames, String entrySuffix, ShardWriter writer, OutputStream out,
+                    LongConsumer progress) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new NonClosingOutputStream(out));
+        long rows = assemble(tableNames, writer, progress, (tableName, chunk) -> {
+            ZipEntry entry = new ZipEntry(tableName + entrySuffix);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(chunk.size);
+            entry.setCompressedSize(chunk.size);
+            entry.setCrc(chunk.crc);
+            zip.putNextEntry(entry);
+            Files.copy(chunk.path, zip);
+            zip.closeEntry();
+        });
+        zip.close();
+        return rows;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ==================== 内部实现 ====================
+
+    @FunctionalInterface
+    private interface ChunkSink {
+        void accept(String tableName, Chunk chunk) throws IOException;
+    }
+
+    private static final class Chunk {
+        final String name;
+        final Path path;
+        final long rows;
+        final long size;
+        final long crc;
+
+        Chunk(String name, Path path, long rows, long size, long crc) {
+            this.name = name;
+            this.path = path;
+            this.rows = rows;
+            this.size = size;
+            this.crc = crc;
+        }
+    }
+
+    private long assemble(List<String> tableNames, ShardWriter writer, LongConsumer progress,
+                          ChunkSink sink) throws IOException {
+        long exportId = chunkSequence.incrementAndGet();
+        AtomicBoolean aborted = new AtomicBoolean();
+        AtomicLong written = new AtomicLong();
+        List<String> chunkNames = new ArrayList<>(tableNames.size());
+        List<Future<Chunk>> futures = new ArrayList<>(tableNames.size());
+        long startTime = System.currentTimeMillis();
+
+        for (String tableName : tableNames) {
+            String chunkName = "chunk_" + exportId + "_" + System.currentTimeMillis() + "_" + tableName;
+            chunkNames.add(chunkName);
+            futures.add(executor.submit(() -> writeChunk(chunkName, tableName, writer, aborted, written, progress)));
+        }
+
+        long rows = 0;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Chunk chunk = await(futures.get(i));
+                try {
+                    if (chunk.rows > 0) {
+                        sink.accept(tableNames.get(i), chunk);
+                        rows += chunk.rows;
+                    }
+                } finally {
+                    exportStore.abort(chunk.name);
+                }
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            aborted.set(true);
+            for (Future<Chunk> future : futures) {
+                future.cancel(false);
+            }
+            for (String chunkName : chunkNames) {
+                exportStore.abort(chunkName);
+            }
+            throw e;
+        }
+
+        System.out.println("分片并行导出完成: " + tableNames.size() + " 个分片, " + rows + " 行, 耗时 "
+                + (System.currentTimeMillis() - startTime) + "ms");
+        return rows;
+    }
+
+    private Chunk writeChunk(String chunkName, String tableName, ShardWriter writer, AtomicBoolean aborted,
+                             AtomicLong written, LongConsumer progress) throws IOException {
+        if (aborted.get()) {
+            throw new CancellationException("导出已中止");
+        }
+        Path path = exportStore.begin(chunkName);
+        boolean success = false;
+        try {
+            long[] last = new long[1];
+            CRC32 crc = new CRC32();
+            long rows;
+            try (CheckedOutputStream out = new CheckedOutputStream(
+                    new BufferedOutputStream(exportStore.reserving(chunkName, Files.newOutputStream(path)),
+                            CHUNK_BUFFER_SIZE), crc)) {
+                rows = writer.write(tableName, out, shardWritten -> {
+                    if (aborted.get()) {
+                        throw new CancellationException("导出已中止");
+                    }
+                    long total = written.addAndGet(shardWritten - last[0]);
+                    last[0] = shardWritten;
+                    if (progress != null) {
+                        progress.accept(total);
+                    }
+                });
+            }
+            success = !aborted.get();
+            return new Chunk(chunkName, path, rows, Files.size(path), crc.getValue());
+        } finally {
+            // 失败或整个导出已中止时自己清理，避免组装线程已清理完后留下分块文件
+            if (!success) {
+                exportStore.abort(chunkName);
+            }
+        }
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待导出分片时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 关闭时只刷新不关闭底层输出流
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.model.main2022;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Types;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Parquet导出：按行写入，攒满一个行组后编码并写出
+ * 数值字段为INT32列，字符串为UTF-8 BINARY列；低基数列使用字典编码（字典过大时Parquet自动退回PLAIN），
+ * 页数据按配置的编解码器压缩。内存占用约为一个行组的大小，与总行数无关。
+ * Parquet文件按顺序写出、footer在最后，因此可以直接写入HTTP响应等不可回退的输出流。
+ */
+final class ParquetExportWriter implements ExportRowWriter {
+
+    private final ParquetWriter<main2022> writer;
+
+    ParquetExportWriter(OutputStream out, List<ExportColumn> columns, CompressionCodecName codec,
+                        long rowGroupSize) throws IOException {
+        Builder builder = new Builder(new StreamOutputFile(out), columns)
+                .withCompressionCodec(codec)
+                .withRowGroupSize(rowGroupSize)
+                .withDictionaryEncoding(true);
+        for (ExportColumn column : columns) {
+            if (column.type() == ExportColumn.Type.STRING && !column.dictionary()) {
+                builder.withDictionaryEncoding(column.name(), false);
+            }
+        }
+        this.writer = builder.build();
+    }
+
+    @Override
+    public void write(main2022 paper) throws IOException {
+        writer.write(paper);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    static MessageType schema(List<ExportColumn> columns) {
+        Types.MessageTypeBuilder builder = Types.buildMessage();
+        for (ExportColumn column : columns) {
+            if (column.type() == ExportColumn.Type.INT) {
+                builder.optional(PrimitiveType.PrimitiveTypeName.INT32).named(column.name());
+            } else {
+                builder.optional(PrimitiveType.PrimitiveTypeName.BINARY)
+                        .as(LogicalTypeAnnotation.stringType()).named(column.name());
+            }
+        }
+        return builder.named("paper");
+    }
+
+    private static final class Builder extends ParquetWriter.Builder<main2022, Builder> {
+        private final List<ExportColumn> columns;
+
+        Builder(OutputFile file, List<ExportColumn> columns) {
+            super(file);
+            this.columns = columns;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<main2022> getWriteSupport(Configuration conf) {
+            return new PaperWriteSupport(columns);
+        }
+    }
+
+    /**
+     * 把main2022的字段按列定义写入RecordConsumer（null字段不写，即为缺失值）
+     */
+    private static final class PaperWriteSupport extends WriteSupport<main2022> {
+        private final List<ExportColumn> columns;
+        private RecordConsumer consumer;
+
+        PaperWriteSupport(List<ExportColumn> columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public WriteContext init(Configuration configuration) {
+            return new WriteContext(schema(columns), new HashMap<>());
+        }
+
+        @Override
+        public void prepareForWrite(RecordConsumer recordConsumer) {
+            this.consumer = recordConsumer;
+        }
+
+        @Override
+        public void write(main2022 paper) {
+            consumer.startMessage();
+            for (int i = 0; i < columns.size(); i++) {
+                ExportColumn column = columns.get(i);
+                if (column.type() == ExportColumn.Type.INT) {
+                    Integer value = column.intValue(paper);
+                    if (value != null) {
+                        consumer.startField(column.name(), i);
+                        consumer.addInteger(value);
+                        consumer.endField(column.name(), i);
+                    }
+                } else {
+                    String value = column.value(paper);
+                    if (value != null) {
+                        consumer.startField(column.name(), i);
+                        consumer.addBinary(Binary.fromString(value));
+                        consumer.endField(column.name(), i);
+                    }
+                }
+            }
+            consumer.endMessage();
+        }
+    }
+
+    /**
+     * 以输出流作为Parquet的输出文件（只追加写入，记录当前位置；关闭时只刷新不关闭底层流）
+     */
+    private static final class StreamOutputFile implements OutputFile {
+        private final OutputStream out;
+
+        StreamOutputFile(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return new PositionOutputStream() {
+                private long position;
+
+                @Override
+                public long getPos() {
+                    return position;
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    position++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    position += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.flush();
+                }
+            };
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            return create(blockSizeHint);
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+}
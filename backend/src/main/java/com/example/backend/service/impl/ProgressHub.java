@@ -0,0 +1,272 @@
+package com.example.backend.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进度事件推送中心
+ *
+ * 任务只在状态变化时发布一次最新状态，由单个调度线程推送给该任务的所有SSE客户端：
+ * 同一任务在最小推送间隔内的多次发布合并为一次（只推送最新状态），任务结束的状态立即推送并关闭连接。
+ * 每一条都需要送达的命名事件（如学科分析每个年份表的部分结果）用publishEvent按发布顺序推送，不合并。
+ * 空闲的客户端不占用线程；定时发送心跳注释保持连接，发送失败或客户端断开时移除。
+ * 所有发送都在调度线程中进行，发布方不会被慢客户端阻塞，同一客户端收到的事件顺序与发布顺序一致。
+ */
+@Service
+public class ProgressHub {
+
+    private final long minIntervalMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "progress-hub");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public ProgressHub(@Value("${download.progress.min-interval-ms:200}") long minIntervalMillis,
+                       @Value("${download.progress.heartbeat-ms:15000}") long heartbeatMillis) {
+        this.minIntervalMillis = minIntervalMillis;
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 发布任务的最新状态，finished为true表示最后一次发布（推送后关闭该任务的所有连接）
+     */
+    public void publish(String topicId, Map<String, Object> state, boolean finished) {
+        Topic topic = topics.computeIfAbsent(topicId, Topic::new);
+        synchronized (topic) {
+            if (topic.finished) {
+                if (topic.flushScheduled) {
+                    return;
+                }
+                // 最后状态已推送，同ID的任务重新执行（如相同内容的导出失败后重新提交）时使用新的主题
+                topics.remove(topicId, topic);
+                publish(topicId, state, finished);
+                return;
+            }
+            topic.latest = state;
+            topic.finished = finished;
+            topic.dirty = true;
+            if (topic.flushScheduled) {
+                return;
+            }
+            topic.flushScheduled = true;
+            long delay = finished ? 0 : Math.max(0, topic.lastFlush + minIntervalMillis - System.currentTimeMillis());
+            scheduler.schedule(() -> flush(topic), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 注册SSE客户端：先推送最新状态（任务尚未发布过时使用initial），任务已结束时推送后直接关闭
+     */
+    public void subscribe(String topicId, SseEmitter emitter, Map<String, Object> initial, boolean finished) {
+        emitter.onCompletion(() -> unsubscribe(topicId, emitter));
+        emitter.onTimeout(() -> unsubscribe(topicId, emitter));
+        emitter.onError(e -> unsubscribe(topicId, emitter));
+        scheduler.execute(() -> {
+            Topic topic = topics.get(topicId);
+            Map<String, Object> state;
+            boolean done;
+            if (topic != null) {
+                synchronized (topic) {
+                    state = topic.latest != null ? topic.latest : initial;
+                    done = topic.finished || finished;
+                }
+            } else {
+                state = initial;
+                done = finished;
+            }
+            if (!send(emitter, state)) {
+                return;
+            }
+            if (done) {
+                emitter.complete();
+                return;
+            }
+            topic = topics.computeIfAbsent(topicId, Topic::new);
+            topic.emitters.add(emitter);
+            subscribers.incrementAndGet();
+        });
+    }
+
+    /**
+     * 推送命名事件：不合并，按发布顺序推送给该主题当前的所有客户端
+     */
+    public void publishEvent(String topicId, String name, Object data) {
+        scheduler.execute(() -> {
+            Topic topic = topics.get(topicId);
+            if (topic == null) {
+                return;
+            }
+            for (SseEmitter emitter : new ArrayList<>(topic.emitters)) {
+                if (!send(emitter, name, data)) {
+                    remove(topic, emitter);
+                }
+            }
+        });
+    }
+
+    /**
+     * 注册SSE客户端并按顺序补发replay中的事件（名称, 数据），finished为true时补发后直接关闭
+     * 调用方在自己的锁内取事件快照并调用本方法，之后发布的事件都排在补发之后。
+     */
+    public void subscribe(String topicId, SseEmitter emitter, List<Map.Entry<String, Object>> replay, boolean finished) {
+        emitter.onCompletion(() -> unsubscribe(topicId, emitter));
+        emitter.onTimeout(() -> unsubscribe(topicId, emitter));
+        emitter.onError(e -> unsubscribe(topicId, emitter));
+        scheduler.execute(() -> {
+            for (Map.Entry<String, Object> event : replay) {
+                if (!send(emitter, event.getKey(), event.getValue())) {
+                    return;
+                }
+            }
+            if (finished) {
+                emitter.complete();
+                return;
+            }
+            topics.computeIfAbsent(topicId, Topic::new).emitters.add(emitter);
+            subscribers.incrementAndGet();
+        });
+    }
+
+    /**
+     * 在已发布的事件推送完之后关闭主题的所有连接（与publishEvent配合使用）
+     */
+    public void close(String topicId) {
+        scheduler.execute(() -> {
+            Topic topic = topics.remove(topicId);
+            if (topic == null) {
+                return;
+            }
+            for (SseEmitter emitter : new ArrayList<>(topic.emitters)) {
+                remove(topic, emitter);
+                emitter.complete();
+            }
+        });
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of("topics", topics.size(), "subscribers", subscribers.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // ==================== 内部实现 ====================
+
+    private static final class Topic {
+        final String id;
+        // 只在调度线程中访问
+        final List<SseEmitter> emitters = new ArrayList<>();
+        // 以下字段由对象锁保护
+        Map<String, Object> latest;
+        boolean finished;
+        boolean dirty;
+        boolean flushScheduled;
+        long lastFlush;
+
+        Topic(String id) {
+            this.id = id;
+        }
+    }
+
+    private void flush(Topic topic) {
+        Map<String, Object> state;
+        boolean finished;
+        synchronized (topic) {
+            topic.flushScheduled = false;
+            if (!topic.dirty) {
+                return;
+            }
+            topic.dirty = false;
+            topic.lastFlush = System.currentTimeMillis();
+            state = topic.latest;
+            finished = topic.finished;
+        }
+
+        List<SseEmitter> emitters = new ArrayList<>(topic.emitters);
+        for (SseEmitter emitter : emitters) {
+            if (!send(emitter, state)) {
+                remove(topic, emitter);
+            }
+        }
+        if (finished) {
+            topics.remove(topic.id, topic);
+            for (SseEmitter emitter : emitters) {
+                remove(topic, emitter);
+                emitter.complete();
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Topic topic : topics.values()) {
+            for (SseEmitter emitter : new ArrayList<>(topic.emitters)) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    // 客户端已断开
+                    remove(topic, emitter);
+                }
+            }
+        }
+        // 清理已经没有客户端、也不会再推送的任务
+        topics.values().removeIf(topic -> {
+            synchronized (topic) {
+                return topic.emitters.isEmpty() && !topic.flushScheduled && topic.finished;
+            }
+        });
+    }
+
+    private void unsubscribe(String topicId, SseEmitter emitter) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        scheduler.execute(() -> {
+            Topic topic = topics.get(topicId);
+            if (topic != null) {
+                remove(topic, emitter);
+            }
+        });
+    }
+
+    private void remove(Topic topic, SseEmitter emitter) {
+        if (topic.emitters.remove(emitter)) {
+            subscribers.decrementAndGet();
+        }
+    }
+
+    private static boolean send(SseEmitter emitter, Map<String, Object> state) {
+        return send(emitter, "progress", state);
+    }
+
+    private static boolean send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
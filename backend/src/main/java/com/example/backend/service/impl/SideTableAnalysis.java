@@ -0,0 +1,125 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.config.AnalysisOptions;
+import com.example.backend.config.SearchFilter;
+import com.example.backend.mapper.SideTableMapper;
+import com.example.backend.service.DisciplinaryAnalysis;
+import com.example.backend.util.CardinalityCounter;
+import com.example.backend.util.TopKSketch;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 基于预规范化附表的单表学科分析
+ * 每个维度一条 JOIN + GROUP BY 查询，数据库只返回 (出版年, 取值, 次数)，
+ * 结果与逐篇解析原始文本的分析一致（超长取值在构建附表时被跳过的除外）。
+ */
+@Service
+public class SideTableAnalysis {
+
+    private final SideTableMapper sideTableMapper;
+    private final DisciplinaryAnalysis disciplinaryAnalysis;
+
+    public SideTableAnalysis(SideTableMapper sideTableMapper, DisciplinaryAnalysis disciplinaryAnalysis) {
+        this.sideTableMapper = sideTableMapper;
+        this.disciplinaryAnalysis = disciplinaryAnalysis;
+    }
+
+    /**
+     * 分析一个年份表，返回按出版年的部分结果（调用方需确认该表的附表已构建）
+     */
+    public SortedMap<String, DisciplinaryPartial> analyzeTable(String keyword, String tableName, AnalysisOptions options) {
+        List<SearchFilter> filters = buildTopicFilters(keyword);
+        SortedMap<String, DisciplinaryPartial> partials = new TreeMap<>();
+
+        for (Map<String, Object> row : sideTableMapper.facetCounts(filters, tableName, "paper")) {
+            String year = (String) row.get("pubyear");
+            partials.computeIfAbsent(year, y -> disciplinaryAnalysis.createPartial(y, options))
+                    .addPapers(((Number) row.get("cnt")).longValue());
+        }
+        if (partials.isEmpty()) {
+            return partials;
+        }
+
+        count(filters, tableName, "country", partials, DisciplinaryPartial::getCountries,
+                DisciplinaryPartial::addCountryCount, DisciplinaryPartial::uniqueCountries);
+        count(filters, tableName, "author", partials, DisciplinaryPartial::getAuthors,
+                DisciplinaryPartial::addAuthorCount, DisciplinaryPartial::uniqueAuthors);
+        count(filters, tableName, "institution", partials, DisciplinaryPartial::getInstitutions,
+                DisciplinaryPartial::addInstitutionCount, null);
+        count(filters, tableName, "journal", partials, DisciplinaryPartial::getJournals,
+                DisciplinaryPartial::addJournalCount, DisciplinaryPartial::uniqueJournals);
+        count(filters, tableName, "keyword", partials, DisciplinaryPartial::getKeywords,
+                DisciplinaryPartial::addKeywordCount, null);
+        return partials;
+    }
+
+    /**
+     * 累加某一维度的分组计数：所有取值进入去重计数器和Top-K sketch（计数最高的capacity项先写入），
+     * sketch的总权重和误差界与逐篇统计相同
+     */
+    private void count(List<SearchFilter> filters, String tableName, String facet,
+                       SortedMap<String, DisciplinaryPartial> partials,
+                       Function<DisciplinaryPartial, TopKSketch> sketch,
+                       CountTarget target, Function<DisciplinaryPartial, CardinalityCounter> unique) {
+        Map<String, Map<String, Long>> countsByYear = new HashMap<>();
+        for (Map<String, Object> row : sideTableMapper.facetCounts(filters, tableName, facet)) {
+            String value = (String) row.get("value");
+            if (value == null) {
+                continue;
+            }
+            if ("journal".equals(facet)) {
+                // 期刊取原始字段，与内存分析一样去掉首尾空白并忽略空值
+                value = value.trim();
+                if (value.isEmpty()) {
+                    continue;
+                }
+            }
+            countsByYear.computeIfAbsent((String) row.get("pubyear"), y -> new HashMap<>())
+                    .merge(value, ((Number) row.get("cnt")).longValue(), Long::sum);
+        }
+
+        for (Map.Entry<String, Map<String, Long>> yearEntry : countsByYear.entrySet()) {
+            DisciplinaryPartial partial = partials.get(yearEntry.getKey());
+            if (partial == null) {
+                continue;
+            }
+            Map<String, Long> counts = yearEntry.getValue();
+
+            if (unique != null) {
+                CardinalityCounter counter = unique.apply(partial);
+                for (String value : counts.keySet()) {
+                    counter.add(value);
+                }
+            }
+
+            int capacity = sketch.apply(partial).capacity();
+            List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+            if (entries.size() > capacity) {
+                // 高频项先占据计数器，其余取值只替换计数最小的项
+                entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            }
+            for (Map.Entry<String, Long> entry : entries) {
+                target.accept(partial, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 与Main2022ServiceImpl中学科分析的检索条件相同：Topic搜索
+     */
+    private static List<SearchFilter> buildTopicFilters(String keyword) {
+        SearchFilter topicFilter = new SearchFilter();
+        topicFilter.setId(1);
+        topicFilter.setSelects(List.of("AND", 1));
+        topicFilter.setInput(keyword);
+        return List.of(topicFilter);
+    }
+
+    @FunctionalInterface
+    private interface CountTarget {
+        void accept(DisciplinaryPartial partial, String value, long count);
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.mapper.SideTableMapper;
+import com.example.backend.model.main2022;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 预规范化附表的构建（ETL）
+ *
+ * 把每个年份表的author_fullname、address/reprint_address和关键词字段按学科分析相同的规则
+ * （PaperFacetExtractor）拆成三张窄表：作者、机构/国家、关键词，并建立索引。
+ * 学科分析可以直接在附表上JOIN + GROUP BY，不必在查询时逐行解析原始文本。
+ *
+ * 构建期间先删除该表的完成标记，全部写入并建好索引后才重新写入标记，
+ * 因此查询只会使用完整构建好的附表。年份表数据重新导入后需要重新构建。
+ * 状态表wos_side_table_status在第一次构建时才创建，启动时只读取（不执行DDL）。
+ */
+@Service
+public class SideTableBuilder {
+
+    // 每页扫描的论文数
+    private static final int PAGE_SIZE = 2000;
+    // 批量写入时每多少行提交一次
+    private static final int FLUSH_ROWS = 5000;
+    // 附表取值列的长度上限（超过的取值跳过，保证可以建索引）
+    private static final int MAX_VALUE_LENGTH = 450;
+    private static final int MAX_COUNTRY_LENGTH = 100;
+
+    private final SideTableMapper sideTableMapper;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final TableSelectorService tableSelectorService;
+    private final boolean enabled;
+    private final boolean authorPushdown;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "side-table-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 每个表的构建状态
+    private final Map<String, String> tableStatus = new ConcurrentHashMap<>();
+    // 已构建完成的年份表
+    private final Set<String> builtTables = ConcurrentHashMap.newKeySet();
+    private final Set<String> builtTablesView = Collections.unmodifiableSet(builtTables);
+    // 状态表已确认存在（只在构建线程中访问）
+    private boolean statusTableReady;
+
+    public SideTableBuilder(SideTableMapper sideTableMapper,
+                            SqlSessionFactory sqlSessionFactory,
+                            TableSelectorService tableSelectorService,
+                            @Value("${analysis.side-tables.enabled:true}") boolean enabled,
+                            @Value("${side-tables.author-pushdown:false}") boolean authorPushdown) {
+        this.sideTableMapper = sideTableMapper;
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.tableSelectorService = tableSelectorService;
+        this.enabled = enabled;
+        this.authorPushdown = authorPushdown;
+    }
+
+    /**
+     * 启动时读取已构建的表（附表分析和作者条件下推都关闭时不访问数据库；数据库不可用时只记录日志，不影响启动）
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled && !authorPushdown) {
+            System.out.println("附表分析和作者条件下推未启用，不读取附表构建状态");
+            return;
+        }
+        try {
+            if (sideTableMapper.statusTableExists()) {
+                builtTables.addAll(sideTableMapper.findBuiltTables());
+            }
+            System.out.println("已构建附表的年份表: " + builtTables.size() + " 个");
+        } catch (Exception e) {
+            System.err.println("读取附表构建状态失败: " + e.getMessage());
+        }
+    }
+
+    public boolean isBuilt(String tableName) {
+        return builtTables.contains(tableName);
+    }
+
+    /**
+     * 可以把作者条件改写为附表索引查询的年份表（作为Mapper参数传给SqlProvider），未启用下推时为空
+     */
+    public Set<String> authorSideTables() {
+        return authorPushdown ? builtTablesView : Collections.emptySet();
+    }
+
+    /**
+     * 提交构建任务，tables为空时构建所有支持的年份表
+     * @return 实际提交的表名
+     */
+    public List<String> submit(List<String> tables) {
+        List<String> supported = tableSelectorService.getAllSupportedTables();
+        List<String> targets = tables == null || tables.isEmpty() ? supported : tables;
+        for (String table : targets) {
+            if (!supported.contains(table)) {
+                throw new IllegalArgumentException("不支持的表: " + table);
+            }
+        }
+
+        List<String> submitted = new ArrayList<>();
+        for (String table : targets) {
+            String current = tableStatus.get(table);
+            if (current != null && (current.startsWith("排队中") || current.startsWith("构建中"))) {
+                continue;
+            }
+            tableStatus.put(table, "排队中");
+            executor.submit(() -> build(table));
+            submitted.add(table);
+        }
+        return submitted;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("builds", new TreeMap<>(tableStatus));
+        status.put("builtTables", new TreeSet<>(builtTables));
+        status.put("authorPushdown", authorPushdown);
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void build(String table) {
+        long startTime = System.currentTimeMillis();
+        tableStatus.put(table, "构建中");
+        System.out.println("开始构建附表: " + table);
+
+        try {
+            if (!statusTableReady) {
+                sideTableMapper.createStatusTable();
+                statusTableReady = true;
+            }
+            // 先撤销完成标记，构建期间查询回退到原始表
+            builtTables.remove(table);
+            sideTableMapper.deleteStatus(table);
+            sideTableMapper.dropSideTables(table);
+            sideTableMapper.createSideTables(table);
+
+            RowWriter writer = new RowWriter(table);
+            try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+                writer.mapper = session.getMapper(SideTableMapper.class);
+                writer.session = session;
+
+                String afterUid = "";
+                while (true) {
+                    List<main2022> page = sideTableMapper.scanPage(table, afterUid, PAGE_SIZE);
+                    for (main2022 paper : page) {
+                        writer.add(paper);
+                    }
+                    if (page.size() < PAGE_SIZE) {
+                        break;
+                    }
+                    afterUid = page.get(page.size() - 1).getWos_uid();
+                    tableStatus.put(table, "构建中: 已扫描 " + writer.paperCount + " 行");
+                }
+
+                session.flushStatements();
+                session.commit();
+            }
+
+            tableStatus.put(table, "构建中: 创建索引");
+            sideTableMapper.createSideTableIndexes(table);
+            sideTableMapper.insertStatus(table, writer.paperCount, writer.authorRows, writer.affiliationRows, writer.keywordRows);
+            builtTables.add(table);
+
+            long elapsed = System.currentTimeMillis() - startTime;
+            tableStatus.put(table, String.format("完成: %d 篇论文, 作者 %d 行, 机构/国家 %d 行, 关键词 %d 行, 跳过超长取值 %d 个, 耗时 %dms",
+                    writer.paperCount, writer.authorRows, writer.affiliationRows, writer.keywordRows, writer.skipped, elapsed));
+            System.out.println("附表构建完成: " + table + ", " + writer.paperCount + " 篇论文, 耗时 " + elapsed + "ms");
+        } catch (Exception e) {
+            tableStatus.put(table, "失败: " + e.getMessage());
+            System.err.println("附表构建失败: " + table + " - " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 把一篇论文的维度写成附表行（在BATCH会话中累积，定期提交）
+     */
+    private static final class RowWriter implements PaperFacetExtractor.Sink {
+        private final String table;
+        private final PaperFacetExtractor extractor = new PaperFacetExtractor();
+        private SideTableMapper mapper;
+        private SqlSession session;
+
+        private String wosUid;
+        private int keywordPosition;
+        private int pendingRows;
+
+        private int paperCount;
+        private int authorRows;
+        private int affiliationRows;
+        private int keywordRows;
+        private int skipped;
+
+        RowWriter(String table) {
+            this.table = table;
+        }
+
+        void add(main2022 paper) {
+            paperCount++;
+            wosUid = paper.getWos_uid();
+            keywordPosition = 0;
+            extractor.extract(paper, this);
+
+            if (pendingRows >= FLUSH_ROWS) {
+                session.flushStatements();
+                pendingRows = 0;
+            }
+        }
+
+        @Override
+        public void country(String country) {
+            if (country.length() > MAX_COUNTRY_LENGTH) {
+                skipped++;
+                return;
+            }
+            mapper.insertAffiliation(table, wosUid, null, country);
+            affiliationRows++;
+            pendingRows++;
+        }
+
+        @Override
+        public void author(char[] buf, int offset, int length) {
+            if (length > MAX_VALUE_LENGTH) {
+                skipped++;
+                return;
+            }
+            mapper.insertAuthor(table, wosUid, new String(buf, offset, length));
+            authorRows++;
+            pendingRows++;
+        }
+
+        @Override
+        public void institution(String institution) {
+            if (institution.length() > MAX_VALUE_LENGTH) {
+                skipped++;
+                return;
+            }
+            mapper.insertAffiliation(table, wosUid, institution, null);
+            affiliationRows++;
+            pendingRows++;
+        }
+
+        @Override
+        public void journal(String journal) {
+            // 期刊直接使用原表的journal_title_source，不需要附表
+        }
+
+        @Override
+        public void keyword(char[] buf, int offset, int length) {
+            // 同一篇论文中重复的关键词保留（与内存分析的计数方式一致），position区分先后
+            int position = keywordPosition++;
+            if (length > MAX_VALUE_LENGTH) {
+                skipped++;
+                return;
+            }
+            mapper.insertKeyword(table, wosUid, position, new String(buf, offset, length));
+            keywordRows++;
+            pendingRows++;
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.mapper.Main2022Mapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 慢查询记录
+ *
+ * Main2022Mapper的查询耗时超过阈值时（游标查询为从打开到关闭的耗时），记录规范化的SQL结构（字面量替换为?、
+ * 年份表名替换为Wos_YYYY、结构相同的UNION ALL分支合并）、涉及的年份表、绑定参数数、行数和耗时，
+ * 可选地用SHOWPLAN_XML获取SQL Server的估计执行计划（看出UNION ALL中哪个分支的代价最高）。
+ * 规范化、获取执行计划和写文件都在单独的后台线程中进行，不影响查询线程；后台队列满时丢弃记录。
+ * 最近的记录保存在内存中供管理接口查询，同时按行写入JSON日志文件，超过大小上限时轮转。
+ */
+@Service
+public class SlowQueryLog {
+
+    private static final String MAPPER_PREFIX = Main2022Mapper.class.getName() + ".";
+    private static final Pattern STRING_LITERAL = Pattern.compile("N?'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern YEAR_TABLE = Pattern.compile("Wos_(\\d{4})");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern UNION_ALL = Pattern.compile("\\s+UNION\\s+ALL\\s+", Pattern.CASE_INSENSITIVE);
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final boolean capturePlan;
+    private final long planIntervalMillis;
+    private final int recentCapacity;
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // 以下字段只在后台线程中写入，读取时加锁
+    private final Deque<Entry> recent = new ArrayDeque<>();
+    private final Map<String, Long> planCapturedAt = new HashMap<>();
+    private long recorded;
+    private BufferedWriter writer;
+    private long fileBytes;
+
+    public SlowQueryLog(DataSource dataSource, ObjectMapper objectMapper,
+                        @Value("${slow-query.enabled:true}") boolean enabled,
+                        @Value("${slow-query.threshold-ms:1000}") long thresholdMillis,
+                        @Value("${slow-query.capture-plan:false}") boolean capturePlan,
+                        @Value("${slow-query.plan-interval-minutes:60}") long planIntervalMinutes,
+                        @Value("${slow-query.recent:200}") int recentCapacity,
+                        @Value("${slow-query.file:logs/slow-queries.log}") String file,
+                        @Value("${slow-query.max-file-mb:20}") long maxFileMb,
+                        @Value("${slow-query.max-files:5}") int maxFiles) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.capturePlan = capturePlan;
+        this.planIntervalMillis = TimeUnit.MINUTES.toMillis(planIntervalMinutes);
+        this.recentCapacity = Math.max(1, recentCapacity);
+        this.file = Paths.get(file);
+        this.maxFileBytes = maxFileMb * 1024 * 1024;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100),
+                r -> {
+                    Thread thread = new Thread(r, "slow-query-log");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (r, pool) -> dropped.incrementAndGet());
+    }
+
+    /**
+     * 是否需要记录（在查询线程中调用，未超过阈值时不做任何其他工作）
+     */
+    public boolean isSlow(MappedStatement statement, long nanos) {
+        return enabled && nanos >= thresholdNanos && statement.getId().startsWith(MAPPER_PREFIX);
+    }
+
+    /**
+     * 记录一次慢查询，rows为读取的行数
+     */
+    public void record(MappedStatement statement, Object parameter, long nanos, long rows, boolean cursor) {
+        BoundSql boundSql;
+        try {
+            boundSql = statement.getBoundSql(parameter);
+        } catch (RuntimeException e) {
+            System.err.println("慢查询记录失败: " + e.getMessage());
+            return;
+        }
+        Entry entry = new Entry();
+        entry.id = sequence.incrementAndGet();
+        entry.timestamp = System.currentTimeMillis();
+        entry.statement = statement.getId().substring(MAPPER_PREFIX.length());
+        entry.durationMs = TimeUnit.NANOSECONDS.toMillis(nanos);
+        entry.rows = rows;
+        entry.cursor = cursor;
+        entry.parameters = boundSql.getParameterMappings().size();
+        executor.execute(() -> process(entry, statement, parameter, boundSql));
+    }
+
+    /**
+     * 最近的慢查询（新的在前，不含执行计划），table/statement不为null时只返回涉及该表/该Mapper方法的记录
+     */
+    public List<Map<String, Object>> getRecent(int limit, String table, String statement) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        synchronized (recent) {
+            Iterator<Entry> it = recent.descendingIterator();
+            while (it.hasNext() && result.size() < limit) {
+                Entry entry = it.next();
+                if (table != null && !entry.tables.contains(table)) {
+                    continue;
+                }
+                if (statement != null && !statement.equals(entry.statement)) {
+                    continue;
+                }
+                result.add(entry.toMap(false));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按SQL结构和年份表汇总最近的慢查询：次数、总耗时、最大耗时，按总耗时降序
+     */
+    public Map<String, Object> getSummary() {
+        Map<String, Map<String, Object>> byShape = new HashMap<>();
+        Map<String, Map<String, Object>> byTable = new HashMap<>();
+        synchronized (recent) {
+            for (Entry entry : recent) {
+                Map<String, Object> shape = accumulate(byShape, entry.shapeHash, entry);
+                shape.putIfAbsent("statement", entry.statement);
+                shape.putIfAbsent("shape", entry.shape);
+                for (String table : entry.tables) {
+                    accumulate(byTable, table, entry).putIfAbsent("table", table);
+                }
+            }
+        }
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("byShape", sortByTotal(byShape));
+        summary.put("byTable", sortByTotal(byTable));
+        return summary;
+    }
+
+    /**
+     * 估计执行计划（SHOWPLAN_XML），没有记录或没有获取计划时返回null
+     */
+    public String getPlan(long id) {
+        synchronized (recent) {
+            for (Entry entry : recent) {
+                if (entry.id == id) {
+                    return entry.plan;
+                }
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("thresholdMs", TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+        stats.put("capturePlan", capturePlan);
+        stats.put("file", file.toString());
+        stats.put("dropped", dropped.get());
+        synchronized (recent) {
+            stats.put("recorded", recorded);
+            stats.put("recent", recent.size());
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeWriter();
+    }
+
+    // ==================== 内部实现（后台线程） ====================
+
+    private static final class Entry {
+        long id;
+        long timestamp;
+        String statement;
+        String shape;
+        String shapeHash;
+        List<String> tables = List.of();
+        int parameters;
+        int literals;
+        long rows;
+        long durationMs;
+        boolean cursor;
+        String plan;
+
+        Map<String, Object> toMap(boolean withPlan) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", id);
+            map.put("timestamp", timestamp);
+            map.put("statement", statement);
+            map.put("durationMs", durationMs);
+            map.put("rows", rows);
+            map.put("cursor", cursor);
+            map.put("tables", tables);
+            map.put("parameters", parameters);
+            map.put("literals", literals);
+            map.put("shapeHash", shapeHash);
+            map.put("shape", shape);
+            if (withPlan) {
+                map.put("plan", plan);
+            } else {
+                map.put("hasPlan", plan != null);
+            }
+            return map;
+        }
+    }
+
+    private void process(Entry entry, MappedStatement statement, Object parameter, BoundSql boundSql) {
+        String sql = boundSql.getSql();
+        normalize(entry, sql);
+        if (capturePlan && shouldCapturePlan(entry.shapeHash)) {
+            entry.plan = capturePlan(statement, parameter, boundSql);
+        }
+
+        synchronized (recent) {
+            recent.addLast(entry);
+            while (recent.size() > recentCapacity) {
+                recent.removeFirst();
+            }
+            recorded++;
+        }
+        System.out.println("慢查询: " + entry.statement + " " + entry.durationMs + "ms, " + entry.rows + " 行, 表: "
+                + entry.tables);
+        write(entry);
+    }
+
+    /**
+     * 规范化SQL结构：字面量替换为?，年份表名替换为Wos_YYYY，合并空白，结构相同的连续UNION ALL分支合并为一个并标注数量
+     */
+    private static void normalize(Entry entry, String sql) {
+        Set<String> tables = new LinkedHashSet<>();
+        Matcher tableMatcher = YEAR_TABLE.matcher(sql);
+        while (tableMatcher.find()) {
+            tables.add(tableMatcher.group());
+        }
+        entry.tables = new ArrayList<>(tables);
+
+        int[] literals = {0};
+        String shape = replaceCounting(STRING_LITERAL, sql, literals);
+        shape = YEAR_TABLE.matcher(shape).replaceAll("Wos_YYYY");
+        shape = replaceCounting(NUMBER_LITERAL, shape, literals);
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        entry.literals = literals[0];
+
+        StringBuilder collapsed = new StringBuilder();
+        String previous = null;
+        int repeat = 0;
+        for (String branch : UNION_ALL.split(shape)) {
+            if (branch.equals(previous)) {
+                repeat++;
+                continue;
+            }
+            appendBranch(collapsed, previous, repeat);
+            previous = branch;
+            repeat = 1;
+        }
+        appendBranch(collapsed, previous, repeat);
+        entry.shape = collapsed.toString();
+        entry.shapeHash = Integer.toHexString(entry.statement.hashCode() * 31 + entry.shape.hashCode());
+    }
+
+    private static String replaceCounting(Pattern pattern, String sql, int[] count) {
+        Matcher matcher = pattern.matcher(sql);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            count[0]++;
+            matcher.appendReplacement(result, "?");
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static void appendBranch(StringBuilder collapsed, String branch, int repeat) {
+        if (branch == null) {
+            return;
+        }
+        if (collapsed.length() > 0) {
+            collapsed.append(" UNION ALL ");
+        }
+        collapsed.append(branch);
+        if (repeat > 1) {
+            collapsed.append(" /* x").append(repeat).append(" */");
+        }
+    }
+
+    // 同一结构的执行计划在间隔时间内只获取一次
+    private boolean shouldCapturePlan(String shapeHash) {
+        long now = System.currentTimeMillis();
+        Long last = planCapturedAt.get(shapeHash);
+        if (last != null && now - last < planIntervalMillis) {
+            return false;
+        }
+        planCapturedAt.put(shapeHash, now);
+        if (planCapturedAt.size() > 10_000) {
+            planCapturedAt.values().removeIf(time -> now - time >= planIntervalMillis);
+        }
+        return true;
+    }
+
+    /**
+     * 在单独的连接上打开SHOWPLAN_XML后执行同一条SQL（绑定相同的参数），只返回估计计划、不真正执行
+     * 关闭SHOWPLAN失败时从连接池中移除该连接，避免后续查询只返回计划
+     */
+    private String capturePlan(MappedStatement statement, Object parameter, BoundSql boundSql) {
+        Connection connection = null;
+        boolean showplanOn = false;
+        try {
+            connection = dataSource.getConnection();
+            try (Statement st = connection.createStatement()) {
+                st.execute("SET SHOWPLAN_XML ON");
+                showplanOn = true;
+            }
+            String plan = null;
+            try (PreparedStatement ps = connection.prepareStatement(boundSql.getSql())) {
+                statement.getConfiguration().newParameterHandler(statement, parameter, boundSql).setParameters(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        plan = rs.getString(1);
+                    }
+                }
+            }
+            try (Statement st = connection.createStatement()) {
+                st.execute("SET SHOWPLAN_XML OFF");
+                showplanOn = false;
+            }
+            return plan;
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("获取执行计划失败: " + e.getMessage());
+            return null;
+        } finally {
+            if (connection != null) {
+                if (showplanOn && dataSource instanceof HikariDataSource) {
+                    ((HikariDataSource) dataSource).evictConnection(connection);
+                }
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+    }
+
+    private void write(Entry entry) {
+        try {
+            String line = objectMapper.writeValueAsString(entry.toMap(true)) + "\n";
+            long length = line.getBytes(StandardCharsets.UTF_8).length;
+            if (writer != null && fileBytes + length > maxFileBytes) {
+                rotate();
+            }
+            if (writer == null) {
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                fileBytes = Files.size(file);
+            }
+            writer.write(line);
+            writer.flush();
+            fileBytes += length;
+        } catch (IOException e) {
+            System.err.println("写入慢查询日志失败: " + e.getMessage());
+            closeWriter();
+        }
+    }
+
+    /**
+     * 轮转：slow-queries.log → .1 → .2 …，超过max-files的最旧文件删除
+     */
+    private void rotate() throws IOException {
+        closeWriter();
+        Files.deleteIfExists(rotated(maxFiles - 1));
+        for (int i = maxFiles - 2; i >= 1; i--) {
+            if (Files.exists(rotated(i))) {
+                Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 1) {
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+            writer = null;
+        }
+    }
+
+    private static Map<String, Object> accumulate(Map<String, Map<String, Object>> groups, String key, Entry entry) {
+        Map<String, Object> group = groups.computeIfAbsent(key, k -> {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", 0L);
+            map.put("totalMs", 0L);
+            map.put("maxMs", 0L);
+            return map;
+        });
+        group.put("count", (Long) group.get("count") + 1);
+        group.put("totalMs", (Long) group.get("totalMs") + entry.durationMs);
+        group.put("maxMs", Math.max((Long) group.get("maxMs"), entry.durationMs));
+        return group;
+    }
+
+    private static List<Map<String, Object>> sortByTotal(Map<String, Map<String, Object>> groups) {
+        List<Map<String, Object>> sorted = new ArrayList<>(groups.values());
+        sorted.sort((a, b) -> Long.compare((Long) b.get("totalMs"), (Long) a.get("totalMs")));
+        return sorted;
+    }
+}
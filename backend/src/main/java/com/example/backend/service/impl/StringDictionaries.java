@@ -0,0 +1,128 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.util.StringDictionary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按字段划分的字符串字典
+ *
+ * 全局字典：期刊名、语言、学科分组等低基数字段每个字段一个StringDictionary，进程内常驻，
+ * 条目数上限按字段基数设置，标题、摘要等自由文本不驻留。
+ * 作用域字典：作者、机构、关键词基数高且不同检索之间几乎不重复，全局驻留池装满后不会淘汰，
+ * 只会常驻最先出现的一批取值，因此由newScoped为一次分析单独创建，分析结束后随之回收。
+ * 上限可以通过 interning.limits=字段:上限,... 覆盖，interning.enabled=false 时完全关闭。
+ */
+@Service
+public class StringDictionaries {
+
+    // 超过该长度的取值不驻留
+    private static final int MAX_VALUE_LENGTH = 512;
+
+    private static final Map<String, Integer> DEFAULT_LIMITS = new LinkedHashMap<>();
+
+    static {
+        // 查询结果字段
+        DEFAULT_LIMITS.put("pubyear", 1000);
+        DEFAULT_LIMITS.put("pubmonth", 1000);
+        DEFAULT_LIMITS.put("database", 100);
+        DEFAULT_LIMITS.put("has_abstract", 100);
+        DEFAULT_LIMITS.put("is_OA", 100);
+        DEFAULT_LIMITS.put("oases", 1000);
+        DEFAULT_LIMITS.put("article_type", 1000);
+        DEFAULT_LIMITS.put("article_doctype", 1000);
+        DEFAULT_LIMITS.put("normalized_doctype", 1000);
+        DEFAULT_LIMITS.put("languages", 5000);
+        DEFAULT_LIMITS.put("heading", 5000);
+        DEFAULT_LIMITS.put("subheadings", 5000);
+        DEFAULT_LIMITS.put("subject_traditional", 50000);
+        DEFAULT_LIMITS.put("subject_extended", 50000);
+        DEFAULT_LIMITS.put("subj_group", 50000);
+        DEFAULT_LIMITS.put("journal", 200000);
+        DEFAULT_LIMITS.put("identifier_issn", 100000);
+        DEFAULT_LIMITS.put("identifier_eissn", 100000);
+        DEFAULT_LIMITS.put("publisher", 100000);
+    }
+
+    // 学科分析维度，只用于作用域字典：一次分析内的条目数上限
+    private static final Map<String, Integer> SCOPED_LIMITS = new LinkedHashMap<>();
+
+    static {
+        SCOPED_LIMITS.put("author", 500000);
+        SCOPED_LIMITS.put("institution", 200000);
+        SCOPED_LIMITS.put("keyword", 500000);
+    }
+
+    // 作用域字典的最小条目数，避免小批量分析时字典过早装满
+    private static final int MIN_SCOPED_ENTRIES = 1024;
+
+    private final boolean enabled;
+    private final Map<String, Integer> limits = new HashMap<>(DEFAULT_LIMITS);
+    private final Map<String, Integer> scopedLimits = new HashMap<>(SCOPED_LIMITS);
+    private final Map<String, StringDictionary> dictionaries = new ConcurrentHashMap<>();
+
+    public StringDictionaries(@Value("${interning.enabled:true}") boolean enabled,
+                              @Value("${interning.limits:}") String limitOverrides) {
+        this.enabled = enabled;
+        for (String item : limitOverrides.split(",")) {
+            String[] parts = item.trim().split(":");
+            if (parts.length == 2) {
+                String field = parts[0].trim();
+                (scopedLimits.containsKey(field) ? scopedLimits : limits).put(field, Integer.parseInt(parts[1].trim()));
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 字段对应的字典；关闭或未配置上限（上限为0）的字段返回null
+     */
+    public StringDictionary get(String field) {
+        if (!enabled) {
+            return null;
+        }
+        Integer limit = limits.get(field);
+        if (limit == null || limit <= 0) {
+            return null;
+        }
+        return dictionaries.computeIfAbsent(field, name -> new StringDictionary(name, limit, MAX_VALUE_LENGTH));
+    }
+
+    /**
+     * 为一次分析新建的字段字典，不登记到全局，调用方不再引用后即可回收
+     * 条目数上限取预计取值数和字段上限中的较小者；关闭或未配置上限的字段返回null
+     */
+    public StringDictionary newScoped(String field, int expectedEntries) {
+        if (!enabled) {
+            return null;
+        }
+        Integer limit = scopedLimits.get(field);
+        if (limit == null || limit <= 0) {
+            return null;
+        }
+        int maxEntries = Math.min(limit, Math.max(expectedEntries, MIN_SCOPED_ENTRIES));
+        return new StringDictionary(field, maxEntries, MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * 各全局字典的条目数和命中情况
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        for (StringDictionary dictionary : dictionaries.values()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("size", dictionary.size());
+            item.put("maxEntries", dictionary.maxEntries());
+            item.put("hits", dictionary.hits());
+            item.put("misses", dictionary.misses());
+            stats.put(dictionary.getName(), item);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.service.DownloadService;
+import com.example.backend.util.ExportCompression;
+import com.example.backend.util.ExportFormat;
+import com.example.backend.util.ExportPackaging;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 整张年份表的快照导出
+ * 历史年份表的数据不再变化，同一张表、同一格式只导出一次，文件保存在导出文件存储中供重复下载
+ * （被淘汰或过期后重新导出）。导出任务在单线程执行器中依次执行，避免同时占用多个数据库连接。
+ */
+@Service
+public class TableSnapshotService {
+
+    // 每导出多少行更新一次进度
+    private static final int PROGRESS_INTERVAL = 50000;
+
+    private final DownloadService downloadService;
+    private final TableSelectorService tableSelectorService;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "table-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 快照任务id → 状态
+    private final Map<String, String> snapshotStatus = new ConcurrentHashMap<>();
+
+    public TableSnapshotService(DownloadService downloadService, TableSelectorService tableSelectorService) {
+        this.downloadService = downloadService;
+        this.tableSelectorService = tableSelectorService;
+    }
+
+    /**
+     * 快照文件在导出文件存储中的任务id
+     */
+    public static String snapshotId(String tableName, ExportFormat format) {
+        return "snapshot_" + tableName + "_" + format.name().toLowerCase();
+    }
+
+    /**
+     * 快照是否已导出完成并可下载
+     */
+    public boolean isAvailable(String tableName, ExportFormat format) {
+        return downloadService.hasExportFile(snapshotId(tableName, format));
+    }
+
+    /**
+     * 提交快照导出（已存在或正在导出时不重复提交）
+     * @return 快照任务id
+     */
+    public String submit(String tableName, ExportFormat format) {
+        if (!tableSelectorService.getAllSupportedTables().contains(tableName)) {
+            throw new IllegalArgumentException("不支持的表: " + tableName);
+        }
+        String id = snapshotId(tableName, format);
+        if (isAvailable(tableName, format)) {
+            snapshotStatus.put(id, "完成");
+            return id;
+        }
+        synchronized (this) {
+            String current = snapshotStatus.get(id);
+            if (current != null && (current.startsWith("排队中") || current.startsWith("构建中"))) {
+                return id;
+            }
+            snapshotStatus.put(id, "排队中");
+        }
+        executor.submit(() -> build(id, tableName, format));
+        return id;
+    }
+
+    public String getStatus(String tableName, ExportFormat format) {
+        String id = snapshotId(tableName, format);
+        if (isAvailable(tableName, format)) {
+            return "完成";
+        }
+        String status = snapshotStatus.get(id);
+        // 曾经完成但文件已被淘汰或过期
+        return status == null || status.startsWith("完成") ? null : status;
+    }
+
+    public Map<String, String> getAllStatus() {
+        return new TreeMap<>(snapshotStatus);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void build(String id, String tableName, ExportFormat format) {
+        long startTime = System.currentTimeMillis();
+        snapshotStatus.put(id, "构建中");
+        System.out.println("开始导出年份表快照: " + tableName + " (" + format + ")");
+
+        Path file = null;
+        try {
+            file = downloadService.createTemporaryFile(id, format, ExportCompression.NONE, ExportPackaging.FILE);
+            long rows;
+            try (OutputStream out = Files.newOutputStream(file)) {
+                rows = downloadService.writeTableSnapshot(tableName, format, ExportCompression.NONE, out, written -> {
+                    if (written % PROGRESS_INTERVAL == 0) {
+                        snapshotStatus.put(id, "构建中: 已导出 " + written + " 行");
+                    }
+                });
+            }
+            downloadService.commitTemporaryFile(id, format, ExportCompression.NONE, ExportPackaging.FILE);
+
+            long elapsed = System.currentTimeMillis() - startTime;
+            snapshotStatus.put(id, "完成: " + rows + " 行, 耗时 " + elapsed + "ms");
+            System.out.println("年份表快照导出完成: " + tableName + " (" + format + "), " + rows + " 行, 耗时 " + elapsed + "ms");
+        } catch (Exception e) {
+            if (file != null) {
+                downloadService.cleanupTemporaryFile(id, format, ExportCompression.NONE, ExportPackaging.FILE);
+            }
+            snapshotStatus.put(id, "失败: " + e.getMessage());
+            System.err.println("年份表快照导出失败: " + tableName + " - " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
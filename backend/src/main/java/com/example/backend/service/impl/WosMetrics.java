@@ -0,0 +1,128 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.util.ExportFormat;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 查询、学科分析和导出的监控指标（Micrometer，通过 /actuator/prometheus 暴露）
+ *
+ * 耗时直方图使用固定的桶（而不是Micrometer默认的几十个桶），按年份表打标签时序列数仍然可控。
+ * 连接池等待时间（hikaricp_connections_acquire_seconds）和连接数由Spring Boot自动注册。
+ */
+@Service
+public class WosMetrics {
+
+    // 耗时直方图的桶：数据库查询从几毫秒到全表扫描的几分钟
+    private static final Duration[] LATENCY_BUCKETS = {
+            Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25), Duration.ofMillis(50),
+            Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1),
+            Duration.ofMillis(2500), Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30),
+            Duration.ofSeconds(60), Duration.ofSeconds(120), Duration.ofSeconds(300)
+    };
+    // 0行的查询落在第一个桶（<=1）中
+    private static final double[] ROW_BUCKETS = {1, 10, 100, 500, 1000, 10_000, 100_000, 1_000_000, 10_000_000};
+    private static final double[] TABLE_BUCKETS = {1, 2, 5, 10, 20, 40, 71};
+
+    private final MeterRegistry registry;
+
+    public WosMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 一次SQL执行的耗时（游标查询为从打开到关闭的耗时，在关闭时记录），table为年份表名，多表查询为multi
+     */
+    public void recordQuery(String statement, String table, long nanos, boolean success) {
+        Timer.builder("wos.query")
+                .description("按年份表的SQL执行耗时")
+                .tags("statement", statement, "table", table, "outcome", success ? "success" : "error")
+                .serviceLevelObjectives(LATENCY_BUCKETS)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 一次查询读取的行数（游标查询在关闭时记录）
+     */
+    public void recordRows(String statement, long rows) {
+        DistributionSummary.builder("wos.query.rows")
+                .description("每次查询读取的行数")
+                .tags("statement", statement)
+                .serviceLevelObjectives(ROW_BUCKETS)
+                .register(registry)
+                .record(rows);
+    }
+
+    /**
+     * 单条/批量查找从最新年份往前查询时探查的表数
+     */
+    public void recordLookup(String lookup, int tablesProbed, boolean found) {
+        DistributionSummary.builder("wos.lookup.tables")
+                .description("每次查找探查的年份表数")
+                .tags("lookup", lookup, "found", String.valueOf(found))
+                .serviceLevelObjectives(TABLE_BUCKETS)
+                .register(registry)
+                .record(tablesProbed);
+    }
+
+    /**
+     * 记录学科分析某个阶段的耗时（异常时outcome为error）
+     */
+    public <T> T timeAnalysisStage(String stage, Supplier<T> body) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = body.get();
+            success = true;
+            return result;
+        } finally {
+            Timer.builder("wos.analysis.stage")
+                    .description("学科分析各阶段耗时")
+                    .tags("stage", stage, "outcome", success ? "success" : "error")
+                    .serviceLevelObjectives(LATENCY_BUCKETS)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 一次导出的耗时、行数和字节数（Prometheus中用rate()得到每秒行数/字节数），
+     * 同时记录单次导出的吞吐量（行/秒）
+     */
+    public void recordExport(String kind, ExportFormat format, boolean success, long rows, long bytes, long nanos) {
+        String formatTag = format.name().toLowerCase();
+        String outcome = success ? "success" : "error";
+        Timer.builder("wos.export.duration")
+                .description("导出耗时")
+                .tags("kind", kind, "format", formatTag, "outcome", outcome)
+                .serviceLevelObjectives(LATENCY_BUCKETS)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder("wos.export.rows")
+                .description("导出的行数")
+                .tags("kind", kind, "format", formatTag)
+                .register(registry)
+                .increment(rows);
+        Counter.builder("wos.export.bytes")
+                .description("导出的字节数（压缩后）")
+                .baseUnit("bytes")
+                .tags("kind", kind, "format", formatTag)
+                .register(registry)
+                .increment(bytes);
+        if (success && nanos > 0) {
+            DistributionSummary.builder("wos.export.throughput")
+                    .description("单次导出的吞吐量（行/秒）")
+                    .tags("kind", kind, "format", formatTag)
+                    .register(registry)
+                    .record(rows * 1e9 / nanos);
+        }
+    }
+}
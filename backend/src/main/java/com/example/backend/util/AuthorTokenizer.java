@@ -0,0 +1,259 @@
+package com.example.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * author_fullname字段的字符级分词器
+ * 规则与原有的parseAuthors/smartSplitAuthors/cleanAuthorName完全一致：
+ * 1. 移除方括号及其内容（不跨行）
+ * 2. 含分号时按分号分割，否则按逗号分割并用"连续两个大写开头的单词"判断新作者
+ * 3. 只保留字母、连字符和撇号，其余字符视为分隔符，连续分隔符合并为一个空格
+ * 4. 长度大于2的名字才输出，同一字段内重复的名字只输出一次
+ *
+ * 所有中间结果都写在可复用的char[]中，不产生临时字符串。
+ * 非线程安全，每个线程（或每次分析）使用独立实例。
+ */
+public final class AuthorTokenizer {
+
+    private char[] buf = new char[256];
+    private int bufLen;
+
+    // 当前字段已输出的作者（用于去重）
+    private int[] emittedStart = new int[16];
+    private int[] emittedLen = new int[16];
+    private int emittedCount;
+
+    // 当前作者在buf中的起始位置，以及是否需要在下一个有效字符前补空格
+    private int tokenStart;
+    private boolean pendingSpace;
+
+    // 方括号查找缓存：位置小于该值的'['都找不到匹配的']'（每次从头扫描前重置）
+    private int noCloseBefore;
+
+    /**
+     * 解析作者字段，返回输出的作者数量
+     */
+    public int tokenize(String authorString, TokenSink sink) {
+        if (authorString == null || authorString.isEmpty()) {
+            return 0;
+        }
+
+        int n = authorString.length();
+        if (buf.length < n + 1) {
+            buf = new char[Math.max(n + 1, buf.length * 2)];
+        }
+        bufLen = 0;
+        emittedCount = 0;
+        tokenStart = 0;
+        pendingSpace = false;
+
+        if (containsSemicolon(authorString)) {
+            tokenizeBySemicolon(authorString, sink);
+        } else {
+            tokenizeByComma(authorString, sink);
+        }
+        return emittedCount;
+    }
+
+    /**
+     * 分号分隔格式：每个分号之间是一个作者
+     */
+    private void tokenizeBySemicolon(String s, TokenSink sink) {
+        noCloseBefore = -1;
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '[') {
+                int close = findBracketClose(s, i);
+                if (close >= 0) {
+                    i = close + 1;
+                    continue;
+                }
+            }
+            if (c == ';') {
+                finishToken(tokenStart, bufLen, sink);
+                tokenStart = bufLen;
+                pendingSpace = false;
+            } else {
+                feed(c);
+            }
+            i++;
+        }
+        finishToken(tokenStart, bufLen, sink);
+    }
+
+    /**
+     * 逗号分隔格式：与smartSplitAuthors相同的启发式分组
+     */
+    private void tokenizeByComma(String s, TokenSink sink) {
+        noCloseBefore = -1;
+        int n = s.length();
+        boolean groupStarted = false;
+        int i = 0;
+
+        while (i <= n) {
+            // 扫描一个逗号分隔的片段
+            int segBufStart = bufLen;
+            boolean segNonEmpty = false;
+            boolean inRun = false;
+            int runs = 0;
+            int caps = 0;
+            if (groupStarted) {
+                pendingSpace = true;
+            }
+
+            while (i < n) {
+                char c = s.charAt(i);
+                if (c == '[') {
+                    int close = findBracketClose(s, i);
+                    if (close >= 0) {
+                        i = close + 1;
+                        continue;
+                    }
+                }
+                if (c == ',') {
+                    break;
+                }
+                i++;
+
+                if (!segNonEmpty && c <= ' ') {
+                    // 片段开头的空白（trim的部分）
+                    pendingSpace = true;
+                    continue;
+                }
+                segNonEmpty = true;
+
+                if (isRegexWhitespace(c)) {
+                    inRun = false;
+                } else if (!inRun) {
+                    inRun = true;
+                    runs++;
+                    if (Character.isUpperCase(c)) {
+                        caps++;
+                    }
+                }
+                feed(c);
+            }
+            i++; // 跳过逗号（或越过结尾）
+
+            if (!segNonEmpty) {
+                continue;
+            }
+
+            boolean newAuthor = runs >= 2 && caps >= 2;
+            if (groupStarted && newAuthor) {
+                finishToken(tokenStart, segBufStart, sink);
+                // 新作者从该片段开始，跳过补上的分隔空格
+                tokenStart = (bufLen > segBufStart && buf[segBufStart] == ' ') ? segBufStart + 1 : segBufStart;
+            }
+            groupStarted = true;
+        }
+
+        if (groupStarted) {
+            finishToken(tokenStart, bufLen, sink);
+        }
+    }
+
+    /**
+     * 写入一个字符，非法字符作为分隔符处理
+     */
+    private void feed(char c) {
+        if (isNameChar(c)) {
+            if (pendingSpace && bufLen > tokenStart) {
+                buf[bufLen++] = ' ';
+            }
+            pendingSpace = false;
+            buf[bufLen++] = c;
+        } else {
+            pendingSpace = true;
+        }
+    }
+
+    /**
+     * 结束一个作者：过滤太短和重复的名字后输出
+     */
+    private void finishToken(int start, int end, TokenSink sink) {
+        int len = end - start;
+        if (len <= 2) {
+            return;
+        }
+
+        for (int k = 0; k < emittedCount; k++) {
+            int s = emittedStart[k];
+            if (emittedLen[k] == len && Arrays.equals(buf, s, s + len, buf, start, end)) {
+                return;
+            }
+        }
+
+        if (emittedCount == emittedStart.length) {
+            emittedStart = Arrays.copyOf(emittedStart, emittedCount * 2);
+            emittedLen = Arrays.copyOf(emittedLen, emittedCount * 2);
+        }
+        emittedStart[emittedCount] = start;
+        emittedLen[emittedCount] = len;
+        emittedCount++;
+
+        sink.accept(buf, start, len);
+    }
+
+    /**
+     * 方括号外是否包含分号
+     */
+    private boolean containsSemicolon(String s) {
+        noCloseBefore = -1;
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '[') {
+                int close = findBracketClose(s, i);
+                if (close >= 0) {
+                    i = close + 1;
+                    continue;
+                }
+            } else if (c == ';') {
+                return true;
+            }
+            i++;
+        }
+        return false;
+    }
+
+    /**
+     * 查找与open处'['匹配的']'，等价于正则 \[.*?\]（.不匹配换行符）
+     */
+    private int findBracketClose(String s, int open) {
+        if (open < noCloseBefore) {
+            return -1;
+        }
+        int n = s.length();
+        for (int j = open + 1; j < n; j++) {
+            char c = s.charAt(j);
+            if (c == ']') {
+                return j;
+            }
+            if (isLineTerminator(c)) {
+                noCloseBefore = j;
+                return -1;
+            }
+        }
+        noCloseBefore = n;
+        return -1;
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-' || c == '\'';
+    }
+
+    /**
+     * 与正则\s一致：[ \t\n\x0B\f\r]
+     */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.backend.util;
+
+/**
+ * 去重计数器：精确实现（ExactCardinality）或HyperLogLog估计（HyperLogLog）
+ * 同一类型、同一参数的计数器可以合并（按年份、按线程分别统计后汇总）
+ */
+public interface CardinalityCounter {
+
+    void add(String value);
+
+    /**
+     * 返回不同取值的数量（HyperLogLog为估计值）
+     */
+    long cardinality();
+
+    /**
+     * 合并另一个计数器，类型或参数不一致时抛出IllegalArgumentException
+     */
+    void merge(CardinalityCounter other);
+
+    /**
+     * 估计值的相对标准误差，精确计数为0
+     */
+    double standardError();
+}
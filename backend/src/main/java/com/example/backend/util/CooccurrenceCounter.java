@@ -0,0 +1,331 @@
+package com.example.backend.util;
+
+import java.util.*;
+
+/**
+ * 共现统计：同一篇论文中出现的取值两两组成一条边，统计边的出现次数
+ *
+ * 取值编码为连续int编号（StringIdDictionary），边以 (小编号 << 32 | 大编号) 作为long键
+ * 存放在LongIntOpenHashMap中，没有装箱和Entry对象。
+ * 内存有界：边数超过maxEdges时剪枝，只保留计数最高的maxEdges/2条边（阈值处并列的边按表中顺序保留一部分）；
+ * 节点数超过maxNodes（与maxEdges相同）时同样只保留出现次数最高的maxNodes/2个节点，并删掉与被剪节点相连的边。
+ * 被剪掉的边和节点计数都不超过各次的剪枝阈值，累计阈值（maxUndercount）即任意节点或边计数可能偏低的上限。
+ * 每篇论文最多取前maxItemsPerPaper个不同取值，避免个别论文的关键词过多导致边数平方增长。
+ *
+ * 用法：对每篇论文依次add(...)，然后endPaper()。两个实例可以合并。非线程安全。
+ */
+public final class CooccurrenceCounter {
+
+    private final int maxEdges;
+    private final int maxNodes;
+    private final int maxItemsPerPaper;
+
+    private StringIdDictionary nodes = new StringIdDictionary(256);
+    private int[] nodeCounts = new int[256];
+    private LongIntOpenHashMap edges = new LongIntOpenHashMap(1024);
+
+    // 当前论文的取值编号（已去重）
+    private final IntArrayList current = new IntArrayList(32);
+
+    private long prunedEdges;
+    private long maxUndercount;
+    // 节点剪枝后编号重新分配，调用方缓存的编号随之失效
+    private int nodeGeneration;
+
+    public CooccurrenceCounter(int maxEdges, int maxItemsPerPaper) {
+        if (maxEdges < 2 || maxItemsPerPaper < 2) {
+            throw new IllegalArgumentException("maxEdges和maxItemsPerPaper必须至少为2");
+        }
+        this.maxEdges = maxEdges;
+        this.maxNodes = maxEdges;
+        this.maxItemsPerPaper = maxItemsPerPaper;
+    }
+
+    /**
+     * 取值的编号（不存在时分配），可以配合addId使用以省去重复的字符串查找
+     * 编号在endPaper/merge剪掉节点后失效，缓存编号的调用方需检查nodeGeneration()
+     */
+    public int nodeId(String item) {
+        int id = nodes.add(item);
+        if (id >= nodeCounts.length) {
+            nodeCounts = Arrays.copyOf(nodeCounts, Math.max(id + 1, nodeCounts.length * 2));
+        }
+        return id;
+    }
+
+    /**
+     * 当前论文中出现的一个取值
+     */
+    public void add(String item) {
+        if (current.size() < maxItemsPerPaper) {
+            addId(nodeId(item));
+        }
+    }
+
+    public void addId(int id) {
+        if (current.size() >= maxItemsPerPaper) {
+            return;
+        }
+        int[] ids = current.buffer();
+        for (int i = 0; i < current.size(); i++) {
+            if (ids[i] == id) {
+                return;
+            }
+        }
+        current.add(id);
+    }
+
+    /**
+     * 结束当前论文：累加取值出现次数和两两共现次数
+     */
+    public void endPaper() {
+        int[] ids = current.buffer();
+        int n = current.size();
+        for (int i = 0; i < n; i++) {
+            nodeCounts[ids[i]]++;
+            for (int j = i + 1; j < n; j++) {
+                edges.addTo(edgeKey(ids[i], ids[j]), 1);
+            }
+        }
+        current.clear();
+        pruneIfNeeded();
+    }
+
+    /**
+     * 合并另一个统计（编号按字符串重新映射）
+     */
+    public void merge(CooccurrenceCounter other) {
+        int[] mapping = new int[other.nodes.size()];
+        for (int id = 0; id < mapping.length; id++) {
+            mapping[id] = nodeId(other.nodes.value(id));
+            nodeCounts[mapping[id]] += other.nodeCounts[id];
+        }
+        other.edges.forEach((key, value) ->
+                edges.addTo(edgeKey(mapping[(int) (key >>> 32)], mapping[(int) key]), value));
+        prunedEdges += other.prunedEdges;
+        maxUndercount += other.maxUndercount;
+        pruneIfNeeded();
+    }
+
+    /**
+     * 所有计数乘以weight后的新统计（抽样估计时放大到总体）
+     */
+    public CooccurrenceCounter scaled(double weight) {
+        CooccurrenceCounter copy = new CooccurrenceCounter(maxEdges, maxItemsPerPaper);
+        for (int id = 0; id < nodes.size(); id++) {
+            copy.restoreNode(nodes.value(id), (int) Math.round(nodeCounts[id] * weight));
+        }
+        edges.forEach((key, value) -> copy.edges.addTo(key, (int) Math.round(value * weight)));
+        copy.prunedEdges = prunedEdges;
+        copy.maxUndercount = Math.round(maxUndercount * weight);
+        return copy;
+    }
+
+    /**
+     * 图结构结果：出现次数最多的maxNodes个节点，以及这些节点之间权重最高的maxLinks条边
+     */
+    public Map<String, Object> toGraph(int maxNodes, int maxLinks) {
+        Integer[] order = new Integer[nodes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(nodeCounts[b], nodeCounts[a]));
+
+        boolean[] selected = new boolean[nodes.size()];
+        List<Map<String, Object>> nodeList = new ArrayList<>();
+        for (int i = 0; i < Math.min(maxNodes, order.length); i++) {
+            int id = order[i];
+            selected[id] = true;
+            Map<String, Object> node = new HashMap<>();
+            node.put("id", nodes.value(id));
+            node.put("count", nodeCounts[id]);
+            nodeList.add(node);
+        }
+
+        List<long[]> candidates = new ArrayList<>();
+        edges.forEach((key, value) -> {
+            if (selected[(int) (key >>> 32)] && selected[(int) key]) {
+                candidates.add(new long[]{key, value});
+            }
+        });
+        candidates.sort((a, b) -> Long.compare(b[1], a[1]));
+
+        List<Map<String, Object>> links = new ArrayList<>();
+        for (int i = 0; i < Math.min(maxLinks, candidates.size()); i++) {
+            long key = candidates.get(i)[0];
+            Map<String, Object> link = new HashMap<>();
+            link.put("source", nodes.value((int) (key >>> 32)));
+            link.put("target", nodes.value((int) key));
+            link.put("weight", candidates.get(i)[1]);
+            links.add(link);
+        }
+
+        Map<String, Object> graph = new HashMap<>();
+        graph.put("nodes", nodeList);
+        graph.put("links", links);
+        graph.put("totalNodes", nodes.size());
+        graph.put("totalEdges", edges.size());
+        graph.put("prunedEdges", prunedEdges);
+        graph.put("maxUndercount", maxUndercount);
+        return graph;
+    }
+
+    // ==================== 序列化 ====================
+
+    public int maxEdges() {
+        return maxEdges;
+    }
+
+    public int maxItemsPerPaper() {
+        return maxItemsPerPaper;
+    }
+
+    public int nodeCount() {
+        return nodes.size();
+    }
+
+    public String node(int id) {
+        return nodes.value(id);
+    }
+
+    public int nodeFrequency(int id) {
+        return nodeCounts[id];
+    }
+
+    /**
+     * 节点剪枝的次数，变化时此前取得的节点编号失效
+     */
+    public int nodeGeneration() {
+        return nodeGeneration;
+    }
+
+    public int edgeCount() {
+        return edges.size();
+    }
+
+    /**
+     * 遍历所有边（两端编号及次数）
+     */
+    public void forEachEdge(EdgeConsumer consumer) {
+        edges.forEach((key, value) -> consumer.accept((int) (key >>> 32), (int) key, value));
+    }
+
+    public long prunedEdges() {
+        return prunedEdges;
+    }
+
+    public long maxUndercount() {
+        return maxUndercount;
+    }
+
+    /**
+     * 按序列化顺序恢复节点（编号与恢复顺序一致）
+     */
+    public void restoreNode(String item, int count) {
+        nodeCounts[nodeId(item)] += count;
+    }
+
+    public void restoreEdge(int a, int b, int count) {
+        edges.addTo(edgeKey(a, b), count);
+    }
+
+    public void restorePruning(long prunedEdges, long maxUndercount) {
+        this.prunedEdges = prunedEdges;
+        this.maxUndercount = maxUndercount;
+    }
+
+    @FunctionalInterface
+    public interface EdgeConsumer {
+        void accept(int a, int b, int count);
+    }
+
+    // ==================== 内部实现 ====================
+
+    private static long edgeKey(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private void pruneIfNeeded() {
+        if (nodes.size() > maxNodes) {
+            pruneNodes();
+        }
+        if (edges.size() > maxEdges) {
+            pruneEdges();
+        }
+    }
+
+    /**
+     * 保留计数最高的 maxEdges/2 条边：高于阈值的全部保留，等于阈值的保留到凑足为止
+     */
+    private void pruneEdges() {
+        int target = maxEdges / 2;
+        int[] values = edges.values();
+        int threshold = threshold(values, target);
+        int[] ties = {target - countAbove(values, threshold)};
+
+        LongIntOpenHashMap kept = new LongIntOpenHashMap(maxEdges);
+        edges.forEach((key, value) -> {
+            if (value > threshold || (value == threshold && ties[0]-- > 0)) {
+                kept.addTo(key, value);
+            }
+        });
+        prunedEdges += edges.size() - kept.size();
+        maxUndercount += threshold;
+        edges = kept;
+    }
+
+    /**
+     * 保留出现次数最高的 maxNodes/2 个节点并重新编号，两端不都保留的边一并删除
+     * 被删的边计数不超过其两端节点的出现次数，因此也不超过节点阈值
+     */
+    private void pruneNodes() {
+        int target = maxNodes / 2;
+        int[] counts = Arrays.copyOf(nodeCounts, nodes.size());
+        int threshold = threshold(counts, target);
+        int ties = target - countAbove(counts, threshold);
+
+        StringIdDictionary keptNodes = new StringIdDictionary(target);
+        int[] keptCounts = new int[Math.max(target, 256)];
+        int[] mapping = new int[nodes.size()];
+        for (int id = 0; id < mapping.length; id++) {
+            int count = nodeCounts[id];
+            if (count > threshold || (count == threshold && ties-- > 0)) {
+                mapping[id] = keptNodes.add(nodes.value(id));
+                keptCounts[mapping[id]] = count;
+            } else {
+                mapping[id] = -1;
+            }
+        }
+
+        LongIntOpenHashMap keptEdges = new LongIntOpenHashMap(Math.min(edges.size(), maxEdges));
+        edges.forEach((key, value) -> {
+            int a = mapping[(int) (key >>> 32)];
+            int b = mapping[(int) key];
+            if (a >= 0 && b >= 0) {
+                keptEdges.addTo(edgeKey(a, b), value);
+            }
+        });
+        prunedEdges += edges.size() - keptEdges.size();
+        maxUndercount += threshold;
+        nodes = keptNodes;
+        nodeCounts = keptCounts;
+        edges = keptEdges;
+        nodeGeneration++;
+    }
+
+    /**
+     * 第target大的值（values会被排序）
+     */
+    private static int threshold(int[] values, int target) {
+        Arrays.sort(values);
+        return values[values.length - target];
+    }
+
+    private static int countAbove(int[] sortedValues, int threshold) {
+        int count = 0;
+        for (int i = sortedValues.length - 1; i >= 0 && sortedValues[i] > threshold; i--) {
+            count++;
+        }
+        return count;
+    }
+}
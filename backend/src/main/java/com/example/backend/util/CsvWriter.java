@@ -0,0 +1,132 @@
+package com.example.backend.util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 流式CSV编码：字段直接编码为UTF-8写入可复用的字节缓冲区，缓冲区满时整块写出
+ * 每个字段只扫描一次：编码的同时把双引号写成两个、记录是否需要引号包裹（含逗号、双引号、\n或\r），
+ * 扫描完再补上引号或把内容前移一位，不为字段或行创建中间String/byte[]。null写为空字段。
+ * 内存占用只有缓冲区大小（遇到超长字段时按需扩大），与行数无关。非线程安全。
+ */
+public final class CsvWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private boolean firstField = true;
+    private long rows;
+
+    public CsvWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void field(String value) throws IOException {
+        int length = value == null ? 0 : value.length();
+        // 最坏情况：每个char 3字节（代理对2个char共4字节），外加分隔符和两个引号
+        ensureCapacity(length * 3 + 3);
+        if (!firstField) {
+            buf[pos++] = ',';
+        }
+        firstField = false;
+        if (length == 0) {
+            return;
+        }
+
+        byte[] b = buf;
+        // 预留开头引号的位置
+        int start = pos;
+        int p = start + 1;
+        boolean quote = false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') {
+                    b[p++] = '"';
+                    quote = true;
+                } else if (c == ',' || c == '\n' || c == '\r') {
+                    quote = true;
+                }
+                b[p++] = (byte) c;
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xc0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                b[p++] = (byte) (0xf0 | (cp >> 18));
+                b[p++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                b[p++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                b[p++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，与String.getBytes(UTF_8)一致写为'?'
+                b[p++] = '?';
+            } else {
+                b[p++] = (byte) (0xe0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                b[p++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        if (quote) {
+            b[start] = '"';
+            b[p++] = '"';
+        } else {
+            System.arraycopy(b, start + 1, b, start, p - start - 1);
+            p--;
+        }
+        pos = p;
+    }
+
+    public void row(String... values) throws IOException {
+        for (String value : values) {
+            field(value);
+        }
+        endRow();
+    }
+
+    public void endRow() throws IOException {
+        ensureCapacity(1);
+        buf[pos++] = '\n';
+        firstField = true;
+        rows++;
+    }
+
+    /**
+     * 已写入的行数（含表头）
+     */
+    public long rows() {
+        return rows;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if (pos + needed > buf.length) {
+            flushBuffer();
+            if (needed > buf.length) {
+                buf = new byte[Math.max(needed, buf.length * 2)];
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+}
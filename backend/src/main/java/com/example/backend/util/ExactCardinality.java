@@ -0,0 +1,41 @@
+package com.example.backend.util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 精确去重计数，保留所有不同的取值
+ */
+public final class ExactCardinality implements CardinalityCounter {
+
+    private final Set<String> values = new HashSet<>();
+
+    @Override
+    public void add(String value) {
+        if (value != null) {
+            values.add(value);
+        }
+    }
+
+    @Override
+    public long cardinality() {
+        return values.size();
+    }
+
+    @Override
+    public void merge(CardinalityCounter other) {
+        if (!(other instanceof ExactCardinality)) {
+            throw new IllegalArgumentException("无法合并不同类型的去重计数器");
+        }
+        values.addAll(((ExactCardinality) other).values);
+    }
+
+    @Override
+    public double standardError() {
+        return 0;
+    }
+
+    public Set<String> values() {
+        return values;
+    }
+}
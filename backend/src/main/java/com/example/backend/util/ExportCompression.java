@@ -0,0 +1,99 @@
+package com.example.backend.util;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 导出文件的压缩方式：边写边压缩，不需要先生成完整的未压缩文件
+ * WoS导出中期刊名、出版商、学科分类等重复值很多，gzip通常压缩到1/5以下，zstd更快且压缩率相近或更高。
+ */
+public enum ExportCompression {
+
+    NONE("", "text/csv;charset=UTF-8"),
+    GZIP(".gz", "application/gzip"),
+    ZSTD(".zst", "application/zstd");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String suffix;
+    private final String contentType;
+
+    ExportCompression(String suffix, String contentType) {
+        this.suffix = suffix;
+        this.contentType = contentType;
+    }
+
+    /**
+     * 按名称解析（不区分大小写），null或空字符串为NONE；不支持的名称抛出IllegalArgumentException
+     */
+    public static ExportCompression parse(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return NONE;
+        }
+        switch (name.trim().toLowerCase()) {
+            case "none":
+                return NONE;
+            case "gzip":
+            case "gz":
+                return GZIP;
+            case "zstd":
+            case "zst":
+                return ZSTD;
+            default:
+                throw new IllegalArgumentException("不支持的压缩方式: " + name + "（可选 none、gzip、zstd）");
+        }
+    }
+
+    /**
+     * 文件名后缀（如 .gz），不压缩时为空字符串
+     */
+    public String suffix() {
+        return suffix;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * 包装输出流：关闭返回的流会写完压缩数据的结尾，但不会关闭out（只刷新）
+     * level不大于0时使用默认压缩级别
+     */
+    public OutputStream wrap(OutputStream out, int level) throws IOException {
+        OutputStream target = new NonClosingOutputStream(out);
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(target, BUFFER_SIZE) {
+                    {
+                        if (level > 0) {
+                            def.setLevel(Math.min(level, 9));
+                        }
+                    }
+                };
+            case ZSTD:
+                return level > 0 ? new ZstdOutputStream(target, level) : new ZstdOutputStream(target);
+            default:
+                return target;
+        }
+    }
+
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
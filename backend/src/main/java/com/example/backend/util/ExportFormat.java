@@ -0,0 +1,53 @@
+package com.example.backend.util;
+
+/**
+ * 导出文件格式：CSV，或便于pandas/Spark直接加载的列式格式Parquet、Arrow IPC（流格式）
+ * 列式格式自带类型和压缩，不再叠加ExportCompression。
+ */
+public enum ExportFormat {
+
+    CSV(".csv", "text/csv;charset=UTF-8"),
+    PARQUET(".parquet", "application/vnd.apache.parquet"),
+    ARROW(".arrows", "application/vnd.apache.arrow.stream");
+
+    private final String suffix;
+    private final String contentType;
+
+    ExportFormat(String suffix, String contentType) {
+        this.suffix = suffix;
+        this.contentType = contentType;
+    }
+
+    /**
+     * 按名称解析（不区分大小写），null或空字符串为CSV；不支持的名称抛出IllegalArgumentException
+     */
+    public static ExportFormat parse(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return CSV;
+        }
+        switch (name.trim().toLowerCase()) {
+            case "csv":
+                return CSV;
+            case "parquet":
+                return PARQUET;
+            case "arrow":
+            case "arrows":
+            case "ipc":
+                return ARROW;
+            default:
+                throw new IllegalArgumentException("不支持的导出格式: " + name + "（可选 csv、parquet、arrow）");
+        }
+    }
+
+    public String suffix() {
+        return suffix;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public boolean isColumnar() {
+        return this != CSV;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.backend.util;
+
+/**
+ * 多年份导出的打包方式：按年份顺序拼接成一个文件，或每个年份表一个完整文件打包为zip
+ * 拼接要求格式可以直接连接（CSV，含gzip/zstd压缩的CSV）；zip适用于所有格式，条目不再压缩（STORED）。
+ */
+public enum ExportPackaging {
+
+    FILE(""),
+    ZIP(".zip");
+
+    private final String suffix;
+
+    ExportPackaging(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * 按名称解析（不区分大小写），null或空字符串为FILE；不支持的名称抛出IllegalArgumentException
+     */
+    public static ExportPackaging parse(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return FILE;
+        }
+        switch (name.trim().toLowerCase()) {
+            case "file":
+            case "concat":
+                return FILE;
+            case "zip":
+                return ZIP;
+            default:
+                throw new IllegalArgumentException("不支持的打包方式: " + name + "（可选 file、zip）");
+        }
+    }
+
+    /**
+     * 文件名后缀（如 .zip），不打包时为空字符串
+     */
+    public String suffix() {
+        return suffix;
+    }
+}
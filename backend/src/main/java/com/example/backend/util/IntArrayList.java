@@ -0,0 +1,65 @@
+package com.example.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * 可增长的int数组（避免List<Integer>的装箱开销）
+ * 非线程安全。
+ */
+public final class IntArrayList {
+
+    private int[] values;
+    private int size;
+
+    public IntArrayList() {
+        this(16);
+    }
+
+    public IntArrayList(int initialCapacity) {
+        this.values = new int[Math.max(initialCapacity, 4)];
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1));
+        }
+        values[size++] = value;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " >= size " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * 最后一个元素，列表为空时返回defaultValue
+     */
+    public int last(int defaultValue) {
+        return size == 0 ? defaultValue : values[size - 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * 内部数组（只有前size个元素有效），用于批量写出
+     */
+    public int[] buffer() {
+        return values;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
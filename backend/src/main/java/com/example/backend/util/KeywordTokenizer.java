@@ -0,0 +1,161 @@
+package com.example.backend.util;
+
+import java.util.Locale;
+
+/**
+ * 关键词字段（keyword/keyword_plus/subject_extended）的字符级分词器
+ * 规则与原有analyzeKeywordTrends中的循环完全一致：
+ * 1. 按分号或逗号分割，trim后转小写
+ * 2. 过滤空值、null/na/n/a/none/-以及长度不大于2的关键词
+ * 3. 移除双引号和单引号后再次trim，非空且不为null的才输出
+ *
+ * ASCII字符直接在可复用的char[]中转换，只有包含特殊大小写规则的非ASCII片段才回退到String.toLowerCase()。
+ * 非线程安全，每个线程（或每次分析）使用独立实例。
+ */
+public final class KeywordTokenizer {
+
+    // 默认Locale是否使用通用的大小写规则（土耳其语、阿塞拜疆语、立陶宛语有特殊规则）
+    private static final boolean PLAIN_ASCII_LOWER_CASE = !isSpecialCasingLocale(Locale.getDefault());
+
+    private char[] buf = new char[128];
+
+    /**
+     * 解析关键词字段，返回输出的关键词数量
+     */
+    public int tokenize(String keywordString, TokenSink sink) {
+        if (keywordString == null || keywordString.isEmpty()) {
+            return 0;
+        }
+
+        int n = keywordString.length();
+        int emitted = 0;
+        int segStart = 0;
+        for (int i = 0; i <= n; i++) {
+            if (i == n || keywordString.charAt(i) == ';' || keywordString.charAt(i) == ',') {
+                if (emitSegment(keywordString, segStart, i, sink)) {
+                    emitted++;
+                }
+                segStart = i + 1;
+            }
+        }
+        return emitted;
+    }
+
+    /**
+     * 判断字符串trim后是否为空（与 s.trim().isEmpty() 一致）
+     */
+    public static boolean isBlank(String s) {
+        if (s == null) {
+            return true;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean emitSegment(String s, int start, int end, TokenSink sink) {
+        // trim
+        while (start < end && s.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
+
+        int len = lowerCaseInto(s, start, end);
+        if (len <= 2 || isPlaceholder(len)) {
+            return false;
+        }
+
+        // 移除引号并再次trim
+        int out = 0;
+        for (int i = 0; i < len; i++) {
+            char c = buf[i];
+            if (c != '"' && c != '\'') {
+                buf[out++] = c;
+            }
+        }
+        int from = 0;
+        while (from < out && buf[from] <= ' ') {
+            from++;
+        }
+        while (out > from && buf[out - 1] <= ' ') {
+            out--;
+        }
+        if (from == out || regionEquals(from, out - from, "null")) {
+            return false;
+        }
+
+        sink.accept(buf, from, out - from);
+        return true;
+    }
+
+    /**
+     * 将[start,end)转为小写写入buf，返回长度
+     */
+    private int lowerCaseInto(String s, int start, int end) {
+        int len = end - start;
+        ensureCapacity(len);
+
+        if (PLAIN_ASCII_LOWER_CASE) {
+            boolean simple = true;
+            for (int i = 0; i < len; i++) {
+                char c = s.charAt(start + i);
+                if (c < 0x80) {
+                    buf[i] = (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+                } else if (Character.isSurrogate(c) || c == '\u0130' || c == '\u03A3') {
+                    // 含上下文相关或多字符的小写规则，交给String处理
+                    simple = false;
+                    break;
+                } else {
+                    buf[i] = Character.toLowerCase(c);
+                }
+            }
+            if (simple) {
+                return len;
+            }
+        }
+
+        String lower = s.substring(start, end).toLowerCase();
+        ensureCapacity(lower.length());
+        lower.getChars(0, lower.length(), buf, 0);
+        return lower.length();
+    }
+
+    private boolean isPlaceholder(int len) {
+        return regionEquals(0, len, "null")
+                || regionEquals(0, len, "na")
+                || regionEquals(0, len, "n/a")
+                || regionEquals(0, len, "none")
+                || regionEquals(0, len, "-");
+    }
+
+    private boolean regionEquals(int from, int len, String value) {
+        if (len != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (buf[from + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSpecialCasingLocale(Locale locale) {
+        String language = locale.getLanguage();
+        return "tr".equals(language) || "az".equals(language) || "lt".equals(language);
+    }
+
+    private void ensureCapacity(int len) {
+        if (buf.length < len) {
+            buf = new char[Math.max(len, buf.length * 2)];
+        }
+    }
+}
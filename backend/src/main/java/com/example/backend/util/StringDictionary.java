@@ -0,0 +1,156 @@
+package com.example.backend.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界的并发字符串字典（驻留池）
+ *
+ * 同一取值只保留一个String实例，大量重复的字段值（期刊名、语言、文献类型等）共享同一个对象；
+ * 规范实例的hashCode已缓存，作为HashMap键时查找更便宜。
+ *
+ * 开放寻址的定长表（容量为maxEntries的2倍以上），读取无锁，插入只CAS空槽，不扩容不删除。
+ * 条目数达到maxEntries或取值长度超过maxLength时不再插入，直接返回原字符串，
+ * 因此高基数的自由文本字段最多占用固定大小的内存。
+ * 支持直接按字符区间查找，命中时不分配新字符串。线程安全。
+ */
+public final class StringDictionary {
+
+    private final String name;
+    private final int maxEntries;
+    private final int maxLength;
+    private final AtomicReferenceArray<String> table;
+    private final int mask;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StringDictionary(String name, int maxEntries, int maxLength) {
+        if (maxEntries <= 0 || maxEntries > (1 << 29)) {
+            throw new IllegalArgumentException("maxEntries必须在(0, 2^29]之间: " + maxEntries);
+        }
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.maxLength = maxLength;
+        int capacity = Integer.highestOneBit(maxEntries * 2 - 1) << 1;
+        this.table = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * 返回与value相等的规范实例；字典已满或超过长度限制时返回value本身
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > maxLength) {
+            return value;
+        }
+
+        int index = spread(value.hashCode()) & mask;
+        while (true) {
+            String existing = table.get(index);
+            if (existing == null) {
+                misses.increment();
+                return insert(index, value);
+            }
+            if (existing.equals(value)) {
+                hits.increment();
+                return existing;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * 按字符区间查找规范实例，命中时不创建新字符串
+     */
+    public String intern(char[] buf, int offset, int length) {
+        if (length > maxLength) {
+            return new String(buf, offset, length);
+        }
+
+        // 与String.hashCode()相同的计算方式，两种查找方式落在同一个槽位序列上
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buf[offset + i];
+        }
+
+        int index = spread(hash) & mask;
+        while (true) {
+            String existing = table.get(index);
+            if (existing == null) {
+                misses.increment();
+                return insert(index, new String(buf, offset, length));
+            }
+            if (existing.length() == length && regionEquals(existing, buf, offset)) {
+                hits.increment();
+                return existing;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    // ==================== 内部实现 ====================
+
+    /**
+     * 从空槽index开始插入；并发插入了相同取值时返回先插入的实例
+     */
+    private String insert(int index, String value) {
+        while (true) {
+            // 并发插入时条目数最多超出线程数个，表容量留有余量，不会被填满
+            if (size.get() >= maxEntries) {
+                return value;
+            }
+            if (table.compareAndSet(index, null, value)) {
+                size.incrementAndGet();
+                return value;
+            }
+            // 槽位被其他线程占用：可能正是相同的取值，否则继续探测下一个空槽
+            String existing = table.get(index);
+            if (existing.equals(value)) {
+                return existing;
+            }
+            do {
+                index = (index + 1) & mask;
+                existing = table.get(index);
+                if (existing != null && existing.equals(value)) {
+                    return existing;
+                }
+            } while (existing != null);
+        }
+    }
+
+    private static boolean regionEquals(String value, char[] buf, int offset) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != buf[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * 字符串 → 连续int编号的字典（编号从0开始按首次出现顺序分配）
+ * 开放寻址表只存编号，字符串按编号存放在数组中，便于用int数组/long键表示取值及其组合。
+ * 非线程安全。
+ */
+public final class StringIdDictionary {
+
+    private String[] values;
+    private int[] slots;
+    private int mask;
+    private int size;
+
+    public StringIdDictionary() {
+        this(64);
+    }
+
+    public StringIdDictionary(int expectedSize) {
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1);
+        this.values = new String[Math.max(expectedSize, 8)];
+        this.slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * value的编号，不存在时返回-1
+     */
+    public int idOf(String value) {
+        int slot = spread(value.hashCode()) & mask;
+        while (slots[slot] >= 0) {
+            if (values[slots[slot]].equals(value)) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * value的编号，不存在时分配新编号
+     */
+    public int add(String value) {
+        int slot = spread(value.hashCode()) & mask;
+        while (slots[slot] >= 0) {
+            if (values[slots[slot]].equals(value)) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = size++;
+        if (id == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[id] = value;
+        slots[slot] = id;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    public String value(int id) {
+        return values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, -1);
+        mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(values[id].hashCode()) & mask;
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
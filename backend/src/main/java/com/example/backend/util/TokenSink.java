@@ -0,0 +1,10 @@
+package com.example.backend.util;
+
+/**
+ * 分词结果回调
+ * buf中的内容只在回调期间有效，需要保留时请自行复制
+ */
+@FunctionalInterface
+public interface TokenSink {
+    void accept(char[] buf, int offset, int length);
+}
@@ -0,0 +1,377 @@
+package com.example.backend.util;
+
+import java.util.*;
+
+/**
+ * 基于Space-Saving算法的Top-K（高频项）统计
+ *
+ * 最多保留capacity个计数器，内存与数据量无关：
+ * - 不同取值数不超过capacity时结果是精确的（isExact，误差为0）
+ * - 超过后每个计数器的count是上界估计，count - error是保证成立的下界，误差不超过 总权重/capacity（见maxError）
+ * top返回下界（精确时即真实计数），不会把高估的计数当作精确值返回。
+ * 计数器用最小堆维护，更新和淘汰都是O(log capacity)，取Top-K不需要全量排序。
+ *
+ * 两个sketch可以合并（按年份、按线程分别统计后汇总），合并后误差界为两者之和。
+ * 非线程安全。
+ */
+public final class TopKSketch {
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private Counter[] heap;
+    private int size;
+    private long totalWeight;
+
+    public TopKSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity必须大于0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(Math.min(capacity, 1024) * 2);
+        this.heap = new Counter[Math.min(capacity, 1024)];
+    }
+
+    /**
+     * 按允许的相对误差（相对于总权重）创建sketch，capacity = ceil(1 / errorRate)
+     */
+    public static TopKSketch withErrorRate(double errorRate) {
+        return new TopKSketch(capacityForErrorRate(errorRate));
+    }
+
+    /**
+     * 使计数误差不超过 errorRate·总权重 所需的计数器数量
+     */
+    public static int capacityForErrorRate(double errorRate) {
+        if (errorRate <= 0 || errorRate >= 1) {
+            throw new IllegalArgumentException("errorRate必须在(0,1)之间: " + errorRate);
+        }
+        return (int) Math.ceil(1.0 / errorRate);
+    }
+
+    public void add(String key) {
+        add(key, 1);
+    }
+
+    public void add(String key, long weight) {
+        if (key == null || weight <= 0) {
+            return;
+        }
+        totalWeight += weight;
+        offer(key, weight, 0);
+    }
+
+    /**
+     * 合并另一个sketch的结果
+     */
+    public void merge(TopKSketch other) {
+        if (other == null || other.size == 0) {
+            totalWeight += other == null ? 0 : other.totalWeight;
+            return;
+        }
+
+        // 在对方被截断时，本方独有的项在对方那里最多出现 other.minCount 次，反之亦然
+        long thisMissing = isExact() ? 0 : untrackedBound();
+        long otherMissing = other.isExact() ? 0 : other.untrackedBound();
+
+        List<Counter> merged = new ArrayList<>(size + other.size);
+        for (int i = 0; i < size; i++) {
+            Counter c = heap[i];
+            Counter o = other.counters.get(c.key);
+            if (o != null) {
+                merged.add(new Counter(c.key, c.count + o.count, c.error + o.error));
+            } else {
+                merged.add(new Counter(c.key, c.count + otherMissing, c.error + otherMissing));
+            }
+        }
+        for (int i = 0; i < other.size; i++) {
+            Counter o = other.heap[i];
+            if (!counters.containsKey(o.key)) {
+                merged.add(new Counter(o.key, o.count + thisMissing, o.error + thisMissing));
+            }
+        }
+
+        totalWeight += other.totalWeight;
+        rebuild(merged);
+    }
+
+    /**
+     * 返回保证计数（count - error，精确时即真实计数）最高的k项，按保证计数降序，相同时按字典序
+     */
+    public LinkedHashMap<String, Integer> top(int k) {
+        LinkedHashMap<String, Integer> result = new LinkedHashMap<>();
+        if (k <= 0 || size == 0) {
+            return result;
+        }
+
+        Comparator<Counter> order = Comparator.comparingLong(Counter::lowerBound)
+                .thenComparing((Counter c) -> c.key, Comparator.reverseOrder());
+        PriorityQueue<Counter> best = new PriorityQueue<>(Math.min(k, size) + 1, order);
+        for (int i = 0; i < size; i++) {
+            best.offer(heap[i]);
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+
+        List<Counter> sorted = new ArrayList<>(best);
+        sorted.sort(order.reversed());
+        for (Counter c : sorted) {
+            result.put(c.key, (int) Math.min(Integer.MAX_VALUE, c.lowerBound()));
+        }
+        return result;
+    }
+
+    /**
+     * 返回估计计数（上界）最高的k项，保留每项的误差
+     */
+    public List<Counter> topCounters(int k) {
+        if (k <= 0 || size == 0) {
+            return new ArrayList<>();
+        }
+
+        Comparator<Counter> order = Comparator.comparingLong((Counter c) -> c.count)
+                .thenComparing((Counter c) -> c.key, Comparator.reverseOrder());
+        PriorityQueue<Counter> best = new PriorityQueue<>(Math.min(k, size) + 1, order);
+        for (int i = 0; i < size; i++) {
+            best.offer(heap[i]);
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+
+        List<Counter> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * 某一项的估计计数（上界），未被跟踪的项返回maxError
+     */
+    public long estimate(String key) {
+        Counter c = counters.get(key);
+        if (c != null) {
+            return c.count;
+        }
+        return isExact() ? 0 : untrackedBound();
+    }
+
+    /**
+     * 任意一项计数估计的最大误差（被跟踪项的error和未被跟踪项的计数上界中的最大值），精确时为0
+     */
+    public long maxError() {
+        if (isExact()) {
+            return 0;
+        }
+        long max = untrackedBound();
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, heap[i].error);
+        }
+        return max;
+    }
+
+    /**
+     * 所有计数都是精确值：没有淘汰或截断过计数器（计数之和等于总权重且误差都为0）
+     */
+    public boolean isExact() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (heap[i].error != 0) {
+                return false;
+            }
+            sum += heap[i].count;
+        }
+        return sum == totalWeight;
+    }
+
+    public long totalWeight() {
+        return totalWeight;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 所有计数器（无序），用于序列化
+     */
+    public List<Counter> counters() {
+        List<Counter> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(heap[i]);
+        }
+        return list;
+    }
+
+    /**
+     * 按已有计数器恢复sketch（反序列化使用）
+     */
+    public static TopKSketch restore(int capacity, long totalWeight, List<Counter> saved) {
+        TopKSketch sketch = new TopKSketch(capacity);
+        sketch.totalWeight = totalWeight;
+        List<Counter> copies = new ArrayList<>(saved.size());
+        for (Counter c : saved) {
+            copies.add(new Counter(c.key, c.count, c.error));
+        }
+        sketch.rebuild(copies);
+        return sketch;
+    }
+
+    /**
+     * 所有计数（及误差）乘以weight后的新sketch（抽样估计时把样本计数放大到总体）
+     */
+    public TopKSketch scaled(double weight) {
+        List<Counter> scaled = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Counter c = heap[i];
+            scaled.add(new Counter(c.key, Math.round(c.count * weight), Math.round(c.error * weight)));
+        }
+        return restore(capacity, Math.round(totalWeight * weight), scaled);
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void offer(String key, long count, long error) {
+        Counter existing = counters.get(key);
+        if (existing != null) {
+            existing.count += count;
+            existing.error += error;
+            siftDown(existing.heapIndex);
+            return;
+        }
+
+        if (size < capacity) {
+            Counter c = new Counter(key, count, error);
+            counters.put(key, c);
+            push(c);
+            return;
+        }
+
+        // 已满：替换计数最小的项，新项继承其计数作为误差
+        Counter min = heap[0];
+        counters.remove(min.key);
+        long base = min.count;
+        min.key = key;
+        min.count = base + count;
+        min.error = base + error;
+        counters.put(key, min);
+        siftDown(0);
+    }
+
+    private void rebuild(List<Counter> all) {
+        if (all.size() > capacity) {
+            all.sort(Comparator.comparingLong((Counter c) -> c.count).reversed());
+            all = all.subList(0, capacity);
+        }
+        counters.clear();
+        size = 0;
+        if (heap.length < all.size()) {
+            heap = new Counter[Math.min(capacity, Math.max(all.size(), heap.length * 2))];
+        }
+        for (Counter c : all) {
+            counters.put(c.key, c);
+            push(c);
+        }
+    }
+
+    private boolean isFull() {
+        return size >= capacity;
+    }
+
+    // 未被跟踪的项可能的最大计数
+    private long untrackedBound() {
+        return isFull() ? minCount() : 0;
+    }
+
+    private long minCount() {
+        return size == 0 ? 0 : heap[0].count;
+    }
+
+    private void push(Counter c) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, Math.min(capacity, heap.length * 2));
+        }
+        heap[size] = c;
+        c.heapIndex = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    private void siftUp(int i) {
+        Counter c = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Counter p = heap[parent];
+            if (p.count <= c.count) {
+                break;
+            }
+            heap[i] = p;
+            p.heapIndex = i;
+            i = parent;
+        }
+        heap[i] = c;
+        c.heapIndex = i;
+    }
+
+    private void siftDown(int i) {
+        Counter c = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && heap[right].count < heap[child].count) {
+                child = right;
+            }
+            if (c.count <= heap[child].count) {
+                break;
+            }
+            heap[i] = heap[child];
+            heap[i].heapIndex = i;
+            i = child;
+        }
+        heap[i] = c;
+        c.heapIndex = i;
+    }
+
+    /**
+     * 单个计数器：count为估计计数（上界），error为可能的高估量，count - error为保证的下界
+     */
+    public static final class Counter {
+        private String key;
+        private long count;
+        private long error;
+        private int heapIndex;
+
+        public Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        public long lowerBound() {
+            return count - error;
+        }
+    }
+}
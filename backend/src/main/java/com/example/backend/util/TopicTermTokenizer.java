@@ -0,0 +1,41 @@
+package com.example.backend.util;
+
+/**
+ * 主题检索词分词器：把文本切分为连续字母/数字组成的小写词项
+ * 维度列文件的主题倒排表和查询关键词使用同一套规则，保证两边的词项一致。
+ *
+ * 结果写在可复用的char[]中，非线程安全。
+ */
+public final class TopicTermTokenizer {
+
+    private char[] buf = new char[64];
+
+    /**
+     * 切分文本，返回输出的词项数量（不去重）
+     */
+    public int tokenize(String text, TokenSink sink) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+
+        int emitted = 0;
+        int len = 0;
+        int n = text.length();
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (len == buf.length) {
+                    char[] grown = new char[buf.length * 2];
+                    System.arraycopy(buf, 0, grown, 0, len);
+                    buf = grown;
+                }
+                buf[len++] = Character.toLowerCase(c);
+            } else if (len > 0) {
+                sink.accept(buf, 0, len);
+                emitted++;
+                len = 0;
+            }
+        }
+        return emitted;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.backend.config;
+
+import com.example.backend.service.impl.SlowQueryLog;
+import com.example.backend.service.impl.WosMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 游标查询的耗时从打开到关闭：指标和慢查询判断都使用这个总耗时
+ */
+class QueryMetricsInterceptorTest {
+
+    private static final long ROW_DELAY_MS = 20;
+
+    private SimpleMeterRegistry registry;
+    private SlowQueryLog slowQueryLog;
+    private QueryMetricsInterceptor interceptor;
+    private MappedStatement statement;
+    private final Map<String, Object> parameter = Map.of("tableName", "Wos_2020");
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        slowQueryLog = mock(SlowQueryLog.class);
+        when(slowQueryLog.isSlow(any(), anyLong())).thenAnswer(invocation ->
+                invocation.<Long>getArgument(1) >= TimeUnit.MILLISECONDS.toNanos(2 * ROW_DELAY_MS));
+        interceptor = new QueryMetricsInterceptor(new WosMetrics(registry), slowQueryLog);
+        statement = new MappedStatement.Builder(new Configuration(),
+                "com.example.backend.mapper.Main2022Mapper.scanTable", mock(SqlSource.class), SqlCommandType.SELECT)
+                .build();
+    }
+
+    @Test
+    void cursorDurationCoversReadingUntilClose() throws Throwable {
+        Cursor<?> cursor = (Cursor<?>) interceptor.intercept(invocation(slowCursor(List.of("a", "b", "c"))));
+        // 打开游标很快，此时还没有记录
+        verifyNoInteractions(slowQueryLog);
+        assertNull(registry.find("wos.query").timer());
+
+        int rows = 0;
+        for (Object ignored : cursor) {
+            rows++;
+        }
+        cursor.close();
+        cursor.close();
+
+        assertEquals(3, rows);
+        Timer timer = registry.find("wos.query").tags("statement", "scanTable", "table", "Wos_2020",
+                "outcome", "success").timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.MILLISECONDS) >= 3 * ROW_DELAY_MS);
+        assertEquals(3, registry.find("wos.query.rows").summary().totalAmount());
+        verify(slowQueryLog).isSlow(eq(statement), longThat(nanos -> nanos >= TimeUnit.MILLISECONDS.toNanos(3 * ROW_DELAY_MS)));
+        verify(slowQueryLog).record(eq(statement), eq(parameter),
+                longThat(nanos -> nanos >= TimeUnit.MILLISECONDS.toNanos(3 * ROW_DELAY_MS)), eq(3L), eq(true));
+    }
+
+    @Test
+    void readFailureIsRecordedAsError() throws Throwable {
+        Cursor<String> failing = cursor(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                throw new IllegalStateException("connection reset");
+            }
+
+            @Override
+            public String next() {
+                throw new IllegalStateException();
+            }
+        });
+        Cursor<?> cursor = (Cursor<?>) interceptor.intercept(invocation(failing));
+
+        assertThrows(IllegalStateException.class, () -> cursor.iterator().hasNext());
+        cursor.close();
+
+        assertNotNull(registry.find("wos.query").tags("outcome", "error").timer());
+        assertNull(registry.find("wos.query").tags("outcome", "success").timer());
+    }
+
+    private Invocation invocation(Object result) throws Throwable {
+        Invocation invocation = mock(Invocation.class);
+        when(invocation.getArgs()).thenReturn(new Object[]{statement, parameter, null});
+        when(invocation.proceed()).thenReturn(result);
+        return invocation;
+    }
+
+    private static Cursor<String> slowCursor(List<String> rows) {
+        Iterator<String> iterator = rows.iterator();
+        return cursor(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+                try {
+                    Thread.sleep(ROW_DELAY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return iterator.next();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cursor<String> cursor(Iterator<String> iterator) {
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.iterator()).thenReturn(iterator);
+        return cursor;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.backend.provider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 附表分组计数SQL：SQL Server要求选择的非聚合列与GROUP BY的表达式完全相同（含COLLATE），否则报错8120
+ */
+class SideTableFacetSqlTest {
+
+    private static final Pattern SELECT_VALUE = Pattern.compile("^SELECT p\\.pubyear AS pubyear, (.+?) AS value, COUNT\\(\\*\\) AS cnt FROM ");
+    private static final Pattern GROUP_BY = Pattern.compile(" GROUP BY p\\.pubyear, (.+)$");
+
+    private final SqlProvider provider = new SqlProvider();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"journal", "author", "institution", "country", "keyword"})
+    void selectedValueMatchesGroupByExpression(String facet) {
+        String sql = provider.sideTableFacetCounts(null, "Wos_2020", facet);
+
+        Matcher select = SELECT_VALUE.matcher(sql);
+        Matcher groupBy = GROUP_BY.matcher(sql);
+        assertTrue(select.find(), sql);
+        assertTrue(groupBy.find(), sql);
+        assertEquals(groupBy.group(1), select.group(1));
+        // 与内存分析一样按二进制排序规则区分大小写
+        assertTrue(select.group(1).endsWith(" COLLATE Latin1_General_100_BIN2"), sql);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"author", "institution", "country", "keyword"})
+    void joinsTheSideTableOfTheYearTable(String facet) {
+        String sql = provider.sideTableFacetCounts(null, "Wos_2020", facet);
+        assertTrue(sql.contains(" JOIN [Wos_2020_paper_"), sql);
+    }
+
+    @Test
+    void paperCountsGroupByYearOnly() {
+        String sql = provider.sideTableFacetCounts(null, "Wos_2020", "paper");
+        assertTrue(sql.endsWith(" GROUP BY p.pubyear"), sql);
+        assertThrows(IllegalArgumentException.class, () -> provider.sideTableFacetCounts(null, "Wos_2020", "unknown"));
+    }
+}
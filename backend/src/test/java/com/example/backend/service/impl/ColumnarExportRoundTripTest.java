@@ -0,0 +1,186 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.model.main2022;
+import com.example.backend.service.Main2022Service;
+import com.example.backend.testdata.WosRecordGenerator;
+import com.example.backend.util.ExportCompression;
+import com.example.backend.util.ExportFormat;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 列式导出的往返校验：10000行合成数据经快照导出写成Parquet/Arrow，再用ParquetReader和ArrowStreamReader
+ * 读回，逐行逐列与导出列的取值比较（含空值、无法解析的整数和多字节字符）
+ */
+class ColumnarExportRoundTripTest {
+
+    private static final int ROWS = 10000;
+    private static final String TABLE = "Wos_2020";
+
+    @TempDir
+    Path dir;
+
+    private List<main2022> papers;
+    private ParallelExportPlanner planner;
+    private DownloadServiceImpl downloadService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        papers = new WosRecordGenerator(7).generate(ROWS, 2020, 2020);
+        // 边界取值：空值、无法解析的数字、多字节字符
+        papers.get(0).setArticle_title(null);
+        papers.get(0).setJournal_title_source(null);
+        papers.get(1).setPage_count("12a");
+        papers.get(1).setPubyear(" 2020 ");
+        papers.get(2).setArticle_title("石墨烯催化剂的合成 – naïve approach 🧪");
+        papers.get(3).setJournal_title_source("");
+
+        Main2022Service main2022Service = mock(Main2022Service.class);
+        when(main2022Service.streamTable(eq(TABLE), any())).thenAnswer(invocation -> {
+            Main2022Service.PaperConsumer consumer = invocation.getArgument(1);
+            for (main2022 paper : papers) {
+                consumer.accept(paper);
+            }
+            return (long) papers.size();
+        });
+
+        ExportStore store = new ExportStore(dir.resolve("store").toString(), 1024, 24, 24);
+        planner = new ParallelExportPlanner(store, 1);
+        // 行组1MB、每批1000行：10000行分成多个行组和多个record batch（每批各自的字典）
+        downloadService = new DownloadServiceImpl(main2022Service, store, planner,
+                new WosMetrics(new SimpleMeterRegistry()), "none", 6, 3, "zstd", 1, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        planner.shutdown();
+    }
+
+    @Test
+    void parquetRoundTrip() throws IOException {
+        Path file = dir.resolve("snapshot.parquet");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            assertEquals(ROWS, downloadService.writeTableSnapshot(TABLE, ExportFormat.PARQUET,
+                    ExportCompression.NONE, out, null));
+        }
+
+        List<ExportColumn> columns = ExportColumn.ALL;
+        int row = 0;
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(),
+                new org.apache.hadoop.fs.Path(file.toUri())).build()) {
+            for (Group group = reader.read(); group != null; group = reader.read()) {
+                main2022 paper = papers.get(row);
+                for (ExportColumn column : columns) {
+                    boolean present = group.getFieldRepetitionCount(column.name()) > 0;
+                    if (column.type() == ExportColumn.Type.INT) {
+                        Integer expected = column.intValue(paper);
+                        assertEquals(expected, present ? group.getInteger(column.name(), 0) : null,
+                                "行" + row + "列" + column.name());
+                    } else {
+                        String expected = column.value(paper);
+                        assertEquals(expected, present ? group.getString(column.name(), 0) : null,
+                                "行" + row + "列" + column.name());
+                    }
+                }
+                row++;
+            }
+        }
+        assertEquals(ROWS, row);
+    }
+
+    @Test
+    void arrowRoundTrip() throws IOException {
+        Path file = dir.resolve("snapshot.arrow");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            assertEquals(ROWS, downloadService.writeTableSnapshot(TABLE, ExportFormat.ARROW,
+                    ExportCompression.NONE, out, null));
+        }
+
+        List<ExportColumn> columns = ExportColumn.ALL;
+        int row = 0;
+        int batches = 0;
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(Files.readAllBytes(file)),
+                     allocator, CommonsCompressionFactory.INSTANCE)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(columns.size(), root.getSchema().getFields().size());
+            while (reader.loadNextBatch()) {
+                batches++;
+                List<ValueVector> decoded = new ArrayList<>();
+                try {
+                    for (int i = 0; i < columns.size(); i++) {
+                        FieldVector vector = root.getVector(i);
+                        DictionaryEncoding encoding = vector.getField().getDictionary();
+                        assertEquals(columns.get(i).dictionary(), encoding != null, columns.get(i).name());
+                        if (encoding != null) {
+                            Dictionary dictionary = reader.getDictionaryVectors().get(encoding.getId());
+                            ValueVector values = DictionaryEncoder.decode(vector, dictionary);
+                            decoded.add(values);
+                        } else {
+                            decoded.add(vector);
+                        }
+                    }
+
+                    for (int r = 0; r < root.getRowCount(); r++, row++) {
+                        main2022 paper = papers.get(row);
+                        for (int i = 0; i < columns.size(); i++) {
+                            ExportColumn column = columns.get(i);
+                            ValueVector vector = decoded.get(i);
+                            if (column.type() == ExportColumn.Type.INT) {
+                                IntVector ints = (IntVector) vector;
+                                assertEquals(column.intValue(paper), ints.isNull(r) ? null : ints.get(r),
+                                        "行" + row + "列" + column.name());
+                            } else {
+                                VarCharVector strings = (VarCharVector) vector;
+                                assertEquals(column.value(paper), strings.isNull(r) ? null
+                                        : new String(strings.get(r), StandardCharsets.UTF_8),
+                                        "行" + row + "列" + column.name());
+                            }
+                        }
+                    }
+                } finally {
+                    for (int i = 0; i < decoded.size(); i++) {
+                        if (decoded.get(i) != root.getVector(i)) {
+                            decoded.get(i).close();
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(ROWS, row);
+        assertEquals(10, batches);
+    }
+}
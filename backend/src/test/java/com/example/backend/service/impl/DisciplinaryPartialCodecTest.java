@@ -0,0 +1,178 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.util.CooccurrenceCounter;
+import com.example.backend.util.ExactCardinality;
+import com.example.backend.util.HyperLogLog;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 部分结果缓存格式：版本1的旧缓存按字节手工构造（固定旧格式），版本2往返后统计结果不变
+ */
+class DisciplinaryPartialCodecTest {
+
+    private static final int MAGIC = 0x44504331;
+
+    @Test
+    void readsVersion1WithoutCooccurrence() throws IOException {
+        byte[] data = version1("key-1");
+
+        SortedMap<String, DisciplinaryPartial> partials = DisciplinaryPartialCodec.decode("key-1", data);
+
+        assertEquals(List.of("2019", "2020"), List.copyOf(partials.keySet()));
+
+        DisciplinaryPartial exact = partials.get("2019");
+        assertEquals(120, exact.getPaperCount());
+        assertEquals(Map.of("China", 70, "USA", 50), exact.getCountries().top(5));
+        // 计数11、误差4：上界11，报告的下界7
+        assertEquals(11, exact.getAuthors().estimate("Smith, J"));
+        assertEquals(Map.of("Smith, J", 7), exact.getAuthors().top(5));
+        assertTrue(exact.getInstitutions().top(5).isEmpty());
+        assertEquals(2, exact.getUniqueAuthorCount());
+        assertEquals(1, exact.getUniqueJournalCount());
+        assertEquals(0, exact.getUniqueCountryCount());
+        assertNull(exact.getKeywordCooccurrence());
+        assertNull(exact.getCountryCooccurrence());
+        assertEquals("k10-exact", exact.getSignature());
+
+        DisciplinaryPartial hll = partials.get("2020");
+        assertEquals(5, hll.getPaperCount());
+        assertEquals("k10-hll4", hll.getSignature());
+        assertEquals(2, hll.getUniqueAuthorCount());
+        assertEquals(0, hll.getUniqueJournalCount());
+        assertNull(hll.getKeywordCooccurrence());
+
+        // 恢复的部分结果可以继续合并
+        DisciplinaryPartial more = new DisciplinaryPartial("2020", 10, () -> new HyperLogLog(4));
+        more.addPaper();
+        more.addAuthor("Smith, J");
+        more.addAuthor("Zhao, M");
+        hll.merge(more);
+        assertEquals(6, hll.getPaperCount());
+        assertEquals(3, hll.getUniqueAuthorCount());
+    }
+
+    @Test
+    void roundTripsVersion2WithCooccurrence() throws IOException {
+        DisciplinaryPartial partial = new DisciplinaryPartial("2021", 10, ExactCardinality::new);
+        partial.enableCooccurrence(100, 10);
+        for (int i = 0; i < 3; i++) {
+            partial.addPaper();
+            partial.addCountry("China");
+            partial.addAuthor("Li, W" + i);
+            partial.addKeyword("graphene");
+            partial.addKeyword("catalysis" + (i % 2));
+            partial.getKeywordCooccurrence().add("graphene");
+            partial.getKeywordCooccurrence().add("catalysis" + (i % 2));
+            partial.getKeywordCooccurrence().endPaper();
+            partial.getCountryCooccurrence().endPaper();
+        }
+        SortedMap<String, DisciplinaryPartial> partials = new TreeMap<>(Map.of("2021", partial));
+
+        DisciplinaryPartial decoded = DisciplinaryPartialCodec.decode("key-2",
+                DisciplinaryPartialCodec.encode("key-2", partials)).get("2021");
+
+        assertEquals(3, decoded.getPaperCount());
+        assertEquals(partial.getSignature(), decoded.getSignature());
+        assertEquals(partial.getKeywords().top(10), decoded.getKeywords().top(10));
+        assertEquals(3, decoded.getUniqueAuthorCount());
+        assertEquals(edges(partial.getKeywordCooccurrence()), edges(decoded.getKeywordCooccurrence()));
+        assertEquals(Map.of("catalysis0|graphene", 2, "catalysis1|graphene", 1), edges(decoded.getKeywordCooccurrence()));
+        assertEquals(0, decoded.getCountryCooccurrence().edgeCount());
+    }
+
+    @Test
+    void rejectsMismatchedKeyAndUnknownVersion() throws IOException {
+        byte[] data = version1("key-1");
+        assertThrows(IOException.class, () -> DisciplinaryPartialCodec.decode("other", data));
+
+        data[7] = 9;   // 版本号的最低字节
+        assertThrows(IOException.class, () -> DisciplinaryPartialCodec.decode("key-1", data));
+        assertThrows(IOException.class, () -> DisciplinaryPartialCodec.decode("key-1", new byte[]{1, 2, 3, 4}));
+    }
+
+    /**
+     * 版本1格式：两个年份，一个用精确去重，一个用HyperLogLog，去重计数器之后没有共现标志位
+     */
+    private static byte[] version1(String key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(1);
+            writeString(out, key);
+            out.writeInt(2);
+
+            writeString(out, "2019");
+            out.writeLong(120);
+            // 国家、作者、机构、期刊、关键词
+            sketch(out, 120, "China", 70, 0, "USA", 50, 0);
+            sketch(out, 11, "Smith, J", 11, 4);
+            sketch(out, 0);
+            sketch(out, 120, "Nature", 120, 0);
+            sketch(out, 0);
+            exact(out, "Smith, J", "Wang, L");
+            exact(out, "Nature");
+            exact(out);
+
+            writeString(out, "2020");
+            out.writeLong(5);
+            for (int i = 0; i < 5; i++) {
+                sketch(out, 0);
+            }
+            HyperLogLog authors = new HyperLogLog(4);
+            authors.add("Smith, J");
+            authors.add("Chen, Y");
+            for (int i = 0; i < 3; i++) {
+                out.writeByte(1);
+                out.writeByte(4);
+                out.write(i == 0 ? authors.registers() : new byte[16]);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void sketch(DataOutputStream out, long totalWeight, Object... counters) throws IOException {
+        out.writeInt(10);
+        out.writeLong(totalWeight);
+        out.writeInt(counters.length / 3);
+        for (int i = 0; i < counters.length; i += 3) {
+            writeString(out, (String) counters[i]);
+            out.writeLong(((Number) counters[i + 1]).longValue());
+            out.writeLong(((Number) counters[i + 2]).longValue());
+        }
+    }
+
+    private static void exact(DataOutputStream out, String... values) throws IOException {
+        out.writeByte(0);
+        out.writeInt(values.length);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static Map<String, Integer> edges(CooccurrenceCounter counter) {
+        Map<String, Integer> edges = new TreeMap<>();
+        counter.forEachEdge((a, b, count) -> {
+            String x = counter.node(a);
+            String y = counter.node(b);
+            edges.put(x.compareTo(y) < 0 ? x + "|" + y : y + "|" + x, count);
+        });
+        return edges;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
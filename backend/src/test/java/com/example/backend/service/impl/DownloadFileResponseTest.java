@@ -0,0 +1,237 @@
+package com.example.backend.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 已存储导出文件的下载响应：完整下载、Range（206/416）、If-Range和If-None-Match（304）
+ */
+class DownloadFileResponseTest {
+
+    private static final String TASK_ID = "export_test";
+
+    @TempDir
+    Path dir;
+
+    private ExportStore store;
+    private ParallelExportPlanner planner;
+    private DownloadServiceImpl downloadService;
+    private byte[] content;
+    private String etag;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new ExportStore(dir.toString(), 10, 24, 24);
+        store.init();
+        planner = new ParallelExportPlanner(store, 1);
+        downloadService = new DownloadServiceImpl(null, store, planner,
+                new WosMetrics(new SimpleMeterRegistry()), "none", 6, 3, "zstd", 64, 4096);
+
+        content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        Path tmp = store.begin(TASK_ID + ".csv");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            out.write(content);
+        }
+        store.commit(TASK_ID + ".csv");
+        etag = store.etag(TASK_ID + ".csv");
+    }
+
+    @AfterEach
+    void tearDown() {
+        planner.shutdown();
+    }
+
+    @Test
+    void fullDownloadWithoutConditions() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = download(new HttpHeaders());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
+        assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(1000, response.getHeaders().getContentLength());
+        assertEquals("attachment; filename=wos.csv", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        assertArrayEquals(content, body(response));
+    }
+
+    @Test
+    void singleRangeReturnsPartialContent() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=100-199");
+        ResponseEntity<StreamingResponseBody> response = download(headers);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 100-199/1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(100, response.getHeaders().getContentLength());
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 200), body(response));
+    }
+
+    @Test
+    void openAndSuffixRanges() throws IOException {
+        HttpHeaders open = new HttpHeaders();
+        open.set(HttpHeaders.RANGE, "bytes=990-");
+        ResponseEntity<StreamingResponseBody> tail = download(open);
+        assertEquals("bytes 990-999/1000", tail.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 990, 1000), body(tail));
+
+        HttpHeaders suffix = new HttpHeaders();
+        suffix.set(HttpHeaders.RANGE, "bytes=-5");
+        ResponseEntity<StreamingResponseBody> last = download(suffix);
+        assertEquals("bytes 995-999/1000", last.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 995, 1000), body(last));
+
+        // 结束位置超出文件时截到文件末尾
+        HttpHeaders beyond = new HttpHeaders();
+        beyond.set(HttpHeaders.RANGE, "bytes=900-5000");
+        assertEquals("bytes 900-999/1000", download(beyond).getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=1000-1100");
+        ResponseEntity<StreamingResponseBody> response = download(headers);
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void multipleOrInvalidRangesReturnFullFile() throws IOException {
+        HttpHeaders multiple = new HttpHeaders();
+        multiple.set(HttpHeaders.RANGE, "bytes=0-9,20-29");
+        ResponseEntity<StreamingResponseBody> response = download(multiple);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(content, body(response));
+
+        HttpHeaders invalid = new HttpHeaders();
+        invalid.set(HttpHeaders.RANGE, "lines=1-2");
+        assertEquals(HttpStatus.OK, download(invalid).getStatusCode());
+    }
+
+    @Test
+    void ifRangeHonoursRangeOnlyForCurrentEtag() throws IOException {
+        HttpHeaders matching = new HttpHeaders();
+        matching.set(HttpHeaders.RANGE, "bytes=0-9");
+        matching.set(HttpHeaders.IF_RANGE, etag);
+        ResponseEntity<StreamingResponseBody> resumed = download(matching);
+        assertEquals(HttpStatus.PARTIAL_CONTENT, resumed.getStatusCode());
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 10), body(resumed));
+
+        // 文件已重新导出（ETag不同）或If-Range是日期：返回完整的新文件
+        HttpHeaders stale = new HttpHeaders();
+        stale.set(HttpHeaders.RANGE, "bytes=0-9");
+        stale.set(HttpHeaders.IF_RANGE, "\"0-0\"");
+        ResponseEntity<StreamingResponseBody> restarted = download(stale);
+        assertEquals(HttpStatus.OK, restarted.getStatusCode());
+        assertArrayEquals(content, body(restarted));
+
+        HttpHeaders date = new HttpHeaders();
+        date.set(HttpHeaders.RANGE, "bytes=0-9");
+        date.set(HttpHeaders.IF_RANGE, "Wed, 21 Oct 2015 07:28:00 GMT");
+        assertEquals(HttpStatus.OK, download(date).getStatusCode());
+    }
+
+    @Test
+    void ifNoneMatchReturnsNotModified() {
+        HttpHeaders matching = new HttpHeaders();
+        matching.setIfNoneMatch(etag);
+        ResponseEntity<StreamingResponseBody> response = download(matching);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
+        assertNull(response.getBody());
+
+        HttpHeaders any = new HttpHeaders();
+        any.setIfNoneMatch("*");
+        assertEquals(HttpStatus.NOT_MODIFIED, download(any).getStatusCode());
+
+        // 优先于Range
+        HttpHeaders withRange = new HttpHeaders();
+        withRange.setIfNoneMatch(etag);
+        withRange.set(HttpHeaders.RANGE, "bytes=0-9");
+        assertEquals(HttpStatus.NOT_MODIFIED, download(withRange).getStatusCode());
+
+        HttpHeaders other = new HttpHeaders();
+        other.setIfNoneMatch("\"0-0\"");
+        assertEquals(HttpStatus.OK, download(other).getStatusCode());
+    }
+
+    @Test
+    void reexportChangesEtag() throws IOException {
+        Path tmp = store.begin(TASK_ID + ".csv");
+        Files.write(tmp, new byte[]{1, 2, 3});
+        store.commit(TASK_ID + ".csv");
+
+        ResponseEntity<StreamingResponseBody> response = download(new HttpHeaders());
+        assertNotEquals(etag, response.getHeaders().getETag());
+        assertEquals(3, response.getHeaders().getContentLength());
+    }
+
+    @Test
+    void reexportWithSameSizeAndModifiedTimeChangesEtag() throws IOException {
+        Path tmp = store.begin(TASK_ID + ".csv");
+        byte[] replaced = content.clone();
+        replaced[0]++;
+        Files.write(tmp, replaced);
+        // 模拟修改时间精度较粗：新文件的修改时间与旧文件相同
+        Files.setLastModifiedTime(tmp, Files.getLastModifiedTime(dir.resolve(TASK_ID + ".csv")));
+        store.commit(TASK_ID + ".csv");
+
+        ResponseEntity<StreamingResponseBody> response = download(new HttpHeaders());
+        assertNotEquals(etag, response.getHeaders().getETag());
+        assertArrayEquals(replaced, body(response));
+    }
+
+    @Test
+    void headersAndBodyComeFromTheSameFile() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = download(new HttpHeaders());
+
+        // 响应头已确定、响应体尚未写出时重新导出同名文件
+        Path tmp = store.begin(TASK_ID + ".csv");
+        byte[] replaced = new byte[content.length];
+        Files.write(tmp, replaced);
+        store.commit(TASK_ID + ".csv");
+
+        assertEquals(etag, response.getHeaders().getETag());
+        assertArrayEquals(content, body(response));
+        ResponseEntity<StreamingResponseBody> next = download(new HttpHeaders());
+        assertNotEquals(etag, next.getHeaders().getETag());
+        assertArrayEquals(replaced, body(next));
+    }
+
+    @Test
+    void missingFileReturns404() {
+        ResponseEntity<StreamingResponseBody> response =
+                downloadService.createFileDownloadResponse("export_missing", "wos", new HttpHeaders());
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    private ResponseEntity<StreamingResponseBody> download(HttpHeaders headers) {
+        return downloadService.createFileDownloadResponse(TASK_ID, "wos", headers);
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+}
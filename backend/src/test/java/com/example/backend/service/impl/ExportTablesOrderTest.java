@@ -0,0 +1,55 @@
+package com.example.backend.service.impl;
+
+import com.example.backend.config.SearchFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 导出的年份表顺序（并行导出的分片顺序）固定为从新到旧，与年份条件的书写顺序无关
+ */
+class ExportTablesOrderTest {
+
+    private final Main2022ServiceImpl service = new Main2022ServiceImpl(null, new TableSelectorService(),
+            mock(PlatformTransactionManager.class), null, null);
+
+    @Test
+    void yearTablesAreSortedNewestFirst() {
+        List<String> tables = service.exportTables(List.of(filter(5, "2016,1998,2019,2003,1950,2020,1977")));
+
+        assertEquals(List.of("Wos_2020", "Wos_2019", "Wos_2016", "Wos_2003", "Wos_1998", "Wos_1977", "Wos_1950"),
+                tables);
+    }
+
+    @Test
+    void yearRangeCoversAllTablesNewestFirst() {
+        List<String> tables = service.exportTables(List.of(filter(1, "graphene"), filter(5, "1950-2020")));
+
+        assertEquals(71, tables.size());
+        List<String> sorted = new ArrayList<>(tables);
+        sorted.sort((a, b) -> b.compareTo(a));
+        assertEquals(sorted, tables);
+        assertEquals("Wos_2020", tables.get(0));
+    }
+
+    @Test
+    void titleSearchWithoutYearReadsEveryTableNewestFirst() {
+        List<String> tables = service.exportTables(List.of(filter(2, "graphene")));
+
+        assertEquals("Wos_2020", tables.get(0));
+        assertEquals("Wos_1950", tables.get(tables.size() - 1));
+    }
+
+    private static SearchFilter filter(int field, String input) {
+        SearchFilter filter = new SearchFilter();
+        filter.setId(1);
+        filter.setSelects(new ArrayList<>(List.of("AND", field)));
+        filter.setInput(input);
+        return filter;
+    }
+}
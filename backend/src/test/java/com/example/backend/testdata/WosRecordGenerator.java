@@ -0,0 +1,220 @@
+package com.example.backend.testdata;
+
+import com.example.backend.model.main2022;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 生成与WoS年份表格式一致的论文记录（固定种子，结果可复现）
+ *
+ * 作者、机构、关键词和期刊按长尾分布抽取（少数取值出现在大量论文中），
+ * 地址采用 "[作者] 机构, 城市, 国家" 的WoS格式，部分记录只有通讯地址、没有关键词，或含有缺失字段。
+ * JMH基准测试（src/jmh）和本地压测的合成年份表（src/loadtest）共用。
+ */
+public final class WosRecordGenerator {
+
+    private static final String[] SURNAMES = {
+            "Zhang", "Wang", "Li", "Liu", "Chen", "Yang", "Huang", "Zhao", "Wu", "Zhou",
+            "Smith", "Johnson", "Brown", "Garcia", "Muller", "Schmidt", "Tanaka", "Suzuki", "Kim", "Lee",
+            "Park", "Nguyen", "Rossi", "Dubois", "Martin", "Silva", "Santos", "Ivanov", "O'Brien", "van der Berg"
+    };
+    private static final String[] GIVEN_NAMES = {
+            "Wei", "Ming", "Xiaoming", "Li", "Jing", "Hua", "Yan", "Jun", "John A.", "Jane",
+            "Maria", "Hans", "K.-H.", "S.-Y.", "Patrick", "Jan", "Hiroshi", "Yuki", "Min-Jun", "Anna"
+    };
+    private static final String[][] INSTITUTIONS = {
+            {"Shanghai Jiao Tong Univ", "Shanghai", "Peoples R China"},
+            {"Tsinghua Univ", "Beijing", "Peoples R China"},
+            {"Chinese Acad Sci", "Beijing", "Peoples R China"},
+            {"Zhejiang Univ", "Hangzhou", "Peoples R China"},
+            {"Harvard Univ", "Cambridge, MA 02138", "USA"},
+            {"Stanford Univ", "Stanford, CA 94305", "USA"},
+            {"MIT", "Cambridge, MA 02139", "USA"},
+            {"Univ Oxford", "Oxford", "England"},
+            {"Univ Cambridge", "Cambridge", "England"},
+            {"Max Planck Inst Chem", "Mainz", "Germany"},
+            {"Univ Tokyo", "Tokyo", "Japan"},
+            {"Seoul Natl Univ", "Seoul", "South Korea"},
+            {"Natl Univ Singapore", "Singapore", "Singapore"},
+            {"Univ Toronto", "Toronto, ON", "Canada"},
+            {"Univ Sao Paulo", "Sao Paulo", "Brazil"},
+            {"CNRS", "Paris", "France"},
+            {"ETH Zurich", "Zurich", "Switzerland"},
+            {"Univ Melbourne", "Melbourne, Vic", "Australia"}
+    };
+    private static final String[] KEYWORDS = {
+            "machine learning", "deep learning", "graphene", "COVID-19", "climate change", "nanoparticles",
+            "CRISPR", "lithium-ion battery", "perovskite", "neural network", "catalysis", "gut microbiota",
+            "photocatalysis", "single-cell RNA-seq", "metal-organic framework", "quantum dots", "biomarker",
+            "oxidative stress", "inflammation", "solar cell", "drug delivery", "topological insulator",
+            "reinforcement learning", "carbon nanotubes", "apoptosis", "stem cells", "remote sensing",
+            "supercapacitor", "transformer", "knowledge graph"
+    };
+    private static final String[] JOURNALS = {
+            "NATURE", "SCIENCE", "CELL", "PHYSICAL REVIEW LETTERS", "JOURNAL OF THE AMERICAN CHEMICAL SOCIETY",
+            "ADVANCED MATERIALS", "NANO LETTERS", "PLOS ONE", "SCIENTIFIC REPORTS", "IEEE TRANSACTIONS ON PATTERN ANALYSIS AND MACHINE INTELLIGENCE",
+            "ANGEWANDTE CHEMIE-INTERNATIONAL EDITION", "LANCET", "NEW ENGLAND JOURNAL OF MEDICINE",
+            "APPLIED PHYSICS LETTERS", "CHEMICAL ENGINEERING JOURNAL"
+    };
+    private static final String[] TITLE_WORDS = {
+            "A", "novel", "approach", "to", "efficient", "synthesis", "of", "high-performance", "materials",
+            "for", "robust", "analysis", "in", "large-scale", "systems", "with", "improved", "stability", "and", "accuracy"
+    };
+    private static final String[] DOCTYPES = {"Article", "Review", "Proceedings Paper", "Letter", "Editorial Material"};
+
+    private final SplittableRandom random;
+    // 同一个生成器生成的wos_uid不重复（跨年份表）
+    private long serial;
+
+    public WosRecordGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * 生成count篇论文，出版年份在[startYear, endYear]中均匀分布
+     */
+    public List<main2022> generate(int count, int startYear, int endYear) {
+        List<main2022> papers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            papers.add(paper(serial++, startYear + random.nextInt(endYear - startYear + 1)));
+        }
+        return papers;
+    }
+
+    /**
+     * 生成数据使用的关键词（压测按这些取值构造检索条件，保证有命中）
+     */
+    public static List<String> keywordVocabulary() {
+        return List.of(KEYWORDS);
+    }
+
+    public static List<String> surnameVocabulary() {
+        return List.of(SURNAMES);
+    }
+
+    public static List<String> journalVocabulary() {
+        return List.of(JOURNALS);
+    }
+
+    /**
+     * 按年份分组（学科分析的输入格式），年份有序
+     */
+    public static Map<String, List<main2022>> groupByYear(List<main2022> papers) {
+        Map<String, List<main2022>> byYear = new LinkedHashMap<>();
+        papers.stream()
+                .sorted((a, b) -> a.getPubyear().compareTo(b.getPubyear()))
+                .forEach(p -> byYear.computeIfAbsent(p.getPubyear(), k -> new ArrayList<>()).add(p));
+        return byYear;
+    }
+
+    private main2022 paper(long index, int year) {
+        main2022 paper = new main2022();
+        paper.setWos_uid(String.format("WOS:%015d", 1_000_000_000L + index));
+        paper.setDatabase("WOS");
+        paper.setPubyear(String.valueOf(year));
+        paper.setPubmonth(String.valueOf(1 + random.nextInt(12)));
+        paper.setSortdate(year + "-01-01");
+        paper.setVol(String.valueOf(1 + random.nextInt(300)));
+        paper.setIssue(String.valueOf(1 + random.nextInt(24)));
+        int pageBegin = 1 + random.nextInt(5000);
+        int pageCount = 4 + random.nextInt(20);
+        paper.setPage_begin(String.valueOf(pageBegin));
+        paper.setPage_end(String.valueOf(pageBegin + pageCount - 1));
+        paper.setPage_count(String.valueOf(pageCount));
+        paper.setArticle_title(title());
+        paper.setArticle_doctype(DOCTYPES[skewed(DOCTYPES.length)]);
+        paper.setJournal_title_source(JOURNALS[skewed(JOURNALS.length)]);
+        paper.setLanguages("English");
+        paper.setIdentifier_doi("10." + (1000 + random.nextInt(9000)) + "/wos." + index);
+        paper.setHas_abstract("Y");
+        paper.setAbstract_text(abstractText());
+
+        int authorCount = 1 + random.nextInt(8);
+        String[] authors = new String[authorCount];
+        for (int i = 0; i < authorCount; i++) {
+            authors[i] = SURNAMES[skewed(SURNAMES.length)] + ", " + GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)];
+            // 中间名缩写让作者的去重数量接近真实数据（约一万六千人）
+            if (random.nextBoolean()) {
+                authors[i] += " " + (char) ('A' + random.nextInt(26)) + ".";
+            }
+        }
+        paper.setAuthor_fullname(String.join("; ", authors));
+        paper.setAuthor_displayname(paper.getAuthor_fullname());
+
+        String address = address(authors);
+        // 约一成的记录只有通讯地址
+        if (random.nextInt(10) == 0) {
+            paper.setReprint_address(address);
+        } else {
+            paper.setAddress(address);
+            paper.setReprint_address(address.substring(address.lastIndexOf(';') + 1).trim());
+        }
+
+        // 约一成的记录没有作者关键词，只有Keyword Plus
+        String keywords = keywords();
+        if (random.nextInt(10) == 0) {
+            paper.setKeyword_plus(keywords.toUpperCase());
+        } else {
+            paper.setKeyword(keywords);
+        }
+        paper.setSubject_extended("Materials Science; Chemistry; Physics");
+        return paper;
+    }
+
+    private String address(String[] authors) {
+        int entries = 1 + random.nextInt(Math.min(3, authors.length));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < entries; i++) {
+            String[] institution = INSTITUTIONS[skewed(INSTITUTIONS.length)];
+            if (i > 0) {
+                sb.append("; ");
+            }
+            sb.append('[').append(authors[i]).append("] ")
+                    .append(institution[0]).append(", ").append(institution[1]).append(", ").append(institution[2]);
+        }
+        return sb.toString();
+    }
+
+    private String keywords() {
+        int count = 3 + random.nextInt(5);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append("; ");
+            }
+            sb.append(KEYWORDS[skewed(KEYWORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private String title() {
+        int words = 8 + random.nextInt(10);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private String abstractText() {
+        int sentences = 4 + random.nextInt(6);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            sb.append(title()).append(", \"measured\" at ").append(random.nextInt(1000)).append(" K. ");
+        }
+        return sb.toString();
+    }
+
+    // 长尾分布：下标越小出现越频繁
+    private int skewed(int bound) {
+        double u = random.nextDouble();
+        return (int) (bound * u * u);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用逐篇论文的精确计数作为基准，验证共现计数、剪枝的上界和偏低上限，以及合并、缩放
+ */
+class CooccurrenceCounterTest {
+
+    @Test
+    void countsNodesAndEdgesExactlyWithoutPruning() {
+        CooccurrenceCounter counter = new CooccurrenceCounter(100, 10);
+        paper(counter, "a", "b", "c");
+        paper(counter, "a", "b");
+        paper(counter, "b", "b", "c");   // 同一论文内重复的取值只计一次
+
+        assertEquals(0, counter.prunedEdges());
+        assertEquals(0, counter.maxUndercount());
+        assertEquals(Map.of("a", 2, "b", 3, "c", 2), nodes(counter));
+        assertEquals(Map.of("a|b", 2, "a|c", 1, "b|c", 2), edges(counter));
+    }
+
+    @Test
+    void itemsPerPaperAreCapped() {
+        CooccurrenceCounter counter = new CooccurrenceCounter(100, 2);
+        paper(counter, "a", "b", "c", "d");
+
+        assertEquals(Map.of("a|b", 1), edges(counter));
+        assertEquals(2, counter.nodeCount());
+    }
+
+    @Test
+    void pruneKeepsHalfOfEdgesEvenWithTies() {
+        // 所有边计数相同：剪枝仍保留maxEdges/2条，而不是全部丢弃
+        CooccurrenceCounter counter = new CooccurrenceCounter(1000, 2);
+        int papers = 0;
+        for (int i = 0; i < 50 && papers < 1001; i++) {
+            for (int j = i + 1; j < 50 && papers < 1001; j++, papers++) {
+                paper(counter, "n" + i, "n" + j);
+            }
+        }
+
+        assertEquals(500, counter.edgeCount());
+        assertEquals(501, counter.prunedEdges());
+        assertEquals(1, counter.maxUndercount());
+    }
+
+    @Test
+    void prunedCountsStayWithinUndercountBound() {
+        int maxEdges = 200;
+        CooccurrenceCounter counter = new CooccurrenceCounter(maxEdges, 5);
+        Map<String, Integer> exactNodes = new HashMap<>();
+        Map<String, Integer> exactEdges = new HashMap<>();
+        Random random = new Random(1);
+        for (int p = 0; p < 5000; p++) {
+            // 少数高频取值加长尾
+            Set<String> items = new LinkedHashSet<>();
+            while (items.size() < 4) {
+                items.add(random.nextInt(3) == 0 ? "hot" + random.nextInt(5) : "tail" + random.nextInt(2000));
+            }
+            paper(counter, items.toArray(new String[0]));
+            List<String> list = new ArrayList<>(items);
+            for (int i = 0; i < list.size(); i++) {
+                exactNodes.merge(list.get(i), 1, Integer::sum);
+                for (int j = i + 1; j < list.size(); j++) {
+                    exactEdges.merge(edgeName(list.get(i), list.get(j)), 1, Integer::sum);
+                }
+            }
+        }
+
+        assertTrue(counter.edgeCount() <= maxEdges);
+        assertTrue(counter.nodeCount() <= maxEdges, "节点数也有上限: " + counter.nodeCount());
+        assertTrue(counter.prunedEdges() > 0);
+        long undercount = counter.maxUndercount();
+        for (Map.Entry<String, Integer> entry : nodes(counter).entrySet()) {
+            int actual = exactNodes.get(entry.getKey());
+            assertTrue(entry.getValue() <= actual && actual - entry.getValue() <= undercount, entry.getKey());
+        }
+        for (Map.Entry<String, Integer> entry : edges(counter).entrySet()) {
+            int actual = exactEdges.get(entry.getKey());
+            assertTrue(entry.getValue() <= actual && actual - entry.getValue() <= undercount, entry.getKey());
+        }
+        // 高频取值都保留
+        for (int i = 0; i < 5; i++) {
+            assertTrue(nodes(counter).containsKey("hot" + i));
+        }
+    }
+
+    @Test
+    void nodeGenerationChangesWhenNodesArePruned() {
+        CooccurrenceCounter counter = new CooccurrenceCounter(10, 2);
+        int generation = counter.nodeGeneration();
+        for (int i = 0; i < 20; i++) {
+            counter.addId(counter.nodeId("keep"));
+            counter.add("n" + i);
+            counter.endPaper();
+        }
+
+        assertNotEquals(generation, counter.nodeGeneration());
+        assertTrue(counter.nodeCount() <= 10);
+        // 剪枝后按字符串重新取得编号
+        assertEquals(20, nodes(counter).get("keep"));
+    }
+
+    @Test
+    void mergeRemapsIdsAndAddsCounts() {
+        CooccurrenceCounter first = new CooccurrenceCounter(100, 10);
+        paper(first, "a", "b");
+        CooccurrenceCounter second = new CooccurrenceCounter(100, 10);
+        paper(second, "c", "b");
+        paper(second, "b", "a");
+
+        first.merge(second);
+
+        assertEquals(Map.of("a", 2, "b", 3, "c", 1), nodes(first));
+        assertEquals(Map.of("a|b", 2, "b|c", 1), edges(first));
+    }
+
+    @Test
+    void mergePrunesAndAccumulatesUndercount() {
+        CooccurrenceCounter merged = new CooccurrenceCounter(100, 2);
+        for (int part = 0; part < 3; part++) {
+            CooccurrenceCounter counter = new CooccurrenceCounter(100, 2);
+            for (int i = 0; i < 80; i++) {
+                paper(counter, "p" + part + "x" + i, "p" + part + "y" + i);
+            }
+            merged.merge(counter);
+        }
+
+        assertTrue(merged.edgeCount() <= 100);
+        assertTrue(merged.nodeCount() <= 100);
+        assertTrue(merged.prunedEdges() > 0);
+        assertTrue(merged.maxUndercount() >= 1);
+    }
+
+    @Test
+    void scaledMultipliesCounts() {
+        CooccurrenceCounter counter = new CooccurrenceCounter(100, 10);
+        paper(counter, "a", "b");
+        paper(counter, "a", "b");
+        paper(counter, "a", "c");
+
+        CooccurrenceCounter scaled = counter.scaled(2.5);
+
+        assertEquals(Map.of("a", 8, "b", 5, "c", 3), nodes(scaled));
+        assertEquals(Map.of("a|b", 5, "a|c", 3), edges(scaled));
+        assertEquals(Map.of("a", 3, "b", 2, "c", 1), nodes(counter));
+    }
+
+    private static void paper(CooccurrenceCounter counter, String... items) {
+        for (String item : items) {
+            counter.add(item);
+        }
+        counter.endPaper();
+    }
+
+    private static Map<String, Integer> nodes(CooccurrenceCounter counter) {
+        Map<String, Integer> nodes = new HashMap<>();
+        for (int id = 0; id < counter.nodeCount(); id++) {
+            nodes.put(counter.node(id), counter.nodeFrequency(id));
+        }
+        return nodes;
+    }
+
+    private static Map<String, Integer> edges(CooccurrenceCounter counter) {
+        Map<String, Integer> edges = new HashMap<>();
+        counter.forEachEdge((a, b, count) -> edges.put(edgeName(counter.node(a), counter.node(b)), count));
+        return edges;
+    }
+
+    private static String edgeName(String a, String b) {
+        return a.compareTo(b) < 0 ? a + "|" + b : b + "|" + a;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 以原来用String拼接的CSV编码为基准，逐字节比较CsvWriter的输出
+ * 两处有意的差异：含'\r'的字段用引号包裹（原来不包裹，单独的CR会被读取方当作换行）；null写为空字段（原来写成"null"）
+ */
+class CsvWriterTest {
+
+    private static final String[] SAMPLES = {
+            "plain", "", "with,comma", "with \"quote\"", "\"", "\"\"", "line\nbreak", "trailing,",
+            "中文标题", "Ünïcödé, ok", "emoji 😀 here", "😀😁", "𝔘𝔫𝔦", "a\"b,c\nd",
+            "unpaired \uD800 high", "unpaired \uDC00 low", "ends with high \uD800", "\u0080߿ࠀ￿"
+    };
+
+    @Test
+    void matchesLegacyEncoderOnSpecialCharacters() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        for (String sample : SAMPLES) {
+            rows.add(new String[]{sample, "x", sample + "," + sample});
+        }
+        rows.add(SAMPLES);
+
+        assertArrayEquals(legacy(rows), write(rows));
+    }
+
+    @Test
+    void matchesLegacyEncoderOnRandomFields() throws IOException {
+        // 从容易出错的字符中随机组合字段，覆盖缓冲区扩容和跨缓冲区写出
+        char[] alphabet = {'a', 'Z', '0', ',', '"', '\n', ' ', 'é', '中', '\uD83D', '\uDE00', '\uD800'};
+        Random random = new Random(5);
+        List<String[]> rows = new ArrayList<>();
+        for (int r = 0; r < 2000; r++) {
+            String[] row = new String[1 + random.nextInt(8)];
+            for (int f = 0; f < row.length; f++) {
+                int length = random.nextInt(20) == 0 ? 70000 : random.nextInt(30);
+                StringBuilder value = new StringBuilder(length);
+                for (int i = 0; i < length; i++) {
+                    value.append(alphabet[random.nextInt(alphabet.length)]);
+                }
+                row[f] = value.toString();
+            }
+            rows.add(row);
+        }
+
+        assertArrayEquals(legacy(rows), write(rows));
+    }
+
+    @Test
+    void quotesCarriageReturn() throws IOException {
+        List<String[]> rows = List.<String[]>of(new String[]{"a\rb", "c\r\nd", "e"});
+
+        assertEquals("\"a\rb\",\"c\r\nd\",e\n", new String(write(rows), StandardCharsets.UTF_8));
+        // 原来的编码不包裹，读取方会把CR当作行结束
+        assertEquals("a\rb,\"c\r\nd\",e\n", new String(legacy(rows), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writesNullAsEmptyField() throws IOException {
+        List<String[]> rows = List.<String[]>of(new String[]{null, "a", null}, new String[]{null});
+
+        assertEquals(",a,\n\n", new String(write(rows), StandardCharsets.UTF_8));
+        assertEquals("null,a,null\nnull\n", new String(legacy(rows), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void countsRows() throws IOException {
+        CsvWriter csv = new CsvWriter(new ByteArrayOutputStream());
+        csv.row("a", "b");
+        csv.field("c");
+        csv.endRow();
+
+        assertEquals(2, csv.rows());
+    }
+
+    private static byte[] write(List<String[]> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvWriter csv = new CsvWriter(out)) {
+            for (String[] row : rows) {
+                csv.row(row);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 原DownloadServiceImpl.generateCSVBytes的字段编码
+     */
+    private static byte[] legacy(List<String[]> rows) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (String[] row : rows) {
+            String csvRow = Arrays.stream(row)
+                    .map(field -> {
+                        if (field != null && (field.contains(",") || field.contains("\"") || field.contains("\n"))) {
+                            field = field.replace("\"", "\"\"");
+                            return "\"" + field + "\"";
+                        }
+                        return field;
+                    })
+                    .collect(Collectors.joining(","));
+            outputStream.write(csvRow.getBytes(StandardCharsets.UTF_8));
+            outputStream.write("\n".getBytes(StandardCharsets.UTF_8));
+        }
+        return outputStream.toByteArray();
+    }
+}
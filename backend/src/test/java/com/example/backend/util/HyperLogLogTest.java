@@ -0,0 +1,111 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HyperLogLog的估计精度（3倍标准误差 1.04/sqrt(m) 以内）、小基数线性计数和合并
+ */
+class HyperLogLogTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "10, 1000", "10, 10000", "10, 1000000",
+            "14, 5000", "14, 100000", "14, 1000000",
+            "16, 50000", "16, 2000000"
+    })
+    void estimateIsWithinThreeStandardErrors(int precision, int n) {
+        HyperLogLog hll = new HyperLogLog(precision);
+        for (int i = 0; i < n; i++) {
+            hll.add("author-" + i);
+        }
+
+        double error = Math.abs(hll.cardinality() - n) / (double) n;
+        assertTrue(error <= 3 * HyperLogLog.standardError(precision),
+                "precision=" + precision + ", n=" + n + ", estimate=" + hll.cardinality());
+    }
+
+    @Test
+    void smallCardinalitiesUseLinearCounting() {
+        HyperLogLog hll = new HyperLogLog(14);
+        assertEquals(0, hll.cardinality());
+
+        // 远小于寄存器数量时线性计数接近精确：标准差约 sqrt(m(e^t-t-1))，t=n/m，n=200时约1.1
+        int m = 1 << 14;
+        for (int i = 1; i <= 200; i++) {
+            hll.add("keyword-" + i);
+            double t = (double) i / m;
+            double sigma = Math.sqrt(m * (Math.exp(t) - t - 1));
+            assertEquals(i, hll.cardinality(), Math.max(1, 3 * sigma), "n=" + i);
+        }
+        long estimate = hll.cardinality();
+        // 重复值不改变估计
+        for (int i = 1; i <= 200; i++) {
+            hll.add("keyword-" + i);
+        }
+        assertEquals(estimate, hll.cardinality());
+    }
+
+    @Test
+    void mergeEqualsUnion() {
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (int i = 0; i < 60000; i++) {
+            String value = "journal-" + i;
+            if (i < 40000) {
+                first.add(value);
+            }
+            if (i >= 20000) {
+                second.add(value);
+            }
+            union.add(value);
+        }
+
+        first.merge(second);
+
+        assertArrayEquals(union.registers(), first.registers());
+        assertEquals(union.cardinality(), first.cardinality());
+        assertTrue(Math.abs(first.cardinality() - 60000) <= 60000 * 3 * first.standardError());
+    }
+
+    @Test
+    void mergeRequiresSamePrecision() {
+        HyperLogLog hll = new HyperLogLog(12);
+        assertThrows(IllegalArgumentException.class, () -> hll.merge(new HyperLogLog(14)));
+        assertThrows(IllegalArgumentException.class, () -> hll.merge(new ExactCardinality()));
+    }
+
+    @Test
+    void charRangeMatchesString() {
+        HyperLogLog fromString = new HyperLogLog(10);
+        HyperLogLog fromChars = new HyperLogLog(10);
+        char[] buf = "xx; Zhang, Wei; 张伟 😀; yy".toCharArray();
+        for (int offset = 0; offset < buf.length; offset++) {
+            for (int length = 0; offset + length <= buf.length; length++) {
+                fromString.add(new String(buf, offset, length));
+                fromChars.add(buf, offset, length);
+            }
+        }
+
+        assertArrayEquals(fromString.registers(), fromChars.registers());
+    }
+
+    @Test
+    void restoreAndPrecisionBounds() {
+        HyperLogLog hll = new HyperLogLog(8);
+        for (int i = 0; i < 1000; i++) {
+            hll.add("country-" + i);
+        }
+        HyperLogLog restored = HyperLogLog.restore(8, hll.registers());
+        assertEquals(hll.cardinality(), restored.cardinality());
+
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.restore(9, hll.registers()));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(HyperLogLog.MIN_PRECISION - 1));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(HyperLogLog.MAX_PRECISION + 1));
+        assertEquals(0.0081, HyperLogLog.standardError(14), 0.0001);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用HashMap<Long, Integer>作为基准，验证累加、查询、扩容、键0和遍历
+ */
+class LongIntOpenHashMapTest {
+
+    @Test
+    void addToMatchesHashMapAcrossResizes() {
+        LongIntOpenHashMap map = new LongIntOpenHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 200000; i++) {
+            // 包含负数、相邻值和共现边形式的键
+            long key = switch (i % 3) {
+                case 0 -> random.nextInt(5000) - 2500;
+                case 1 -> ((long) random.nextInt(300) << 32) | random.nextInt(300);
+                default -> random.nextLong() % 1000;
+            };
+            int delta = random.nextInt(5) + 1;
+            int result = map.addTo(key, delta);
+            assertEquals(expected.merge(key, delta, Integer::sum), result);
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(0, map.get(Long.MAX_VALUE));
+    }
+
+    @Test
+    void zeroKeyIsStoredSeparately() {
+        LongIntOpenHashMap map = new LongIntOpenHashMap();
+        assertEquals(0, map.get(0));
+        map.addTo(0, 3);
+        map.addTo(0, 4);
+        map.addTo(1, 1);
+
+        assertEquals(7, map.get(0));
+        assertEquals(2, map.size());
+        Map<Long, Integer> entries = new HashMap<>();
+        map.forEach(entries::put);
+        assertEquals(Map.of(0L, 7, 1L, 1), entries);
+    }
+
+    @Test
+    void valuesAndForEachCoverAllEntries() {
+        LongIntOpenHashMap map = new LongIntOpenHashMap();
+        for (long key = 0; key < 100; key++) {
+            map.addTo(key, (int) key + 1);
+        }
+
+        int[] values = map.values();
+        Arrays.sort(values);
+        assertEquals(100, values.length);
+        assertEquals(1, values[0]);
+        assertEquals(100, values[99]);
+
+        long[] sum = new long[1];
+        map.forEach((key, value) -> {
+            assertEquals(key + 1, value);
+            sum[0] += value;
+        });
+        assertEquals(5050, sum[0]);
+    }
+
+    @Test
+    void clearRemovesEverything() {
+        LongIntOpenHashMap map = new LongIntOpenHashMap();
+        map.addTo(0, 1);
+        map.addTo(42, 2);
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.get(0));
+        assertEquals(0, map.get(42));
+        map.addTo(42, 5);
+        assertEquals(5, map.get(42));
+        assertEquals(1, map.size());
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 用原有的正则/split实现作为基准，验证字符级分词器在黄金语料和随机语料上的输出完全一致
+ */
+class TokenizerGoldenCorpusTest {
+
+    private static final String[] AUTHOR_CORPUS = {
+            "Zhang, Wei; Li, Ming; Wang, Xiaoming",
+            "Smith, John A.; Doe, Jane; Smith, John A.",
+            "[Zhang, Wei] Shanghai Jiao Tong Univ; Li, M",
+            "Garcia-Lopez, Maria; O'Brien, Patrick; van der Berg, Jan",
+            "Smith, John, Doe, Jane, Brown, Bob",
+            "John Smith, Jane Doe, Bob Brown",
+            "Smith J, Doe J, Brown B",
+            "Zhang Wei, Li Ming Hua, wang xiao",
+            "Muller, Hans [1,2]; Schmidt, K [3]",
+            "[Smith, J; Doe, J] Harvard Univ, Cambridge, MA 02138 USA",
+            "unterminated [bracket, Some Name; Other Person",
+            "multi\nline [bracket\n] Name One; Name Two",
+            "Name 123; 456; ab; abc",
+            "   ;  ;  ",
+            ", , , Smith John, ,",
+            "\u0001Ab Cd, Ef Gh",
+            "Ab Cd\u0001, Ef Gh \u0001",
+            "Émile Zola, Åsa Larsson",
+            "Lee, K.-H.; Kim, S.-Y.; Lee, K.-H",
+            "A, B, C",
+            "Smith[x]son, John; Smith son, John",
+            "[a][b]; [c] Real Author",
+            "Zhang, Wei\r\nLi, Ming",
+            "Wang, Li [Extra] Zhao, Qi",
+            ""
+    };
+
+    private static final String[] KEYWORD_CORPUS = {
+            "Machine Learning; Deep Learning; machine learning",
+            "NULL, na, N/A, none, -, AI, NLP",
+            "\"graph neural network\"; 'transformer'; \"\"abc\"\"",
+            "'null'; \"NULL\"; null ",
+            "  ; , ;;,, ",
+            "COVID-19, SARS-CoV-2; Epidemiology",
+            "İSTANBUL, ΣΟΦΙΑΣ, Straße, 𝐀BC",
+            "a\"b\"c, ' x ', \"  y  \"",
+            "Quantum  Computing\t, \u0001Control\u0001",
+            "x"
+    };
+
+    @Test
+    void authorTokenizerMatchesLegacyParserOnGoldenCorpus() {
+        AuthorTokenizer tokenizer = new AuthorTokenizer();
+        for (String input : AUTHOR_CORPUS) {
+            assertEquals(LegacyParsers.parseAuthors(input), tokenizeAuthors(tokenizer, input), input);
+        }
+    }
+
+    @Test
+    void keywordTokenizerMatchesLegacyParserOnGoldenCorpus() {
+        KeywordTokenizer tokenizer = new KeywordTokenizer();
+        for (String input : KEYWORD_CORPUS) {
+            assertEquals(LegacyParsers.parseKeywords(input), tokenizeKeywords(tokenizer, input), input);
+        }
+    }
+
+    @Test
+    void tokenizersMatchLegacyParsersOnRandomCorpus() {
+        Random random = new Random(20240501L);
+        String alphabet = "abcXYZ ,;[]-'\".\n\r\t\u0001123éÉİΣ";
+        AuthorTokenizer authorTokenizer = new AuthorTokenizer();
+        KeywordTokenizer keywordTokenizer = new KeywordTokenizer();
+
+        for (int round = 0; round < 20000; round++) {
+            int length = random.nextInt(60);
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String input = sb.toString();
+
+            assertEquals(LegacyParsers.parseAuthors(input), tokenizeAuthors(authorTokenizer, input), input);
+            assertEquals(LegacyParsers.parseKeywords(input), tokenizeKeywords(keywordTokenizer, input), input);
+        }
+    }
+
+    private static Set<String> tokenizeAuthors(AuthorTokenizer tokenizer, String input) {
+        Set<String> authors = new HashSet<>();
+        List<String> emitted = new ArrayList<>();
+        tokenizer.tokenize(input, (buf, offset, length) -> emitted.add(new String(buf, offset, length)));
+        authors.addAll(emitted);
+        // 分词器自身已经去重
+        assertEquals(authors.size(), emitted.size(), input);
+        return authors;
+    }
+
+    private static List<String> tokenizeKeywords(KeywordTokenizer tokenizer, String input) {
+        List<String> keywords = new ArrayList<>();
+        tokenizer.tokenize(input, (buf, offset, length) -> keywords.add(new String(buf, offset, length)));
+        return keywords;
+    }
+
+    /**
+     * 原DisciplinaryAnalysisImpl中的解析实现（基准）
+     */
+    private static final class LegacyParsers {
+
+        static Set<String> parseAuthors(String authorString) {
+            Set<String> authors = new HashSet<>();
+            if (authorString == null || authorString.trim().isEmpty()) {
+                return authors;
+            }
+
+            String cleaned = authorString.replaceAll("\\[.*?\\]", "");
+            String[] potentialAuthors;
+            if (cleaned.contains(";")) {
+                potentialAuthors = cleaned.split(";");
+            } else {
+                potentialAuthors = smartSplitAuthors(cleaned);
+            }
+
+            for (String author : potentialAuthors) {
+                String trimmed = cleanAuthorName(author.trim());
+                if (trimmed.length() > 2 && !trimmed.matches(".*\\d.*")) {
+                    if (trimmed.contains(",")) {
+                        String[] parts = trimmed.split(",", 2);
+                        if (parts.length == 2) {
+                            trimmed = parts[1].trim() + " " + parts[0].trim();
+                        }
+                    }
+                    authors.add(trimmed);
+                }
+            }
+            return authors;
+        }
+
+        static String[] smartSplitAuthors(String authorString) {
+            List<String> authors = new ArrayList<>();
+            String[] words = authorString.split(",");
+            StringBuilder currentAuthor = new StringBuilder();
+
+            for (String w : words) {
+                String word = w.trim();
+                if (word.isEmpty()) continue;
+
+                if (currentAuthor.length() > 0 && isLikelyNewAuthor(word)) {
+                    authors.add(currentAuthor.toString().trim());
+                    currentAuthor = new StringBuilder(word);
+                } else {
+                    if (currentAuthor.length() > 0) {
+                        currentAuthor.append(", ");
+                    }
+                    currentAuthor.append(word);
+                }
+            }
+
+            if (currentAuthor.length() > 0) {
+                authors.add(currentAuthor.toString().trim());
+            }
+            return authors.toArray(new String[0]);
+        }
+
+        static boolean isLikelyNewAuthor(String text) {
+            String[] words = text.split("\\s+");
+            if (words.length >= 2) {
+                int capitalizedCount = 0;
+                for (String word : words) {
+                    if (word.length() > 0 && Character.isUpperCase(word.charAt(0))) {
+                        capitalizedCount++;
+                    }
+                }
+                return capitalizedCount >= 2;
+            }
+            return false;
+        }
+
+        static String cleanAuthorName(String name) {
+            if (name == null) return "";
+            name = name.replaceAll("\\s+", " ");
+            name = name.replaceAll("[^a-zA-Z\\s\\-']", " ");
+            name = name.replaceAll("\\s+", " ").trim();
+            return name;
+        }
+
+        static List<String> parseKeywords(String keywordStr) {
+            List<String> result = new ArrayList<>();
+            if (keywordStr == null || keywordStr.trim().isEmpty()) {
+                return result;
+            }
+            for (String keyword : keywordStr.split("[;,]")) {
+                String cleanKeyword = keyword.trim().toLowerCase();
+                if (!cleanKeyword.isEmpty() &&
+                        !cleanKeyword.equals("null") &&
+                        !cleanKeyword.equals("na") &&
+                        !cleanKeyword.equals("n/a") &&
+                        !cleanKeyword.equals("none") &&
+                        !cleanKeyword.equals("-") &&
+                        cleanKeyword.length() > 2) {
+                    cleanKeyword = cleanKeyword.replaceAll("[\"']", "").trim();
+                    // 原实现在取Top10前会再次过滤"null"
+                    if (!cleanKeyword.isEmpty() && !cleanKeyword.equals("null")) {
+                        result.add(cleanKeyword);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用精确计数作为基准，验证Space-Saving的精确模式、误差界、下界和合并、缩放
+ */
+class TopKSketchTest {
+
+    @Test
+    void countsAreExactWhenDistinctValuesFitCapacity() {
+        TopKSketch sketch = new TopKSketch(10);
+        Map<String, Integer> exact = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            String key = "k" + random.nextInt(10);
+            sketch.add(key);
+            exact.merge(key, 1, Integer::sum);
+        }
+
+        assertTrue(sketch.isExact());
+        assertEquals(0, sketch.maxError());
+        assertEquals(5000, sketch.totalWeight());
+        assertEquals(topExact(exact, 5), sketch.top(5));
+        assertEquals(0, sketch.estimate("missing"));
+    }
+
+    @Test
+    void overflowReportsGuaranteedLowerBoundsWithinErrorBound() {
+        int capacity = 50;
+        TopKSketch sketch = new TopKSketch(capacity);
+        Map<String, Integer> exact = new HashMap<>();
+        Random random = new Random(2);
+        int total = 100000;
+        for (int i = 0; i < total; i++) {
+            // 少数高频项加大量长尾
+            String key = random.nextInt(4) == 0 ? "hot" + random.nextInt(10) : "tail" + random.nextInt(5000);
+            sketch.add(key);
+            exact.merge(key, 1, Integer::sum);
+        }
+
+        assertFalse(sketch.isExact());
+        long maxError = sketch.maxError();
+        assertTrue(maxError > 0 && maxError <= total / capacity, "maxError=" + maxError);
+
+        for (TopKSketch.Counter c : sketch.counters()) {
+            int actual = exact.getOrDefault(c.getKey(), 0);
+            assertTrue(c.getCount() >= actual, c.getKey());
+            assertTrue(c.lowerBound() <= actual, c.getKey());
+            assertTrue(c.getError() <= maxError, c.getKey());
+        }
+        for (Map.Entry<String, Integer> entry : sketch.top(10).entrySet()) {
+            int actual = exact.get(entry.getKey());
+            assertTrue(entry.getValue() <= actual && actual - entry.getValue() <= maxError, entry.getKey());
+        }
+        // 高频项都能被找到
+        assertEquals(10, sketch.top(10).keySet().stream().filter(key -> key.startsWith("hot")).count());
+    }
+
+    @Test
+    void zipfAuthorDistributionKeepsTopAuthorsWithLargerCapacity() {
+        // 作者频次近似Zipf分布（s=1）：200000个不同作者，远多于容量
+        int distinct = 200000;
+        double[] cdf = new double[distinct];
+        double sum = 0;
+        for (int rank = 1; rank <= distinct; rank++) {
+            sum += 1.0 / rank;
+            cdf[rank - 1] = sum;
+        }
+        TopKSketch small = new TopKSketch(2000);
+        TopKSketch large = new TopKSketch(20000);
+        Map<String, Integer> exact = new HashMap<>();
+        Random random = new Random(4);
+        int total = 500000;
+        for (int i = 0; i < total; i++) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            String key = "author" + (index >= 0 ? index : -index - 1);
+            small.add(key);
+            large.add(key);
+            exact.merge(key, 1, Integer::sum);
+        }
+
+        assertTrue(exact.size() > large.capacity());
+        assertFalse(large.isExact());
+        for (TopKSketch sketch : List.of(small, large)) {
+            long maxError = sketch.maxError();
+            assertTrue(maxError <= total / sketch.capacity(), "maxError=" + maxError);
+            for (Map.Entry<String, Integer> entry : sketch.top(20).entrySet()) {
+                int actual = exact.get(entry.getKey());
+                assertTrue(entry.getValue() <= actual && actual - entry.getValue() <= maxError, entry.getKey());
+            }
+        }
+        // 更大的容量误差界更小，前20名作者与精确结果一致
+        assertTrue(large.maxError() < small.maxError());
+        assertEquals(topExact(exact, 20).keySet(), large.top(20).keySet());
+    }
+
+    @Test
+    void topOrdersByLowerBoundThenKey() {
+        TopKSketch sketch = new TopKSketch(10);
+        sketch.add("b", 3);
+        sketch.add("a", 3);
+        sketch.add("c", 5);
+        sketch.add("d", 1);
+
+        assertEquals(List.of("c", "a", "b"), new ArrayList<>(sketch.top(3).keySet()));
+        assertTrue(sketch.top(0).isEmpty());
+    }
+
+    @Test
+    void mergeOfExactSketchesStaysExactWhenUnionFits() {
+        TopKSketch first = new TopKSketch(10);
+        TopKSketch second = new TopKSketch(10);
+        first.add("a", 5);
+        first.add("b", 2);
+        second.add("a", 1);
+        second.add("c", 4);
+
+        first.merge(second);
+
+        assertTrue(first.isExact());
+        assertEquals(12, first.totalWeight());
+        assertEquals(6, first.estimate("a"));
+        assertEquals(4, first.estimate("c"));
+        assertEquals(List.of("a", "c", "b"), new ArrayList<>(first.top(3).keySet()));
+    }
+
+    @Test
+    void mergeOfTruncatedSketchesKeepsBounds() {
+        int capacity = 20;
+        Map<String, Integer> exact = new HashMap<>();
+        TopKSketch merged = new TopKSketch(capacity);
+        Random random = new Random(3);
+        for (int part = 0; part < 4; part++) {
+            TopKSketch sketch = new TopKSketch(capacity);
+            for (int i = 0; i < 20000; i++) {
+                String key = random.nextInt(3) == 0 ? "hot" + random.nextInt(5) : "tail" + random.nextInt(2000);
+                sketch.add(key);
+                exact.merge(key, 1, Integer::sum);
+            }
+            merged.merge(sketch);
+        }
+
+        assertFalse(merged.isExact());
+        assertEquals(80000, merged.totalWeight());
+        assertTrue(merged.size() <= capacity);
+        long maxError = merged.maxError();
+        for (TopKSketch.Counter c : merged.counters()) {
+            int actual = exact.getOrDefault(c.getKey(), 0);
+            assertTrue(c.getCount() >= actual && c.lowerBound() <= actual, c.getKey());
+            assertTrue(c.getError() <= maxError, c.getKey());
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(merged.top(5).containsKey("hot" + i));
+        }
+    }
+
+    @Test
+    void mergeWithEmptyOrNullAddsOnlyWeight() {
+        TopKSketch sketch = new TopKSketch(5);
+        sketch.add("a", 2);
+        sketch.merge(null);
+        sketch.merge(new TopKSketch(5));
+
+        assertTrue(sketch.isExact());
+        assertEquals(2, sketch.totalWeight());
+    }
+
+    @Test
+    void scaledMultipliesCountsErrorsAndWeight() {
+        TopKSketch sketch = new TopKSketch(2);
+        sketch.add("a", 10);
+        sketch.add("b", 4);
+        sketch.add("c", 1);   // 替换b，继承计数4作为误差
+
+        TopKSketch scaled = sketch.scaled(2.5);
+
+        assertEquals(38, scaled.totalWeight());
+        Map<String, TopKSketch.Counter> counters = new HashMap<>();
+        for (TopKSketch.Counter c : scaled.counters()) {
+            counters.put(c.getKey(), c);
+        }
+        assertEquals(25, counters.get("a").getCount());
+        assertEquals(0, counters.get("a").getError());
+        assertEquals(13, counters.get("c").getCount());
+        assertEquals(10, counters.get("c").getError());
+        assertEquals(Map.of("a", 25, "c", 3), scaled.top(2));
+        // 原sketch不变
+        assertEquals(10, sketch.estimate("a"));
+    }
+
+    @Test
+    void capacityForErrorRate() {
+        assertEquals(10000, TopKSketch.capacityForErrorRate(0.0001));
+        assertEquals(3, TopKSketch.withErrorRate(0.4).capacity());
+        assertThrows(IllegalArgumentException.class, () -> TopKSketch.capacityForErrorRate(0));
+        assertThrows(IllegalArgumentException.class, () -> TopKSketch.capacityForErrorRate(1));
+    }
+
+    private static LinkedHashMap<String, Integer> topExact(Map<String, Integer> counts, int k) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        LinkedHashMap<String, Integer> top = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries.subList(0, Math.min(k, entries.size()))) {
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+}
@@ -404,7 +404,7 @@ function SearchResult() {
 
         } catch (error) {
             console.error('启动下载失败:', error);
-            message.error('启动下载失败，请稍后重试');
+            message.error(error.response?.data?.error || '启动下载失败，请稍后重试');
         }
     };
 
@@ -452,6 +452,9 @@ function SearchResult() {
 
         switch (downloadProgress.status) {
             case 'started': return '正在启动...';
+            case 'queued': return downloadProgress.queuePosition > 1
+                ? `排队中，前面还有 ${downloadProgress.queuePosition - 1} 个导出任务...`
+                : '排队中，即将开始...';
             case 'querying': return '正在查询数据...';
             case 'downloading': return '正在下载数据...';
             case 'processing': return `正在处理数据... (${processed.toLocaleString()}/${total.toLocaleString()})`;
@@ -842,10 +845,11 @@ function SearchResult() {
                         </div>
                     )}
 
-                    {['started', 'querying', 'downloading', 'generating_csv'].includes(downloadProgress.status) && (
+                    {['started', 'queued', 'querying', 'downloading', 'generating_csv'].includes(downloadProgress.status) && (
                         <div style={{ marginBottom: 20 }}>
                             <Progress
                                 percent={
+                                    downloadProgress.status === 'queued' ? 5 :
                                     downloadProgress.status === 'started' ? 10 :
                                         downloadProgress.status === 'querying' ? 30 :
                                             downloadProgress.status === 'downloading' ? 50 : 90